@@ -0,0 +1,115 @@
+package org.dschweie.neoload.advancedactions.qf_test.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *  \brief    Prüfung der Benchmarks gegen Grenzen für Laufzeit und Speicher
+ *
+ *  Die Klasse führt QFTestCommandBenchmark mit dem Profiler \c gc aus und
+ *  vergleicht je Benchmark und Parametersatz die Werte mit den Grenzen aus
+ *  \c qftest-benchmark-gate.properties :
+ *  \li   \c &lt;key&gt;.ns für die Nanosekunden je Aufruf,
+ *  \li   \c &lt;key&gt;.bytes für \c gc.alloc.rate.norm , die Bytes je Aufruf.
+ *
+ *  Der Schlüssel besteht aus dem Namen der Methode und den Werten der
+ *  Parameter, z.B. \c buildCommand.QF-Test-Daemon-Execute.50 . Fehlt eine
+ *  Grenze, gilt die Grenze \c default.ns bzw. \c default.bytes .
+ *
+ *  Die Bytes je Aufruf hängen kaum von der Maschine ab und sind eng
+ *  gesetzt. Die Laufzeit schwankt zwischen Maschinen, ihre Grenzen lassen
+ *  daher reichlich Abstand.
+ *
+ *  Wird eine Grenze überschritten, endet das Programm mit dem Rückgabewert
+ *  \c 1 , so dass der Build im Profil \c gate fehlschlägt.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestBenchmarkGate
+{
+  /**
+   *  \brief    Klassenkonstante mit dem Namen der Ressource mit den Grenzen
+   */
+  public static final String  LIMITS          = "/qftest-benchmark-gate.properties";
+
+  private static final String ALLOCATION      = "gc.alloc.rate.norm";
+
+  private QFTestBenchmarkGate()
+  {
+  }
+
+  public static void main(String[] args) throws IOException, RunnerException
+  {
+    Properties limits = new Properties();
+    try (InputStream in = QFTestBenchmarkGate.class.getResourceAsStream(LIMITS))
+    {
+      if(null == in)
+        throw new IOException(LIMITS.concat(" is missing"));
+      limits.load(in);
+    }
+
+    Options options = new OptionsBuilder().include(QFTestCommandBenchmark.class.getSimpleName())
+                                          .addProfiler(GCProfiler.class)
+                                          .build();
+    List<String> violations = check(new Runner(options).run(), limits);
+    for(String violation : violations)
+      System.err.println("BENCHMARK GATE: ".concat(violation));
+    if(!violations.isEmpty())
+      System.exit(1);
+    System.out.println("BENCHMARK GATE: all benchmarks within limits");
+  }
+
+  /**
+   *  \brief    Methode vergleicht die Ergebnisse mit den Grenzen
+   *
+   *  @return   Die Methode liefert je Überschreitung eine Beschreibung.
+   */
+  static List<String> check(Collection<RunResult> results, Properties limits)
+  {
+    List<String> violations = new ArrayList<String>();
+    for(RunResult result : results)
+    {
+      String key = getKey(result.getParams());
+      violations.addAll(compare(key, "ns", result.getPrimaryResult().getScore(), limits));
+      Result allocation = result.getSecondaryResults().get(ALLOCATION);
+      if(null != allocation)
+        violations.addAll(compare(key, "bytes", allocation.getScore(), limits));
+    }
+    return violations;
+  }
+
+  private static List<String> compare(String key, String unit, double score, Properties limits)
+  {
+    List<String>  violations  = new ArrayList<String>(1);
+    String        limit       = limits.getProperty(key.concat(".").concat(unit), limits.getProperty("default.".concat(unit)));
+    if((null != limit) && (Double.parseDouble(limit.trim()) < score))
+      violations.add(key.concat(String.format(" %.1f %s/op exceeds the limit of %s", score, unit, limit.trim())));
+    return violations;
+  }
+
+  /**
+   *  \brief    Methode bildet den Schlüssel aus Methode und Parametern eines Benchmarks
+   */
+  static String getKey(BenchmarkParams params)
+  {
+    String        benchmark = params.getBenchmark();
+    StringBuilder key       = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.') + 1));
+    for(String name : params.getParamsKeys())
+      key.append('.').append(params.getParam(name));
+    return key.toString();
+  }
+}
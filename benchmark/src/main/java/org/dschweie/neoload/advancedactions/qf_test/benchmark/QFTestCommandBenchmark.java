@@ -0,0 +1,173 @@
+package org.dschweie.neoload.advancedactions.qf_test.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandFactory;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteAction;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestPingAction;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStartAction;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStopAction;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    JMH-Benchmarks für den Aufbau der Kommandos und das Lesen der ActionParameter
+ *
+ *  QFTestCommandFactory.buildCommand(String, List<ActionParameter>) und die
+ *  Methoden aus QFTestCommandElementsLibrary laufen bei jeder Iteration
+ *  jedes virtuellen Anwenders. Die Benchmarks messen sie mit ActionParametern,
+ *  wie sie ein User Path typischerweise übergibt, und einer wachsenden Zahl
+ *  von Einträgen \c variable .
+ *
+ *  Mit dem Profiler \c gc liefert JMH zusätzlich \c gc.alloc.rate.norm ,
+ *  die Bytes je Aufruf. QFTestBenchmarkGate prüft beide Werte gegen Grenzen.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QFTestCommandBenchmark
+{
+  /**
+   *  \brief    Zustand mit den ActionParametern einer Action
+   */
+  @State(Scope.Benchmark)
+  public static class Command
+  {
+    @Param({ QFTestPingAction.TYPE, QFTestStartAction.TYPE, QFTestStopAction.TYPE, QFTestExecuteAction.TYPE })
+    public String actionType;
+
+    @Param({ "0", "10", "50" })
+    public int    variables;
+
+    public List<ActionParameter> parameters;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+      this.parameters = createParameters(this.variables);
+    }
+  }
+
+  /**
+   *  \brief    Zustand mit den ActionParametern für die einzelnen Methoden der Bibliothek
+   */
+  @State(Scope.Benchmark)
+  public static class Parameters
+  {
+    @Param({ "0", "10", "50" })
+    public int    variables;
+
+    public List<ActionParameter> parameters;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+      this.parameters = createParameters(this.variables);
+    }
+  }
+
+  /**
+   *  \brief    Methode erzeugt ActionParameter wie aus einem User Path
+   *
+   *  Die Werte enthalten Leerzeichen und Großbuchstaben, damit Trimmen und
+   *  Umwandeln in Kleinbuchstaben wie im Betrieb anfallen.
+   *
+   *  @param    variables     Anzahl der ActionParameter \c variable
+   */
+  static List<ActionParameter> createParameters(int variables)
+  {
+    List<ActionParameter> parameters = new ArrayList<ActionParameter>(16 + variables);
+    parameters.add(new ActionParameter("qftestPath", "C:\\Program Files\\QFS\\QF-Test\\qftest-7.0.0\\bin\\"));
+    parameters.add(new ActionParameter("daemonhost", "qftest-agent-01"));
+    parameters.add(new ActionParameter("daemonport", "3543 "));
+    parameters.add(new ActionParameter("testcase", "suites/checkout.qft#Order with voucher"));
+    parameters.add(new ActionParameter("suitedir", " C:\\Tests\\Suites "));
+    parameters.add(new ActionParameter("exitcodeignore", " Warning"));
+    parameters.add(new ActionParameter("runlog", "logs/run-%y%M%d-%h%m%s"));
+    parameters.add(new ActionParameter("jvm", "-Xmx512m -Dfile.encoding=UTF-8"));
+    parameters.add(new ActionParameter("verbose", "all"));
+    parameters.add(new ActionParameter("timeout", "600000"));
+    for(int i = 0; i < variables; ++i)
+      parameters.add(new ActionParameter("variable", "var".concat(String.valueOf(i)).concat("=value-").concat(String.valueOf(i))));
+    //  NeoLoad adds the user path of the virtual user to every call
+    parameters.add(new ActionParameter("-variable", "NEOLOAD-USERPATH=UserPath_1"));
+    return parameters;
+  }
+
+  /**
+   *  \brief    Aufbau des vollständigen Kommandos einer Action aus der zwischengespeicherten Vorlage
+   */
+  @Benchmark
+  public List<String> buildCommand(Command state)
+  {
+    return QFTestCommandFactory.buildCommand(state.actionType, state.parameters);
+  }
+
+  /**
+   *  \brief    Aufbau des vollständigen Kommandos einer Action ohne Vorlage
+   *
+   *  Vergleichswert für buildCommand(Command), entspricht dem Aufbau vor
+   *  Einführung von QFTestCommandTemplateCache.
+   */
+  @Benchmark
+  public List<String> buildUncachedCommand(Command state)
+  {
+    return QFTestCommandFactory.buildUncachedCommand(state.actionType, state.parameters);
+  }
+
+  /**
+   *  \brief    Suche nach einem ActionParameter, der nicht gesetzt ist
+   *
+   *  Das ist der teuerste Fall, die Liste wird vollständig durchlaufen. Er
+   *  tritt bei jedem optionalen Parameter auf, den der Anwender nicht setzt.
+   */
+  @Benchmark
+  public String parameterLookupMissing(Parameters state)
+  {
+    return QFTestCommandElementsLibrary.getParameterValue(state.parameters, "keystore", "no value");
+  }
+
+  /**
+   *  \brief    Optionen für die Variablen von QF-Test
+   */
+  @Benchmark
+  public List<String> variableSettings(Parameters state)
+  {
+    return QFTestCommandElementsLibrary.getVariableSettings(state.parameters);
+  }
+
+  /**
+   *  \brief    Optionen für Java VM, Rückgabewert und Protokoll
+   */
+  @Benchmark
+  public int optionalSettings(Parameters state)
+  {
+    return QFTestCommandElementsLibrary.getJavaVMParameters(state.parameters).size()
+         + QFTestCommandElementsLibrary.getSecuritySettings(state.parameters).size()
+         + QFTestCommandElementsLibrary.getOptionsSettings(state.parameters).size()
+         + QFTestCommandElementsLibrary.getExitcodeSettings(state.parameters).size()
+         + QFTestCommandElementsLibrary.getLogSettings(state.parameters).size()
+         + QFTestCommandElementsLibrary.getVerboseSettings(state.parameters).size()
+         + QFTestCommandElementsLibrary.getCleanSettings(state.parameters).size();
+  }
+}
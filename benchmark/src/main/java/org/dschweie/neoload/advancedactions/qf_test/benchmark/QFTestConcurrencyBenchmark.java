@@ -0,0 +1,319 @@
+package org.dschweie.neoload.advancedactions.qf_test.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClientFactory;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonSessionPool;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestPingActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStartActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestDaemonSupervisor;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestLatencyHistogram;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.ActionEngine;
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief    Lastmessung des Plugins mit vielen gleichzeitigen virtuellen Anwendern
+ *
+ *  Das Programm ruft eine Engine aus vielen Threads gleichzeitig auf, jeder
+ *  Thread steht für einen virtuellen Anwender und ruft die Engine ohne
+ *  Pause immer wieder auf. Anstelle von QF-Test antwortet QFTestFakeQFTest,
+ *  dessen Latenz, Ausgabe und Fehlerquote einstellbar sind.
+ *
+ *  Je Anzahl an Threads gibt das Programm aus:
+ *  \li   Durchsatz in Aufrufen je Sekunde und Anzahl der Fehler,
+ *  \li   Median, 90. und 99. Perzentil und Maximum der Laufzeit,
+ *  \li   höchste Anzahl an Threads und Kindprozessen während der Messung
+ *        sowie Threads, die nach der Messung übrig sind,
+ *  \li   belegter Heap vor und nach der Messung, jeweils nach System.gc().
+ *
+ *  Die Einstellungen werden als \c name=wert übergeben:
+ *  \li   \c action \c execute (Standard), \c ping oder \c start
+ *  \li   \c engine \c process (Standard) über \c qftestc.exe oder
+ *        \c standin direkt an einen Ersatz-Daemon im selben Prozess
+ *  \li   \c users Liste der Anzahl an Threads, Standard \c 50,100,250,500
+ *  \li   \c duration Messdauer je Anzahl in Sekunden, Standard \c 30
+ *  \li   \c warmup Vorlauf je Anzahl in Sekunden, Standard \c 5
+ *  \li   \c latency Dauer eines Testfalls in Millisekunden, Standard \c 100
+ *  \li   \c output Ausgabe eines Testfalls in Bytes, Standard \c 2000
+ *  \li   \c failure Anteil fehlerhafter Testfälle in Prozent, Standard \c 0
+ *  \li   \c daemons Anzahl der Daemons ab \c port , Standard \c 1
+ *  \li   \c port erster Port der Daemons, Standard \c 45100
+ *  \li   \c csv optionale Datei für die Ergebnisse als CSV
+ *
+ *  Alle weiteren Einstellungen, deren Name nicht bekannt ist, werden als
+ *  ActionParameter an die Engine übergeben, z.B. \c console=discard .
+ *
+ *  Aufruf z.B.:
+ *  \code
+ *  java -cp benchmark/target/benchmarks.jar org.dschweie.neoload.advancedactions.qf_test.benchmark.QFTestConcurrencyBenchmark users=50,500 latency=200 failure=5
+ *  \endcode
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestConcurrencyBenchmark
+{
+  private static final String[] HEADER = { "action", "engine", "users", "calls", "errors", "calls/s", "p50", "p90", "p99", "max", "threads", "processes", "leftthreads", "heapbeforeMB", "heapafterMB" };
+
+  private final Map<String, String>   settings;
+  private final String                action;
+  private final boolean               direct;
+  private final int                   daemons;
+  private final int                   port;
+  private final QFTestFakeQFTest      fake;
+  private final File                  qftestPath;
+  private final List<QFTestStandInDaemon> standins = new ArrayList<QFTestStandInDaemon>();
+
+  private QFTestConcurrencyBenchmark(Map<String, String> settings) throws IOException
+  {
+    this.settings   = settings;
+    this.action     = settings.remove("action");
+    this.direct     = "standin".equals(settings.remove("engine"));
+    if(this.direct)
+      System.setProperty(QFTestDaemonClientFactory.STANDIN_SWITCH, "true");
+    this.daemons    = Integer.parseInt(settings.remove("daemons"));
+    this.port       = Integer.parseInt(settings.remove("port"));
+    this.fake       = new QFTestFakeQFTest(Long.parseLong(settings.remove("latency")), Integer.parseInt(settings.remove("output")), Integer.parseInt(settings.remove("failure")));
+    this.qftestPath = Files.createTempDirectory("qftest-fake").toFile();
+    this.fake.install(this.qftestPath);
+    if(!"start".equals(this.action))
+      for(int i = 0; i < this.daemons; ++i)
+        this.standins.add(this.fake.startDaemon(new QFTestDaemonEndpoint("localhost", this.port + i)));
+  }
+
+  /**
+   *  \brief    Methode liefert die Einstellungen mit ihren Standardwerten
+   */
+  static Map<String, String> parse(String[] args)
+  {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("action", "execute");
+    settings.put("engine", "process");
+    settings.put("users", "50,100,250,500");
+    settings.put("duration", "30");
+    settings.put("warmup", "5");
+    settings.put("latency", "100");
+    settings.put("output", "2000");
+    settings.put("failure", "0");
+    settings.put("daemons", "1");
+    settings.put("port", "45100");
+    settings.put("csv", "");
+    for(String arg : args)
+    {
+      int split = arg.indexOf('=');
+      if(0 >= split)
+        throw new IllegalArgumentException("expected name=value instead of ".concat(arg));
+      settings.put(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+    }
+    return settings;
+  }
+
+  /**
+   *  \brief    Methode erzeugt die Engine eines Threads
+   *
+   *  NeoLoad erzeugt je virtuellem Anwender eine Instanz und verwendet sie
+   *  für alle seine Aufrufe, das Programm ebenso je Thread.
+   */
+  private ActionEngine createEngine()
+  {
+    switch(this.action)
+    {
+      case "ping":
+        return new QFTestPingActionEngine();
+      case "start":
+        return new QFTestStartActionEngine();
+      default:
+        return new QFTestExecuteActionEngine();
+    }
+  }
+
+  /**
+   *  \brief    Methode erzeugt die ActionParameter eines Aufrufs
+   *
+   *  @param    user          Nummer des Threads, bestimmt den Daemon
+   */
+  private List<ActionParameter> createParameters(int user)
+  {
+    List<ActionParameter> parameters = new ArrayList<ActionParameter>();
+    parameters.add(new ActionParameter("qftestPath", this.qftestPath.getAbsolutePath().concat(File.separator)));
+    parameters.add(new ActionParameter("daemonport", String.valueOf(this.port + user % this.daemons)));
+    if(this.direct)
+      parameters.add(new ActionParameter("engine", "standin"));
+    if("execute".equals(this.action))
+    {
+      boolean fail = this.direct && (ThreadLocalRandom.current().nextInt(100) < this.fake.getFailurePercent());
+      parameters.add(new ActionParameter("testcase", fail ? QFTestFakeQFTest.FAILING_TESTCASE : "benchmark.qft#case"));
+    }
+    if("ping".equals(this.action) && !this.direct)
+      parameters.add(new ActionParameter("pingmode", "deep"));
+    if("start".equals(this.action))
+      parameters.add(new ActionParameter("supervise", "false"));
+    for(Map.Entry<String, String> setting : this.settings.entrySet())
+      parameters.add(new ActionParameter(setting.getKey(), setting.getValue()));
+    return parameters;
+  }
+
+  /**
+   *  \brief    Methode misst mit einer Anzahl an Threads
+   *
+   *  @return   Die Methode liefert die Werte in der Reihenfolge von HEADER.
+   */
+  private String[] measure(final int users, long warmupMillis, long durationMillis) throws InterruptedException
+  {
+    final QFTestLatencyHistogram  latencies = new QFTestLatencyHistogram();
+    final LongAdder               errors    = new LongAdder();
+    final AtomicInteger           phase     = new AtomicInteger();   // 0 warmup, 1 measure, 2 stop
+    final CountDownLatch          finished  = new CountDownLatch(users);
+    ThreadMXBean                  threads   = ManagementFactory.getThreadMXBean();
+    MemoryMXBean                  memory    = ManagementFactory.getMemoryMXBean();
+
+    long heapBefore   = usedHeap(memory);
+    int  threadsBefore = threads.getThreadCount();
+    for(int i = 0; i < users; ++i)
+    {
+      final int user = i;
+      Thread thread = new Thread(() -> {
+        //  one engine per thread for all its calls, like NeoLoad per virtual user
+        ActionEngine engine = this.createEngine();
+        try
+        {
+          while(2 > phase.get())
+          {
+            long          start   = System.nanoTime();
+            SampleResult  result  = engine.execute(null, this.createParameters(user));
+            long          millis  = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if(1 == phase.get())
+            {
+              latencies.record(millis);
+              if((null == result) || result.isError())
+                errors.increment();
+            }
+          }
+        }
+        finally
+        {
+          finished.countDown();
+        }
+      }, "qftest-vu-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    Thread.sleep(warmupMillis);
+    threads.resetPeakThreadCount();
+    final AtomicLong processes = new AtomicLong();
+    phase.set(1);
+    long measureStart = System.nanoTime();
+    long deadline     = measureStart + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+    while(0L < deadline - System.nanoTime())
+    {
+      processes.accumulateAndGet(ProcessHandle.current().descendants().count(), Math::max);
+      Thread.sleep(Math.max(1L, Math.min(250L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))));
+    }
+    double seconds = (System.nanoTime() - measureStart) / 1e9;
+    phase.set(2);
+    finished.await();
+    int  peakThreads  = threads.getPeakThreadCount();
+    Thread.sleep(200L);
+    int  leftThreads  = threads.getThreadCount() - threadsBefore;
+    long heapAfter    = usedHeap(memory);
+
+    return new String[] { this.action, this.direct ? "standin" : "process", String.valueOf(users),
+                          String.valueOf(latencies.getCount()), String.valueOf(errors.sum()),
+                          String.format(Locale.ROOT, "%.1f", latencies.getCount() / seconds),
+                          String.valueOf(latencies.getValueAtQuantile(0.5)), String.valueOf(latencies.getValueAtQuantile(0.9)),
+                          String.valueOf(latencies.getValueAtQuantile(0.99)), String.valueOf(latencies.getMax()),
+                          String.valueOf(peakThreads), String.valueOf(processes.get()), String.valueOf(leftThreads),
+                          String.valueOf(heapBefore >> 20), String.valueOf(heapAfter >> 20) };
+  }
+
+  private static long usedHeap(MemoryMXBean memory) throws InterruptedException
+  {
+    System.gc();
+    Thread.sleep(100L);
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   *  \brief    Methode beendet Ersatz-Daemons, Überwachungen und alle Kindprozesse
+   */
+  private void close()
+  {
+    for(QFTestStandInDaemon standin : this.standins)
+      standin.stop();
+    for(int i = 0; i < this.daemons; ++i)
+      QFTestDaemonSupervisor.unsupervise(new QFTestDaemonEndpoint("localhost", this.port + i));
+    QFTestDaemonSessionPool.closeAll();
+    ProcessHandle.current().descendants().forEach(ProcessHandle::destroyForcibly);
+  }
+
+  private static String format(String[] row)
+  {
+    StringBuilder line = new StringBuilder();
+    for(String cell : row)
+      line.append(String.format("%13s", cell));
+    return line.toString();
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    Map<String, String>         settings  = parse(args);
+    String[]                    users     = settings.remove("users").split("\\s*,\\s*");
+    long                        duration  = TimeUnit.SECONDS.toMillis(Long.parseLong(settings.remove("duration")));
+    long                        warmup    = TimeUnit.SECONDS.toMillis(Long.parseLong(settings.remove("warmup")));
+    String                      csv       = settings.remove("csv");
+    QFTestConcurrencyBenchmark  benchmark = new QFTestConcurrencyBenchmark(settings);
+    List<String[]>              rows      = new ArrayList<String[]>();
+    PrintStream                 console   = System.out;
+
+    console.println(format(HEADER));
+    try
+    {
+      //  engines without context log every call to stdout, that would measure the console
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      for(String count : users)
+      {
+        String[] row = benchmark.measure(Integer.parseInt(count), warmup, duration);
+        rows.add(row);
+        console.println(format(row));
+      }
+    }
+    finally
+    {
+      System.setOut(console);
+      benchmark.close();
+    }
+
+    if(!csv.isEmpty())
+    {
+      StringBuilder content = new StringBuilder(String.join(";", HEADER)).append('\n');
+      for(String[] row : rows)
+        content.append(String.join(";", row)).append('\n');
+      Files.write(new File(csv).toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    System.exit(0);
+  }
+}
@@ -0,0 +1,150 @@
+package org.dschweie.neoload.advancedactions.qf_test.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+
+/**
+ *  \brief    Ersatz für \c qftest.exe und \c qftestc.exe in Lastmessungen
+ *
+ *  QFTestFakeQFTest.install(File) legt in einem Verzeichnis die Skripte
+ *  \c qftest.exe und \c qftestc.exe an. Das Verzeichnis wird als
+ *  ActionParameter \c qftestPath verwendet.
+ *
+ *  Beide Skripte sind gleich. Sie sind Shell-Skripte ohne eigene JVM,
+ *  damit auch bei hunderten gleichzeitigen Aufrufen die Kosten des Plugins
+ *  und nicht die des Ersatzes gemessen werden:
+ *  \li   \c -calldaemon mit Testfall wartet die eingestellte Latenz,
+ *        schreibt die eingestellte Menge an Ausgabe und endet mit der
+ *        eingestellten Fehlerquote mit \c 1 , sonst mit \c 0 ,
+ *  \li   \c -ping und \c -terminate enden sofort mit \c 0 .
+ *
+ *  Nur \c -daemon startet eine JVM mit dieser Klasse und darin einen
+ *  QFTestStandInDaemon auf dem Port aus \c -daemonport mit derselben
+ *  Latenz und läuft, bis der Prozess beendet wird.
+ *
+ *  Die Skripte laufen nur auf Systemen mit \c /bin/sh .
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestFakeQFTest
+{
+  /**
+   *  \brief    Klassenkonstante mit dem Namen des Testfalls, für den der Ersatz-Daemon mit \c 1 endet
+   */
+  public static final String  FAILING_TESTCASE  = "benchmark.qft#fail";
+
+  private final long    latencyMillis;
+  private final int     outputBytes;
+  private final int     failurePercent;
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    latencyMillis   Dauer eines Testfalls in Millisekunden
+   *  @param    outputBytes     Menge der Ausgabe eines Testfalls auf stdout
+   *  @param    failurePercent  Anteil der Testfälle in Prozent, die mit
+   *                            \c 1 enden
+   */
+  public QFTestFakeQFTest(long latencyMillis, int outputBytes, int failurePercent)
+  {
+    this.latencyMillis  = Math.max(0L, latencyMillis);
+    this.outputBytes    = Math.max(0, outputBytes);
+    this.failurePercent = Math.min(100, Math.max(0, failurePercent));
+  }
+
+  /**
+   *  \brief    Methode legt die Skripte \c qftest.exe und \c qftestc.exe an
+   *
+   *  @param    directory     Verzeichnis für die Skripte
+   *
+   *  @throws   IOException   wenn die Skripte nicht angelegt werden können
+   *                          oder das System kein \c /bin/sh hat
+   */
+  public void install(File directory) throws IOException
+  {
+    if(!new File("/bin/sh").canExecute())
+      throw new IOException("the fake qftestc needs /bin/sh");
+    Files.createDirectories(directory.toPath());
+
+    String java     = ProcessHandle.current().info().command().orElse("java");
+    String script   = "#!/bin/sh\n"
+                    + "case \" $* \" in\n"
+                    + "  *\" -daemon \"*) exec '" + java + "' -Xss256k -XX:TieredStopAtLevel=1 -cp '" + System.getProperty("java.class.path") + "' "
+                    + QFTestFakeQFTest.class.getName() + " " + this.latencyMillis + " \"$@\" ;;\n"
+                    + "  *\" -ping \"*|*\" -terminate \"*) exit 0 ;;\n"
+                    + "esac\n"
+                    + "echo \"QF-Test running $(eval echo \\${$#})\"\n"
+                    + "sleep " + String.format("%d.%03d", this.latencyMillis / 1000L, this.latencyMillis % 1000L) + "\n"
+                    + ((0 < this.outputBytes) ? "head -c " + this.outputBytes + " /dev/zero | tr '\\000' '.' | fold -w 99\necho\n" : "")
+                    + "echo \"QF-Test finished\"\n"
+                    + ((0 < this.failurePercent) ? "[ $(( $(od -An -N2 -tu2 /dev/urandom) % 100 )) -lt " + this.failurePercent + " ] && exit 1\n" : "")
+                    + "exit 0\n";
+    //  depending on the action the plugin calls qftest -batch or qftestc, both behave the same
+    write(new File(directory, "qftest.exe"), script);
+    write(new File(directory, "qftestc.exe"), script);
+  }
+
+  private static void write(File script, String content) throws IOException
+  {
+    Files.write(script.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    if(!script.setExecutable(true))
+      throw new IOException("cannot make ".concat(script.getPath()).concat(" executable"));
+  }
+
+  /**
+   *  \brief    Methode startet einen Ersatz-Daemon im eigenen Prozess
+   *
+   *  Der Daemon antwortet nach der Latenz, der Testfall FAILING_TESTCASE
+   *  endet mit \c 1 .
+   */
+  public QFTestStandInDaemon startDaemon(QFTestDaemonEndpoint endpoint)
+  {
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(endpoint);
+    daemon.setLatency(this.latencyMillis);
+    daemon.setExitCode(FAILING_TESTCASE, 1);
+    return daemon;
+  }
+
+  public long getLatencyMillis()
+  {
+    return this.latencyMillis;
+  }
+
+  public int getOutputBytes()
+  {
+    return this.outputBytes;
+  }
+
+  public int getFailurePercent()
+  {
+    return this.failurePercent;
+  }
+
+  /**
+   *  \brief    Einstieg von \c qftest.exe \c -daemon
+   *
+   *  @param    args          Latenz in Millisekunden, danach die Argumente
+   *                          des Aufrufs
+   */
+  public static void main(String[] args) throws Exception
+  {
+    List<String>  arguments = Arrays.asList(args).subList(1, args.length);
+    int           port      = 3543;
+    for(int i = 0; i < arguments.size() - 1; ++i)
+      if("-daemonport".equals(arguments.get(i)))
+        port = Integer.parseInt(arguments.get(i + 1));
+
+    new QFTestFakeQFTest(Long.parseLong(args[0]), 0, 0).startDaemon(new QFTestDaemonEndpoint("localhost", port));
+    System.out.println("QF-Test daemon listening on port " + port);
+    System.out.flush();
+    Thread.sleep(Long.MAX_VALUE);
+  }
+}
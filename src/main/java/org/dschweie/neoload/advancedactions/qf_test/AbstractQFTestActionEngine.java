@@ -1,9 +1,26 @@
 package org.dschweie.neoload.advancedactions.qf_test;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClient;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClientFactory;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonException;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonRunResult;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonSessionPool;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestConsoleSettings;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestProcessTree;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestStreamPump;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestEngineStatistics;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestMetrics;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestPhases;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestReportingContext;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter;
 import com.neotys.extensions.action.ActionParameter;
 import com.neotys.extensions.action.engine.ActionEngine;
 import com.neotys.extensions.action.engine.Context;
@@ -21,6 +38,14 @@ import com.neotys.extensions.action.engine.SampleResult;
  */
 public abstract class AbstractQFTestActionEngine implements ActionEngine
 {
+  /**
+   *  \brief    Klassenkonstante mit dem Statuscode für eine Zeitüberschreitung
+   *
+   *  Dieser Statuscode wird gesetzt, wenn ein Prozess nicht innerhalb der
+   *  Zeit \c timeout beendet wurde und deshalb abgebrochen werden musste.
+   */
+  public static final String STATUS_TIMEOUT = "QFT-TIMEOUT";
+
   /**
    *  \brief    Die statische Methode erzeugt Fehlereinträge in NeoLoad und liefert ein entscprechendes Ergebnis
    *  
@@ -77,20 +102,100 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
    */
   protected Process       process = null;
 
+  /**
+   *  \brief    Klassenkonstante mit der Wartezeit auf das Ende der Ausgabeströme
+   *
+   *  Nach dem Ende eines Prozesses wird maximal diese Zeit in Millisekunden
+   *  darauf gewartet, dass die Ausgaben vollständig gelesen wurden.
+   */
+  protected static final long PUMP_GRACE_MILLIS = 5000L;
+
   /**
    *  \brief    Instanzvariable, in der Informationen für das Ergebnis der Action gehalten werden
    */
   protected SampleResult  sampleResult = new SampleResult();
 
   /**
-   *  \brief    Instanzvariable, in der Informationen zum Aufruf des Prozesses gehalten werden
+   *  \brief    Instanzvariable, in der Request und Response der laufenden Ausführung gehalten werden
+   *
+   *  Der Kontext wird zu Beginn jeder Ausführung eines Prozesses aus einem
+   *  Pool geholt und an deren Ende geleert zurückgegeben. Damit wachsen
+   *  Request und Response nicht über die Iterationen eines virtuellen 
+   *  Anwenders an.
    */
-  protected StringBuilder requestBuilder = new StringBuilder();
-  
+  protected QFTestReportingContext reporting = null;
+
+  /**
+   *  \brief    Instanzvariable mit den Einstellungen zum Lesen der Konsolenausgabe
+   *
+   *  Spezialisierungen setzen die Einstellungen in ihrer execute-Methode
+   *  über AbstractQFTestActionEngine.configure(List<ActionParameter>).
+   */
+  protected QFTestConsoleSettings consoleSettings = QFTestConsoleSettings.DEFAULT;
+
+  /**
+   *  \brief    Instanzvariable mit dem Format der Response
+   *
+   *  \see      org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter
+   */
+  protected String responseFormat = QFTestResultWriter.FORMAT_XML;
+
+  /**
+   *  \brief    Instanzvariable mit der maximalen Laufzeit eines Prozesses in Millisekunden
+   *
+   *  Der Wert wird über den ActionParameter \c timeout gesetzt. Ohne Angabe
+   *  gilt der Wert aus AbstractQFTestActionEngine.getDefaultTimeout(). Der
+   *  Wert \c 0 hebt die Grenze auf.
+   */
+  protected long processTimeout = this.getDefaultTimeout();
+
+  /**
+   *  \brief    Instanzvariable mit der Wartezeit beim Beenden eines Prozesses in Millisekunden
+   *
+   *  Der Wert wird über den ActionParameter \c killgrace gesetzt. Nach
+   *  dieser Zeit werden Prozesse, die der Aufforderung zum Beenden nicht
+   *  gefolgt sind, zwangsweise beendet.
+   */
+  protected long killGrace = QFTestProcessTree.DEFAULT_GRACE_MILLIS;
+
+  /**
+   *  \brief    Instanzvariable mit der Verbindung zu einem Daemon während eines direkten Aufrufs
+   *
+   *  Die Variable ist nur während AbstractQFTestActionEngine.executeDaemon(Context, List<ActionParameter>)
+   *  gesetzt, damit AbstractQFTestActionEngine.stopExecute() den laufenden
+   *  Testlauf abbrechen kann.
+   */
+  protected volatile QFTestDaemonClient daemonClient = null;
+
   /**
-   *  \brief    Instanzvariable, in der Ausgaben des Prozesses gehalten werden
+   *  \brief    Instanzvariable, ob die Laufzeit in Phasen zerlegt wird
+   *
+   *  Mit dem ActionParameter \c phases und dem Wert \c false entfallen das
+   *  Element \c phases der Response und die Teilergebnisse je Phase.
+   *
+   *  \see      org.dschweie.neoload.advancedactions.qf_test.report.QFTestPhases
    */
-  protected StringBuilder responseBuilder = new StringBuilder();
+  protected boolean reportPhases = true;
+
+  /**
+   *  \brief    Instanzvariable, ob ein Aufruf in QFTestMetrics erfasst wird
+   *
+   *  Spezialisierungen setzen die Variable vorübergehend auf \c false , wenn
+   *  ein Aufruf aus mehreren Prozessen besteht, die nicht einzeln als
+   *  Aufruf der Action zählen sollen.
+   *
+   *  \see      org.dschweie.neoload.advancedactions.qf_test.report.QFTestMetrics
+   */
+  protected boolean recordMetrics = true;
+
+  /**
+   *  \brief    Instanzvariable, ob die Engine einen Lauf im Hintergrund ausführt
+   *
+   *  Ein solcher Lauf hat keinen Context. Sein Ergebnis erreicht den Anwender
+   *  nur über die Action, die auf den Lauf wartet, Meldungen auf System.out
+   *  entfallen daher.
+   */
+  protected boolean detached = false;
  
  
   /**
@@ -101,17 +206,80 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
    *  Action über AbstractQFTestActionEngine.execute(Context, List<ActionParameter>)
    *  aufgerufen wird.
    *  
-   *  Der Standardkonstruktor instanziert die Instanzvariablen, die 
-   *  zur Ausgabe von
-   *    \li   Request-Content,
-   *    \li   Response-Content und
-   *    \li   Ergebnis der Action verwendet werden.
+   *  Der Standardkonstruktor instanziert die Instanzvariable, die für das
+   *  Ergebnis der Action verwendet wird. Request- und Response-Content
+   *  werden je Ausführung in einem QFTestReportingContext gesammelt. Die
+   *  Werte der Action werden einmalig über QFTestEngineStatistics in JMX
+   *  registriert, nicht bei jedem Aufruf.
    */
   public AbstractQFTestActionEngine()
   {
     this.sampleResult = new SampleResult();
-    this.requestBuilder = new StringBuilder();
-    this.responseBuilder = new StringBuilder();
+    QFTestEngineStatistics.register(this.getMetricsName());
+  }
+
+  /**
+   *  \brief    Methode übernimmt die allgemeinen Einstellungen aus den ActionParametern
+   *
+   *  Die Methode liest die Einstellungen zur Konsolenausgabe und zum Format
+   *  der Response. Spezialisierungen rufen sie zu Beginn ihrer execute-Methode
+   *  auf.
+   *
+   *  @param    parameters    In diesem Parameter wird der Satz an
+   *                          Parametern übergeben, die der Anwender zu der
+   *                          Advanced Action in NeoLoad erfasst hat.
+   *
+   *  \see      org.dschweie.neoload.advancedactions.qf_test.process.QFTestConsoleSettings
+   *  \see      org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter
+   */
+  protected void configure(List<ActionParameter> parameters)
+  {
+    this.consoleSettings = QFTestConsoleSettings.fromParameters(parameters);
+    this.responseFormat = QFTestResultWriter.getFormat(parameters);
+    this.processTimeout = QFTestCommandElementsLibrary.getLongParameterValue(parameters, "timeout", this.getDefaultTimeout());
+    this.killGrace = QFTestCommandElementsLibrary.getLongParameterValue(parameters, "killgrace", QFTestProcessTree.DEFAULT_GRACE_MILLIS);
+    this.reportPhases = Boolean.parseBoolean(QFTestCommandElementsLibrary.getParameterValue(parameters, "phases", "true").trim());
+    String metricsFile = QFTestCommandElementsLibrary.getParameterValue(parameters, "metricsfile", "").trim();
+    if(!metricsFile.isEmpty())
+      QFTestMetrics.setDumpFile(new File(metricsFile));
+  }
+
+  /**
+   *  \brief    Methode liefert die Kennung des aktuellen virtuellen Anwenders
+   *
+   *  @return   Die Methode liefert die Kennung oder \c null , wenn die
+   *            Action ohne Laufzeitumgebung von NeoLoad ausgeführt wird.
+   */
+  protected String getVirtualUser(Context context)
+  {
+    if((null != context) && (null != context.getCurrentVirtualUser()))
+      return context.getCurrentVirtualUser().getId();
+    return null;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Namen der Action in QFTestMetrics
+   *
+   *  @return   Die Methode liefert den Namen der Klasse ohne \c QFTest und
+   *            \c ActionEngine , z.B. \c Execute .
+   */
+  protected String getMetricsName()
+  {
+    return this.getClass().getSimpleName().replace("QFTest", "").replace("ActionEngine", "");
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Standardlaufzeit eines Prozesses
+   *
+   *  Spezialisierungen überschreiben die Methode, wenn für ihre Aktion eine
+   *  andere Grenze sinnvoll ist.
+   *
+   *  @return   Die Methode liefert die maximale Laufzeit in Millisekunden,
+   *            hier eine Stunde.
+   */
+  protected long getDefaultTimeout()
+  {
+    return 3600000L;
   }
 
   /**
@@ -199,61 +367,361 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
   {
     SampleResult result = new SampleResult();
     Process currentProcess = null;
+    QFTestStreamPump stdout = null;
+    QFTestStreamPump stderr = null;
+    File consoleFile = null;
+    QFTestPhases phases = null;
         
+    // every call collects request and response in its own context
+    QFTestResultWriter writer = this.currentReporting().getWriter();
+
     // log the concrete call
     this.reportProcessCall(command);
-    if(isMainProcess)
-      this.reportToResponse("<?xml version=\"1.0\"?>");
     
     try
     {
-      // run action as a external process
+      // run action as a external process, both pipes are drained while the process is running
+      ProcessBuilder builder = new ProcessBuilder(command);
+      consoleFile = this.consoleSettings.redirect(builder, this.getVirtualUser(context));
       result.sampleStart();
-      currentProcess = new ProcessBuilder(command).start();
+      long spawnStart = System.currentTimeMillis();
+      currentProcess = builder.start();
+      long spawnEnd = System.currentTimeMillis();
+      if(this.consoleSettings.getPolicy().isPumping())
+      {
+        stdout = QFTestStreamPump.start(currentProcess, currentProcess.getInputStream(), this.consoleSettings);
+        stderr = QFTestStreamPump.start(currentProcess, currentProcess.getErrorStream(), this.consoleSettings);
+      }
       if(isMainProcess)
         this.process = currentProcess;
+      boolean finished = true;
       if(waitForProcess)
-        currentProcess.waitFor();
+      {
+        if(0L < this.processTimeout)
+          finished = currentProcess.waitFor(this.processTimeout, TimeUnit.MILLISECONDS);
+        else
+          currentProcess.waitFor();
+      }
+      //  taken before the end of the sample, so the phases never exceed its duration
+      long exited = System.currentTimeMillis();
       result.sampleEnd();
       
       // log the results
-      if(waitForProcess)
+      if(!finished)
+      { //  the process and everything it has started is killed, so the pipes are closed as well
+        QFTestProcessTree.terminate(currentProcess, this.killGrace);
+        result.setStatusCode(STATUS_TIMEOUT);
+        writer.element("timeout", String.valueOf(this.processTimeout));
+        if(null != stdout)
+        {
+          stdout.await(PUMP_GRACE_MILLIS);
+          stderr.await(PUMP_GRACE_MILLIS);
+        }
+      }
+      else if(waitForProcess)
+      {
         result.setStatusCode(String.valueOf(currentProcess.exitValue()));
+        if(null != stdout)
+        {
+          stdout.await(PUMP_GRACE_MILLIS);
+          stderr.await(PUMP_GRACE_MILLIS);
+        }
+        if(this.reportPhases)
+          phases = measurePhases(spawnStart, spawnEnd, exited, stdout, stderr);
+      }
       else
       { //  in this case the end of process will not be observed, so exit code is set to 0 
         result.setStatusCode("0");
       }
-      this.reportProcessInput(context, currentProcess);
-      this.responseBuilder.append("\n<exitcode>".concat(result.getStatusCode()).concat("</exitcode>"));
+      this.reportProcessInput(context, stdout);
+      if(null != consoleFile)
+        writer.element("consolefile", consoleFile.getAbsolutePath());
+      writer.element("exitcode", result.getStatusCode());
+      if(null != phases)
+      {
+        this.refinePhases(context, phases);
+        phases.write(writer);
+      }
     }
     catch (IOException e1)
     { 
       result.sampleEnd();
       result.setStatusCode(e1.getClass().getSimpleName());
-      this.reportProcessInput(context, currentProcess);
-      this.responseBuilder.append("<exception>".concat(e1.getLocalizedMessage()).concat("</exception>"));
+      this.reportProcessInput(context, stdout);
+      writer.element("exception", e1.getLocalizedMessage());
     }
     catch (InterruptedException e)
     {
       result.sampleEnd();
+      QFTestProcessTree.terminate(currentProcess, this.killGrace);
       result.setStatusCode(e.getClass().getSimpleName());
-      this.reportProcessInput(context, currentProcess);
-      this.responseBuilder.append("<exception>".concat(e.getLocalizedMessage()).concat("</exception>"));
+      this.reportProcessInput(context, stdout);
+      writer.element("exception", e.getLocalizedMessage());
+      Thread.currentThread().interrupt();
     }
 
     // update the result object
     result.setError(!("0".equals(result.getStatusCode())));
     if(result.isError())
-      this.reportProcessErrors(context, currentProcess);
-    result.setRequestContent(this.requestBuilder.toString());
-    result.setResponseContent(this.responseBuilder.toString());
+      this.reportProcessErrors(context, stderr);
+    this.completeResult(context, result);
+    if(null != phases)
+    {
+      phases.attach(result);
+      if(this.recordMetrics)
+        phases.record(this.getMetricsName());
+    }
+    return result;
+  }
+
+  /**
+   *  \brief    Methode ermittelt die Phasen eines beendeten Prozesses
+   *
+   *  Die erste Ausgabe auf stdout oder stderr zeigt, dass die JVM von
+   *  QF-Test gestartet ist, mit ihr endet \c spawn . Ob QF-Test danach
+   *  noch die Verbindung zum Daemon aufbaut oder schon den Test ausführt,
+   *  ist der Konsole nicht anzusehen. Die Zeit von der ersten bis zur
+   *  letzten Ausgabe gilt deshalb als Testlauf, \c connect bleibt \c 0 ,
+   *  bis refinePhases(Context, QFTestPhases) eine bessere Quelle kennt.
+   *
+   *  Ohne Ausgabe endet \c spawn mit dem Erzeugen des Prozesses und die
+   *  gesamte übrige Laufzeit gilt als Testlauf.
+   */
+  private static QFTestPhases measurePhases(long spawnStart, long spawnEnd, long exited, QFTestStreamPump stdout, QFTestStreamPump stderr)
+  {
+    long          first   = Long.MAX_VALUE;
+    long          last    = 0L;
+    for(QFTestStreamPump pump : new QFTestStreamPump[] { stdout, stderr })
+      if((null != pump) && (0L != pump.getFirstRead()))
+      {
+        first = Math.min(first, pump.getFirstRead());
+        last  = Math.max(last, pump.getLastRead());
+      }
+    if(0L == last)
+      return new QFTestPhases(spawnStart, spawnEnd, exited);
+    return new QFTestPhases(spawnStart, first, exited).setRun(first, last, QFTestPhases.SOURCE_CONSOLE);
+  }
+
+  /**
+   *  \brief    Methode, über die Spezialisierungen Beginn und Ende des Testlaufs genauer bestimmen
+   *
+   *  Die Methode wird nach dem Ende eines Prozesses aufgerufen, bevor die
+   *  Phasen in die Response geschrieben werden. Die Standardimplementierung
+   *  übernimmt die Phasen unverändert.
+   *
+   *  \see      QFTestPhases.setRun(long, long, String)
+   */
+  protected void refinePhases(Context context, QFTestPhases phases)
+  {
+  }
+
+  /**
+   *  \brief    Methode zur Ausführung einer Action direkt über einen QF-Test Daemon
+   *
+   *  Ist der ActionParameter \c engine auf \c native gesetzt, wird kein
+   *  Prozess \c qftestc.exe gestartet, sondern die Methode leiht sich aus
+   *  dem QFTestDaemonSessionPool des Daemon eine Verbindung und ruft
+   *  AbstractQFTestActionEngine.callDaemon(QFTestDaemonClient, List<ActionParameter>)
+   *  auf, in der die Spezialisierung ihre Anfrage an den Daemon stellt.
+   *
+   *  Das Ergebnis hat denselben Aufbau wie bei
+   *  AbstractQFTestActionEngine.executeProcess(Context, List<String>): Der
+   *  Statuscode enthält den Rückgabewert des Laufs und die Response die
+   *  Elemente \c daemon , \c runtime und \c exitcode .
+   *
+   *  @param    context       In dem Parameter ist eine Instanz zu übergeben,
+   *                          über die die Methode Zugriff auf Informationen
+   *                          von NeoLoad zur Laufzeit hat.
+   *  @param    parameters    In diesem Parameter wird der Satz an
+   *                          Parametern übergeben, die der Anwender zu der
+   *                          Advanced Action in NeoLoad erfasst hat.
+   *
+   *  @return   Die Methode liefert das Ergebnis der Ausführung als Instanz der
+   *            Klasse SampleResult zurück.
+   */
+  protected SampleResult executeDaemon(Context context, List<ActionParameter> parameters)
+  {
+    SampleResult        result  = new SampleResult();
+    QFTestDaemonClient  client  = null;
+    QFTestResultWriter  writer  = this.currentReporting().getWriter();
+    QFTestPhases        phases  = null;
+
+    result.sampleStart();
+    long borrowStart = System.currentTimeMillis();
+    try
+    {
+      QFTestDaemonEndpoint endpoint = QFTestDaemonEndpoint.fromParameters(parameters);
+      this.reportToRequest(QFTestDaemonClientFactory.getEngine(parameters).concat("://").concat(endpoint.toString()));
+      client = QFTestDaemonSessionPool.get(endpoint, parameters).borrow();
+      this.daemonClient = client;
+      QFTestDaemonRunResult run = this.callDaemon(client, parameters);
+      result.sampleEnd();
+      if(this.reportPhases)
+        phases = new QFTestPhases(borrowStart, borrowStart, System.currentTimeMillis()).setRun(run.getStartMillis(), run.getEndMillis(), QFTestPhases.SOURCE_DAEMON);
+
+      writer.element("daemon", endpoint.toString());
+      if(run.isTimedOut())
+      {
+        result.setStatusCode(STATUS_TIMEOUT);
+        writer.element("timeout", String.valueOf(this.processTimeout));
+      }
+      else
+        result.setStatusCode(String.valueOf(run.getExitCode()));
+      writer.element("runtime", String.valueOf(run.getDuration()));
+      writer.element("exitcode", result.getStatusCode());
+      if(null != phases)
+        phases.write(writer);
+    }
+    catch (QFTestDaemonException | NumberFormatException e)
+    {
+      result.sampleEnd();
+      result.setStatusCode(e.getClass().getSimpleName());
+      writer.element("exception", e.getLocalizedMessage());
+    }
+    finally
+    {
+      this.daemonClient = null;
+      if(null != client)
+        client.close();
+    }
+
+    result.setError(!("0".equals(result.getStatusCode())));
+    if(result.isError() && (null != context))
+      context.getLogger().error(this.reporting.getRequest().toString().concat(" => ").concat(result.getStatusCode()));
+    this.completeResult(context, result);
+    if(null != phases)
+    {
+      phases.attach(result);
+      if(this.recordMetrics)
+        phases.record(this.getMetricsName());
+    }
+    return result;
+  }
+
+  /**
+   *  \brief    Methode prüft die Erreichbarkeit eines QF-Test Daemon ohne eigenen Prozess
+   *
+   *  Die Prüfung erfolgt über QFTestDaemonProbe mit einem JRMP-Handshake oder,
+   *  wenn ein Keystore gesetzt ist, nur über den Aufbau der Verbindung. Das
+   *  Ergebnis hat denselben Aufbau wie bei
+   *  AbstractQFTestActionEngine.executeDaemon(Context, List<ActionParameter>).
+   *
+   *  @param    context       In dem Parameter ist eine Instanz zu übergeben,
+   *                          über die die Methode Zugriff auf Informationen
+   *                          von NeoLoad zur Laufzeit hat.
+   *  @param    parameters    In diesem Parameter wird der Satz an
+   *                          Parametern übergeben, die der Anwender zu der
+   *                          Advanced Action in NeoLoad erfasst hat.
+   *
+   *  @return   Die Methode liefert das Ergebnis der Prüfung als Instanz der
+   *            Klasse SampleResult zurück.
+   */
+  protected SampleResult executeProbe(Context context, List<ActionParameter> parameters)
+  {
+    return this.executeProbe(context, parameters, (int) Math.min(Integer.MAX_VALUE, this.processTimeout));
+  }
+
+  /**
+   *  \brief    Methode prüft die Erreichbarkeit eines QF-Test Daemon mit eigener Wartezeit
+   *
+   *  @param    context       Laufzeitinformationen von NeoLoad
+   *  @param    parameters    ActionParameter der Advanced Action
+   *  @param    timeoutMillis Maximale Wartezeit der Prüfung in Millisekunden
+   *
+   *  @return   Die Methode liefert das Ergebnis der Prüfung.
+   *
+   *  \see      AbstractQFTestActionEngine.executeProbe(Context, List<ActionParameter>)
+   */
+  protected SampleResult executeProbe(Context context, List<ActionParameter> parameters, int timeoutMillis)
+  {
+    SampleResult        result    = new SampleResult();
+    QFTestResultWriter  writer    = this.currentReporting().getWriter();
+    boolean             handshake = QFTestDaemonProbe.isHandshakePossible(parameters);
+
+    result.sampleStart();
+    try
+    {
+      QFTestDaemonEndpoint endpoint = QFTestDaemonEndpoint.fromParameters(parameters);
+      this.reportToRequest((handshake ? "jrmp://" : "tcp://").concat(endpoint.toString()));
+      long nanos = QFTestDaemonProbe.probe(endpoint, timeoutMillis, handshake);
+      result.sampleEnd();
+      result.setStatusCode("0");
+      writer.element("daemon", endpoint.toString());
+      writer.element("runtime", String.valueOf(TimeUnit.NANOSECONDS.toMillis(nanos)));
+      writer.element("exitcode", result.getStatusCode());
+    }
+    catch (QFTestDaemonException | NumberFormatException e)
+    {
+      result.sampleEnd();
+      result.setStatusCode(e.getClass().getSimpleName());
+      writer.element("exception", e.getLocalizedMessage());
+    }
+
+    result.setError(!("0".equals(result.getStatusCode())));
+    return this.completeResult(context, result);
+  }
+
+  /**
+   *  \brief    Methode stellt die Anfrage einer Action direkt an einen QF-Test Daemon
+   *
+   *  Spezialisierungen, die AbstractQFTestActionEngine.executeDaemon(Context, List<ActionParameter>)
+   *  verwenden, überschreiben diese Methode. Die Standardimplementierung
+   *  lehnt den direkten Aufruf ab.
+   *
+   *  @param    client        Verbindung zu dem Daemon
+   *  @param    parameters    ActionParameter der Advanced Action
+   *
+   *  @return   Die Methode liefert das Ergebnis der Anfrage.
+   *
+   *  @throws   QFTestDaemonException bei Fehlern in der Kommunikation
+   */
+  protected QFTestDaemonRunResult callDaemon(QFTestDaemonClient client, List<ActionParameter> parameters) throws QFTestDaemonException
+  {
+    throw new QFTestDaemonException("engine ".concat(QFTestDaemonClientFactory.getEngine(parameters)).concat(" is not supported by this action"));
+  }
+
+  /**
+   *  \brief    Methode übernimmt Request und Response in das Ergebnis und gibt den Kontext frei
+   */
+  protected SampleResult completeResult(Context context, SampleResult result)
+  {
+    QFTestReportingContext reporting = this.currentReporting();
+    result.setRequestContent(reporting.getRequest().toString());
+    result.setResponseContent(reporting.close());
+    QFTestReportingContext.release(reporting);
+    this.reporting = null;
+
+    if(this.recordMetrics)
+    {
+      QFTestMetrics.record(QFTestMetrics.DURATION, this.getMetricsName(), null, result.getDuration());
+      QFTestMetrics.count(QFTestMetrics.EXIT_CODE, this.getMetricsName(), result.getStatusCode());
+    }
     
-    if(null == context)
+    if((null == context) && !this.detached)
       System.out.println(result.getRequestContent().concat(" => ").concat(result.getStatusCode()));
 
     return result;
   }
   
+  /**
+   *  \brief    Methode gibt einen noch gehaltenen Kontext ohne Ergebnis frei
+   *
+   *  Die Engines rufen die Methode am Ende von
+   *  ActionEngine.execute(Context, List<ActionParameter>) in einem
+   *  \c finally auf. Endet die Ausführung mit einer RuntimeException, bevor
+   *  completeResult(Context, SampleResult) erreicht wurde, kehrt der Kontext
+   *  so trotzdem in den Pool zurück.
+   */
+  protected void releaseReporting()
+  {
+    if(null != this.reporting)
+    {
+      this.reporting.close();
+      QFTestReportingContext.release(this.reporting);
+      this.reporting = null;
+    }
+  }
+
   /**
    *  \brief    Methode zur Verabeitung eines Kommandos als Unterprozess
    *  
@@ -325,6 +793,26 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
     return this.executeProcess(context, command, waitForProcess, false);
   }
   
+  /**
+   *  \brief    Methode liefert den Kontext der laufenden Ausführung
+   *
+   *  Wird eine Reporting-Methode vor der Ausführung eines Prozesses
+   *  aufgerufen, wird bereits hier ein Kontext aus dem Pool geholt. Dessen
+   *  Inhalt wird Teil des Ergebnisses der nächsten Ausführung und der
+   *  Kontext wird an deren Ende freigegeben.
+   *
+   *  @return   Die Methode liefert den Kontext, nie \c null .
+   */
+  protected QFTestReportingContext currentReporting()
+  {
+    if(null == this.reporting)
+    {
+      this.reporting = QFTestReportingContext.acquire();
+      this.reporting.open(this.responseFormat);
+    }
+    return this.reporting;
+  }
+
   /**
    *  \brief    Reporting-Methode, die ein Kommando in die Request-Ausgabe protokolliert
    *  
@@ -341,9 +829,10 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
    */
   protected void reportProcessCall(List<String> command)
   {
-    if(0 < this.requestBuilder.length())
-      this.requestBuilder.append("\n");
-    this.requestBuilder.append(this.buildProcessCallToString(command));
+    StringBuilder request = this.currentReporting().getRequest();
+    if(0 < request.length())
+      request.append("\n");
+    request.append(this.buildProcessCallToString(command));
   }
   
   /**
@@ -361,42 +850,31 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
    *                          Die Instanz wird von NeoLoad über die Methode 
    *                          ActionEngine.execute(Context, List<ActionParameter>)
    *                          übergeben.     
-   *  @param    process       In dem Parameter ist die Instanz zu übergeben,
-   *                          die die Ausführung eines Kommandos repräsentiert
-   *                          und dessen Fehler protokolliert werden sollen.
+   *  @param    errors        In dem Parameter ist der Arbeiter zu übergeben,
+   *                          der den Fehlerstrom des Prozesses während der
+   *                          Ausführung ausgelesen hat.
    */
-  protected void reportProcessErrors(Context context, Process process)
+  protected void reportProcessErrors(Context context, QFTestStreamPump errors)
   {
-    String message = "";
-    
-    // read message from ErrorStream
-    InputStream output  = process.getErrorStream();
-    try
-    {
-      int c = output.read();
-      while(-1 != c)
-      {
-        message = message.concat(String.valueOf((char) c));
-        c = output.read();
-      }
-      output.close();
-      
-      //  write message to reponse of the action
-      if(0 < this.responseBuilder.length())
-        this.responseBuilder.append("\n");
-      this.responseBuilder.append("<errormessage>\n".concat(message).concat("</errormessage>"));
-      
-      //  write message to logfile of NeoLoad
-      if(null!=context)
-        context.getLogger().error(message);
-      else
-        System.out.println("reportProcessErrors: ".concat(message));
-    }
-    catch (IOException e)
-    {
-      this.responseBuilder.append("<exception>".concat(e.getLocalizedMessage()).concat("</exception>"));
-      context.getLogger().error(message, e);
-    }      
+    if(null == errors)
+      return;
+
+    // message from ErrorStream was collected while the process was running
+    String message = errors.getContent();
+
+    //  write message to reponse of the action
+    QFTestResultWriter writer = this.currentReporting().getWriter();
+    writer.startText("errormessage");
+    errors.getCapture().writeTo(writer);
+    writer.endText();
+    if(null != errors.getException())
+      writer.element("exception", errors.getException().getLocalizedMessage());
+
+    //  write message to logfile of NeoLoad
+    if(null!=context)
+      context.getLogger().error(message);
+    else if(!this.detached)
+      System.out.println("reportProcessErrors: ".concat(message));
   }
   
   /**
@@ -412,33 +890,22 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
    *                          Die Instanz wird von NeoLoad über die Methode 
    *                          ActionEngine.execute(Context, List<ActionParameter>)
    *                          übergeben.     
-   *  @param    process       In dem Parameter ist die Instanz zu übergeben,
-   *                          die die Ausführung eines Kommandos repräsentiert
-   *                          und dessen Ausgabe über die Kommadozeile 
-   *                          protokolliert werden sollen.
+   *  @param    console       In dem Parameter ist der Arbeiter zu übergeben,
+   *                          der die Ausgabe des Prozesses über die 
+   *                          Kommandozeile während der Ausführung ausgelesen
+   *                          hat.
    */
-  protected void reportProcessInput(Context context, Process process)
+  protected void reportProcessInput(Context context, QFTestStreamPump console)
   {
-    InputStream output  = process.getInputStream();
-    try
-    {
-      if(0 < this.responseBuilder.length())
-        this.responseBuilder.append("\n");
-      
-      this.responseBuilder.append("<console>\n");
-      int c = output.read();
-      while(-1 != c)
-      {
-        this.responseBuilder.append((char) c);
-        c = output.read();
-      }
-      output.close();
-      this.responseBuilder.append("</console>");
-    }
-    catch (IOException e)
-    {
-      this.responseBuilder.append("<exception>".concat(e.getLocalizedMessage()).concat("</exception>"));
-    }      
+    if(null == console)
+      return;
+
+    QFTestResultWriter writer = this.currentReporting().getWriter();
+    writer.startText("console");
+    console.getCapture().writeTo(writer);
+    writer.endText();
+    if(null != console.getException())
+      writer.element("exception", console.getException().getLocalizedMessage());
   }
   
   /**
@@ -456,29 +923,27 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
    */
   protected void reportToRequest(String message)
   {
-    if(0 < this.requestBuilder.length())
-      this.requestBuilder.append("\n");
-    this.requestBuilder.append(message.toString());
+    StringBuilder request = this.currentReporting().getRequest();
+    if(0 < request.length())
+      request.append("\n");
+    request.append(message);
   }
   
   /**
    *  \brief    Reporting-Methode zur Protokollierung eines Texts in der Response der Action
    *  
    *  Mit Hilfe dieser Methode kann der Text, der im Parameter \em message 
-   *  übergeben wird, in das Logging des Request der Action eingetragen 
-   *  werden.
+   *  übergeben wird, in die Response der Action eingetragen werden.
    *  
-   *  Der \em message wird, sofern die Response nicht leer ist, ein 
-   *  Zeilenumbruch vorangestellt und an den bestehenden Inhalt angehängt. 
+   *  Die \em message wird maskiert als Element \c message in das Dokument
+   *  der Response geschrieben.
    *  
    *  @param    message       In dem Parameter ist der Text zu übergeben, der
    *                          protokolliert werden soll.
    */
   protected void reportToResponse(String message)
   {
-    if(0 < this.responseBuilder.length())
-      this.responseBuilder.append("\n");
-    this.responseBuilder.append(message.toString());
+    this.currentReporting().getWriter().element("message", message);
   }
 
   /**
@@ -487,11 +952,17 @@ public abstract class AbstractQFTestActionEngine implements ActionEngine
    *  Der Anwender kann in der Oberfläche von NeoLoad Tests sofort stoppen.
    *  In diesem Fall müssen auch Advanced Actions sofort gestoppt werden.
    *  
-   *  In dieser Methode wird der laufende Hauptprozess beendet.
+   *  In dieser Methode wird der laufende Hauptprozess mit allen Prozessen
+   *  beendet, die er gestartet hat. Wurde noch kein Prozess gestartet, 
+   *  gibt es nichts zu tun. Ein direkter Testlauf über einen Daemon wird
+   *  abgebrochen.
    */
   @Override
   public void stopExecute() 
   {
-    this.process.destroy();
+    QFTestDaemonClient client = this.daemonClient;
+    if(null != client)
+      client.cancel();
+    QFTestProcessTree.terminate(this.process, this.killGrace);
   }
 }
@@ -0,0 +1,373 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ *  \brief    Client, der einen QF-Test Daemon über das Daemon-API von QF-Test anspricht
+ *
+ *  QF-Test liefert mit \c qfapi.jar im Verzeichnis \c lib seiner Installation
+ *  ein API, über das ein Daemon per RMI direkt aus einer anderen JVM
+ *  gesteuert werden kann. Die Klassen dürfen nicht mit dieser Advanced Action
+ *  ausgeliefert werden. Sie werden daher zur Laufzeit über einen eigenen
+ *  ClassLoader aus der Installation geladen und per Reflection aufgerufen.
+ *
+ *  Verwendet werden die Schnittstellen
+ *  \li   \c de.qfs.apps.qftest.daemon.DaemonLocator zum Auffinden des Daemon,
+ *  \li   \c de.qfs.apps.qftest.daemon.Daemon für Ping und Beenden,
+ *  \li   \c de.qfs.apps.qftest.daemon.TestRunDaemon und
+ *  \li   \c de.qfs.apps.qftest.daemon.DaemonRunContext für den Testlauf.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+final class QFTestApiDaemonClient implements QFTestDaemonClient
+{
+  private static final String PACKAGE             = "de.qfs.apps.qftest.daemon.";
+  private static final int    PING_THREADS        = 8;
+  private static final int    PING_QUEUE          = 256;
+
+  /**
+   *  \brief    Klassenvariable mit den ClassLoadern je Bibliotheksverzeichnis
+   *
+   *  Die Klassen des API werden je Verzeichnis nur einmal geladen.
+   */
+  private static final ConcurrentMap<String, ClassLoader> LOADERS = new ConcurrentHashMap<String, ClassLoader>();
+
+  /**
+   *  \brief    Klassenvariable mit den Threads, auf denen ein Ping wartet
+   *
+   *  Ein Aufruf per RMI lässt sich nicht mit einer Wartezeit versehen. Der
+   *  Ping läuft deshalb auf einem eigenen Thread, auf den der Aufrufer nur
+   *  bis zum Ende seiner Wartezeit wartet.
+   *
+   *  Ein hängender Aufruf belegt seinen Thread, bis RMI ihn beendet. Die
+   *  Anzahl der Threads ist daher auf PING_THREADS und die der wartenden
+   *  Pings auf PING_QUEUE begrenzt, unbenutzte Threads enden nach einer
+   *  Minute.
+   */
+  private static final ExecutorService PINGER = createPinger();
+
+  private final QFTestDaemonEndpoint  endpoint;
+  private final ClassLoader           loader;
+  private final Object                daemon;
+  private Object                      runDaemon   = null;
+  private volatile Object             runContext  = null;
+
+  private QFTestApiDaemonClient(QFTestDaemonEndpoint endpoint, ClassLoader loader, Object daemon)
+  {
+    this.endpoint = endpoint;
+    this.loader   = loader;
+    this.daemon   = daemon;
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die die Verbindung zu einem Daemon aufbaut
+   *
+   *  @param    endpoint      Adresse des Daemon
+   *  @param    libDir        Verzeichnis \c lib der Installation von QF-Test
+   *                          oder \c null , wenn die Klassen bereits über den
+   *                          ClassLoader der Advanced Action erreichbar sind
+   *  @param    keystore      Keystore für die Verbindung per TLS oder \c null
+   *  @param    keypass       Passwort des Keystore oder \c null
+   *
+   *  @return   Die Methode liefert den verbundenen Client.
+   *
+   *  @throws   QFTestDaemonException wenn das API nicht geladen werden kann
+   *                          oder kein Daemon gefunden wurde
+   */
+  static QFTestApiDaemonClient connect(QFTestDaemonEndpoint endpoint, File libDir, String keystore, String keypass) throws QFTestDaemonException
+  {
+    ClassLoader loader    = loaderFor(libDir);
+    Class<?>    locator   = type(loader, "DaemonLocator");
+    Object      instance  = invoke(locator, "instance", null);
+    if(null != keystore)
+      applyKeystore(locator, instance, keystore, keypass);
+    Object      daemon    = invoke(locator, "locateDaemon", instance,
+                                   new Class<?>[] { String.class, int.class },
+                                   endpoint.getHost(), Integer.valueOf(endpoint.getPort()));
+    if(null == daemon)
+      throw new QFTestDaemonException("no QF-Test daemon found at ".concat(endpoint.toString()));
+    return new QFTestApiDaemonClient(endpoint, loader, daemon);
+  }
+
+  /**
+   *  \brief    Methode prüft, ob die Klassen des API aus einem Verzeichnis geladen werden können
+   *
+   *  @param    libDir        Verzeichnis \c lib der Installation von QF-Test
+   *                          oder \c null für den ClassLoader der Advanced
+   *                          Action
+   */
+  static boolean isAvailable(File libDir)
+  {
+    try
+    {
+      type(loaderFor(libDir), "DaemonLocator");
+      return true;
+    }
+    catch (QFTestDaemonException e)
+    {
+      return false;
+    }
+  }
+
+  /**
+   *  \brief    Methode prüft, ob der Daemon innerhalb der Wartezeit antwortet
+   *
+   *  Antwortet der Daemon nicht rechtzeitig, endet die Methode mit einer
+   *  QFTestDaemonException. Der Aufruf per RMI läuft im Hintergrund weiter,
+   *  bis er von RMI selbst beendet wird.
+   *
+   *  @param    timeoutMillis Maximale Wartezeit in Millisekunden, \c 0 oder
+   *                          weniger wartet unbegrenzt
+   */
+  @Override
+  public boolean ping(long timeoutMillis) throws QFTestDaemonException
+  {
+    Class<?>        type    = type(this.loader, "Daemon");
+    Future<Object>  answer  = null;
+    try
+    {
+      answer = PINGER.submit(() -> invoke(type, "ping", this.daemon));
+    }
+    catch (RejectedExecutionException e)
+    {
+      throw new QFTestDaemonException("ping: too many pending pings, ".concat(this.endpoint.toString()).concat(" is not checked"), e);
+    }
+    try
+    {
+      Object value = (0L < timeoutMillis) ? answer.get(timeoutMillis, TimeUnit.MILLISECONDS) : answer.get();
+      return !(value instanceof Boolean) || ((Boolean) value).booleanValue();
+    }
+    catch (TimeoutException e)
+    {
+      answer.cancel(true);
+      throw new QFTestDaemonException("ping: no answer from ".concat(this.endpoint.toString()).concat(" within ").concat(String.valueOf(timeoutMillis)).concat(" ms"), e);
+    }
+    catch (ExecutionException e)
+    {
+      if(e.getCause() instanceof QFTestDaemonException)
+        throw (QFTestDaemonException) e.getCause();
+      throw new QFTestDaemonException("ping: ".concat(String.valueOf(e.getCause())), e.getCause());
+    }
+    catch (InterruptedException e)
+    {
+      answer.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new QFTestDaemonException("ping interrupted", e);
+    }
+  }
+
+  @Override
+  public QFTestDaemonRunResult runTest(String testcase, Map<String, String> variables, long timeoutMillis) throws QFTestDaemonException
+  {
+    Class<?>    contextType = type(this.loader, "DaemonRunContext");
+    Properties  bindings    = new Properties();
+    bindings.putAll(variables);
+
+    if(null == this.runContext)
+    { //  a test run daemon and its context are kept for the lifetime of this client
+      this.runDaemon  = invoke(type(this.loader, "Daemon"), "createTestRunDaemon", this.daemon);
+      this.runContext = invoke(type(this.loader, "TestRunDaemon"), "createContext", this.runDaemon);
+    }
+
+    int   finished  = constant(contextType, "STATE_FINISHED");
+    long  start     = System.currentTimeMillis();
+    invoke(contextType, "runTest", this.runContext, new Class<?>[] { String.class, Properties.class }, testcase, bindings);
+    Object state = invoke(contextType, "waitForRunState", this.runContext,
+                          new Class<?>[] { int.class, long.class },
+                          Integer.valueOf(finished), Long.valueOf((0L < timeoutMillis) ? timeoutMillis : Long.MAX_VALUE));
+    long  end       = System.currentTimeMillis();
+
+    if(!Integer.valueOf(finished).equals(state))
+    { //  the run did not finish in time, so it is stopped
+      this.cancel();
+      return new QFTestDaemonRunResult(-1, true, start, end);
+    }
+    Object code = invoke(contextType, "getResult", this.runContext);
+    return new QFTestDaemonRunResult(((Number) code).intValue(), false, start, end);
+  }
+
+  @Override
+  public void cancel()
+  {
+    Object current = this.runContext;
+    if(null == current)
+      return;
+    try
+    {
+      invoke(type(this.loader, "DaemonRunContext"), "stopRun", current);
+    }
+    catch (QFTestDaemonException e)
+    { //  the run context is released anyway when the client is closed
+    }
+  }
+
+  @Override
+  public void terminate() throws QFTestDaemonException
+  {
+    invoke(type(this.loader, "Daemon"), "terminate", this.daemon, new Class<?>[] { int.class }, Integer.valueOf(0));
+  }
+
+  @Override
+  public void close()
+  {
+    try
+    {
+      if(null != this.runContext)
+        invoke(type(this.loader, "DaemonRunContext"), "release", this.runContext);
+      if(null != this.runDaemon)
+        invoke(type(this.loader, "TestRunDaemon"), "cleanup", this.runDaemon);
+    }
+    catch (QFTestDaemonException e)
+    { //  the daemon releases orphaned contexts on its own
+    }
+    this.runContext = null;
+    this.runDaemon  = null;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "qfapi:".concat(this.endpoint.toString());
+  }
+
+  private static ExecutorService createPinger()
+  {
+    ThreadPoolExecutor pinger = new ThreadPoolExecutor(PING_THREADS, PING_THREADS, 60L, TimeUnit.SECONDS,
+                                                       new ArrayBlockingQueue<Runnable>(PING_QUEUE), runnable ->
+    {
+      Thread thread = new Thread(runnable, "qftest-api-ping");
+      thread.setDaemon(true);
+      return thread;
+    });
+    pinger.allowCoreThreadTimeOut(true);
+    return pinger;
+  }
+
+  /**
+   *  \brief    Methode liefert den ClassLoader für ein Bibliotheksverzeichnis
+   */
+  private static ClassLoader loaderFor(File libDir) throws QFTestDaemonException
+  {
+    if(null == libDir)
+      return QFTestApiDaemonClient.class.getClassLoader();
+
+    String      key     = libDir.getAbsolutePath();
+    ClassLoader loader  = LOADERS.get(key);
+    if(null != loader)
+      return loader;
+
+    File[] jars = libDir.listFiles();
+    if(null == jars)
+      throw new QFTestDaemonException("QF-Test library directory not found: ".concat(key));
+    List<URL> urls = new ArrayList<URL>();
+    try
+    {
+      for(File jar : jars)
+        if(jar.getName().toLowerCase().endsWith(".jar"))
+          urls.add(jar.toURI().toURL());
+    }
+    catch (MalformedURLException e)
+    {
+      throw new QFTestDaemonException("invalid QF-Test library directory: ".concat(key), e);
+    }
+    loader = new URLClassLoader(urls.toArray(new URL[urls.size()]), QFTestApiDaemonClient.class.getClassLoader());
+    ClassLoader previous = LOADERS.putIfAbsent(key, loader);
+    return (null == previous) ? loader : previous;
+  }
+
+  /**
+   *  \brief    Methode übergibt den Keystore an den DaemonLocator
+   *
+   *  Ältere Versionen von QF-Test bieten dafür keine Methode. Die
+   *  Systemeigenschaften von JSSE werden in diesem Fall bewusst nicht
+   *  gesetzt, da sie für alle Verbindungen der JVM des Lastgenerators
+   *  gelten würden. Die Verbindung schlägt stattdessen fehl.
+   *
+   *  @throws   QFTestDaemonException wenn das API keinen Keystore annimmt
+   */
+  private static void applyKeystore(Class<?> locator, Object instance, String keystore, String keypass) throws QFTestDaemonException
+  {
+    try
+    {
+      locator.getMethod("setKeystore", String.class, String.class);
+    }
+    catch (NoSuchMethodException e)
+    {
+      throw new QFTestDaemonException("keystore is not supported by the QF-Test daemon API of this installation, use engine 'process' for TLS", e);
+    }
+    invoke(locator, "setKeystore", instance, new Class<?>[] { String.class, String.class }, keystore, keypass);
+  }
+
+  private static Class<?> type(ClassLoader loader, String name) throws QFTestDaemonException
+  {
+    try
+    {
+      return Class.forName(PACKAGE.concat(name), true, loader);
+    }
+    catch (ClassNotFoundException e)
+    {
+      throw new QFTestDaemonException("QF-Test daemon API not available: ".concat(e.getLocalizedMessage()), e);
+    }
+  }
+
+  private static int constant(Class<?> type, String name) throws QFTestDaemonException
+  {
+    try
+    {
+      return type.getField(name).getInt(null);
+    }
+    catch (ReflectiveOperationException e)
+    {
+      throw new QFTestDaemonException("QF-Test daemon API incompatible: ".concat(name), e);
+    }
+  }
+
+  private static Object invoke(Class<?> type, String name, Object target) throws QFTestDaemonException
+  {
+    return invoke(type, name, target, new Class<?>[0]);
+  }
+
+  /**
+   *  \brief    Methode ruft eine Methode des API auf
+   *
+   *  Die Methode wird an der Schnittstelle gesucht und nicht an der Klasse
+   *  des Objekts, da RMI-Stubs keine öffentlichen Klassen sein müssen.
+   */
+  private static Object invoke(Class<?> type, String name, Object target, Class<?>[] signature, Object... arguments) throws QFTestDaemonException
+  {
+    try
+    {
+      Method method = type.getMethod(name, signature);
+      return method.invoke(target, arguments);
+    }
+    catch (InvocationTargetException e)
+    {
+      Throwable cause = (null == e.getCause()) ? e : e.getCause();
+      throw new QFTestDaemonException(name.concat(": ").concat(String.valueOf(cause.getLocalizedMessage())), cause);
+    }
+    catch (ReflectiveOperationException e)
+    {
+      throw new QFTestDaemonException("QF-Test daemon API incompatible: ".concat(name), e);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Strategie für wiederholte Prüfungen mit exponentiell wachsenden Pausen
+ *
+ *  Während ein Daemon startet, benötigt er die CPU des Lastgenerators. Wird
+ *  in dieser Zeit ohne Pause geprüft, ob er bereit ist, verzögert das den
+ *  Start zusätzlich. Diese Klasse liefert daher
+ *  \li   eine Wartezeit vor der ersten Prüfung ( \c readydelay , Standard 1000 ms),
+ *  \li   danach Pausen, die ab \c readyinterval (Standard 250 ms) je Versuch
+ *        verdoppelt werden, bis höchstens \c readymaxinterval (Standard 5000 ms),
+ *  \li   einen Zufallsanteil von bis zu 20% je Pause, damit mehrere
+ *        virtuelle Anwender nicht im Gleichtakt prüfen.
+ *
+ *  Die Frist wird über System.nanoTime() gemessen und ist damit unabhängig
+ *  von Änderungen der Systemzeit.
+ *
+ *  Eine Instanz gilt für eine Folge von Prüfungen und ist nicht threadsicher.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestBackoff
+{
+  public static final long    DEFAULT_INITIAL_DELAY = 1000L;
+  public static final long    DEFAULT_INTERVAL      = 250L;
+  public static final long    DEFAULT_MAX_INTERVAL  = 5000L;
+  public static final double  JITTER                = 0.2d;
+
+  private final long  initialDelay;
+  private final long  maxInterval;
+  private final long  deadline;
+  private long        interval;
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    initialDelay  Wartezeit vor der ersten Prüfung in Millisekunden
+   *  @param    interval      erste Pause zwischen zwei Prüfungen in Millisekunden
+   *  @param    maxInterval   längste Pause in Millisekunden
+   *  @param    timeoutMillis Frist ab jetzt in Millisekunden, \c 0 steht für
+   *                          keine Frist
+   */
+  public QFTestBackoff(long initialDelay, long interval, long maxInterval, long timeoutMillis)
+  {
+    this.initialDelay = initialDelay;
+    this.interval     = Math.max(1L, interval);
+    this.maxInterval  = Math.max(this.interval, maxInterval);
+    this.deadline     = (0L < timeoutMillis) ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die die Strategie aus den ActionParametern liest
+   *
+   *  @param    parameters    ActionParameter der Advanced Action
+   *  @param    timeoutMillis Frist ab jetzt in Millisekunden
+   */
+  public static QFTestBackoff fromParameters(List<ActionParameter> parameters, long timeoutMillis)
+  {
+    return new QFTestBackoff(QFTestCommandElementsLibrary.getLongParameterValue(parameters, "readydelay", DEFAULT_INITIAL_DELAY),
+                             QFTestCommandElementsLibrary.getLongParameterValue(parameters, "readyinterval", DEFAULT_INTERVAL),
+                             QFTestCommandElementsLibrary.getLongParameterValue(parameters, "readymaxinterval", DEFAULT_MAX_INTERVAL),
+                             timeoutMillis);
+  }
+
+  /**
+   *  \brief    Methode liefert die Wartezeit vor der ersten Prüfung
+   *
+   *  @return   Die Methode liefert die Wartezeit in Millisekunden, höchstens
+   *            die verbleibende Zeit bis zur Frist.
+   */
+  public long getInitialDelay()
+  {
+    return Math.min(this.initialDelay, this.getRemainingMillis());
+  }
+
+  /**
+   *  \brief    Methode liefert die Pause vor der nächsten Prüfung und verlängert die folgende
+   *
+   *  @return   Die Methode liefert die Pause in Millisekunden, höchstens die
+   *            verbleibende Zeit bis zur Frist.
+   */
+  public long nextDelay()
+  {
+    long    base    = this.interval;
+    double  jitter  = 1.0d + JITTER * (2.0d * ThreadLocalRandom.current().nextDouble() - 1.0d);
+    this.interval = Math.min(this.maxInterval, 2L * this.interval);
+    return Math.min((long) (base * jitter), this.getRemainingMillis());
+  }
+
+  /**
+   *  \brief    Methode prüft, ob die Frist abgelaufen ist
+   */
+  public boolean isExpired()
+  {
+    return 0L >= this.deadline - System.nanoTime();
+  }
+
+  /**
+   *  \brief    Methode liefert die verbleibende Zeit bis zur Frist in Millisekunden
+   */
+  public long getRemainingMillis()
+  {
+    if(Long.MAX_VALUE == this.deadline)
+      return Long.MAX_VALUE;
+    return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(this.deadline - System.nanoTime()));
+  }
+}
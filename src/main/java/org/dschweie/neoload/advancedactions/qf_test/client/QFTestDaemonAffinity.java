@@ -0,0 +1,238 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  \brief    Feste Zuordnung virtueller Anwender zu Daemons einer Verteilung
+ *
+ *  Ein Daemon behält zwischen zwei Läufen den Zustand der Oberfläche und
+ *  des getesteten Systems. Arbeitet ein virtueller Anwender immer mit
+ *  demselben Daemon, entfallen Anmeldung und Aufwärmen in jeder Iteration.
+ *
+ *  Die Zuordnung erfolgt über konsistentes Hashing: Jeder Daemon belegt
+ *  VIRTUAL_NODES Punkte auf einem Ring, ein virtueller Anwender gehört zu
+ *  dem ersten Punkt ab dem Hashwert seiner Kennung. Fällt ein Daemon aus,
+ *  werden nur seine Punkte entfernt und nur seine Anwender wechseln auf
+ *  andere Daemons. Einmal zugeordnete Anwender bleiben bei ihrem Daemon,
+ *  solange er verfügbar ist, auch wenn ein ausgefallener Daemon
+ *  zurückkehrt.
+ *
+ *  Ein ausgefallener Daemon wird nach \c affinityretry Millisekunden
+ *  (Standard 30000) wieder in den Ring aufgenommen und erhält dann neue
+ *  Anwender.
+ *
+ *  Das Ende eines virtuellen Anwenders erfährt die Advanced Action nicht.
+ *  Zuordnungen, die PINNED_IDLE_MILLIS nicht verwendet wurden, werden
+ *  deshalb verworfen, damit die Zuordnungen bei wechselnden Anwendern
+ *  nicht unbegrenzt wachsen. Kehrt ein solcher Anwender zurück, erhält er
+ *  seinen Daemon wieder über den Ring.
+ *
+ *  Ring und Zuordnungen liegen in ConcurrentSkipListMap bzw.
+ *  ConcurrentHashMap. Das Lesen einer bestehenden Zuordnung erfolgt ohne
+ *  Sperre.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonAffinity
+{
+  public static final String  MODE_NONE             = "none";
+  public static final String  MODE_VIRTUAL_USER     = "vu";
+  public static final long    DEFAULT_RETRY_MILLIS  = 30000L;
+
+  /**
+   *  \brief    Klassenkonstante mit der Anzahl der Punkte je Daemon auf dem Ring
+   */
+  public static final int     VIRTUAL_NODES         = 64;
+
+  /**
+   *  \brief    Klassenkonstante mit der Zeit in Millisekunden, nach der eine unbenutzte Zuordnung verworfen wird
+   */
+  public static final long    PINNED_IDLE_MILLIS    = 600000L;
+
+  private final List<QFTestDaemonEndpoint>                        endpoints;
+  private final ConcurrentNavigableMap<Integer, QFTestDaemonEndpoint> ring  = new ConcurrentSkipListMap<Integer, QFTestDaemonEndpoint>();
+  private final ConcurrentMap<String, Pin>                        pinned    = new ConcurrentHashMap<String, Pin>();
+
+  /**
+   *  \brief    Ausgefallene Daemons mit dem Zeitpunkt des Ausfalls über System.nanoTime()
+   */
+  private final ConcurrentMap<QFTestDaemonEndpoint, Long>         lost      = new ConcurrentHashMap<QFTestDaemonEndpoint, Long>();
+
+  private final AtomicLong                                        rebalanced = new AtomicLong();
+
+  /**
+   *  \brief    Zeitpunkt über System.nanoTime(), ab dem unbenutzte Zuordnungen wieder geprüft werden
+   */
+  private final AtomicLong                                        nextEviction = new AtomicLong(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PINNED_IDLE_MILLIS));
+
+  /**
+   *  \brief    Zuordnung eines virtuellen Anwenders mit dem Zeitpunkt der letzten Verwendung über System.nanoTime()
+   */
+  private static final class Pin
+  {
+    private final QFTestDaemonEndpoint  endpoint;
+    private volatile long               lastUsed  = System.nanoTime();
+
+    private Pin(QFTestDaemonEndpoint endpoint)
+    {
+      this.endpoint = endpoint;
+    }
+  }
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    endpoints     Adressen der Daemons der Verteilung
+   */
+  public QFTestDaemonAffinity(List<QFTestDaemonEndpoint> endpoints)
+  {
+    this.endpoints = endpoints;
+    for(QFTestDaemonEndpoint endpoint : endpoints)
+      this.addNodes(endpoint);
+  }
+
+  /**
+   *  \brief    Methode liefert den Daemon eines virtuellen Anwenders
+   *
+   *  @param    user          Kennung des virtuellen Anwenders
+   *  @param    retryMillis   Zeit in Millisekunden, nach der ausgefallene
+   *                          Daemons wieder aufgenommen werden
+   *
+   *  @return   Die Methode liefert den zugeordneten Daemon.
+   *
+   *  @throws   QFTestDaemonException wenn kein Daemon verfügbar ist
+   */
+  public QFTestDaemonEndpoint select(String user, long retryMillis) throws QFTestDaemonException
+  {
+    if(!this.lost.isEmpty())
+      this.readmit(retryMillis);
+    long now  = System.nanoTime();
+    long next = this.nextEviction.get();
+    if((0L <= now - next) && this.nextEviction.compareAndSet(next, now + TimeUnit.MILLISECONDS.toNanos(PINNED_IDLE_MILLIS)))
+      this.evictIdle(PINNED_IDLE_MILLIS);
+
+    Pin pin = this.pinned.get(user);
+    if((null != pin) && !this.lost.containsKey(pin.endpoint))
+    {
+      pin.lastUsed = now;
+      return pin.endpoint;
+    }
+
+    QFTestDaemonEndpoint assigned = this.locate(user);
+    if(null == assigned)
+      throw new QFTestDaemonException("no daemon of ".concat(this.endpoints.toString()).concat(" is available"));
+    Pin previous = this.pinned.put(user, new Pin(assigned));
+    if((null != previous) && !previous.endpoint.equals(assigned))
+      this.rebalanced.incrementAndGet();
+    return assigned;
+  }
+
+  /**
+   *  \brief    Methode verwirft Zuordnungen, die länger als \em idleMillis nicht verwendet wurden
+   *
+   *  Wird von select(String, long) alle PINNED_IDLE_MILLIS mit diesem Wert
+   *  aufgerufen.
+   */
+  public void evictIdle(long idleMillis)
+  {
+    long limit = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    for(Map.Entry<String, Pin> entry : this.pinned.entrySet())
+      if(0L <= limit - entry.getValue().lastUsed)
+        this.pinned.remove(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   *  \brief    Methode sucht den Daemon auf dem Ring
+   */
+  private QFTestDaemonEndpoint locate(String user)
+  {
+    Map.Entry<Integer, QFTestDaemonEndpoint> entry = this.ring.ceilingEntry(hash(user));
+    if(null == entry)
+      entry = this.ring.firstEntry();
+    return (null == entry) ? null : entry.getValue();
+  }
+
+  /**
+   *  \brief    Methode nimmt einen ausgefallenen Daemon aus dem Ring
+   *
+   *  Die virtuellen Anwender des Daemon erhalten beim nächsten Aufruf von
+   *  select(String, long) einen anderen Daemon.
+   */
+  public void markLost(QFTestDaemonEndpoint endpoint)
+  {
+    if(null == this.lost.putIfAbsent(endpoint, Long.valueOf(System.nanoTime())))
+      for(int i = 0; i < VIRTUAL_NODES; ++i)
+        this.ring.remove(hash(endpoint.toString().concat("#").concat(String.valueOf(i))), endpoint);
+  }
+
+  /**
+   *  \brief    Methode nimmt ausgefallene Daemons nach der Wartezeit wieder in den Ring auf
+   */
+  private void readmit(long retryMillis)
+  {
+    long now = System.nanoTime();
+    for(Map.Entry<QFTestDaemonEndpoint, Long> entry : this.lost.entrySet())
+      if((TimeUnit.MILLISECONDS.toNanos(retryMillis) <= now - entry.getValue().longValue()) && this.lost.remove(entry.getKey(), entry.getValue()))
+        this.addNodes(entry.getKey());
+  }
+
+  private void addNodes(QFTestDaemonEndpoint endpoint)
+  {
+    for(int i = 0; i < VIRTUAL_NODES; ++i)
+      this.ring.putIfAbsent(hash(endpoint.toString().concat("#").concat(String.valueOf(i))), endpoint);
+  }
+
+  /**
+   *  \brief    Methode liefert einen gleichmäßig verteilten Hashwert
+   *
+   *  Der Hashwert von String wird mit dem abschließenden Schritt von
+   *  MurmurHash3 gemischt, damit ähnliche Kennungen wie \c UserPath-1 und
+   *  \c UserPath-2 nicht benachbart auf dem Ring liegen.
+   */
+  static int hash(String value)
+  {
+    int h = value.hashCode();
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Anwender, die einem Daemon zugeordnet sind
+   */
+  public int getPinnedCount(QFTestDaemonEndpoint endpoint)
+  {
+    int count = 0;
+    for(Pin pin : this.pinned.values())
+      if(pin.endpoint.equals(endpoint))
+        ++count;
+    return count;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Anwender, die wegen eines Ausfalls den Daemon gewechselt haben
+   */
+  public long getRebalancedCount()
+  {
+    return this.rebalanced.get();
+  }
+
+  /**
+   *  \brief    Methode prüft, ob ein Daemon als ausgefallen gilt
+   */
+  public boolean isLost(QFTestDaemonEndpoint endpoint)
+  {
+    return this.lost.containsKey(endpoint);
+  }
+}
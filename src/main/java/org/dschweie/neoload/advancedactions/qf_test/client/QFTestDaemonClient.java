@@ -0,0 +1,65 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.util.Map;
+
+/**
+ *  \brief    Schnittstelle für den direkten Zugriff auf einen QF-Test Daemon
+ *
+ *  Über \c qftestc.exe \c -calldaemon wird für jeden Aufruf eine eigene JVM
+ *  gestartet, nur um eine Anfrage an den Daemon zu senden. Implementierungen
+ *  dieser Schnittstelle sprechen den Daemon dagegen direkt aus der JVM des
+ *  Lastgenerators an.
+ *
+ *  Eine Instanz ist nicht threadsicher und wird jeweils nur von einer
+ *  Ausführung einer Advanced Action zur Zeit verwendet.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public interface QFTestDaemonClient
+{
+  /**
+   *  \brief    Methode prüft, ob der Daemon antwortet
+   *
+   *  @param    timeoutMillis Maximale Wartezeit in Millisekunden
+   *
+   *  @return   Die Methode liefert \c true , wenn der Daemon geantwortet hat.
+   *
+   *  @throws   QFTestDaemonException bei Fehlern in der Kommunikation
+   */
+  boolean ping(long timeoutMillis) throws QFTestDaemonException;
+
+  /**
+   *  \brief    Methode führt einen Testfall oder Testfallsatz aus
+   *
+   *  @param    testcase      Knoten in der Schreibweise \c suite#testcase
+   *  @param    variables     Variablen, die für den Lauf gesetzt werden
+   *  @param    timeoutMillis Maximale Laufzeit in Millisekunden, \c 0 steht
+   *                          für keine Grenze
+   *
+   *  @return   Die Methode liefert das Ergebnis des Laufs.
+   *
+   *  @throws   QFTestDaemonException bei Fehlern in der Kommunikation
+   */
+  QFTestDaemonRunResult runTest(String testcase, Map<String, String> variables, long timeoutMillis) throws QFTestDaemonException;
+
+  /**
+   *  \brief    Methode bricht einen laufenden Testlauf ab
+   *
+   *  Die Methode kann aus einem anderen Thread aufgerufen werden, z.B. aus
+   *  ActionEngine.stopExecute().
+   */
+  void cancel();
+
+  /**
+   *  \brief    Methode beendet den Daemon
+   *
+   *  @throws   QFTestDaemonException bei Fehlern in der Kommunikation
+   */
+  void terminate() throws QFTestDaemonException;
+
+  /**
+   *  \brief    Methode gibt die Ressourcen der Verbindung frei
+   */
+  void close();
+}
@@ -0,0 +1,144 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Fabrik für Clients, die einen QF-Test Daemon direkt ansprechen
+ *
+ *  Über den ActionParameter \c engine wählt der Anwender, wie eine Advanced
+ *  Action den Daemon anspricht:
+ *  \li   \c process (Standard) startet für jeden Aufruf \c qftestc.exe ,
+ *  \li   \c native spricht den Daemon über das Daemon-API von QF-Test direkt
+ *        aus der JVM des Lastgenerators an.
+ *
+ *  Der Wert \c standin spricht einen QFTestStandInDaemon in derselben JVM
+ *  an. Er ist nur für Tests und Benchmarks gedacht und wird nur erkannt,
+ *  wenn die Systemeigenschaft \c qftest.internal.standin auf \c true
+ *  gesetzt ist, sonst gilt er wie jeder unbekannte Wert als \c process .
+ *
+ *  Für \c native werden die Klassen des API aus dem Verzeichnis gelesen,
+ *  das im ActionParameter \c qftestlib angegeben ist. Fehlt die Angabe, wird
+ *  das Verzeichnis \c lib neben dem Verzeichnis aus \c qftestPath verwendet.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonClientFactory
+{
+  public static final String ENGINE_PROCESS = "process";
+  public static final String ENGINE_NATIVE  = "native";
+  public static final String ENGINE_STANDIN = "standin";
+
+  /**
+   *  \brief    Klassenkonstante mit der Systemeigenschaft, die \c standin freischaltet
+   */
+  public static final String STANDIN_SWITCH = "qftest.internal.standin";
+
+  /**
+   *  \brief    Klassenkonstante mit den ActionParametern, die connect(QFTestDaemonEndpoint, List<ActionParameter>) auswertet
+   */
+  private static final List<String> CONNECT_PARAMETERS = Arrays.asList("engine", "qftestlib", "qftestPath", "keystore", "keypass");
+
+  private QFTestDaemonClientFactory()
+  {
+  }
+
+  /**
+   *  \brief    Methode liest den ActionParameter \c engine
+   *
+   *  @return   Die Methode liefert einen der Werte \c process , \c native
+   *            oder \c standin . Unbekannte Werte und \c standin ohne
+   *            STANDIN_SWITCH gelten als \c process .
+   */
+  public static String getEngine(List<ActionParameter> parameters)
+  {
+    String value = QFTestCommandElementsLibrary.getParameterValue(parameters, "engine", ENGINE_PROCESS).trim().toLowerCase();
+    if(ENGINE_NATIVE.equals(value))
+      return value;
+    if(ENGINE_STANDIN.equals(value) && Boolean.getBoolean(STANDIN_SWITCH))
+      return value;
+    return ENGINE_PROCESS;
+  }
+
+  /**
+   *  \brief    Methode prüft, ob der Daemon direkt angesprochen werden soll
+   */
+  public static boolean isDirect(List<ActionParameter> parameters)
+  {
+    return !ENGINE_PROCESS.equals(getEngine(parameters));
+  }
+
+  /**
+   *  \brief    Methode prüft, ob das Daemon-API von QF-Test geladen werden kann
+   *
+   *  Gesucht wird wie bei \c native , eine Verbindung zu einem Daemon wird
+   *  nicht aufgebaut.
+   */
+  public static boolean isApiAvailable(List<ActionParameter> parameters)
+  {
+    return QFTestApiDaemonClient.isAvailable(getLibraryDirectory(parameters));
+  }
+
+  /**
+   *  \brief    Methode baut eine Verbindung zu dem Daemon auf
+   *
+   *  @param    endpoint      Adresse des Daemon
+   *  @param    parameters    ActionParameter der Advanced Action
+   *
+   *  @return   Die Methode liefert den verbundenen Client.
+   *
+   *  @throws   QFTestDaemonException wenn keine Verbindung aufgebaut werden
+   *                          konnte
+   */
+  public static QFTestDaemonClient connect(QFTestDaemonEndpoint endpoint, List<ActionParameter> parameters) throws QFTestDaemonException
+  {
+    if(ENGINE_STANDIN.equals(getEngine(parameters)))
+      return QFTestStandInDaemon.connect(endpoint);
+
+    String keystore = QFTestCommandElementsLibrary.getParameterValue(parameters, "keystore", "").trim();
+    String keypass  = QFTestCommandElementsLibrary.getParameterValue(parameters, "keypass", "").trim();
+    return QFTestApiDaemonClient.connect(endpoint, getLibraryDirectory(parameters),
+                                         keystore.isEmpty() ? null : keystore,
+                                         keypass.isEmpty() ? null : keypass);
+  }
+
+  /**
+   *  \brief    Methode liefert die ActionParameter, die für den Aufbau einer Verbindung benötigt werden
+   *
+   *  @return   Die Methode liefert eine unveränderliche Kopie, die auch nach
+   *            Änderungen an \em parameters gültig bleibt.
+   */
+  static List<ActionParameter> getConnectParameters(List<ActionParameter> parameters)
+  {
+    List<ActionParameter> connect = new ArrayList<ActionParameter>(CONNECT_PARAMETERS.size());
+    for(ActionParameter parameter : parameters)
+      if(CONNECT_PARAMETERS.contains(parameter.getName()))
+        connect.add(new ActionParameter(parameter.getName(), parameter.getValue()));
+    return Collections.unmodifiableList(connect);
+  }
+
+  /**
+   *  \brief    Methode ermittelt das Verzeichnis mit den Bibliotheken von QF-Test
+   *
+   *  @return   Die Methode liefert das Verzeichnis oder \c null , wenn weder
+   *            \c qftestlib noch \c qftestPath angegeben sind.
+   */
+  static File getLibraryDirectory(List<ActionParameter> parameters)
+  {
+    String libDir = QFTestCommandElementsLibrary.getParameterValue(parameters, "qftestlib", "").trim();
+    if(!libDir.isEmpty())
+      return new File(libDir);
+    String binDir = QFTestCommandElementsLibrary.getParameterValue(parameters, "qftestPath", "").trim();
+    if(binDir.isEmpty())
+      return null;
+    File parent = new File(binDir).getAbsoluteFile().getParentFile();
+    return (null == parent) ? null : new File(parent, "lib");
+  }
+}
@@ -0,0 +1,481 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatistics;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatisticsSource;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Verteilung der Aufrufe auf mehrere QF-Test Daemons
+ *
+ *  Ein QF-Test Daemon führt GUI-Tests auf einer Oberfläche aus und kann
+ *  daher nur wenige Läufe gleichzeitig sinnvoll ausführen. Damit mehr
+ *  virtuelle Anwender auf mehreren Kernen oder Rechnern arbeiten können,
+ *  wird über den ActionParameter \c daemonpool eine Menge von Daemons
+ *  angegeben. Die Einträge werden durch Komma, Semikolon oder Leerzeichen
+ *  getrennt und haben eine der Formen
+ *  \li   \c host:port
+ *  \li   \c host:von-bis für einen Bereich von Ports,
+ *  \li   \c port oder \c von-bis für Ports auf \c daemonhost (Standard \c localhost ).
+ *
+ *  Jeder Aufruf erhält über acquire(long) den Daemon mit den wenigsten
+ *  laufenden Aufrufen. Bei Gleichstand wird reihum verteilt. Je Daemon
+ *  laufen höchstens \c daemonlimit Aufrufe gleichzeitig (Standard 1).
+ *  Sind alle Daemons ausgelastet, wartet der Aufruf höchstens \c poolwait
+ *  Millisekunden (Standard 30000), bei \c 0 wie im QFTestDaemonSessionPool
+ *  ohne Begrenzung. Die Wartezeit wird über
+ *  Lease.getQueueMillis() ausgewiesen.
+ *
+ *  Mit \c daemonaffinity=vu wird stattdessen jeder virtuelle Anwender über
+ *  QFTestDaemonAffinity fest einem Daemon zugeordnet und wartet nur auf
+ *  diesen, siehe acquire(QFTestDaemonEndpoint, long).
+ *
+ *  Je Kombination aus \c daemonpool und \c daemonlimit gibt es genau eine
+ *  Instanz, die sich alle virtuellen Anwender des Lastgenerators teilen.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonDispatcher
+{
+  public static final int   DEFAULT_LIMIT = 1;
+
+  private static final ConcurrentMap<String, QFTestDaemonDispatcher> DISPATCHERS = new ConcurrentHashMap<String, QFTestDaemonDispatcher>();
+
+  static
+  { //  the callers waiting for a distribution count for each of its daemons in JMX
+    QFTestDaemonStatistics.addSource(new QFTestDaemonStatisticsSource()
+    {
+      @Override
+      public int getQueueDepth(String daemon)
+      {
+        QFTestDaemonEndpoint  endpoint  = QFTestDaemonEndpoint.valueOf(daemon);
+        int                   depth     = 0;
+        for(QFTestDaemonDispatcher dispatcher : DISPATCHERS.values())
+          if(dispatcher.getEndpoints().contains(endpoint))
+            depth += dispatcher.getWaitingCount();
+        return depth;
+      }
+    });
+  }
+
+  private final String        key;
+  private final Slot[]        slots;
+  private final int           limit;
+  private final QFTestDaemonAffinity affinity;
+  private int                 next        = 0;
+  private volatile int        waiting     = 0;
+  private int                 peakWaiting = 0;
+  private long                dispatched  = 0L;
+  private long                queued      = 0L;
+  private long                waitNanos   = 0L;
+
+  private QFTestDaemonDispatcher(String key, List<QFTestDaemonEndpoint> endpoints, int limit)
+  {
+    this.key    = key;
+    this.limit  = Math.max(1, limit);
+    this.slots  = new Slot[endpoints.size()];
+    for(int i = 0; i < this.slots.length; ++i)
+      this.slots[i] = new Slot(endpoints.get(i));
+    this.affinity = new QFTestDaemonAffinity(endpoints);
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die die Verteilung aus den ActionParametern liefert
+   *
+   *  @param    parameters    ActionParameter der Advanced Action
+   *
+   *  @return   Die Methode liefert die gemeinsame Instanz oder \c null , wenn
+   *            der ActionParameter \c daemonpool nicht gesetzt ist.
+   *
+   *  @throws   NumberFormatException wenn ein Port keine Zahl ist
+   */
+  public static QFTestDaemonDispatcher fromParameters(List<ActionParameter> parameters)
+  {
+    String spec = QFTestCommandElementsLibrary.getParameterValue(parameters, "daemonpool", "").trim();
+    if(spec.isEmpty())
+      return null;
+    int     limit = (int) QFTestCommandElementsLibrary.getLongParameterValue(parameters, "daemonlimit", DEFAULT_LIMIT);
+    String  host  = QFTestCommandElementsLibrary.getParameterValue(parameters, "daemonhost", "localhost").trim();
+    String  key   = host.concat("|").concat(spec).concat("|").concat(String.valueOf(limit));
+    QFTestDaemonDispatcher dispatcher = DISPATCHERS.get(key);
+    if(null != dispatcher)
+      return dispatcher;
+    List<QFTestDaemonEndpoint> endpoints = parse(spec, host);
+    return DISPATCHERS.computeIfAbsent(key, k -> new QFTestDaemonDispatcher(k, endpoints, limit));
+  }
+
+  /**
+   *  \brief    Methode liest die Adressen aus dem Wert von \c daemonpool
+   *
+   *  @param    spec          Wert des ActionParameter \c daemonpool
+   *  @param    defaultHost   Rechner für Einträge ohne Rechnernamen
+   *
+   *  @return   Die Methode liefert die Adressen ohne Duplikate in der
+   *            angegebenen Reihenfolge.
+   *
+   *  @throws   NumberFormatException wenn ein Port keine Zahl oder ein
+   *                          Bereich leer ist
+   */
+  public static List<QFTestDaemonEndpoint> parse(String spec, String defaultHost)
+  {
+    Set<QFTestDaemonEndpoint> endpoints = new LinkedHashSet<QFTestDaemonEndpoint>();
+    for(String entry : spec.split("[,;\\s]+"))
+    {
+      if(entry.isEmpty())
+        continue;
+      int     separator = entry.lastIndexOf(':');
+      String  host      = (0 > separator) ? defaultHost : entry.substring(0, separator);
+      String  ports     = entry.substring(separator + 1);
+      if((0 > separator) && !ports.matches("\\d+(-\\d+)?"))
+      { //  a host name without port
+        endpoints.add(new QFTestDaemonEndpoint(ports, QFTestDaemonEndpoint.DEFAULT_PORT));
+        continue;
+      }
+      int     range     = ports.indexOf('-');
+      int     from      = Integer.parseInt((0 > range) ? ports : ports.substring(0, range));
+      int     to        = (0 > range) ? from : Integer.parseInt(ports.substring(range + 1));
+      if(to < from)
+        throw new NumberFormatException("empty port range ".concat(entry));
+      for(int port = from; port <= to; ++port)
+        endpoints.add(new QFTestDaemonEndpoint(host, port));
+    }
+    if(endpoints.isEmpty())
+      throw new NumberFormatException("no daemon in ".concat(spec));
+    return new ArrayList<QFTestDaemonEndpoint>(endpoints);
+  }
+
+  /**
+   *  \brief    Methode teilt dem Aufrufer den Daemon mit den wenigsten laufenden Aufrufen zu
+   *
+   *  @param    waitMillis    Maximale Wartezeit in Millisekunden, wenn alle
+   *                          Daemons ausgelastet sind. \c 0 steht für
+   *                          unbegrenztes Warten.
+   *
+   *  @return   Die Methode liefert die Zuteilung, die nach dem Aufruf mit
+   *            Lease.close() zurückzugeben ist.
+   *
+   *  @throws   QFTestDaemonException wenn in der Wartezeit kein Daemon frei
+   *                          wurde
+   *  @throws   InterruptedException  wenn der wartende Thread unterbrochen
+   *                          wurde
+   */
+  public Lease acquire(long waitMillis) throws QFTestDaemonException, InterruptedException
+  {
+    return this.acquire(null, waitMillis);
+  }
+
+  /**
+   *  \brief    Methode teilt dem Aufrufer einen bestimmten Daemon zu
+   *
+   *  Der Aufruf wartet, bis der Daemon unter der Grenze \c daemonlimit
+   *  liegt, auch wenn andere Daemons frei sind.
+   *
+   *  @param    endpoint      Adresse des Daemon oder \c null für den Daemon
+   *                          mit den wenigsten laufenden Aufrufen
+   *  @param    waitMillis    Maximale Wartezeit in Millisekunden, \c 0 steht
+   *                          für unbegrenztes Warten.
+   *
+   *  @return   Die Methode liefert die Zuteilung.
+   *
+   *  @throws   QFTestDaemonException wenn der Daemon nicht zu dieser
+   *                          Verteilung gehört oder in der Wartezeit nicht
+   *                          frei wurde
+   *  @throws   InterruptedException  wenn der wartende Thread unterbrochen
+   *                          wurde
+   */
+  public Lease acquire(QFTestDaemonEndpoint endpoint, long waitMillis) throws QFTestDaemonException, InterruptedException
+  {
+    Slot preferred = null;
+    if(null != endpoint)
+    {
+      for(Slot slot : this.slots)
+        if(slot.endpoint.equals(endpoint))
+          preferred = slot;
+      if(null == preferred)
+        throw new QFTestDaemonException(endpoint.toString().concat(" is not part of ").concat(this.toString()));
+    }
+
+    long start    = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+    synchronized (this)
+    {
+      Slot slot = this.select(preferred);
+      if(null == slot)
+      {
+        ++this.queued;
+        ++this.waiting;
+        this.peakWaiting = Math.max(this.peakWaiting, this.waiting);
+        try
+        {
+          while(null == slot)
+          {
+            long remaining = deadline - System.nanoTime();
+            if(0L >= waitMillis)
+              this.wait();
+            else if(0L < remaining)
+              TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            else
+              throw new QFTestDaemonException(((null == preferred) ? "no daemon of ".concat(this.toString()) : preferred.endpoint.toString()).concat(" available within ").concat(String.valueOf(waitMillis)).concat(" ms"));
+            slot = this.select(preferred);
+          }
+        }
+        finally
+        {
+          --this.waiting;
+        }
+      }
+      long queueNanos = System.nanoTime() - start;
+      ++slot.inFlight;
+      ++slot.dispatched;
+      ++this.dispatched;
+      this.waitNanos += queueNanos;
+      return new Lease(slot, slot.inFlight, TimeUnit.NANOSECONDS.toMillis(queueNanos));
+    }
+  }
+
+  /**
+   *  \brief    Methode sucht den Daemon mit den wenigsten laufenden Aufrufen unterhalb der Grenze
+   *
+   *  Die Suche beginnt reihum bei einem anderen Daemon, damit sich die
+   *  Aufrufe bei Gleichstand gleichmäßig verteilen. Die Methode muss mit
+   *  der Sperre dieser Instanz aufgerufen werden.
+   *
+   *  @param    preferred     Daemon, der ausschließlich in Frage kommt, oder
+   *                          \c null
+   */
+  private Slot select(Slot preferred)
+  {
+    if(null != preferred)
+      return (preferred.inFlight < this.limit) ? preferred : null;
+    Slot best = null;
+    for(int i = 0; i < this.slots.length; ++i)
+    {
+      Slot candidate = this.slots[(this.next + i) % this.slots.length];
+      if((candidate.inFlight < this.limit) && ((null == best) || (candidate.inFlight < best.inFlight)))
+        best = candidate;
+    }
+    if(null != best)
+      this.next = (this.next + 1) % this.slots.length;
+    return best;
+  }
+
+  private synchronized void release(Slot slot)
+  {
+    --slot.inFlight;
+    this.notifyAll();
+  }
+
+  /**
+   *  \brief    Methode liefert alle Verteilungen des Lastgenerators
+   */
+  public static Collection<QFTestDaemonDispatcher> getDispatchers()
+  {
+    return Collections.unmodifiableCollection(DISPATCHERS.values());
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Adressen der Daemons
+   */
+  public List<QFTestDaemonEndpoint> getEndpoints()
+  {
+    List<QFTestDaemonEndpoint> endpoints = new ArrayList<QFTestDaemonEndpoint>(this.slots.length);
+    for(Slot slot : this.slots)
+      endpoints.add(slot.endpoint);
+    return endpoints;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl laufender Aufrufe eines Daemon
+   *
+   *  @return   Die Methode liefert die Anzahl oder \c -1 , wenn der Daemon
+   *            nicht zu dieser Verteilung gehört.
+   */
+  public synchronized int getInFlight(QFTestDaemonEndpoint endpoint)
+  {
+    for(Slot slot : this.slots)
+      if(slot.endpoint.equals(endpoint))
+        return slot.inFlight;
+    return -1;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Zuteilungen an einen Daemon
+   */
+  public synchronized long getDispatchCount(QFTestDaemonEndpoint endpoint)
+  {
+    for(Slot slot : this.slots)
+      if(slot.endpoint.equals(endpoint))
+        return slot.dispatched;
+    return 0L;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl aller Zuteilungen
+   */
+  public synchronized long getDispatchCount()
+  {
+    return this.dispatched;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Zuteilungen, die warten mussten
+   */
+  public synchronized long getQueuedCount()
+  {
+    return this.queued;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der aktuell wartenden Aufrufe
+   *
+   *  Die Methode liest ohne Sperre, damit Abfragen über JMX keinen Aufruf
+   *  aufhalten.
+   */
+  public int getWaitingCount()
+  {
+    return this.waiting;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die höchste Anzahl gleichzeitig wartender Aufrufe
+   */
+  public synchronized int getPeakWaitingCount()
+  {
+    return this.peakWaiting;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Summe aller Wartezeiten in Millisekunden
+   */
+  public synchronized long getWaitMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(this.waitNanos);
+  }
+
+  /**
+   *  \brief    Getter-Methode für die feste Zuordnung virtueller Anwender zu den Daemons
+   */
+  public QFTestDaemonAffinity getAffinity()
+  {
+    return this.affinity;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Grenze gleichzeitiger Aufrufe je Daemon
+   */
+  public int getLimit()
+  {
+    return this.limit;
+  }
+
+  public String getKey()
+  {
+    return this.key;
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.getEndpoints().toString();
+  }
+
+  /**
+   *  \brief    Zustand eines einzelnen Daemon, geschützt durch die Sperre der Verteilung
+   */
+  private static final class Slot
+  {
+    private final QFTestDaemonEndpoint  endpoint;
+    private int                         inFlight    = 0;
+    private long                        dispatched  = 0L;
+
+    private Slot(QFTestDaemonEndpoint endpoint)
+    {
+      this.endpoint = endpoint;
+    }
+  }
+
+  /**
+   *  \brief    Zuteilung eines Daemon an einen Aufruf
+   */
+  public final class Lease implements AutoCloseable
+  {
+    private final Slot  slot;
+    private final int   inFlight;
+    private final long  queueMillis;
+    private boolean     released  = false;
+
+    private Lease(Slot slot, int inFlight, long queueMillis)
+    {
+      this.slot         = slot;
+      this.inFlight     = inFlight;
+      this.queueMillis  = queueMillis;
+    }
+
+    /**
+     *  \brief    Getter-Methode für die Adresse des zugeteilten Daemon
+     */
+    public QFTestDaemonEndpoint getEndpoint()
+    {
+      return this.slot.endpoint;
+    }
+
+    /**
+     *  \brief    Getter-Methode für die Anzahl laufender Aufrufe des Daemon einschließlich dieses
+     */
+    public int getInFlight()
+    {
+      return this.inFlight;
+    }
+
+    /**
+     *  \brief    Getter-Methode für die Wartezeit auf einen freien Daemon in Millisekunden
+     */
+    public long getQueueMillis()
+    {
+      return this.queueMillis;
+    }
+
+    /**
+     *  \brief    Methode liefert die ActionParameter mit der Adresse des zugeteilten Daemon
+     *
+     *  \c daemonhost und \c daemonport werden ersetzt, alle anderen
+     *  ActionParameter bleiben unverändert.
+     */
+    public List<ActionParameter> apply(List<ActionParameter> parameters)
+    {
+      List<ActionParameter> routed = new ArrayList<ActionParameter>(parameters.size() + 2);
+      for(ActionParameter parameter : parameters)
+        if(!"daemonhost".equals(parameter.getName()) && !"daemonport".equals(parameter.getName()))
+          routed.add(parameter);
+      routed.add(new ActionParameter("daemonhost", this.slot.endpoint.getHost()));
+      routed.add(new ActionParameter("daemonport", String.valueOf(this.slot.endpoint.getPort())));
+      return routed;
+    }
+
+    /**
+     *  \brief    Methode gibt den Daemon wieder frei, weitere Aufrufe werden ignoriert
+     */
+    @Override
+    public void close()
+    {
+      synchronized (QFTestDaemonDispatcher.this)
+      {
+        if(this.released)
+          return;
+        this.released = true;
+      }
+      QFTestDaemonDispatcher.this.release(this.slot);
+    }
+  }
+}
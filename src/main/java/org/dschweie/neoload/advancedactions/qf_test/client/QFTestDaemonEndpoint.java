@@ -0,0 +1,150 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Adresse eines QF-Test Daemon aus Rechnername und Port
+ *
+ *  Instanzen dieser Klasse sind unveränderlich und können als Schlüssel in
+ *  Maps verwendet werden.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonEndpoint
+{
+  /**
+   *  \brief    Klassenkonstante mit dem Port, den QF-Test für einen Daemon standardmäßig verwendet
+   */
+  public static final int DEFAULT_PORT = 3543;
+
+  /**
+   *  \brief    Klassenvariable mit dem Ergebnis von isLocal() je Rechnername
+   */
+  private static final ConcurrentMap<String, Boolean> LOCAL_HOSTS = new ConcurrentHashMap<String, Boolean>();
+
+  private final String  host;
+  private final int     port;
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    host          Rechnername oder IP des Daemon
+   *  @param    port          Port des Daemon
+   */
+  public QFTestDaemonEndpoint(String host, int port)
+  {
+    this.host = host.trim();
+    this.port = port;
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die die Adresse aus den ActionParametern liest
+   *
+   *  Es gelten dieselben Parameter und Standardwerte wie in
+   *  QFTestCommandElementsLibrary.getDaemonDestinationElements(List<ActionParameter>).
+   *
+   *  @param  parameters      In dem Parameter wird eine Liste der
+   *                          ActionParameter übergeben, die der Anwender
+   *                          über die GUI von NeoLoad erfasst hat.
+   *
+   *  @return Die Methode liefert die Adresse des Daemon.
+   *
+   *  @throws NumberFormatException wenn \c daemonport keine Zahl ist
+   */
+  public static QFTestDaemonEndpoint fromParameters(List<ActionParameter> parameters)
+  {
+    return new QFTestDaemonEndpoint(QFTestCommandElementsLibrary.getParameterValue(parameters, "daemonhost", "localhost"),
+                                    Integer.parseInt(QFTestCommandElementsLibrary.getParameterValue(parameters, "daemonport", String.valueOf(DEFAULT_PORT)).trim()));
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die die Adresse aus der Schreibweise \c host:port liest
+   *
+   *  @param    value         Adresse in der Schreibweise \c host:port . Fehlt
+   *                          der Port, gilt DEFAULT_PORT.
+   *
+   *  @return   Die Methode liefert die Adresse des Daemon.
+   *
+   *  @throws   NumberFormatException wenn der Port keine Zahl ist
+   */
+  public static QFTestDaemonEndpoint valueOf(String value)
+  {
+    String  strValue  = value.trim();
+    int     separator = strValue.lastIndexOf(':');
+    if(0 > separator)
+      return new QFTestDaemonEndpoint(strValue, DEFAULT_PORT);
+    return new QFTestDaemonEndpoint(strValue.substring(0, separator), Integer.parseInt(strValue.substring(separator + 1).trim()));
+  }
+
+  /**
+   *  \brief    Methode prüft, ob der Daemon auf diesem Rechner läuft
+   *
+   *  Lokal ist ein Daemon, dessen Rechnername auf eine Loopback-Adresse oder
+   *  auf eine Adresse einer Netzwerkschnittstelle dieses Rechners verweist.
+   *  Das Ergebnis wird je Rechnername nur einmal ermittelt. Ein Name, der
+   *  sich nicht auflösen lässt, gilt als entfernt.
+   *
+   *  @return   Die Methode liefert \c true , wenn Dateien des Daemon, z.B.
+   *            das Protokoll aus \c runlog , hier gelesen werden können.
+   */
+  public boolean isLocal()
+  {
+    return LOCAL_HOSTS.computeIfAbsent(this.host.toLowerCase(), QFTestDaemonEndpoint::resolveLocal).booleanValue();
+  }
+
+  private static Boolean resolveLocal(String host)
+  {
+    try
+    {
+      InetAddress address = InetAddress.getByName(host);
+      return Boolean.valueOf(address.isLoopbackAddress() || address.isAnyLocalAddress() || (null != NetworkInterface.getByInetAddress(address)));
+    }
+    catch (UnknownHostException | SocketException e)
+    {
+      return Boolean.FALSE;
+    }
+  }
+
+  public String getHost()
+  {
+    return this.host;
+  }
+
+  public int getPort()
+  {
+    return this.port;
+  }
+
+  @Override
+  public boolean equals(Object other)
+  {
+    if(this == other)
+      return true;
+    if(!(other instanceof QFTestDaemonEndpoint))
+      return false;
+    QFTestDaemonEndpoint endpoint = (QFTestDaemonEndpoint) other;
+    return (this.port == endpoint.port) && this.host.equalsIgnoreCase(endpoint.host);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return 31 * this.host.toLowerCase().hashCode() + this.port;
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.host.concat(":").concat(String.valueOf(this.port));
+  }
+}
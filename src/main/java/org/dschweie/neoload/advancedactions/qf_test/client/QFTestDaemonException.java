@@ -0,0 +1,22 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+/**
+ *  \brief    Exception für Fehler in der Kommunikation mit einem QF-Test Daemon
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public class QFTestDaemonException extends Exception
+{
+  private static final long serialVersionUID = 1L;
+
+  public QFTestDaemonException(String message)
+  {
+    super(message);
+  }
+
+  public QFTestDaemonException(String message, Throwable cause)
+  {
+    super(message, cause);
+  }
+}
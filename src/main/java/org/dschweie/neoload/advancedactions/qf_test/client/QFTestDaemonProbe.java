@@ -0,0 +1,137 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatistics;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Leichtgewichtige Prüfung, ob ein QF-Test Daemon erreichbar ist
+ *
+ *  Der Ping über \c qftestc.exe startet eine komplette JVM, nur um zu
+ *  prüfen, ob der Daemon antwortet. Diese Klasse prüft die Erreichbarkeit
+ *  stattdessen in wenigen Millisekunden:
+ *  \li   \c handshake baut eine TCP-Verbindung auf und führt den Handshake
+ *        des RMI-Protokolls JRMP durch, über das der Daemon angesprochen
+ *        wird. Antwortet die Gegenseite mit \c ProtocolAck , läuft dort ein
+ *        RMI-Dienst.
+ *  \li   \c connect prüft nur, ob eine TCP-Verbindung aufgebaut werden
+ *        kann. Dieser Modus wird verwendet, wenn der Daemon über einen
+ *        Keystore per TLS abgesichert ist, da der Handshake dann erst nach
+ *        dem Aufbau von TLS möglich wäre.
+ *
+ *  Über den ActionParameter \c pingmode wählt der Anwender zwischen dieser
+ *  Prüfung ( \c probe , Standard) und dem bisherigen Ping über \c qftestc.exe
+ *  bzw. das Daemon-API ( \c deep ).
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonProbe
+{
+  /**
+   *  \brief    Klassenkonstante mit der Kennung \c JRMI am Anfang jeder RMI-Verbindung
+   */
+  static final int  JRMP_MAGIC            = 0x4a524d49;
+  static final int  JRMP_VERSION          = 2;
+  static final int  JRMP_STREAM_PROTOCOL  = 0x4b;
+  static final int  JRMP_PROTOCOL_ACK     = 0x4e;
+  static final int  JRMP_PROTOCOL_NACK    = 0x4f;
+
+  public static final String MODE_PROBE = "probe";
+  public static final String MODE_DEEP  = "deep";
+
+  private QFTestDaemonProbe()
+  {
+  }
+
+  /**
+   *  \brief    Methode prüft, ob der ActionParameter \c pingmode die tiefe Prüfung verlangt
+   */
+  public static boolean isDeep(List<ActionParameter> parameters)
+  {
+    return MODE_DEEP.equalsIgnoreCase(QFTestCommandElementsLibrary.getParameterValue(parameters, "pingmode", MODE_PROBE).trim());
+  }
+
+  /**
+   *  \brief    Methode prüft, ob der Handshake durchgeführt werden kann
+   *
+   *  @return   Die Methode liefert \c false , wenn über den ActionParameter
+   *            \c keystore ein Keystore für TLS gesetzt ist.
+   */
+  public static boolean isHandshakePossible(List<ActionParameter> parameters)
+  {
+    return QFTestCommandElementsLibrary.getParameterValue(parameters, "keystore", "").trim().isEmpty();
+  }
+
+  /**
+   *  \brief    Methode prüft die Erreichbarkeit eines Daemon
+   *
+   *  @param    endpoint      Adresse des Daemon
+   *  @param    timeoutMillis Maximale Wartezeit für Verbindungsaufbau und
+   *                          Antwort in Millisekunden
+   *  @param    handshake     \c true für die Prüfung mit JRMP-Handshake,
+   *                          \c false für die reine Prüfung der Verbindung
+   *
+   *  @return   Die Methode liefert die Dauer der Prüfung in Nanosekunden.
+   *
+   *  @throws   QFTestDaemonException wenn der Daemon nicht erreichbar ist
+   *                          oder nicht wie ein RMI-Dienst antwortet
+   *
+   *  \see      QFTestDaemonStatistics.ping(long)
+   */
+  public static long probe(QFTestDaemonEndpoint endpoint, int timeoutMillis, boolean handshake) throws QFTestDaemonException
+  {
+    QFTestDaemonStatistics statistics = QFTestDaemonStatistics.get(endpoint.toString());
+    try
+    {
+      long nanos = connect(endpoint, timeoutMillis, handshake);
+      statistics.ping(nanos);
+      return nanos;
+    }
+    catch (QFTestDaemonException e)
+    {
+      statistics.ping(-1L);
+      throw e;
+    }
+  }
+
+  private static long connect(QFTestDaemonEndpoint endpoint, int timeoutMillis, boolean handshake) throws QFTestDaemonException
+  {
+    long start = System.nanoTime();
+    try (Socket socket = new Socket())
+    {
+      socket.setTcpNoDelay(true);
+      socket.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()), timeoutMillis);
+      if(handshake)
+      {
+        socket.setSoTimeout(timeoutMillis);
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeInt(JRMP_MAGIC);
+        out.writeShort(JRMP_VERSION);
+        out.writeByte(JRMP_STREAM_PROTOCOL);
+        out.flush();
+        int answer = new DataInputStream(socket.getInputStream()).read();
+        //  a NACK still proves that an RMI endpoint is listening, only the protocol variant is refused
+        if((JRMP_PROTOCOL_ACK != answer) && (JRMP_PROTOCOL_NACK != answer))
+          throw new QFTestDaemonException("no RMI endpoint at ".concat(endpoint.toString()).concat(", answer ").concat(String.valueOf(answer)));
+      }
+    }
+    catch (SocketTimeoutException e)
+    {
+      throw new QFTestDaemonException("no answer from ".concat(endpoint.toString()).concat(" within ").concat(String.valueOf(timeoutMillis)).concat(" ms"), e);
+    }
+    catch (IOException e)
+    {
+      throw new QFTestDaemonException(endpoint.toString().concat(": ").concat(String.valueOf(e.getLocalizedMessage())), e);
+    }
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,66 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+/**
+ *  \brief    Ergebnis eines Testlaufs, der direkt über einen QF-Test Daemon ausgeführt wurde
+ *
+ *  Der Rückgabewert entspricht den Werten, die auch \c qftestc.exe im
+ *  Batch-Modus liefert:
+ *  \li   \c 0 für einen fehlerfreien Lauf,
+ *  \li   \c 1 bei Warnungen,
+ *  \li   \c 2 bei Fehlern und
+ *  \li   \c 3 bei Exceptions.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonRunResult
+{
+  private final int     exitCode;
+  private final boolean timedOut;
+  private final long    startMillis;
+  private final long    endMillis;
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    exitCode      Rückgabewert des Testlaufs
+   *  @param    timedOut      \c true , wenn der Lauf wegen Zeitüberschreitung
+   *                          abgebrochen wurde
+   *  @param    startMillis   Beginn des Laufs, vom Client vor dem Aufruf
+   *                          gemessen
+   *  @param    endMillis     Ende des Laufs, vom Client nach dem Ende des
+   *                          Laufs gemessen
+   */
+  public QFTestDaemonRunResult(int exitCode, boolean timedOut, long startMillis, long endMillis)
+  {
+    this.exitCode     = exitCode;
+    this.timedOut     = timedOut;
+    this.startMillis  = startMillis;
+    this.endMillis    = endMillis;
+  }
+
+  public int getExitCode()
+  {
+    return this.exitCode;
+  }
+
+  public boolean isTimedOut()
+  {
+    return this.timedOut;
+  }
+
+  public long getStartMillis()
+  {
+    return this.startMillis;
+  }
+
+  public long getEndMillis()
+  {
+    return this.endMillis;
+  }
+
+  public long getDuration()
+  {
+    return this.endMillis - this.startMillis;
+  }
+}
@@ -0,0 +1,463 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatistics;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatisticsSource;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Pool wiederverwendbarer Verbindungen zu einem QF-Test Daemon
+ *
+ *  Der Aufbau einer Verbindung zu einem Daemon umfasst das Laden des API,
+ *  die Suche über den DaemonLocator, ggf. die Einrichtung von TLS und das
+ *  Anlegen eines Laufkontexts. Teilen sich viele virtuelle Anwender wenige
+ *  Daemons, soll dieser Aufwand nicht in jeder Iteration anfallen.
+ *
+ *  Je Kombination aus \c engine , \c daemonhost und \c daemonport gibt es
+ *  genau einen Pool. Seine Grenzen werden beim ersten Zugriff aus den
+ *  ActionParametern gelesen:
+ *  \li   \c poolsize     maximale Anzahl gleichzeitig verwendeter Verbindungen (Standard 16),
+ *  \li   \c poolidle     Zeit in Millisekunden, nach der unbenutzte Verbindungen geschlossen werden (Standard 60000),
+ *  \li   \c poolwait     maximale Wartezeit in Millisekunden auf eine freie Verbindung (Standard 30000),
+ *                        \c 0 steht wie bei QFTestDaemonDispatcher für unbegrenztes Warten.
+ *
+ *  Vor der Ausgabe wird jede Verbindung über einen Ping geprüft. Verbindungen,
+ *  bei denen ein Fehler aufgetreten ist, werden nicht in den Pool
+ *  zurückgegeben.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonSessionPool
+{
+  public static final int   DEFAULT_SIZE        = 16;
+  public static final long  DEFAULT_IDLE_MILLIS = 60000L;
+  public static final long  DEFAULT_WAIT_MILLIS = 30000L;
+
+  /**
+   *  \brief    Klassenkonstante mit der Wartezeit für die Prüfung einer Verbindung
+   */
+  private static final long VALIDATION_MILLIS   = 5000L;
+
+  private static final ConcurrentMap<String, QFTestDaemonSessionPool> POOLS = new ConcurrentHashMap<String, QFTestDaemonSessionPool>();
+
+  static
+  { //  the callers waiting in the pools of a daemon belong to its queue in JMX
+    QFTestDaemonStatistics.addSource(new QFTestDaemonStatisticsSource()
+    {
+      @Override
+      public int getQueueDepth(String daemon)
+      {
+        QFTestDaemonEndpoint  endpoint  = QFTestDaemonEndpoint.valueOf(daemon);
+        int                   depth     = 0;
+        for(QFTestDaemonSessionPool pool : POOLS.values())
+          if(endpoint.equals(pool.getEndpoint()))
+            depth += pool.getQueueLength();
+        return depth;
+      }
+    });
+  }
+
+  /**
+   *  \brief    Klassenvariable mit dem Thread, der unbenutzte Verbindungen aller Pools schließt
+   */
+  private static final ScheduledExecutorService EVICTOR = createEvictor();
+
+  private final String                          key;
+  private final QFTestDaemonEndpoint            endpoint;
+  /**
+   *  \brief    Instanzvariable mit den ActionParametern für neue Verbindungen
+   *
+   *  Der Pool hält nur eine Kopie der Angaben für den Verbindungsaufbau, nicht
+   *  die Liste des ersten Aufrufers, die dieser weiter verändert.
+   */
+  private final List<ActionParameter>           connectParameters;
+  private final int                             maxSize;
+  private final long                            idleMillis;
+  private final long                            waitMillis;
+  private final Semaphore                       permits;
+  private final Deque<Session>                  idle            = new ConcurrentLinkedDeque<Session>();
+
+  private final AtomicLong                      created         = new AtomicLong();
+  private final AtomicLong                      borrowed        = new AtomicLong();
+  private final AtomicLong                      validationFailures = new AtomicLong();
+  private final AtomicLong                      evicted         = new AtomicLong();
+  private final AtomicLong                      discarded       = new AtomicLong();
+  private final AtomicLong                      waitNanos       = new AtomicLong();
+
+  private QFTestDaemonSessionPool(String key, QFTestDaemonEndpoint endpoint, List<ActionParameter> parameters)
+  {
+    this.key                = key;
+    this.endpoint           = endpoint;
+    this.connectParameters  = QFTestDaemonClientFactory.getConnectParameters(parameters);
+    this.maxSize            = (int) Math.max(1L, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "poolsize", DEFAULT_SIZE));
+    this.idleMillis         = QFTestCommandElementsLibrary.getLongParameterValue(parameters, "poolidle", DEFAULT_IDLE_MILLIS);
+    this.waitMillis         = QFTestCommandElementsLibrary.getLongParameterValue(parameters, "poolwait", DEFAULT_WAIT_MILLIS);
+    this.permits            = new Semaphore(this.maxSize, true);
+  }
+
+  /**
+   *  \brief    Methode liefert den Pool für die Adresse und die Engine aus den ActionParametern
+   *
+   *  @param    endpoint      Adresse des Daemon
+   *  @param    parameters    ActionParameter der Advanced Action. Sie werden
+   *                          nur beim Anlegen des Pools ausgewertet.
+   *
+   *  @return   Die Methode liefert den Pool, nie \c null .
+   */
+  public static QFTestDaemonSessionPool get(QFTestDaemonEndpoint endpoint, List<ActionParameter> parameters)
+  {
+    String key = QFTestDaemonClientFactory.getEngine(parameters).concat("://").concat(endpoint.toString());
+    QFTestDaemonSessionPool pool = POOLS.get(key);
+    if(null != pool)
+      return pool;
+    pool = new QFTestDaemonSessionPool(key, endpoint, parameters);
+    QFTestDaemonSessionPool previous = POOLS.putIfAbsent(key, pool);
+    return (null == previous) ? pool : previous;
+  }
+
+  /**
+   *  \brief    Methode liefert eine Momentaufnahme aller Pools
+   */
+  public static Map<String, QFTestDaemonSessionPool> getPools()
+  {
+    return new TreeMap<String, QFTestDaemonSessionPool>(POOLS);
+  }
+
+  /**
+   *  \brief    Methode schließt alle Verbindungen aller Pools
+   */
+  public static void closeAll()
+  {
+    for(QFTestDaemonSessionPool pool : POOLS.values())
+      pool.clear();
+  }
+
+  /**
+   *  \brief    Methode leiht eine geprüfte Verbindung aus dem Pool
+   *
+   *  Die Verbindung wird über QFTestDaemonClient.close() zurückgegeben.
+   *  Ist keine freie Verbindung vorhanden, wird eine neue aufgebaut, solange
+   *  die Grenze \c poolsize nicht erreicht ist. Sonst wird bis zu
+   *  \c poolwait Millisekunden gewartet, bei \c 0 ohne Begrenzung.
+   *
+   *  @return   Die Methode liefert die Verbindung.
+   *
+   *  @throws   QFTestDaemonException wenn in der Wartezeit keine Verbindung
+   *                          frei wurde oder keine aufgebaut werden konnte
+   */
+  public QFTestDaemonClient borrow() throws QFTestDaemonException
+  {
+    long start = System.nanoTime();
+    try
+    {
+      if(0L >= this.waitMillis)
+        this.permits.acquire();
+      else if(!this.permits.tryAcquire(this.waitMillis, TimeUnit.MILLISECONDS))
+        throw new QFTestDaemonException("no free session for ".concat(this.key).concat(" within ").concat(String.valueOf(this.waitMillis)).concat(" ms"));
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new QFTestDaemonException("interrupted while waiting for a session", e);
+    }
+    finally
+    {
+      this.waitNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    try
+    {
+      Session session = this.idle.pollFirst();
+      while(null != session)
+      {
+        if(session.validate())
+          return this.lend(session);
+        this.validationFailures.incrementAndGet();
+        session.destroy();
+        session = this.idle.pollFirst();
+      }
+      session = new Session(QFTestDaemonClientFactory.connect(this.endpoint, this.connectParameters));
+      this.created.incrementAndGet();
+      return this.lend(session);
+    }
+    catch (QFTestDaemonException | RuntimeException e)
+    {
+      this.permits.release();
+      throw e;
+    }
+  }
+
+  private QFTestDaemonClient lend(Session session)
+  {
+    this.borrowed.incrementAndGet();
+    session.lent = true;
+    return session;
+  }
+
+  /**
+   *  \brief    Methode nimmt eine Verbindung zurück
+   */
+  private void giveBack(Session session)
+  {
+    if(!session.lent)
+      return;
+    session.lent = false;
+    if(session.broken)
+    {
+      this.discarded.incrementAndGet();
+      session.destroy();
+    }
+    else
+    {
+      session.lastUsed = System.nanoTime();
+      this.idle.offerFirst(session);
+    }
+    this.permits.release();
+  }
+
+  /**
+   *  \brief    Methode schließt alle unbenutzten Verbindungen
+   *
+   *  Wird z.B. nach dem Beenden des Daemon aufgerufen, da dessen
+   *  Verbindungen nicht mehr verwendet werden können.
+   */
+  public void clear()
+  {
+    Session session = this.idle.pollFirst();
+    while(null != session)
+    {
+      session.destroy();
+      session = this.idle.pollFirst();
+    }
+  }
+
+  /**
+   *  \brief    Methode schließt Verbindungen, die länger als \c poolidle unbenutzt sind
+   *
+   *  Die Methode wird für alle Pools alle zehn Sekunden aufgerufen.
+   */
+  public void evictIdle()
+  {
+    if(0L == this.idleMillis)
+      return;
+    long limit = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(this.idleMillis);
+    Iterator<Session> it = this.idle.descendingIterator();
+    while(it.hasNext())
+    {
+      Session session = it.next();
+      if((0L < session.lastUsed - limit) || !this.idle.removeFirstOccurrence(session))
+        continue;
+      this.evicted.incrementAndGet();
+      session.destroy();
+    }
+  }
+
+  public String getKey()
+  {
+    return this.key;
+  }
+
+  public QFTestDaemonEndpoint getEndpoint()
+  {
+    return this.endpoint;
+  }
+
+  public int getMaxSize()
+  {
+    return this.maxSize;
+  }
+
+  public int getActiveCount()
+  {
+    return this.maxSize - this.permits.availablePermits();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die geschätzte Anzahl der Aufrufe, die auf eine Verbindung warten
+   */
+  public int getQueueLength()
+  {
+    return this.permits.getQueueLength();
+  }
+
+  public int getIdleCount()
+  {
+    return this.idle.size();
+  }
+
+  public long getCreatedCount()
+  {
+    return this.created.get();
+  }
+
+  public long getBorrowCount()
+  {
+    return this.borrowed.get();
+  }
+
+  public long getValidationFailureCount()
+  {
+    return this.validationFailures.get();
+  }
+
+  public long getEvictedCount()
+  {
+    return this.evicted.get();
+  }
+
+  public long getDiscardedCount()
+  {
+    return this.discarded.get();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die gesamte Wartezeit auf Verbindungen in Millisekunden
+   */
+  public long getWaitMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(this.waitNanos.get());
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.key.concat(" active=").concat(String.valueOf(this.getActiveCount()))
+                   .concat(" idle=").concat(String.valueOf(this.getIdleCount()))
+                   .concat(" created=").concat(String.valueOf(this.getCreatedCount()))
+                   .concat(" borrowed=").concat(String.valueOf(this.getBorrowCount()))
+                   .concat(" invalid=").concat(String.valueOf(this.getValidationFailureCount()))
+                   .concat(" evicted=").concat(String.valueOf(this.getEvictedCount()))
+                   .concat(" waitms=").concat(String.valueOf(this.getWaitMillis()));
+  }
+
+  private static ScheduledExecutorService createEvictor()
+  {
+    ScheduledThreadPoolExecutor evictor = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "qftest-pool-evictor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    evictor.scheduleWithFixedDelay(() -> {
+      for(QFTestDaemonSessionPool pool : POOLS.values())
+        pool.evictIdle();
+    }, 10L, 10L, TimeUnit.SECONDS);
+    return evictor;
+  }
+
+  /**
+   *  \brief    Verbindung im Pool, die an den eigentlichen Client delegiert
+   *
+   *  Tritt bei einem Aufruf ein Fehler auf oder wird ein Lauf abgebrochen,
+   *  gilt die Verbindung als defekt und wird bei der Rückgabe geschlossen.
+   *  Nach dem Beenden des Daemon werden zusätzlich alle freien Verbindungen
+   *  des Pools geschlossen.
+   */
+  private final class Session implements QFTestDaemonClient
+  {
+    private final QFTestDaemonClient  client;
+    private volatile boolean          broken    = false;
+    private volatile boolean          lent      = false;
+    private volatile long             lastUsed  = System.nanoTime();
+
+    private Session(QFTestDaemonClient client)
+    {
+      this.client = client;
+    }
+
+    private boolean validate()
+    {
+      try
+      {
+        return this.client.ping(VALIDATION_MILLIS);
+      }
+      catch (QFTestDaemonException | RuntimeException e)
+      {
+        return false;
+      }
+    }
+
+    private void destroy()
+    {
+      try
+      {
+        this.client.close();
+      }
+      catch (RuntimeException e)
+      { //  the session is dropped anyway
+      }
+    }
+
+    @Override
+    public boolean ping(long timeoutMillis) throws QFTestDaemonException
+    {
+      try
+      {
+        return this.client.ping(timeoutMillis);
+      }
+      catch (QFTestDaemonException | RuntimeException e)
+      {
+        this.broken = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public QFTestDaemonRunResult runTest(String testcase, Map<String, String> variables, long timeoutMillis) throws QFTestDaemonException
+    {
+      try
+      {
+        QFTestDaemonRunResult result = this.client.runTest(testcase, variables, timeoutMillis);
+        if(result.isTimedOut())
+          this.broken = true;
+        return result;
+      }
+      catch (QFTestDaemonException | RuntimeException e)
+      {
+        this.broken = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public void cancel()
+    {
+      this.broken = true;
+      this.client.cancel();
+    }
+
+    @Override
+    public void terminate() throws QFTestDaemonException
+    {
+      this.broken = true;
+      QFTestDaemonSessionPool.this.clear();
+      this.client.terminate();
+    }
+
+    @Override
+    public void close()
+    {
+      QFTestDaemonSessionPool.this.giveBack(this);
+    }
+
+    @Override
+    public String toString()
+    {
+      return this.client.toString();
+    }
+  }
+}
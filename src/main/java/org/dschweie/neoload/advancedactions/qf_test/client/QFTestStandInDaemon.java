@@ -0,0 +1,351 @@
+package org.dschweie.neoload.advancedactions.qf_test.client;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  \brief    Lokaler Ersatz für einen QF-Test Daemon
+ *
+ *  Die Klasse bildet das Verhalten eines QF-Test Daemon innerhalb der JVM
+ *  nach, damit die Advanced Actions ohne Installation von QF-Test entwickelt
+ *  und getestet werden können. Ein Ersatz-Daemon wird über
+ *  QFTestStandInDaemon.start(QFTestDaemonEndpoint) unter einer Adresse
+ *  registriert und über den ActionParameter \c engine mit dem Wert
+ *  \c standin angesprochen. Der Wert wird nur erkannt, wenn die
+ *  Systemeigenschaft aus QFTestDaemonClientFactory.STANDIN_SWITCH gesetzt
+ *  ist, z.B. von den Tests und dem Benchmark.
+ *
+ *  Ein Testlauf dauert die eingestellte Latenz und liefert den Rückgabewert,
+ *  der für den Testfall hinterlegt wurde, sonst \c 0 . Ist ein Protokoll
+ *  eingestellt, wird es nach jedem Testlauf geschrieben.
+ *
+ *  Zusätzlich lauscht der Ersatz-Daemon auf dem Port seiner Adresse und
+ *  beantwortet den JRMP-Handshake wie ein RMI-Dienst, damit auch
+ *  QFTestDaemonProbe gegen ihn geprüft werden kann.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestStandInDaemon
+{
+  /**
+   *  \brief    Klassenvariable mit den laufenden Ersatz-Daemons je Adresse
+   */
+  private static final ConcurrentMap<QFTestDaemonEndpoint, QFTestStandInDaemon> RUNNING = new ConcurrentHashMap<QFTestDaemonEndpoint, QFTestStandInDaemon>();
+
+  private final QFTestDaemonEndpoint        endpoint;
+  private final Map<String, Integer>        exitCodes   = new ConcurrentHashMap<String, Integer>();
+  private final CountDownLatch              terminated  = new CountDownLatch(1);
+  private final AtomicLong                  runs        = new AtomicLong();
+  private final AtomicInteger               active      = new AtomicInteger();
+  private final AtomicInteger               peak        = new AtomicInteger();
+  private volatile long                     latency     = 0L;
+  private volatile File                     runLog      = null;
+  private volatile long                     runLogTime  = 0L;
+  private ServerSocket                      listener    = null;
+  private Thread                            acceptor    = null;
+
+  private QFTestStandInDaemon(QFTestDaemonEndpoint endpoint)
+  {
+    this.endpoint = endpoint;
+  }
+
+  /**
+   *  \brief    Methode öffnet den Port und beantwortet Handshakes in einem Daemon-Thread
+   */
+  private void listen()
+  {
+    try
+    {
+      this.listener = new ServerSocket();
+      this.listener.setReuseAddress(true);
+      this.listener.bind(new InetSocketAddress(this.endpoint.getHost(), this.endpoint.getPort()));
+    }
+    catch (IOException e)
+    {
+      throw new UncheckedIOException("stand-in daemon cannot listen on ".concat(this.endpoint.toString()), e);
+    }
+    this.acceptor = new Thread(this::accept, "qftest-standin-".concat(String.valueOf(this.endpoint.getPort())));
+    this.acceptor.setDaemon(true);
+    this.acceptor.start();
+  }
+
+  private void accept()
+  {
+    while(this.isRunning())
+    {
+      try (Socket socket = this.listener.accept())
+      {
+        socket.setSoTimeout(1000);
+        DataInputStream in  = new DataInputStream(socket.getInputStream());
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        if((QFTestDaemonProbe.JRMP_MAGIC != in.readInt()) || (QFTestDaemonProbe.JRMP_VERSION != in.readShort()))
+          continue;
+        in.readByte();
+        out.writeByte(QFTestDaemonProbe.JRMP_PROTOCOL_ACK);
+        out.writeUTF(socket.getInetAddress().getHostAddress());
+        out.writeInt(socket.getPort());
+        out.flush();
+      }
+      catch (IOException e)
+      { //  a probe that only connects closes without handshake, a closed listener ends the loop
+      }
+    }
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die einen Ersatz-Daemon unter einer Adresse startet
+   *
+   *  @param    endpoint      Adresse, unter der der Ersatz-Daemon erreichbar
+   *                          sein soll
+   *
+   *  @return   Die Methode liefert den Ersatz-Daemon. Läuft unter der
+   *            Adresse bereits einer, wird dieser zurückgegeben.
+   *
+   *  @throws   UncheckedIOException  wenn der Port nicht geöffnet werden kann
+   */
+  public static QFTestStandInDaemon start(QFTestDaemonEndpoint endpoint)
+  {
+    QFTestStandInDaemon daemon    = new QFTestStandInDaemon(endpoint);
+    QFTestStandInDaemon previous  = RUNNING.putIfAbsent(endpoint, daemon);
+    if(null != previous)
+      return previous;
+    try
+    {
+      daemon.listen();
+    }
+    catch (UncheckedIOException e)
+    {
+      RUNNING.remove(endpoint, daemon);
+      throw e;
+    }
+    return daemon;
+  }
+
+  /**
+   *  \brief    Methode liefert den Ersatz-Daemon unter einer Adresse
+   *
+   *  @param    endpoint      Adresse des Ersatz-Daemon
+   *
+   *  @return   Die Methode liefert den Ersatz-Daemon oder \c null , wenn
+   *            unter der Adresse keiner läuft.
+   */
+  public static QFTestStandInDaemon get(QFTestDaemonEndpoint endpoint)
+  {
+    return RUNNING.get(endpoint);
+  }
+
+  /**
+   *  \brief    Methode baut eine Verbindung zu einem Ersatz-Daemon auf
+   *
+   *  @throws   QFTestDaemonException wenn unter der Adresse kein Ersatz-Daemon
+   *                          läuft
+   */
+  static QFTestDaemonClient connect(QFTestDaemonEndpoint endpoint) throws QFTestDaemonException
+  {
+    QFTestStandInDaemon daemon = RUNNING.get(endpoint);
+    if(null == daemon)
+      throw new QFTestDaemonException("no QF-Test daemon found at ".concat(endpoint.toString()));
+    return daemon.new Client();
+  }
+
+  /**
+   *  \brief    Methode beendet den Ersatz-Daemon
+   *
+   *  Laufende Testläufe werden abgebrochen und liefern den Rückgabewert
+   *  \c 3 wie bei einer Exception.
+   */
+  public void stop()
+  {
+    RUNNING.remove(this.endpoint, this);
+    this.terminated.countDown();
+    try
+    {
+      if(null != this.listener)
+        this.listener.close();
+      //  the socket is released only when the blocked accept has returned
+      if((null != this.acceptor) && (Thread.currentThread() != this.acceptor))
+        this.acceptor.join(1000L);
+    }
+    catch (IOException e)
+    { //  the port is released by the operating system anyway
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public boolean isRunning()
+  {
+    return 0L < this.terminated.getCount();
+  }
+
+  /**
+   *  \brief    Setter-Methode für die Dauer eines Testlaufs in Millisekunden
+   */
+  public void setLatency(long millis)
+  {
+    this.latency = millis;
+  }
+
+  /**
+   *  \brief    Setter-Methode für das Protokoll, das nach jedem Testlauf geschrieben wird
+   *
+   *  Das Protokoll enthält wie bei QF-Test einen Knoten \c TestCase mit dem
+   *  Namen des Testfalls ohne Testsuite und der Laufzeit im Attribut
+   *  \c realtime .
+   *
+   *  @param    file          Datei des Protokolls oder \c null für kein
+   *                          Protokoll
+   *  @param    realtime      Laufzeit in Millisekunden, die das Protokoll
+   *                          enthalten soll
+   */
+  public void setRunLog(File file, long realtime)
+  {
+    this.runLogTime = realtime;
+    this.runLog     = file;
+  }
+
+  /**
+   *  \brief    Setter-Methode für den Rückgabewert eines Testfalls
+   *
+   *  @param    testcase      Testfall, wie er im ActionParameter \c testcase
+   *                          übergeben wird
+   *  @param    exitCode      Rückgabewert, den der Lauf liefern soll
+   */
+  public void setExitCode(String testcase, int exitCode)
+  {
+    this.exitCodes.put(testcase, Integer.valueOf(exitCode));
+  }
+
+  public QFTestDaemonEndpoint getEndpoint()
+  {
+    return this.endpoint;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der ausgeführten Testläufe
+   */
+  public long getRunCount()
+  {
+    return this.runs.get();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die höchste Anzahl gleichzeitiger Testläufe
+   */
+  public int getPeakConcurrency()
+  {
+    return this.peak.get();
+  }
+
+  /**
+   *  \brief    Verbindung zu einem Ersatz-Daemon
+   */
+  private final class Client implements QFTestDaemonClient
+  {
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+    @Override
+    public boolean ping(long timeoutMillis) throws QFTestDaemonException
+    {
+      this.check();
+      return true;
+    }
+
+    @Override
+    public QFTestDaemonRunResult runTest(String testcase, Map<String, String> variables, long timeoutMillis) throws QFTestDaemonException
+    {
+      this.check();
+      QFTestStandInDaemon daemon = QFTestStandInDaemon.this;
+      int current = daemon.active.incrementAndGet();
+      daemon.peak.accumulateAndGet(current, Math::max);
+      daemon.runs.incrementAndGet();
+      long start = System.currentTimeMillis();
+      try
+      {
+        long    duration  = daemon.latency;
+        boolean timedOut  = (0L < timeoutMillis) && (timeoutMillis < duration);
+        long    deadline  = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timedOut ? timeoutMillis : duration);
+        //  the run ends early when it is cancelled or the daemon is stopped
+        while(this.cancelled.getCount() > 0L && daemon.isRunning())
+        {
+          long remaining = deadline - System.nanoTime();
+          if(0L >= remaining)
+            break;
+          this.cancelled.await(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(50L)), TimeUnit.NANOSECONDS);
+        }
+        long end = System.currentTimeMillis();
+        if(timedOut)
+          return new QFTestDaemonRunResult(-1, true, start, end);
+        if(!daemon.isRunning() || (0L == this.cancelled.getCount()))
+          return new QFTestDaemonRunResult(3, false, start, end);
+        Integer code    = daemon.exitCodes.get(testcase);
+        File    runLog  = daemon.runLog;
+        if(null != runLog)
+          Files.write(runLog.toPath(), ("<RunLog><TestCase name=\"" + testcase.substring(testcase.lastIndexOf('#') + 1)
+                                        + "\" realtime=\"" + daemon.runLogTime + "\"/></RunLog>").getBytes(StandardCharsets.UTF_8));
+        return new QFTestDaemonRunResult((null == code) ? 0 : code.intValue(), false, start, end);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new QFTestDaemonException("test run interrupted", e);
+      }
+      catch (IOException e)
+      {
+        throw new QFTestDaemonException("run-log not written: ".concat(e.getLocalizedMessage()), e);
+      }
+      finally
+      {
+        daemon.active.decrementAndGet();
+      }
+    }
+
+    @Override
+    public void cancel()
+    {
+      this.cancelled.countDown();
+    }
+
+    @Override
+    public void terminate() throws QFTestDaemonException
+    {
+      this.check();
+      QFTestStandInDaemon.this.stop();
+    }
+
+    @Override
+    public void close()
+    {
+    }
+
+    @Override
+    public String toString()
+    {
+      return "standin:".concat(QFTestStandInDaemon.this.endpoint.toString());
+    }
+
+    private void check() throws QFTestDaemonException
+    {
+      if(!QFTestStandInDaemon.this.isRunning())
+        throw new QFTestDaemonException("no QF-Test daemon found at ".concat(QFTestStandInDaemon.this.endpoint.toString()));
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package org.dschweie.neoload.advancedactions.qf_test.command;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.dschweie.neoload.advancedactions.qf_test.command.worker.QFTestCommandWorkerPing;
@@ -33,12 +34,23 @@ import com.neotys.extensions.action.ActionParameter;
  */
 public class QFTestCommandFactory
 {
+  /**
+   *  \brief  Vorlagen der Kommandos je Konfiguration einer Action
+   */
+  private static final QFTestCommandTemplateCache TEMPLATES = new QFTestCommandTemplateCache(QFTestCommandTemplateCache.DEFAULT_CAPACITY);
+
   /**
    *  \brief  Statische Fabrikmethode, die die Erzeugung an einen geeigneten Arbeiter delegiert
    *
    *  Diese Fabrikmethode kennt die konkreten Arbeiter und reicht den Aufruf
    *  mit der Liste \b parameters an den geeigneten Arbeiter weiter.
    *
+   *  Da sich die ActionParameter einer Action zwischen den Iterationen kaum
+   *  ändern, erstellen die Arbeiter einmalig eine QFTestCommandTemplate je
+   *  Konfiguration, die in einem QFTestCommandTemplateCache abgelegt wird.
+   *  Bei jedem Aufruf werden nur noch Variablen, Protokoll und Testfall
+   *  eingesetzt.
+   *
    *  @param  type            In diesem Parameter wird das Schlüsselwort für
    *                          das zu erstellende Kommando erwartet.
    *  @param  parameters      In diesem Parameter werden die Informationen
@@ -51,6 +63,26 @@ public class QFTestCommandFactory
    *          Wenn die Aktion, die im Parameter \b type
    */
   public static List<String> buildCommand(String type, List<ActionParameter> parameters)
+  {
+    List<String> retval = null;
+    if(QFTestExecuteAction.TYPE.equals(type))
+      retval = TEMPLATES.get(type, parameters, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, QFTestCommandWorkerTestCallDaemon::buildTemplate).fill(parameters);
+    else if(QFTestPingAction.TYPE.equals(type) || QFTestStopAction.TYPE.equals(type))
+      //  neither uses variables, run-log or test case, they are left out of the key
+      retval = TEMPLATES.get(type, parameters, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, p -> QFTestCommandTemplate.of(buildUncachedCommand(type, p))).fill(parameters);
+    else if(QFTestStartAction.TYPE.equals(type))
+      retval = TEMPLATES.get(type, parameters, Collections.<String>emptySet(), p -> QFTestCommandTemplate.of(buildUncachedCommand(type, p))).fill(parameters);
+    return retval;
+  }
+
+  /**
+   *  \brief  Fabrikmethode, die das Kommando ohne Zwischenspeicher erzeugt
+   *
+   *  Die Methode reicht den Aufruf unmittelbar an den geeigneten Arbeiter
+   *  weiter. Sie liefert dasselbe Ergebnis wie
+   *  buildCommand(String, List<ActionParameter>).
+   */
+  public static List<String> buildUncachedCommand(String type, List<ActionParameter> parameters)
   {
     List<String> retval = null;
     if(QFTestPingAction.TYPE.equals(type))
@@ -63,4 +95,12 @@ public class QFTestCommandFactory
       retval = QFTestCommandWorkerTestCallDaemon.buildCommand(parameters);
     return retval;
   }
+
+  /**
+   *  \brief  Getter-Methode für den Zwischenspeicher der Vorlagen
+   */
+  public static QFTestCommandTemplateCache getTemplateCache()
+  {
+    return TEMPLATES;
+  }
 }
@@ -0,0 +1,165 @@
+package org.dschweie.neoload.advancedactions.qf_test.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Unveränderliche Vorlage eines Kommandos mit festen Teilen und Platzhaltern
+ *
+ *  Die ActionParameter einer Action ändern sich zwischen den Iterationen
+ *  eines virtuellen Anwenders kaum. Die Vorlage hält die festen Teile des
+ *  Kommandos, z.B. Aufruf, Daemon und Optionen, als fertige Arrays. Nur die
+ *  Platzhalter werden bei jedem Aufruf von fill(List<ActionParameter>) aus
+ *  den aktuellen ActionParametern erzeugt, z.B. Variablen, Protokoll und
+ *  Testfall.
+ *
+ *  Die Reihenfolge von festen Teilen und Platzhaltern entspricht der
+ *  Reihenfolge im Kommando. Eine Vorlage wird über Builder erstellt und ist
+ *  danach unveränderlich, sie kann von beliebig vielen Threads gleichzeitig
+ *  verwendet werden.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ *
+ *  \see      org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandTemplateCache
+ */
+public final class QFTestCommandTemplate
+{
+  private static final String[] NO_ELEMENTS = new String[0];
+
+  /**
+   *  \brief    Feste Teile, je einer vor jedem Platzhalter und einer am Ende
+   */
+  private final String[][]                                            parts;
+  private final List<Function<List<ActionParameter>, List<String>>>  slots;
+  private final int                                                   fixedSize;
+
+  private QFTestCommandTemplate(List<String[]> parts, List<Function<List<ActionParameter>, List<String>>> slots)
+  {
+    this.parts  = parts.toArray(new String[parts.size()][]);
+    this.slots  = new ArrayList<Function<List<ActionParameter>, List<String>>>(slots);
+    int size = 0;
+    for(String[] part : this.parts)
+      size += part.length;
+    this.fixedSize = size;
+  }
+
+  /**
+   *  \brief    Methode erstellt eine Vorlage ohne Platzhalter
+   *
+   *  @param    command       Vollständiges Kommando, das unverändert
+   *                          wiederverwendet wird
+   */
+  public static QFTestCommandTemplate of(List<String> command)
+  {
+    return new Builder().add(command).build();
+  }
+
+  /**
+   *  \brief    Methode erzeugt das Kommando für einen Aufruf
+   *
+   *  @param    parameters    ActionParameter des aktuellen Aufrufs, aus
+   *                          denen die Platzhalter gefüllt werden
+   *
+   *  @return   Die Methode liefert bei jedem Aufruf eine neue Liste, die
+   *            der Aufrufer verändern darf.
+   */
+  public List<String> fill(List<ActionParameter> parameters)
+  {
+    List<List<String>>  values  = new ArrayList<List<String>>(this.slots.size());
+    int                 size    = this.fixedSize;
+    for(Function<List<ActionParameter>, List<String>> slot : this.slots)
+    {
+      List<String> value = slot.apply(parameters);
+      values.add(value);
+      size += value.size();
+    }
+
+    List<String> command = new ArrayList<String>(size);
+    for(int i = 0; i < this.parts.length; ++i)
+    {
+      for(String element : this.parts[i])
+        command.add(element);
+      if(i < values.size())
+        command.addAll(values.get(i));
+    }
+    return command;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Platzhalter
+   */
+  public int getSlotCount()
+  {
+    return this.slots.size();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Elemente in den festen Teilen
+   */
+  public int getFixedSize()
+  {
+    return this.fixedSize;
+  }
+
+  /**
+   *  \brief    Erbauer einer Vorlage
+   *
+   *  Feste Elemente werden mit add(String) und add(List<String>) gesammelt,
+   *  slot(Function) schließt den aktuellen festen Teil ab und fügt einen
+   *  Platzhalter an.
+   */
+  public static final class Builder
+  {
+    private final List<String[]>                                      parts   = new ArrayList<String[]>();
+    private final List<Function<List<ActionParameter>, List<String>>> slots   = new ArrayList<Function<List<ActionParameter>, List<String>>>();
+    private final List<String>                                        current = new ArrayList<String>();
+
+    /**
+     *  \brief    Methode fügt ein festes Element an
+     */
+    public Builder add(String element)
+    {
+      this.current.add(element);
+      return this;
+    }
+
+    /**
+     *  \brief    Methode fügt feste Elemente an
+     */
+    public Builder add(List<String> elements)
+    {
+      this.current.addAll(elements);
+      return this;
+    }
+
+    /**
+     *  \brief    Methode fügt einen Platzhalter an
+     *
+     *  @param    slot          Funktion, die bei jedem Aufruf aus den
+     *                          ActionParametern die Elemente des
+     *                          Platzhalters erzeugt, z.B. eine Methode aus
+     *                          QFTestCommandElementsLibrary
+     */
+    public Builder slot(Function<List<ActionParameter>, List<String>> slot)
+    {
+      this.parts.add(this.current.toArray(NO_ELEMENTS));
+      this.current.clear();
+      this.slots.add(slot);
+      return this;
+    }
+
+    /**
+     *  \brief    Methode erstellt die unveränderliche Vorlage
+     */
+    public QFTestCommandTemplate build()
+    {
+      List<String[]> parts = new ArrayList<String[]>(this.parts);
+      parts.add(this.current.toArray(NO_ELEMENTS));
+      return new QFTestCommandTemplate(parts, this.slots);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package org.dschweie.neoload.advancedactions.qf_test.command;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Begrenzter Zwischenspeicher für QFTestCommandTemplate
+ *
+ *  Der Schlüssel einer Vorlage ist die Art des Kommandos zusammen mit Namen
+ *  und Werten aller ActionParameter in ihrer Reihenfolge. ActionParameter,
+ *  die nur in Platzhalter eingehen, z.B. \c variable oder \c runlog , sind
+ *  nicht Teil des Schlüssels. Gleich konfigurierte Actions teilen sich
+ *  damit eine Vorlage, auch über virtuelle Anwender hinweg.
+ *
+ *  Werden Werte der übrigen ActionParameter in NeoLoad aus Variablen
+ *  gebildet, entsteht je Wert eine eigene Vorlage. Die Anzahl der Vorlagen
+ *  ist deshalb begrenzt, bei Überschreitung wird die am längsten nicht
+ *  verwendete verworfen.
+ *
+ *  Jeder Aufruf einer Action fragt den Zwischenspeicher, er kommt deshalb
+ *  ohne Sperre aus. Die Vorlagen liegen in einer ConcurrentHashMap, jeder
+ *  Treffer vermerkt nur den Zeitpunkt über System.nanoTime() an seinem
+ *  Eintrag. Erst wenn eine neue Vorlage die Anzahl überschreitet, wird der
+ *  Eintrag mit dem ältesten Zeitpunkt gesucht und verworfen. Gleichzeitige
+ *  Aufrufe sehen dabei nicht immer den neuesten Zeitpunkt, die Reihenfolge
+ *  ist also nur annähernd die der letzten Verwendung und die Anzahl kann
+ *  kurz über der Grenze liegen.
+ *
+ *  Eine fehlende Vorlage wird außerhalb der Map erstellt. Erstellen zwei
+ *  Threads gleichzeitig dieselbe Vorlage, gewinnt die zuletzt abgelegte,
+ *  beide sind gleichwertig.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestCommandTemplateCache
+{
+  /**
+   *  \brief    Klassenkonstante mit der voreingestellten Anzahl an Vorlagen
+   */
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private final ConcurrentMap<Object, Entry>  templates = new ConcurrentHashMap<Object, Entry>();
+  private final int                           capacity;
+  private final LongAdder                     hits      = new LongAdder();
+  private final LongAdder                     misses    = new LongAdder();
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    capacity      Größte Anzahl an Vorlagen, mindestens \c 1
+   */
+  public QFTestCommandTemplateCache(final int capacity)
+  {
+    this.capacity = Math.max(1, capacity);
+  }
+
+  /**
+   *  \brief    Methode liefert die Vorlage zu einer Konfiguration
+   *
+   *  @param    type          Art des Kommandos, z.B. QFTestExecuteAction.TYPE
+   *  @param    parameters    ActionParameter des aktuellen Aufrufs
+   *  @param    dynamic       Namen der ActionParameter, die nur in
+   *                          Platzhalter eingehen
+   *  @param    factory       Erstellt die Vorlage, falls sie fehlt
+   */
+  public QFTestCommandTemplate get(String type, List<ActionParameter> parameters, Collection<String> dynamic, Function<List<ActionParameter>, QFTestCommandTemplate> factory)
+  {
+    Object  key   = key(type, parameters, dynamic);
+    Entry   entry = this.templates.get(key);
+    if(null != entry)
+    {
+      entry.used = System.nanoTime();
+      this.hits.increment();
+      return entry.template;
+    }
+
+    this.misses.increment();
+    entry = new Entry(factory.apply(parameters));
+    this.templates.put(key, entry);
+    if(this.capacity < this.templates.size())
+      this.evict();
+    return entry.template;
+  }
+
+  /**
+   *  \brief    Methode verwirft die am längsten nicht verwendeten Vorlagen, bis die Anzahl wieder eingehalten ist
+   */
+  private void evict()
+  {
+    while(this.capacity < this.templates.size())
+    {
+      Map.Entry<Object, Entry> eldest = null;
+      for(Map.Entry<Object, Entry> candidate : this.templates.entrySet())
+        if((null == eldest) || (0L > candidate.getValue().used - eldest.getValue().used))
+          eldest = candidate;
+      if(null == eldest)
+        return;
+      //  another thread may have replaced or evicted the entry meanwhile
+      this.templates.remove(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  /**
+   *  \brief    Eintrag aus Vorlage und Zeitpunkt der letzten Verwendung
+   */
+  private static final class Entry
+  {
+    private final QFTestCommandTemplate template;
+    private volatile long               used      = System.nanoTime();
+
+    private Entry(QFTestCommandTemplate template)
+    {
+      this.template = template;
+    }
+  }
+
+  /**
+   *  \brief    Methode bildet den Schlüssel einer Konfiguration
+   *
+   *  Der Schlüssel verweist nur auf die Zeichenketten der ActionParameter
+   *  und kopiert sie nicht, er kostet damit wenig mehr als ein Array.
+   */
+  static Object key(String type, List<ActionParameter> parameters, Collection<String> dynamic)
+  {
+    String[]  entries = new String[2 * parameters.size()];
+    int       length  = 0;
+    for(int i = 0; i < parameters.size(); ++i)
+    {
+      ActionParameter parameter = parameters.get(i);
+      if(dynamic.contains(parameter.getName()))
+        continue;
+      entries[length++] = parameter.getName();
+      entries[length++] = parameter.getValue();
+    }
+    return new Key(type, entries, length);
+  }
+
+  /**
+   *  \brief    Schlüssel aus Art des Kommandos und den Paaren aus Name und Wert
+   */
+  private static final class Key
+  {
+    private final String    type;
+    private final String[]  entries;
+    private final int       length;
+    private final int       hash;
+
+    private Key(String type, String[] entries, int length)
+    {
+      this.type     = type;
+      this.entries  = entries;
+      this.length   = length;
+      int hash = type.hashCode();
+      for(int i = 0; i < length; ++i)
+        hash = 31 * hash + Objects.hashCode(entries[i]);
+      this.hash     = hash;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+      if(this == other)
+        return true;
+      if(!(other instanceof Key))
+        return false;
+      Key key = (Key) other;
+      if((this.hash != key.hash) || (this.length != key.length) || !this.type.equals(key.type))
+        return false;
+      for(int i = 0; i < this.length; ++i)
+        if(!Objects.equals(this.entries[i], key.entries[i]))
+          return false;
+      return true;
+    }
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der abgelegten Vorlagen
+   */
+  public int size()
+  {
+    return this.templates.size();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Aufrufe mit vorhandener Vorlage
+   */
+  public long getHits()
+  {
+    return this.hits.sum();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Aufrufe, für die eine Vorlage erstellt wurde
+   */
+  public long getMisses()
+  {
+    return this.misses.sum();
+  }
+
+  /**
+   *  \brief    Methode verwirft alle Vorlagen und setzt die Zähler zurück
+   */
+  public void clear()
+  {
+    this.templates.clear();
+    this.hits.reset();
+    this.misses.reset();
+  }
+}
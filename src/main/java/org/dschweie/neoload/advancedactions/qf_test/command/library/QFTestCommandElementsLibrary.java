@@ -271,6 +271,36 @@ final public class QFTestCommandElementsLibrary
     return value;
   }
 
+  /**
+   *  \brief  Die Methode liefert zu einem Parameter den Wert als nicht negative Zahl
+   *
+   *  Alle Zeiten, Grenzen und Anzahlen der Advanced Actions werden über diese
+   *  Methode gelesen, damit sie ungültige Angaben gleich behandeln: Fehlt
+   *  der Parameter, ist der Wert keine Zahl oder ist er negativ, wird
+   *  \b substitude zurückgegeben.
+   *
+   *  @param  parameters      Liste der ActionParameter
+   *  @param  key             Name des Parameters
+   *  @param  substitude      Wert, der bei fehlender oder ungültiger Angabe
+   *                          zurückgegeben wird
+   *
+   *  @return Die Methode liefert den Wert des Parameters oder \b substitude .
+   *
+   *  \see    org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary.getParameterValue(List<ActionParameter>, String, String)
+   */
+  public static final long getLongParameterValue(List<ActionParameter> parameters, String key, long substitude)
+  {
+    try
+    {
+      long value = Long.parseLong(getParameterValue(parameters, key, String.valueOf(substitude)).trim());
+      return (0L > value) ? substitude : value;
+    }
+    catch (NumberFormatException e)
+    {
+      return substitude;
+    }
+  }
+
   /**
    *  \brief  Die Methode liefert den Aufruf von QF-Test über die Kommandozeile zurück
    *
@@ -1,8 +1,12 @@
 package org.dschweie.neoload.advancedactions.qf_test.command.worker;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Vector;
+import java.util.Set;
 
+import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandTemplate;
 import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
 import com.neotys.extensions.action.ActionParameter;
 
@@ -24,6 +28,14 @@ import com.neotys.extensions.action.ActionParameter;
  */
 public class QFTestCommandWorkerTestCallDaemon
 {
+  /**
+   *  \brief  Klassenkonstante mit den ActionParametern, die nur in Platzhalter der Vorlage eingehen
+   *
+   *  Diese ActionParameter ändern sich typischerweise von Iteration zu
+   *  Iteration und werden bei jedem Aufruf neu ausgewertet.
+   */
+  public static final Set<String> DYNAMIC_PARAMETERS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("variable", "runlog", "testcase")));
+
   /**
    *  \brief  Worker-Methode zur Erstellung des konkreten Kommandos.
    *
@@ -39,25 +51,41 @@ public class QFTestCommandWorkerTestCallDaemon
    */
   public static List<String> buildCommand(List<ActionParameter> parameters)
   {
-    final List<String>  command  = new Vector<String>();
-
-    command.addAll(QFTestCommandElementsLibrary.getQFTestCBatchCall(parameters));
-
-    command.add("-calldaemon");
-    command.add("-nomessagewindow");
-
-    command.addAll(QFTestCommandElementsLibrary.getJavaVMParameters(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getDaemonDestinationElements(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getSecuritySettings(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getOptionsSettings(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getExitcodeSettings(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getLogSettings(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getVerboseSettings(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getCleanSettings(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getVariableSettings(parameters));
-    command.addAll(QFTestCommandElementsLibrary.getTestCaseSettings(parameters));
+    return buildTemplate(parameters).fill(parameters);
+  }
 
-    return command;
+  /**
+   *  \brief  Worker-Methode zur Erstellung der Vorlage des Kommandos
+   *
+   *  Die Vorlage enthält alle Optionen, die nur von ActionParametern
+   *  außerhalb von DYNAMIC_PARAMETERS abhängen, als feste Teile. Protokoll,
+   *  Variablen und Testfall sind Platzhalter.
+   *
+   *  @param  parameters      In dem Parameter wird die Liste der
+   *                          ActionParameter erwartet, aus denen die festen
+   *                          Teile der Vorlage erzeugt werden.
+   *
+   *  @return Die Methode liefert im Rückgabewert eine unveränderliche
+   *          Vorlage, die mit den ActionParametern jedes Aufrufs gefüllt
+   *          werden kann.
+   */
+  public static QFTestCommandTemplate buildTemplate(List<ActionParameter> parameters)
+  {
+    return new QFTestCommandTemplate.Builder()
+               .add(QFTestCommandElementsLibrary.getQFTestCBatchCall(parameters))
+               .add("-calldaemon")
+               .add("-nomessagewindow")
+               .add(QFTestCommandElementsLibrary.getJavaVMParameters(parameters))
+               .add(QFTestCommandElementsLibrary.getDaemonDestinationElements(parameters))
+               .add(QFTestCommandElementsLibrary.getSecuritySettings(parameters))
+               .add(QFTestCommandElementsLibrary.getOptionsSettings(parameters))
+               .add(QFTestCommandElementsLibrary.getExitcodeSettings(parameters))
+               .slot(QFTestCommandElementsLibrary::getLogSettings)
+               .add(QFTestCommandElementsLibrary.getVerboseSettings(parameters))
+               .add(QFTestCommandElementsLibrary.getCleanSettings(parameters))
+               .slot(QFTestCommandElementsLibrary::getVariableSettings)
+               .slot(QFTestCommandElementsLibrary::getTestCaseSettings)
+               .build();
   }
 
 }
@@ -0,0 +1,270 @@
+package org.dschweie.neoload.advancedactions.qf_test.daemon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief    Gemeinsame Verwaltung der Testläufe, die im Hintergrund ausgeführt werden
+ *
+ *  Die Advanced Action QFTestExecuteAsyncAction übergibt einen Testlauf an
+ *  diese Klasse und kehrt sofort zurück. Der Testlauf wird in einem eigenen
+ *  Thread über QFTestExecuteActionEngine ausgeführt, der virtuelle Anwender
+ *  kann in der Zwischenzeit weitere Requests senden. Über die Kennung des
+ *  Laufs holt QFTestAwaitAction später das Ergebnis ab.
+ *
+ *  Die Anzahl der Läufe ist begrenzt: Ein Lauf belegt einen Platz von der
+ *  Übergabe, bis er beendet und abgeholt ist. Ist die Grenze erreicht, wird
+ *  kein weiterer Lauf angenommen. Beendete Läufe, die nicht innerhalb von
+ *  RETENTION_MILLIS abgeholt werden, werden verworfen, sobald ein Platz
+ *  benötigt wird.
+ *
+ *  Der Context von NeoLoad gehört dem virtuellen Anwender und gilt nur
+ *  während dessen Action. Ein Lauf im Hintergrund wird deshalb ohne Context
+ *  ausgeführt, wie außerhalb von NeoLoad: Meldungen gehen an die
+ *  Standardausgabe und stehen zusätzlich im Ergebnis, das QFTestAwaitAction
+ *  im Context des virtuellen Anwenders ausgibt.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestAsyncRunRegistry
+{
+  public static final int     DEFAULT_CAPACITY  = 64;
+  public static final long    RETENTION_MILLIS  = 600000L;
+
+  private static final ConcurrentMap<String, Run> RUNS      = new ConcurrentHashMap<String, Run>();
+  private static final AtomicInteger              OCCUPIED  = new AtomicInteger();
+  private static final AtomicLong                 SEQUENCE  = new AtomicLong();
+  private static final AtomicInteger              THREADS   = new AtomicInteger();
+
+  /**
+   *  \brief    Klassenkonstante mit den Threads der Testläufe
+   *
+   *  Die Anzahl der Threads wird durch die Grenze der Läufe beschränkt.
+   */
+  private static final ExecutorService            EXECUTOR  = Executors.newCachedThreadPool(runnable ->
+  {
+    Thread thread = new Thread(runnable, "qftest-async-".concat(String.valueOf(THREADS.incrementAndGet())));
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   *  \brief    Ein Testlauf im Hintergrund
+   */
+  public static final class Run
+  {
+    private final String                          handle;
+    private final QFTestExecuteActionEngine       engine;
+    private final CompletableFuture<SampleResult> future;
+    private final AtomicBoolean                   released    = new AtomicBoolean();
+    private volatile boolean                      removed     = false;
+    private volatile long                         completed   = 0L;
+
+    private Run(String handle, String virtualUser, final List<ActionParameter> parameters)
+    {
+      this.handle = handle;
+      this.engine = new QFTestExecuteActionEngine();
+      this.engine.detach(virtualUser);
+      this.future = CompletableFuture.supplyAsync(() -> execute(this.engine, parameters), EXECUTOR);
+      this.future.whenComplete((result, exception) ->
+      {
+        this.completed = System.nanoTime();
+        this.release();
+      });
+    }
+
+    /**
+     *  \brief    Getter-Methode für die Kennung des Laufs
+     */
+    public String getHandle()
+    {
+      return this.handle;
+    }
+
+    /**
+     *  \brief    Methode prüft, ob der Lauf beendet ist
+     */
+    public boolean isDone()
+    {
+      return this.future.isDone();
+    }
+
+    /**
+     *  \brief    Methode wartet auf das Ergebnis des Laufs
+     *
+     *  @param    timeoutMillis Maximale Wartezeit in Millisekunden, \c 0
+     *                          wartet ohne Grenze
+     *
+     *  @throws   TimeoutException wenn der Lauf in der Wartezeit nicht endet
+     */
+    public SampleResult await(long timeoutMillis) throws TimeoutException, InterruptedException
+    {
+      try
+      {
+        return (0L < timeoutMillis) ? this.future.get(timeoutMillis, TimeUnit.MILLISECONDS) : this.future.get();
+      }
+      catch (ExecutionException e)
+      { //  execute(...) catches every exception of the engine
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+
+    /**
+     *  \brief    Methode bricht den Lauf ab
+     *
+     *  Der Prozess bzw. der Aufruf am Daemon wird über
+     *  QFTestExecuteActionEngine.stopExecute() beendet.
+     */
+    public void cancel()
+    {
+      this.engine.stopExecute();
+    }
+
+    /**
+     *  \brief    Methode gibt den Platz frei, wenn der Lauf beendet und entfernt ist
+     */
+    private void release()
+    {
+      if(this.removed && this.future.isDone() && this.released.compareAndSet(false, true))
+        OCCUPIED.decrementAndGet();
+    }
+
+    @Override
+    public String toString()
+    {
+      return this.handle.concat(this.isDone() ? " (done)" : " (running)");
+    }
+  }
+
+  private QFTestAsyncRunRegistry()
+  {
+  }
+
+  /**
+   *  \brief    Methode übergibt einen Testlauf zur Ausführung im Hintergrund
+   *
+   *  @param    virtualUser   Kennung des virtuellen Anwenders oder \c null ,
+   *                          der Context selbst wird nicht weitergegeben
+   *  @param    parameters    ActionParameter des Testlaufs
+   *  @param    capacity      Maximale Anzahl der Läufe in der Verwaltung
+   *
+   *  @return   Die Methode liefert den Lauf oder \c null , wenn die Grenze
+   *            erreicht ist.
+   */
+  public static Run submit(String virtualUser, List<ActionParameter> parameters, int capacity)
+  {
+    if(!reserve(capacity))
+    {
+      purge(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(RETENTION_MILLIS));
+      if(!reserve(capacity))
+        return null;
+    }
+    Run run = new Run("qftest-async-".concat(String.valueOf(SEQUENCE.incrementAndGet())), virtualUser, new ArrayList<ActionParameter>(parameters));
+    RUNS.put(run.getHandle(), run);
+    return run;
+  }
+
+  private static boolean reserve(int capacity)
+  {
+    for(;;)
+    {
+      int occupied = OCCUPIED.get();
+      if(capacity <= occupied)
+        return false;
+      if(OCCUPIED.compareAndSet(occupied, occupied + 1))
+        return true;
+    }
+  }
+
+  /**
+   *  \brief    Methode verwirft beendete Läufe, die vor \em before beendet wurden
+   */
+  private static void purge(long before)
+  {
+    for(Map.Entry<String, Run> entry : RUNS.entrySet())
+    {
+      Run run = entry.getValue();
+      if(run.isDone() && (0L > run.completed - before))
+        remove(run);
+    }
+  }
+
+  /**
+   *  \brief    Methode führt den Testlauf aus und wandelt Ausnahmen in ein Ergebnis
+   */
+  private static SampleResult execute(QFTestExecuteActionEngine engine, List<ActionParameter> parameters)
+  {
+    try
+    {
+      return engine.execute(null, parameters);
+    }
+    catch (RuntimeException e)
+    {
+      SampleResult result = new SampleResult();
+      result.setError(true);
+      result.setStatusCode(e.getClass().getSimpleName());
+      result.setResponseContent(String.valueOf(e.getLocalizedMessage()));
+      return result;
+    }
+  }
+
+  /**
+   *  \brief    Getter-Methode für einen Lauf
+   *
+   *  @return   Die Methode liefert den Lauf oder \c null , wenn die Kennung
+   *            unbekannt ist oder der Lauf bereits abgeholt wurde.
+   */
+  public static Run get(String handle)
+  {
+    return (null == handle) ? null : RUNS.get(handle.trim());
+  }
+
+  /**
+   *  \brief    Methode entfernt einen Lauf aus der Verwaltung
+   *
+   *  Läuft der Testlauf noch, wird der Platz erst mit seinem Ende frei.
+   *
+   *  @return   Die Methode liefert \c true , wenn der Lauf bis dahin
+   *            verwaltet wurde.
+   */
+  public static boolean remove(Run run)
+  {
+    if(!RUNS.remove(run.getHandle(), run))
+      return false;
+    run.removed = true;
+    run.release();
+    return true;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der belegten Plätze
+   */
+  public static int getOccupied()
+  {
+    return OCCUPIED.get();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der verwalteten Läufe
+   */
+  public static int getRunCount()
+  {
+    return RUNS.size();
+  }
+}
@@ -0,0 +1,63 @@
+package org.dschweie.neoload.advancedactions.qf_test.daemon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestAction;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.ActionEngine;
+
+/**
+ *  \brief    Verwaltungs-Klasse für die Advanced Action zum Abholen eines Testlaufs aus dem Hintergrund
+ *
+ *  Diese Klasse repräsentiert eine Implementierung der AbstractQFTestAction
+ *  mit der auf einen Testlauf gewartet wird, den QFTestExecuteAsyncAction
+ *  gestartet hat. Das Ergebnis des Testlaufs wird das Ergebnis dieser
+ *  Action.
+ *
+ *  Diese Klasse ist die Schnittstelle, über die NeoLoad Informationen zu der
+ *  angebotenen Advanced Action anfragen kann.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public class QFTestAwaitAction extends AbstractQFTestAction
+{
+  public static final String TYPE = "QF-Test-Daemon-Await";
+  /**
+   *  \brief    Klassenkonstante für die Ressourcendatei
+   *
+   *  In der Klassenkonstante ist der Pfad zur Ressourcendatei
+   *  der Action hinterlegt. Diese Information wird bei der Instanzierung
+   *  der Klasse in die Instanzvariable übernommen.
+   */
+  private static final String BUNDLE_NAME = "org.dschweie.neoload.advancedactions.qf_test.qf-test-daemon-await";
+
+  /**
+   *  \brief  Standardkonstruktor der Klasse
+   */
+  public QFTestAwaitAction()
+  {
+    super(BUNDLE_NAME);
+  }
+
+  //! \copydoc AbstractQFTestAction::getDefaultActionParameters()
+  @Override
+  public List<ActionParameter> getDefaultActionParameters()
+  {
+    final List<ActionParameter> actionParameters = new ArrayList<ActionParameter>();
+
+    actionParameters.add(new ActionParameter("handlevariable", QFTestExecuteAsyncActionEngine.DEFAULT_HANDLE_VARIABLE));
+    actionParameters.add(new ActionParameter("timeout", "3600000"));
+
+    return actionParameters;
+  }
+
+  //! \copydoc AbstractQFTestAction::getEngineClass()
+  @Override
+  public Class<? extends ActionEngine> getEngineClass()
+  {
+    return QFTestAwaitActionEngine.class;
+  }
+
+}
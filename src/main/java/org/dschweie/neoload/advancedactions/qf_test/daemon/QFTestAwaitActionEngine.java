@@ -0,0 +1,136 @@
+package org.dschweie.neoload.advancedactions.qf_test.daemon;
+
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.Context;
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief      Engine-Klasse für die Advanced Action zum Abholen eines Testlaufs aus dem Hintergrund
+ *
+ *  Ein Instanz dieser Klasse wartet auf einen Testlauf, den
+ *  QFTestExecuteAsyncActionEngine an QFTestAsyncRunRegistry übergeben hat,
+ *  und liefert dessen Ergebnis als eigenes Ergebnis.
+ *
+ *  @author     dirk.schweier
+ *  @since      0.4.0
+ */
+public final class QFTestAwaitActionEngine extends AbstractQFTestActionEngine
+{
+  /**
+   *  \brief    Klassenkonstante mit dem Statuscode für eine unbekannte Kennung
+   */
+  public static final String STATUS_UNKNOWN = "QFT-ASYNC-UNKNOWN";
+
+  /**
+   *  \brief    Instanzvariable mit dem Lauf, auf den gerade gewartet wird
+   */
+  private volatile QFTestAsyncRunRegistry.Run awaited = null;
+
+  /**
+   *  \brief    Schnittstelle für NeoLoad zur Ausführung der Advanced Action
+   *
+   *  Die Kennung des Laufs steht im ActionParameter \c handle oder, wenn
+   *  dieser fehlt, in der Variablen aus \c handlevariable (Standard
+   *  \c QFTestHandle ). Die Methode wartet höchstens \c timeout
+   *  Millisekunden (Standard eine Stunde, \c 0 ohne Grenze) auf das Ende
+   *  des Laufs. Nach Ablauf der Wartezeit wird der Lauf abgebrochen und das
+   *  Ergebnis hat den Statuscode \c QFT-TIMEOUT . Mit \c cancel=false läuft
+   *  er stattdessen weiter und kann erneut abgeholt werden.
+   *
+   *  @param    context       In dem Parameter ist eine Instanz zu übergeben,
+   *                          über die die Methode Zugriff auf Informationen
+   *                          von NeoLoad zur Laufzeit hat.
+   *  @param    parameters    In diesem Parameter wird von der Satz an
+   *                          Parametern übergeben, die der Anwender zu der
+   *                          Advanced Action in NeoLoad erfasst hat.
+   *
+   *  @return   Die Methode liefert das Ergebnis des Testlaufs.
+   */
+  @Override
+  public SampleResult execute(Context context, List<ActionParameter> parameters)
+  {
+    try
+    {
+      this.configure(parameters);
+      String                      handle  = getHandle(context, parameters);
+      QFTestAsyncRunRegistry.Run  run     = QFTestAsyncRunRegistry.get(handle);
+      SampleResult                result  = new SampleResult();
+
+      if(null == run)
+      {
+        this.reportToRequest("await ".concat(String.valueOf(handle)));
+        this.currentReporting().getWriter().element("handle", String.valueOf(handle));
+        getErrorResult(context, result, STATUS_UNKNOWN, "The asynchronous QF-Test run '".concat(String.valueOf(handle)).concat("' is unknown or already collected."), null);
+        return this.completeResult(context, result);
+      }
+
+      this.awaited = run;
+      result.sampleStart();
+      try
+      {
+        SampleResult collected = run.await(this.processTimeout);
+        QFTestAsyncRunRegistry.remove(run);
+        return collected;
+      }
+      catch (TimeoutException e)
+      {
+        result.sampleEnd();
+        if(Boolean.parseBoolean(QFTestCommandElementsLibrary.getParameterValue(parameters, "cancel", "true").trim()))
+        {
+          run.cancel();
+          QFTestAsyncRunRegistry.remove(run);
+        }
+        this.reportToRequest("await ".concat(handle));
+        this.currentReporting().getWriter().element("handle", handle).element("running", String.valueOf(!run.isDone()));
+        getErrorResult(context, result, STATUS_TIMEOUT, "The asynchronous QF-Test run '".concat(handle).concat("' did not finish within ").concat(String.valueOf(this.processTimeout)).concat(" ms."), null);
+        return this.completeResult(context, result);
+      }
+      catch (InterruptedException e)
+      {
+        result.sampleEnd();
+        Thread.currentThread().interrupt();
+        this.reportToRequest("await ".concat(handle));
+        getErrorResult(context, result, e.getClass().getSimpleName(), "Interrupted while waiting for the asynchronous QF-Test run.", e);
+        return this.completeResult(context, result);
+      }
+      finally
+      {
+        this.awaited = null;
+      }
+    }
+    finally
+    {
+      this.releaseReporting();
+    }
+  }
+
+  /**
+   *  \brief    Methode liefert die Kennung aus \c handle oder der Variablen aus \c handlevariable
+   */
+  private static String getHandle(Context context, List<ActionParameter> parameters)
+  {
+    String handle = QFTestCommandElementsLibrary.getParameterValue(parameters, "handle", "").trim();
+    if(handle.isEmpty() && (null != context) && (null != context.getVariableManager()))
+      handle = context.getVariableManager().getValue(QFTestCommandElementsLibrary.getParameterValue(parameters, "handlevariable", QFTestExecuteAsyncActionEngine.DEFAULT_HANDLE_VARIABLE).trim());
+    return handle;
+  }
+
+  /**
+   *  Wird der Test gestoppt, während auf einen Lauf gewartet wird, wird
+   *  auch der Lauf abgebrochen.
+   */
+  @Override
+  public void stopExecute()
+  {
+    QFTestAsyncRunRegistry.Run run = this.awaited;
+    if(null != run)
+      run.cancel();
+    super.stopExecute();
+  }
+
+}
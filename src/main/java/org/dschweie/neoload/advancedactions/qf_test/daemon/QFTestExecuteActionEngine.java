@@ -1,9 +1,37 @@
 package org.dschweie.neoload.advancedactions.qf_test.daemon;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonAffinity;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClient;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClientFactory;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonDispatcher;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonException;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonRunResult;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonSessionPool;
 import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandFactory;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestDaemonSupervisor;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatistics;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestMetrics;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestPhases;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestReportingContext;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestRunLogParser;
 import com.neotys.extensions.action.ActionParameter;
 import com.neotys.extensions.action.engine.Context;
 import com.neotys.extensions.action.engine.SampleResult;
@@ -18,6 +46,58 @@ import com.neotys.extensions.action.engine.SampleResult;
  */
 public class QFTestExecuteActionEngine extends AbstractQFTestActionEngine
 {
+  /**
+   *  \brief    Klassenkonstante mit der Wartezeit der Prüfung eines Daemon nach einem Fehler
+   */
+  private static final int  PROBE_TIMEOUT_MILLIS  = 1000;
+
+  /**
+   *  \brief    Klassenvariable mit den Protokollen aus \c runlog , die gerade von einem Aufruf belegt sind
+   *
+   *  Der Schlüssel ist der absolute Pfad ohne Endung, der Wert die Engine,
+   *  die das Protokoll lesen darf.
+   */
+  private static final ConcurrentMap<String, QFTestExecuteActionEngine> RUNLOG_OWNERS = new ConcurrentHashMap<String, QFTestExecuteActionEngine>();
+
+  /**
+   *  \brief    Instanzvariable mit den Teilergebnissen der Testfälle eines Stapels
+   *
+   *  Die Liste wird nur während eines direkten Aufrufs über den Daemon mit
+   *  mehreren Testfällen verwendet, sonst ist sie \c null .
+   */
+  private List<SampleResult> batch = null;
+
+  /**
+   *  \brief    Instanzvariable mit den ActionParametern des laufenden Aufrufs, sonst \c null
+   */
+  private List<ActionParameter> current = null;
+
+  /**
+   *  \brief    Instanzvariable mit dem Context des laufenden Aufrufs, sonst \c null
+   */
+  private Context context = null;
+
+  /**
+   *  \brief    Instanzvariablen mit dem zuletzt gelesenen Protokoll von QF-Test
+   *
+   *  Das Protokoll wird für die Phasen und die Teilergebnisse nur einmal
+   *  gelesen, solange die Datei unverändert ist.
+   */
+  private File                          runLogFile      = null;
+  private long                          runLogModified  = 0L;
+  private List<QFTestRunLogParser.Step> runLogSteps     = null;
+
+  /**
+   *  \brief    Instanzvariable mit dem belegten Protokoll des laufenden Aufrufs, sonst \c null
+   *
+   *  \see      QFTestExecuteActionEngine.claimRunLog(Context, List<ActionParameter>)
+   */
+  private String runLogClaim = null;
+
+  /**
+   *  \brief    Instanzvariable mit dem virtuellen Anwender eines Laufs im Hintergrund, sonst \c null
+   */
+  private String detachedUser = null;
 
   /**
    *  \brief    Schnittstelle für NeoLoad zur Ausführung der Advanced Action
@@ -29,6 +109,25 @@ public class QFTestExecuteActionEngine extends AbstractQFTestActionEngine
    *  Testfallknoten oder einen Testfallsatzknoten, der durch den QF-Test-Daemon
    *  ausgeführt werden soll.
    *
+   *  Wird der Daemon gerade durch QFTestDaemonSupervisor neu gestartet,
+   *  wartet die Methode höchstens \c restartwait Millisekunden (Standard
+   *  30000 ms, \c 0 bricht sofort ab) und liefert danach einen Fehler,
+   *  ohne QF-Test aufzurufen.
+   *
+   *  Ist der ActionParameter \c daemonpool gesetzt, wird der Aufruf über
+   *  QFTestDaemonDispatcher an den Daemon mit den wenigsten laufenden
+   *  Aufrufen gerichtet. Die Response enthält dann zusätzlich das Element
+   *  \c dispatch mit dem Daemon, den laufenden Aufrufen und der Wartezeit.
+   *  Mit \c daemonaffinity=vu bleibt jeder virtuelle Anwender bei seinem
+   *  Daemon, siehe QFTestDaemonAffinity.
+   *
+   *  Enthält \c testcase mehrere Testfälle, getrennt durch Semikolon oder
+   *  Zeilenumbruch, oder ist \c testcase mehrfach angegeben, werden die
+   *  Testfälle in dieser Reihenfolge als Stapel ausgeführt. Das Ergebnis
+   *  enthält dann je Testfall ein Teilergebnis. Auch mit \c engine
+   *  \c process läuft ein Stapel über das Daemon-API, sofern es geladen
+   *  werden kann, da \c qftestc.exe nur einen Testfall je Aufruf annimmt.
+   *
    *  @param    context       In dem Parameter ist eine Instanz zu übergeben,
    *                          über die die Methode Zugriff auf Informationen
    *                          von NeoLoad zur Laufzeit hat.
@@ -45,8 +144,785 @@ public class QFTestExecuteActionEngine extends AbstractQFTestActionEngine
   @Override
   public SampleResult execute(Context context, List<ActionParameter> parameters)
   {
-    parameters.add(new ActionParameter("-variable", "NEOLOAD-USERPATH=".concat("context.getCurrentVirtualUser().getId()")));
+    try
+    {
+      parameters.add(new ActionParameter("-variable", "NEOLOAD-USERPATH=".concat("context.getCurrentVirtualUser().getId()")));
+      this.configure(parameters);
+      QFTestDaemonDispatcher dispatcher = null;
+      try
+      {
+        dispatcher = QFTestDaemonDispatcher.fromParameters(parameters);
+      }
+      catch (NumberFormatException e)
+      {
+        return this.reportDispatchError(context, "QFT-DAEMONPOOL-INVALID", e);
+      }
+      if(null != dispatcher)
+        return this.executeDispatched(context, parameters, dispatcher);
+      return this.executeOnDaemon(context, parameters);
+    }
+    finally
+    {
+      this.releaseReporting();
+    }
+  }
+
+  /**
+   *  \brief    Methode führt den Testfall auf dem Daemon aus \c daemonhost und \c daemonport aus
+   *
+   *  Hat QF-Test während des Aufrufs das Protokoll aus \c runlog
+   *  geschrieben, werden dessen Schritte als Teilergebnisse angehängt,
+   *  siehe attachRunLog(Context, List<ActionParameter>, SampleResult, long).
+   *  Bei einem Stapel liefert das Protokoll stattdessen die Laufzeiten der
+   *  Testfälle.
+   */
+  private SampleResult executeOnDaemon(Context context, List<ActionParameter> parameters)
+  {
+    long                    started     = System.currentTimeMillis();
+    QFTestDaemonStatistics  statistics  = getStatistics(parameters);
+    SampleResult            result      = null;
+    if(null != statistics)
+      started = statistics.start();
+    this.current      = parameters;
+    this.context      = context;
+    this.runLogClaim  = this.claimRunLog(context, parameters);
+    try
+    {
+      result = this.runOnDaemon(context, parameters);
+      //  in a batch the run-log only supplies the runtime of each test case
+      List<String> testcases = getTestCases(parameters);
+      if(1 == testcases.size())
+      {
+        this.attachRunLog(context, parameters, result, started);
+        QFTestMetrics.record(QFTestMetrics.TESTCASE, this.getMetricsName(), testcases.get(0), result.getDuration());
+      }
+    }
+    finally
+    {
+      this.current      = null;
+      this.context      = null;
+      this.runLogFile   = null;
+      this.runLogSteps  = null;
+      if(null != this.runLogClaim)
+        RUNLOG_OWNERS.remove(this.runLogClaim, this);
+      this.runLogClaim  = null;
+      if(null != statistics)
+        statistics.finish(started, (null == result) || result.isError());
+    }
+    return result;
+  }
+
+  /**
+   *  \brief    Methode liefert die Werte für JMX zu dem Daemon aus \c daemonhost und \c daemonport
+   *
+   *  @return   Die Methode liefert \c null , wenn die Adresse ungültig ist.
+   */
+  private static QFTestDaemonStatistics getStatistics(List<ActionParameter> parameters)
+  {
+    try
+    {
+      return QFTestDaemonStatistics.get(QFTestDaemonEndpoint.fromParameters(parameters).toString());
+    }
+    catch (NumberFormatException e)
+    {
+      return null;
+    }
+  }
+
+  private SampleResult runOnDaemon(Context context, List<ActionParameter> parameters)
+  {
+    SampleResult unavailable = this.awaitSupervisedDaemon(context, parameters);
+    if(null != unavailable)
+      return unavailable;
+    List<String>  testcases = getTestCases(parameters);
+    boolean       direct    = QFTestDaemonClientFactory.isDirect(parameters);
+    if(!direct && (1 < testcases.size()) && QFTestDaemonClientFactory.isApiAvailable(parameters))
+    { //  qftestc takes one test case per call, the API runs the batch without starting a JVM per test case
+      parameters  = withEngine(parameters, QFTestDaemonClientFactory.ENGINE_NATIVE);
+      direct      = true;
+    }
+    if(direct)
+    {
+      if(1 >= testcases.size())
+        return this.executeDaemon(context, parameters);
+      //  the test cases of a batch carry their own timing, the phases of the session would hide them
+      boolean phases = this.reportPhases;
+      this.reportPhases = false;
+      this.batch = new ArrayList<SampleResult>(testcases.size());
+      try
+      {
+        SampleResult result = this.executeDaemon(context, parameters);
+        for(SampleResult testcase : this.batch)
+          result.addSubResult(testcase);
+        return result;
+      }
+      finally
+      {
+        this.batch = null;
+        this.reportPhases = phases;
+      }
+    }
+    if(1 < testcases.size())
+      return this.executeProcessBatch(context, parameters, testcases);
     return this.executeProcess(context, QFTestCommandFactory.buildCommand(QFTestExecuteAction.TYPE, parameters));
   }
 
+  /**
+   *  \brief    Methode führt einen Stapel von Testfällen über \c qftestc.exe aus
+   *
+   *  \c qftestc.exe \c -calldaemon nimmt nur einen Testfall entgegen. Die
+   *  Methode wird daher nur verwendet, wenn das Daemon-API von QF-Test nicht
+   *  geladen werden kann, siehe QFTestDaemonClientFactory.isApiAvailable(List<ActionParameter>).
+   *  Die Testfälle werden dann nacheinander mit je einem Aufruf ausgeführt
+   *  und teilen sich die Frist aus \c timeout . Jeder Aufruf wird ein
+   *  Teilergebnis mit eigenem Request und eigener Response. Nach einem
+   *  Abbruch durch die Frist oder einem Fehler beim Start wird der Stapel
+   *  beendet.
+   */
+  private SampleResult executeProcessBatch(Context context, List<ActionParameter> parameters, List<String> testcases)
+  {
+    SampleResult            result    = new SampleResult();
+    QFTestReportingContext  parent    = this.currentReporting();
+    QFTestResultWriter      writer    = parent.getWriter();
+    long                    timeout   = this.processTimeout;
+    long                    deadline  = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    boolean                 record    = this.recordMetrics;
+    int                     worst     = 0;
+    String                  status    = null;
+
+    //  every test case collects its own request and response, the batch counts as one call
+    this.reporting = null;
+    this.recordMetrics = false;
+    writer.startElement("testcases");
+    result.sampleStart();
+    try
+    {
+      for(int i = 0; (i < testcases.size()) && (null == status); ++i)
+      {
+        if(0L < timeout)
+        {
+          this.processTimeout = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if(0L >= this.processTimeout)
+          {
+            status = STATUS_TIMEOUT;
+            break;
+          }
+        }
+        SampleResult testcase = this.executeProcess(context, QFTestCommandFactory.buildCommand(QFTestExecuteAction.TYPE, withTestCase(parameters, testcases.get(i))));
+        result.addSubResult(testcase);
+        if(0 < parent.getRequest().length())
+          parent.getRequest().append("\n");
+        parent.getRequest().append(testcase.getRequestContent());
+        QFTestMetrics.record(QFTestMetrics.TESTCASE, this.getMetricsName(), testcases.get(i), testcase.getDuration());
+        writer.startElement("testcase".concat(String.valueOf(i + 1)))
+              .element("name", testcases.get(i))
+              .element("exitcode", testcase.getStatusCode())
+              .element("runtime", String.valueOf(testcase.getDuration()))
+              .endElement();
+        try
+        {
+          worst = worse(worst, Integer.parseInt(testcase.getStatusCode()));
+        }
+        catch (NumberFormatException e)
+        { //  timeout or the process could not be started
+          status = testcase.getStatusCode();
+        }
+      }
+    }
+    finally
+    {
+      this.processTimeout = timeout;
+      this.reporting      = parent;
+      this.recordMetrics  = record;
+    }
+    result.sampleEnd();
+
+    result.setStatusCode((null == status) ? String.valueOf(worst) : status);
+    writer.endElement();
+    writer.element("exitcode", result.getStatusCode());
+    result.setError(!"0".equals(result.getStatusCode()));
+    return this.completeResult(context, result);
+  }
+
+  /**
+   *  \brief    Methode führt den Testfall auf dem am wenigsten belasteten Daemon aus \c daemonpool aus
+   *
+   *  Die Wartezeit auf einen freien Daemon ist durch \c poolwait begrenzt
+   *  und zählt nicht zur Laufzeit des Ergebnisses.
+   *
+   *  Bei fester Zuordnung wird nach einem fehlerhaften Lauf geprüft, ob der
+   *  Daemon noch antwortet. Ist er nicht mehr erreichbar, wird er über
+   *  QFTestDaemonAffinity.markLost(QFTestDaemonEndpoint) aus dem Ring
+   *  genommen und der virtuelle Anwender erhält beim nächsten Aufruf einen
+   *  anderen Daemon.
+   */
+  private SampleResult executeDispatched(Context context, List<ActionParameter> parameters, QFTestDaemonDispatcher dispatcher)
+  {
+    long    waitMillis  = QFTestCommandElementsLibrary.getLongParameterValue(parameters, "poolwait", QFTestDaemonSessionPool.DEFAULT_WAIT_MILLIS);
+    boolean sticky      = QFTestDaemonAffinity.MODE_VIRTUAL_USER.equals(QFTestCommandElementsLibrary.getParameterValue(parameters, "daemonaffinity", QFTestDaemonAffinity.MODE_NONE).trim().toLowerCase());
+    String  user        = this.getVirtualUser(context);
+    if(null == user)
+    { //  without NeoLoad every thread stands for a virtual user
+      user = Thread.currentThread().getName();
+    }
+    try
+    {
+      QFTestDaemonEndpoint pinned = sticky ? dispatcher.getAffinity().select(user, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "affinityretry", QFTestDaemonAffinity.DEFAULT_RETRY_MILLIS)) : null;
+      try (QFTestDaemonDispatcher.Lease lease = dispatcher.acquire(pinned, waitMillis))
+      {
+        QFTestResultWriter writer = this.currentReporting().getWriter();
+        writer.startElement("dispatch")
+              .element("daemon", lease.getEndpoint().toString())
+              .element("inflight", String.valueOf(lease.getInFlight()))
+              .element("queuewait", String.valueOf(lease.getQueueMillis()));
+        if(sticky)
+          writer.element("affinity", user);
+        writer.endElement();
+        QFTestMetrics.record(QFTestMetrics.QUEUE_WAIT, this.getMetricsName(), lease.getEndpoint().toString(), lease.getQueueMillis());
+        SampleResult result = this.executeOnDaemon(context, lease.apply(parameters));
+        if(sticky && result.isError() && !isReachable(lease.getEndpoint(), parameters))
+          dispatcher.getAffinity().markLost(lease.getEndpoint());
+        return result;
+      }
+    }
+    catch (QFTestDaemonException e)
+    {
+      return this.reportDispatchError(context, "QFT-DAEMONPOOL-BUSY", e);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return this.reportDispatchError(context, e.getClass().getSimpleName(), e);
+    }
+  }
+
+  /**
+   *  \brief    Methode liefert die Kennung des virtuellen Anwenders
+   *
+   *  Ein Lauf im Hintergrund wird ohne Context ausgeführt und verwendet die
+   *  Kennung, die ihm über detach(String) mitgegeben wurde.
+   */
+  @Override
+  protected String getVirtualUser(Context context)
+  {
+    String user = super.getVirtualUser(context);
+    return (null == user) ? this.detachedUser : user;
+  }
+
+  /**
+   *  \brief    Methode bereitet die Engine auf einen Lauf ohne Context vor
+   *
+   *  Der Context von NeoLoad gehört dem virtuellen Anwender und darf nach
+   *  dem Ende seiner Action nicht mehr verwendet werden. QFTestAsyncRunRegistry
+   *  führt den Lauf deshalb ohne Context aus und übergibt hier nur die
+   *  Kennung des virtuellen Anwenders, z.B. für \c daemonaffinity . Ausgaben
+   *  auf System.out entfallen.
+   *
+   *  @param    virtualUser   Kennung des virtuellen Anwenders oder \c null
+   */
+  void detach(String virtualUser)
+  {
+    this.detachedUser = virtualUser;
+    this.detached     = true;
+  }
+
+  /**
+   *  \brief    Methode prüft über QFTestDaemonProbe, ob ein Daemon antwortet
+   */
+  private static boolean isReachable(QFTestDaemonEndpoint endpoint, List<ActionParameter> parameters)
+  {
+    try
+    {
+      QFTestDaemonProbe.probe(endpoint, PROBE_TIMEOUT_MILLIS, QFTestDaemonProbe.isHandshakePossible(parameters));
+      return true;
+    }
+    catch (QFTestDaemonException e)
+    {
+      return false;
+    }
+  }
+
+  /**
+   *  \brief    Methode liefert das Ergebnis, wenn kein Daemon zugeteilt werden konnte
+   */
+  private SampleResult reportDispatchError(Context context, String code, Exception exception)
+  {
+    SampleResult        result  = new SampleResult();
+    QFTestResultWriter  writer  = this.currentReporting().getWriter();
+    this.reportToRequest("daemonpool");
+    writer.element("exception", exception.getLocalizedMessage());
+    getErrorResult(context, result, code, exception.getLocalizedMessage(), null);
+    return this.completeResult(context, result);
+  }
+
+  /**
+   *  \brief    Methode wartet auf einen Daemon, der gerade neu gestartet wird
+   *
+   *  @return   Die Methode liefert \c null , wenn der Daemon verfügbar ist
+   *            oder nicht überwacht wird, sonst das Ergebnis mit dem Fehler
+   *            \c QFT-DAEMON-RESTARTING oder \c QFT-DAEMON-FAILED .
+   */
+  private SampleResult awaitSupervisedDaemon(Context context, List<ActionParameter> parameters)
+  {
+    QFTestDaemonEndpoint    endpoint    = QFTestDaemonEndpoint.fromParameters(parameters);
+    QFTestDaemonSupervisor  supervisor  = QFTestDaemonSupervisor.get(endpoint);
+    if(null == supervisor)
+      return null;
+
+    SampleResult result = new SampleResult();
+    result.sampleStart();
+    try
+    {
+      QFTestDaemonSupervisor.State state = supervisor.awaitAvailable(QFTestCommandElementsLibrary.getLongParameterValue(parameters, "restartwait", QFTestDaemonSupervisor.DEFAULT_RESTART_WAIT));
+      if((QFTestDaemonSupervisor.State.RUNNING == state) || (QFTestDaemonSupervisor.State.STOPPED == state))
+        return null;
+      result.sampleEnd();
+      getErrorResult(context, result, "QFT-DAEMON-".concat(state.name()), "QF-Test Daemon (".concat(endpoint.toString()).concat(") is not available: ").concat(supervisor.toString()), null);
+    }
+    catch (InterruptedException e)
+    {
+      result.sampleEnd();
+      Thread.currentThread().interrupt();
+      getErrorResult(context, result, e.getClass().getSimpleName(), "Interrupted while waiting for the QF-Test Daemon.", e);
+    }
+    this.reportToRequest(endpoint.toString());
+    this.currentReporting().getWriter().element("exception", supervisor.toString());
+    return this.completeResult(context, result);
+  }
+
+  /**
+   *  \brief    Methode führt den Testfall direkt über den Daemon aus
+   *
+   *  Die ActionParameter \c testcase , \c suitedir , \c variable und
+   *  \c exitcodeignore werden wie beim Aufruf über \c qftestc.exe
+   *  ausgewertet.
+   */
+  @Override
+  protected QFTestDaemonRunResult callDaemon(QFTestDaemonClient client, List<ActionParameter> parameters) throws QFTestDaemonException
+  {
+    if(null != this.batch)
+      return this.callDaemonBatch(client, parameters);
+    String testcase = getTestCase(parameters);
+    this.reportToRequest(testcase);
+    QFTestDaemonRunResult run = client.runTest(testcase, getVariables(parameters), this.processTimeout);
+    int exitCode = ignoreExitCode(run.getExitCode(), QFTestCommandElementsLibrary.getParameterValue(parameters, "exitcodeignore", "").toLowerCase().trim());
+    if(exitCode == run.getExitCode())
+      return run;
+    return new QFTestDaemonRunResult(exitCode, run.isTimedOut(), run.getStartMillis(), run.getEndMillis());
+  }
+
+  /**
+   *  \brief    Methode führt alle Testfälle über dieselbe Verbindung zum Daemon aus
+   *
+   *  Die Testfälle werden nacheinander in einem Laufkontext ausgeführt und
+   *  teilen sich die Frist aus \c timeout . Der Rückgabewert des Stapels
+   *  ist der schlechteste Rückgabewert eines Testfalls. Läuft die Frist ab,
+   *  werden die restlichen Testfälle nicht mehr ausgeführt.
+   *
+   *  Das Daemon-API liefert keine eigenen Zeiten eines Laufs. Hat QF-Test
+   *  für einen Testfall das Protokoll aus \c runlog geschrieben, wird
+   *  seine Laufzeit daraus gelesen, siehe
+   *  getRunLogDuration(List<ActionParameter>, String, long). Sonst misst
+   *  der Client um den Aufruf herum, die Zeit enthält dann auch die
+   *  Kommunikation mit dem Daemon. Das Element \c source jedes Testfalls
+   *  nennt die Quelle, \c runlog oder \c client .
+   */
+  private QFTestDaemonRunResult callDaemonBatch(QFTestDaemonClient client, List<ActionParameter> parameters) throws QFTestDaemonException
+  {
+    List<String>        testcases = getTestCases(parameters);
+    Map<String, String> variables = getVariables(parameters);
+    String              level     = QFTestCommandElementsLibrary.getParameterValue(parameters, "exitcodeignore", "").toLowerCase().trim();
+    String              suitedir  = QFTestCommandElementsLibrary.getParameterValue(parameters, "suitedir", "").trim();
+    QFTestResultWriter  writer    = this.currentReporting().getWriter();
+    long                deadline  = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.processTimeout);
+    long                start     = System.currentTimeMillis();
+    long                end       = start;
+    int                 worst     = 0;
+    boolean             timedOut  = false;
+
+    writer.startElement("testcases");
+    for(int i = 0; (i < testcases.size()) && !timedOut; ++i)
+    {
+      String  testcase  = resolve(suitedir, testcases.get(i));
+      long    remaining = 0L;
+      if(0L < this.processTimeout)
+      {
+        remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if(0L >= remaining)
+        {
+          timedOut = true;
+          break;
+        }
+      }
+      this.reportToRequest(testcase);
+      long                  since   = System.currentTimeMillis();
+      QFTestDaemonRunResult run     = client.runTest(testcase, variables, remaining);
+      int                   code    = ignoreExitCode(run.getExitCode(), level);
+      String                exit    = run.isTimedOut() ? STATUS_TIMEOUT : String.valueOf(code);
+      long                  runtime = this.getRunLogDuration(parameters, testcase, since);
+      String                source  = (0L <= runtime) ? QFTestPhases.SOURCE_RUNLOG : QFTestPhases.SOURCE_CLIENT;
+      if(0L > runtime)
+        runtime = run.getDuration();
+      if(0 == i)
+        start = run.getStartMillis();
+      end       = run.getEndMillis();
+      worst     = worse(worst, code);
+      timedOut  = run.isTimedOut();
+      writer.startElement("testcase".concat(String.valueOf(i + 1)))
+            .element("name", testcase)
+            .element("exitcode", exit)
+            .element("runtime", String.valueOf(runtime))
+            .element("source", source)
+            .endElement();
+      this.batch.add(this.createTestCaseResult(testcase, exit, runtime, source));
+    }
+    writer.endElement();
+    return new QFTestDaemonRunResult(worst, timedOut, start, end);
+  }
+
+  /**
+   *  \brief    Methode liest die Laufzeit eines Testfalls im Stapel aus dem Protokoll von QF-Test
+   *
+   *  Gezählt werden die äußeren Schritte \c TestCase , deren Name zu
+   *  \em testcase passt. Ein Protokoll, das sich seit dem vorigen Testfall
+   *  nicht geändert hat, gehört nicht zu diesem Testfall.
+   *
+   *  @return   Die Methode liefert die Laufzeit in Millisekunden oder \c -1 ,
+   *            wenn das Protokoll keine Laufzeit des Testfalls enthält.
+   */
+  private long getRunLogDuration(List<ActionParameter> parameters, String testcase, long since)
+  {
+    File                          previous  = this.runLogFile;
+    long                          modified  = this.runLogModified;
+    List<QFTestRunLogParser.Step> steps     = this.readRunLog(this.context, parameters, since);
+    if((null == steps) || (this.runLogFile.equals(previous) && (this.runLogModified == modified)))
+      return -1L;
+
+    long duration = -1L;
+    for(QFTestRunLogParser.Step step : steps)
+      if((0 == step.getLevel()) && "TestCase".equals(step.getType()) && (null != step.getName())
+         && (testcase.equals(step.getName()) || testcase.endsWith("#".concat(step.getName()))))
+        duration = Math.max(0L, duration) + step.getDuration();
+    return duration;
+  }
+
+  /**
+   *  \brief    Methode hängt die Schritte aus dem Protokoll von QF-Test als Teilergebnisse an
+   *
+   *  Die Teilergebnisse sind wie die Schritte verschachtelt. Ein Fehler
+   *  beim Lesen ändert das Ergebnis nicht.
+   *
+   *  \see      QFTestExecuteActionEngine.readRunLog(Context, List<ActionParameter>, long)
+   */
+  private void attachRunLog(Context context, List<ActionParameter> parameters, SampleResult result, long started)
+  {
+    List<QFTestRunLogParser.Step> steps = this.readRunLog(context, parameters, started);
+    if(null == steps)
+      return;
+
+    List<SampleResult> open = new ArrayList<SampleResult>();
+    for(QFTestRunLogParser.Step step : steps)
+    {
+      while(step.getLevel() < open.size())
+        open.remove(open.size() - 1);
+      SampleResult sub = this.createStepResult(step);
+      (open.isEmpty() ? result : open.get(open.size() - 1)).addSubResult(sub);
+      open.add(sub);
+    }
+  }
+
+  /**
+   *  \brief    Methode legt den Testlauf eines Prozesses anhand des Protokolls von QF-Test fest
+   *
+   *  QF-Test schreibt das Protokoll am Ende des Testlaufs. Das Ende des
+   *  Testlaufs ist daher der Zeitpunkt der letzten Änderung der Datei, seine
+   *  Dauer die Summe der äußeren Schritte. Ohne Protokoll oder wenn
+   *  \c runloglimit nicht alle Schritte erfasst, bleibt es bei den Phasen
+   *  aus der Konsolenausgabe.
+   */
+  @Override
+  protected void refinePhases(Context context, QFTestPhases phases)
+  {
+    List<ActionParameter>         parameters  = this.current;
+    List<QFTestRunLogParser.Step> steps       = (null == parameters) ? null : this.readRunLog(context, parameters, phases.getSpawnStart());
+    if((null == steps) || steps.isEmpty() || (QFTestCommandElementsLibrary.getLongParameterValue(parameters, "runloglimit", QFTestRunLogParser.DEFAULT_LIMIT) <= steps.size()))
+      return;
+
+    long run = 0L;
+    for(QFTestRunLogParser.Step step : steps)
+      if(0 == step.getLevel())
+        run += step.getDuration();
+    phases.setRun(this.runLogModified - run, this.runLogModified, QFTestPhases.SOURCE_RUNLOG);
+  }
+
+  /**
+   *  \brief    Methode liest die Schritte aus dem Protokoll von QF-Test
+   *
+   *  Das Protokoll wird über QFTestRunLogParser gelesen, ohne es vollständig
+   *  in den Speicher zu laden. Als Schritt gelten die Elemente aus
+   *  \c runlogsteps (Standard \c TestSet,TestCase,TestStep,Sequence ,
+   *  \c none schaltet das Lesen ab), höchstens \c runloglimit Schritte
+   *  (Standard 200).
+   *
+   *  Berücksichtigt wird nur eine Datei, die seit \em since geschrieben
+   *  wurde, damit kein Protokoll eines früheren Laufs gelesen wird, und nur,
+   *  wenn der Aufruf das Protokoll belegen konnte. Ein Fehler beim Lesen
+   *  wird protokolliert.
+   *
+   *  @return   Die Methode liefert die Schritte oder \c null .
+   */
+  private List<QFTestRunLogParser.Step> readRunLog(Context context, List<ActionParameter> parameters, long since)
+  {
+    Set<String> types = QFTestRunLogParser.parseTypes(QFTestCommandElementsLibrary.getParameterValue(parameters, "runlogsteps", QFTestRunLogParser.DEFAULT_TYPES));
+    File        file  = (types.isEmpty() || (null == this.runLogClaim)) ? null : getRunLogFile(parameters, since);
+    if(null == file)
+      return null;
+    if(file.equals(this.runLogFile) && (file.lastModified() == this.runLogModified))
+      return this.runLogSteps;
+
+    int limit = (int) Math.min(Integer.MAX_VALUE, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "runloglimit", QFTestRunLogParser.DEFAULT_LIMIT));
+    try
+    {
+      this.runLogModified = file.lastModified();
+      this.runLogSteps    = QFTestRunLogParser.parse(file, types, limit);
+      this.runLogFile     = file;
+      return this.runLogSteps;
+    }
+    catch (IOException | XMLStreamException e)
+    {
+      warn(context, "The QF-Test run-log ".concat(file.getPath()).concat(" could not be read: ").concat(String.valueOf(e.getLocalizedMessage())));
+      return null;
+    }
+  }
+
+  /**
+   *  \brief    Methode belegt das Protokoll aus \c runlog für den laufenden Aufruf
+   *
+   *  Das Protokoll schreibt der Daemon auf seinem Rechner. Gelesen wird es
+   *  nur, wenn der Daemon auf diesem Rechner läuft, siehe
+   *  QFTestDaemonEndpoint.isLocal(). Laufen mehrere virtuelle Anwender mit
+   *  demselben Namen in \c runlog gleichzeitig, würde jeder die Datei eines
+   *  anderen lesen können. Der Name muss daher je virtuellem Anwender
+   *  eindeutig sein, z.B. über eine Variable von NeoLoad. Ist er gerade von
+   *  einem anderen Aufruf belegt, wird das Protokoll für diesen Aufruf nicht
+   *  gelesen und eine Warnung protokolliert.
+   *
+   *  @return   Die Methode liefert den Schlüssel in RUNLOG_OWNERS oder
+   *            \c null , wenn das Protokoll nicht gelesen werden soll.
+   */
+  private String claimRunLog(Context context, List<ActionParameter> parameters)
+  {
+    String runlog = QFTestCommandElementsLibrary.getParameterValue(parameters, "runlog", "").trim();
+    if(runlog.isEmpty() || (0 <= runlog.indexOf('%')) || !isLocalDaemon(parameters))
+      return null;
+    if(runlog.endsWith(".qrz") || runlog.endsWith(".qrl"))
+      runlog = runlog.substring(0, runlog.length() - 4);
+
+    String key = new File(runlog).getAbsolutePath();
+    if(null == RUNLOG_OWNERS.putIfAbsent(key, this))
+      return key;
+    warn(context, "The QF-Test run-log ".concat(key).concat(" is used by another running call and is not read, runlog has to be unique per virtual user."));
+    return null;
+  }
+
+  private static boolean isLocalDaemon(List<ActionParameter> parameters)
+  {
+    try
+    {
+      return QFTestDaemonEndpoint.fromParameters(parameters).isLocal();
+    }
+    catch (NumberFormatException e)
+    {
+      return false;
+    }
+  }
+
+  private void warn(Context context, String message)
+  {
+    if(null != context)
+      context.getLogger().warn(message);
+    else if(!this.detached)
+      System.out.println(message);
+  }
+
+  /**
+   *  \brief    Methode liefert die Datei, die QF-Test für \c runlog geschrieben hat
+   *
+   *  QF-Test ergänzt die Endung \c .qrz , wenn sie fehlt. Namen mit
+   *  Platzhaltern wie \c %d werden nicht aufgelöst.
+   *
+   *  @return   Die Methode liefert die Datei oder \c null .
+   */
+  static File getRunLogFile(List<ActionParameter> parameters, long since)
+  {
+    String runlog = QFTestCommandElementsLibrary.getParameterValue(parameters, "runlog", "").trim();
+    if(runlog.isEmpty() || (0 <= runlog.indexOf('%')))
+      return null;
+    for(String candidate : new String[] { runlog, runlog.concat(".qrz"), runlog.concat(".qrl") })
+    {
+      File file = new File(candidate);
+      //  file systems store the modification time with a granularity of up to two seconds
+      if(file.isFile() && (since - 2000L <= file.lastModified()))
+        return file;
+    }
+    return null;
+  }
+
+  /**
+   *  \brief    Methode erzeugt das Teilergebnis eines Schritts aus dem Protokoll
+   */
+  private SampleResult createStepResult(QFTestRunLogParser.Step step)
+  {
+    StringBuilder       response  = new StringBuilder(128);
+    QFTestResultWriter  writer    = QFTestResultWriter.create(this.responseFormat, response);
+    writer.startDocument()
+          .element("type", step.getType())
+          .element("runtime", String.valueOf(step.getDuration()))
+          .endDocument();
+
+    SampleResult result = new SampleResult();
+    result.setDuration(step.getDuration());
+    result.setStatusCode("0");
+    result.setRequestContent(step.toString());
+    result.setResponseContent(response.toString());
+    return result;
+  }
+
+  /**
+   *  \brief    Methode erzeugt das Teilergebnis eines Testfalls im Stapel
+   */
+  private SampleResult createTestCaseResult(String testcase, String exitCode, long duration, String source)
+  {
+    StringBuilder       response  = new StringBuilder(128);
+    QFTestResultWriter  writer    = QFTestResultWriter.create(this.responseFormat, response);
+    writer.startDocument()
+          .element("runtime", String.valueOf(duration))
+          .element("source", source)
+          .element("exitcode", exitCode)
+          .endDocument();
+
+    QFTestMetrics.record(QFTestMetrics.TESTCASE, this.getMetricsName(), testcase, duration);
+    SampleResult result = new SampleResult();
+    result.setDuration(duration);
+    result.setStatusCode(exitCode);
+    result.setError(!"0".equals(exitCode));
+    result.setRequestContent(testcase);
+    result.setResponseContent(response.toString());
+    return result;
+  }
+
+  /**
+   *  \brief    Methode liefert den schlechteren von zwei Rückgabewerten
+   *
+   *  Negative Rückgabewerte stehen für einen Abbruch und gelten als
+   *  schlechter als jeder positive Wert.
+   */
+  static int worse(int first, int second)
+  {
+    if((0 > first) || (0 > second))
+      return Math.min(first, second);
+    return Math.max(first, second);
+  }
+
+  /**
+   *  \brief    Methode liefert den Testfall, bei Bedarf relativ zu \c suitedir
+   */
+  static String getTestCase(List<ActionParameter> parameters)
+  {
+    return resolve(QFTestCommandElementsLibrary.getParameterValue(parameters, "suitedir", "").trim(),
+                   QFTestCommandElementsLibrary.getParameterValue(parameters, "testcase", "").trim());
+  }
+
+  private static String resolve(String suitedir, String testcase)
+  {
+    if(suitedir.isEmpty() || new File(testcase).isAbsolute())
+      return testcase;
+    return new File(suitedir, testcase).getPath();
+  }
+
+  /**
+   *  \brief    Methode liefert alle Testfälle aus den ActionParametern \c testcase
+   *
+   *  Jeder ActionParameter \c testcase kann mehrere Testfälle enthalten,
+   *  die durch Semikolon oder Zeilenumbruch getrennt sind. Leere Einträge
+   *  werden übergangen.
+   *
+   *  @return   Die Methode liefert die Testfälle in der angegebenen
+   *            Reihenfolge und ohne \c suitedir .
+   */
+  static List<String> getTestCases(List<ActionParameter> parameters)
+  {
+    List<String> testcases = new ArrayList<String>();
+    for(ActionParameter parameter : parameters)
+      if("testcase".equals(parameter.getName()))
+        for(String testcase : parameter.getValue().split("[;\\r\\n]+"))
+          if(!testcase.trim().isEmpty())
+            testcases.add(testcase.trim());
+    return testcases;
+  }
+
+  /**
+   *  \brief    Methode liefert die ActionParameter mit genau einem Testfall
+   */
+  private static List<ActionParameter> withTestCase(List<ActionParameter> parameters, String testcase)
+  {
+    List<ActionParameter> single = new ArrayList<ActionParameter>(parameters.size());
+    for(ActionParameter parameter : parameters)
+      if(!"testcase".equals(parameter.getName()))
+        single.add(parameter);
+    single.add(new ActionParameter("testcase", testcase));
+    return single;
+  }
+
+  /**
+   *  \brief    Methode liefert die ActionParameter mit dem ActionParameter \c engine
+   */
+  private static List<ActionParameter> withEngine(List<ActionParameter> parameters, String engine)
+  {
+    List<ActionParameter> copy = new ArrayList<ActionParameter>(parameters.size() + 1);
+    for(ActionParameter parameter : parameters)
+      if(!"engine".equals(parameter.getName()))
+        copy.add(parameter);
+    copy.add(new ActionParameter("engine", engine));
+    return copy;
+  }
+
+  /**
+   *  \brief    Methode liefert die Variablen aus den ActionParametern \c variable
+   *
+   *  Jeder Wert hat die Form \c name=value wie bei der Option \c -variable
+   *  von \c qftestc.exe .
+   */
+  static Map<String, String> getVariables(List<ActionParameter> parameters)
+  {
+    Map<String, String> variables = new LinkedHashMap<String, String>();
+    for(ActionParameter parameter : parameters)
+      if("variable".equals(parameter.getName()))
+      {
+        String  value     = parameter.getValue();
+        int     separator = value.indexOf('=');
+        if(0 < separator)
+          variables.put(value.substring(0, separator).trim(), value.substring(separator + 1));
+      }
+    return variables;
+  }
+
+  /**
+   *  \brief    Methode wendet den ActionParameter \c exitcodeignore auf einen Rückgabewert an
+   *
+   *  Entspricht den Optionen \c -exitcodeignorewarning , \c -exitcodeignoreerror
+   *  und \c -exitcodeignoreexception von \c qftestc.exe .
+   */
+  static int ignoreExitCode(int exitCode, String level)
+  {
+    int limit = 0;
+    if("warning".equals(level))
+      limit = 1;
+    else if("error".equals(level))
+      limit = 2;
+    else if("exception".equals(level))
+      limit = 3;
+    return ((0 < exitCode) && (exitCode <= limit)) ? 0 : exitCode;
+  }
+
 }
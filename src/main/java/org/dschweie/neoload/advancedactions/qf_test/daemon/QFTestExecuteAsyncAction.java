@@ -0,0 +1,68 @@
+package org.dschweie.neoload.advancedactions.qf_test.daemon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestAction;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.ActionEngine;
+
+/**
+ *  \brief    Verwaltungs-Klasse für die Advanced Action zur Ausführung eines Testskripts im Hintergrund
+ *
+ *  Diese Klasse repräsentiert eine Implementierung der AbstractQFTestAction
+ *  mit der ein Testskript über einen QF-Test Daemon gestartet wird, ohne
+ *  auf sein Ende zu warten. Das Ergebnis wird später mit QFTestAwaitAction
+ *  abgeholt.
+ *
+ *  Diese Klasse ist die Schnittstelle, über die NeoLoad Informationen zu der
+ *  angebotenen Advanced Action anfragen kann.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public class QFTestExecuteAsyncAction extends AbstractQFTestAction
+{
+  public static final String TYPE = "QF-Test-Daemon-Execute-Async";
+  /**
+   *  \brief    Klassenkonstante für die Ressourcendatei
+   *
+   *  In der Klassenkonstante ist der Pfad zur Ressourcendatei
+   *  der Action hinterlegt. Diese Information wird bei der Instanzierung
+   *  der Klasse in die Instanzvariable übernommen.
+   */
+  private static final String BUNDLE_NAME = "org.dschweie.neoload.advancedactions.qf_test.qf-test-daemon-execute-async";
+
+  /**
+   *  \brief  Standardkonstruktor der Klasse
+   */
+  public QFTestExecuteAsyncAction()
+  {
+    super(BUNDLE_NAME);
+  }
+
+  //! \copydoc AbstractQFTestAction::getDefaultActionParameters()
+  @Override
+  public List<ActionParameter> getDefaultActionParameters()
+  {
+    final List<ActionParameter> actionParameters = new ArrayList<ActionParameter>();
+
+    actionParameters.add(new ActionParameter("daemonport", "3543"));
+    actionParameters.add(new ActionParameter("daemonhost", "localhost"));
+    actionParameters.add(new ActionParameter("suitedir", "${NL-CustomResources}"));
+    actionParameters.add(new ActionParameter("runlog", "<qualified filename>"));
+    actionParameters.add(new ActionParameter("testcase", "suite#testcase"));
+    actionParameters.add(new ActionParameter("variable", "name=value"));
+    actionParameters.add(new ActionParameter("handlevariable", QFTestExecuteAsyncActionEngine.DEFAULT_HANDLE_VARIABLE));
+
+    return actionParameters;
+  }
+
+  //! \copydoc AbstractQFTestAction::getEngineClass()
+  @Override
+  public Class<? extends ActionEngine> getEngineClass()
+  {
+    return QFTestExecuteAsyncActionEngine.class;
+  }
+
+}
@@ -0,0 +1,97 @@
+package org.dschweie.neoload.advancedactions.qf_test.daemon;
+
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.Context;
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief      Engine-Klasse für die Advanced Action zur Ausführung eines Testskripts im Hintergrund
+ *
+ *  Ein Instanz dieser Klasse übergibt den Testlauf an QFTestAsyncRunRegistry
+ *  und kehrt sofort zurück. Die Kennung des Laufs wird in der Variablen aus
+ *  \c handlevariable abgelegt, über die QFTestAwaitActionEngine das
+ *  Ergebnis abholt.
+ *
+ *  @author     dirk.schweier
+ *  @since      0.4.0
+ */
+public final class QFTestExecuteAsyncActionEngine extends AbstractQFTestActionEngine
+{
+  /**
+   *  \brief    Klassenkonstante mit dem Standardnamen der Variablen für die Kennung des Laufs
+   */
+  public static final String DEFAULT_HANDLE_VARIABLE = "QFTestHandle";
+
+  /**
+   *  \brief    Klassenkonstante mit dem Statuscode, wenn die Grenze der Läufe erreicht ist
+   */
+  public static final String STATUS_FULL = "QFT-ASYNC-FULL";
+
+  /**
+   *  \brief    Schnittstelle für NeoLoad zur Ausführung der Advanced Action
+   *
+   *  Die Methode übernimmt dieselben ActionParameter wie
+   *  QFTestExecuteActionEngine und zusätzlich:
+   *  \li   \c handlevariable Name der Variablen für die Kennung des Laufs,
+   *        Standard \c QFTestHandle
+   *  \li   \c asynclimit maximale Anzahl der Läufe aller virtuellen Anwender,
+   *        die übergeben und noch nicht abgeholt sind, Standard 64
+   *
+   *  Ist die Grenze erreicht, wird der Lauf nicht gestartet und das Ergebnis
+   *  hat den Statuscode \c QFT-ASYNC-FULL .
+   *
+   *  @param    context       In dem Parameter ist eine Instanz zu übergeben,
+   *                          über die die Methode Zugriff auf Informationen
+   *                          von NeoLoad zur Laufzeit hat.
+   *  @param    parameters    In diesem Parameter wird von der Satz an
+   *                          Parametern übergeben, die der Anwender zu der
+   *                          Advanced Action in NeoLoad erfasst hat.
+   *
+   *  @return   Die Methode liefert das Ergebnis der Übergabe, nicht des
+   *            Testlaufs.
+   */
+  @Override
+  public SampleResult execute(Context context, List<ActionParameter> parameters)
+  {
+    try
+    {
+      this.configure(parameters);
+      SampleResult        result    = new SampleResult();
+      QFTestResultWriter  writer    = this.currentReporting().getWriter();
+      String              variable  = QFTestCommandElementsLibrary.getParameterValue(parameters, "handlevariable", DEFAULT_HANDLE_VARIABLE).trim();
+      int                 capacity  = (int) Math.min(Integer.MAX_VALUE, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "asynclimit", QFTestAsyncRunRegistry.DEFAULT_CAPACITY));
+
+      this.reportToRequest("submit ".concat(QFTestExecuteActionEngine.getTestCase(parameters)));
+      result.sampleStart();
+      QFTestAsyncRunRegistry.Run run = QFTestAsyncRunRegistry.submit(this.getVirtualUser(context), parameters, capacity);
+      result.sampleEnd();
+      writer.startElement("async");
+      if(null == run)
+      {
+        writer.element("occupied", String.valueOf(QFTestAsyncRunRegistry.getOccupied()))
+              .element("capacity", String.valueOf(capacity))
+              .endElement();
+        getErrorResult(context, result, STATUS_FULL, "No more than ".concat(String.valueOf(capacity)).concat(" asynchronous QF-Test runs are allowed."), null);
+        return this.completeResult(context, result);
+      }
+      if((null != context) && (null != context.getVariableManager()))
+        context.getVariableManager().setValue(variable, run.getHandle());
+      writer.element("handle", run.getHandle())
+            .element("variable", variable)
+            .element("occupied", String.valueOf(QFTestAsyncRunRegistry.getOccupied()))
+            .endElement();
+      result.setStatusCode("0");
+      return this.completeResult(context, result);
+    }
+    finally
+    {
+      this.releaseReporting();
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package org.dschweie.neoload.advancedactions.qf_test.daemon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestAction;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.ActionEngine;
+
+/**
+ *  \brief    Verwaltungs-Klasse für die Advanced Action zur Ausgabe der Messwerte
+ *
+ *  Diese Klasse repräsentiert eine Implementierung der AbstractQFTestAction,
+ *  mit der die Messwerte aus QFTestMetrics als CSV ausgegeben werden. Da
+ *  NeoLoad einer Advanced Action das Ende eines Tests nicht mitteilt, wird
+ *  die Action z.B. im Container \c End eines User Path eingesetzt.
+ *
+ *  Diese Klasse ist die Schnittstelle, über die NeoLoad Informationen zu der
+ *  angebotenen Advanced Action anfragen kann.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public class QFTestMetricsAction extends AbstractQFTestAction
+{
+  public static final String TYPE = "QF-Test-Daemon-Metrics";
+  /**
+   *  \brief    Klassenkonstante für die Ressourcendatei
+   *
+   *  In der Klassenkonstante ist der Pfad zur Ressourcendatei
+   *  der Action hinterlegt. Diese Information wird bei der Instanzierung
+   *  der Klasse in die Instanzvariable übernommen.
+   */
+  private static final String BUNDLE_NAME = "org.dschweie.neoload.advancedactions.qf_test.qf-test-daemon-metrics";
+
+  /**
+   *  \brief  Standardkonstruktor der Klasse
+   */
+  public QFTestMetricsAction()
+  {
+    super(BUNDLE_NAME);
+  }
+
+  //! \copydoc AbstractQFTestAction::getDefaultActionParameters()
+  @Override
+  public List<ActionParameter> getDefaultActionParameters()
+  {
+    final List<ActionParameter> actionParameters = new ArrayList<ActionParameter>();
+
+    actionParameters.add(new ActionParameter("metricsfile", ""));
+
+    return actionParameters;
+  }
+
+  //! \copydoc AbstractQFTestAction::getEngineClass()
+  @Override
+  public Class<? extends ActionEngine> getEngineClass()
+  {
+    return QFTestMetricsActionEngine.class;
+  }
+
+}
@@ -0,0 +1,87 @@
+package org.dschweie.neoload.advancedactions.qf_test.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestMetrics;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.Context;
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief      Engine-Klasse für die Advanced Action zur Ausgabe der Messwerte
+ *
+ *  Ein Instanz dieser Klasse schreibt die Messwerte aus QFTestMetrics als
+ *  CSV in die Response und auf Wunsch in eine Datei. Die Action selbst wird
+ *  nicht erfasst.
+ *
+ *  @author     dirk.schweier
+ *  @since      0.4.0
+ */
+public final class QFTestMetricsActionEngine extends AbstractQFTestActionEngine
+{
+  /**
+   *  \brief    Schnittstelle für NeoLoad zur Ausführung der Advanced Action
+   *
+   *  Die Methode wertet folgende ActionParameter aus:
+   *  \li   \c metricsfile optionale Datei, in die die Messwerte geschrieben
+   *        werden; die Datei wird auch beim Beenden der JVM geschrieben
+   *  \li   \c reset mit dem Wert \c true werden die Messwerte nach der
+   *        Ausgabe verworfen
+   *
+   *  @param    context       In dem Parameter ist eine Instanz zu übergeben,
+   *                          über die die Methode Zugriff auf Informationen
+   *                          von NeoLoad zur Laufzeit hat.
+   *  @param    parameters    In diesem Parameter wird von der Satz an
+   *                          Parametern übergeben, die der Anwender zu der
+   *                          Advanced Action in NeoLoad erfasst hat.
+   *
+   *  @return   Die Methode liefert ein Ergebnis, dessen Response die
+   *            Messwerte im Element \c metrics enthält.
+   */
+  @Override
+  public SampleResult execute(Context context, List<ActionParameter> parameters)
+  {
+    try
+    {
+      this.configure(parameters);
+      this.recordMetrics = false;
+      SampleResult        result  = new SampleResult();
+      QFTestResultWriter  writer  = this.currentReporting().getWriter();
+      String              file    = QFTestCommandElementsLibrary.getParameterValue(parameters, "metricsfile", "").trim();
+
+      this.reportToRequest("metrics");
+      result.sampleStart();
+      String csv = QFTestMetrics.toCsv();
+      result.setStatusCode("0");
+      if(!file.isEmpty())
+      {
+        try
+        {
+          QFTestMetrics.dump(new File(file));
+          writer.element("metricsfile", new File(file).getAbsolutePath());
+        }
+        catch (IOException e)
+        {
+          writer.element("exception", e.getLocalizedMessage());
+          getErrorResult(context, result, e.getClass().getSimpleName(), "QF-Test metrics could not be written to ".concat(file).concat("."), e);
+        }
+      }
+      if(Boolean.parseBoolean(QFTestCommandElementsLibrary.getParameterValue(parameters, "reset", "false").trim()))
+        QFTestMetrics.reset();
+      result.sampleEnd();
+      writer.element("metrics", csv);
+      result.setError(!"0".equals(result.getStatusCode()));
+      return this.completeResult(context, result);
+    }
+    finally
+    {
+      this.releaseReporting();
+    }
+  }
+
+}
@@ -3,6 +3,11 @@ package org.dschweie.neoload.advancedactions.qf_test.daemon;
 import java.util.List;
 
 import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClient;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClientFactory;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonException;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonRunResult;
 import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandFactory;
 import com.neotys.extensions.action.ActionParameter;
 import com.neotys.extensions.action.engine.Context;
@@ -30,6 +35,10 @@ public final class QFTestPingActionEngine extends AbstractQFTestActionEngine
    *  abgesetzt werden, um zu prüfen, ob der Dienst läuft und zur Ausführung
    *  von Tests bereit ist.
    *
+   *  Ohne Angabe wird der Daemon über QFTestDaemonProbe geprüft. Nur mit
+   *  dem ActionParameter \c pingmode und dem Wert \c deep wird der Ping
+   *  über \c qftestc.exe bzw. das Daemon-API abgesetzt.
+   *
    *  @param    context       In dem Parameter ist eine Instanz zu übergeben,
    *                          über die die Methode Zugriff auf Informationen
    *                          von NeoLoad zur Laufzeit hat.
@@ -46,6 +55,45 @@ public final class QFTestPingActionEngine extends AbstractQFTestActionEngine
 	@Override
 	public SampleResult execute(Context context, List<ActionParameter> parameters)
 	{
-	  return this.executeProcess(context, QFTestCommandFactory.buildCommand(QFTestPingAction.TYPE, parameters));
+	  try
+	  {
+	    this.configure(parameters);
+	    if(!QFTestDaemonProbe.isDeep(parameters))
+	      return this.executeProbe(context, parameters);
+	    if(QFTestDaemonClientFactory.isDirect(parameters))
+	      return this.executeDaemon(context, parameters);
+	    return this.executeProcess(context, QFTestCommandFactory.buildCommand(QFTestPingAction.TYPE, parameters));
+	  }
+	  finally
+	  {
+	    this.releaseReporting();
+	  }
+	}
+
+	/**
+	 *  \brief    Methode setzt den Ping direkt an den Daemon ab
+	 *
+	 *  @return   Die Methode liefert den Rückgabewert \c 0 , wenn der Daemon
+	 *            geantwortet hat, sonst \c -1 .
+	 */
+	@Override
+	protected QFTestDaemonRunResult callDaemon(QFTestDaemonClient client, List<ActionParameter> parameters) throws QFTestDaemonException
+	{
+	  long start = System.currentTimeMillis();
+	  boolean alive = client.ping(this.processTimeout);
+	  return new QFTestDaemonRunResult(alive ? 0 : -1, false, start, System.currentTimeMillis());
 	}
+
+	/**
+	 *  \brief    Getter-Methode für die Standardlaufzeit eines Prozesses
+	 *
+	 *  @return   Die Methode liefert die maximale Laufzeit in Millisekunden,
+	 *            hier eine Minute.
+	 */
+	@Override
+	protected long getDefaultTimeout()
+	{
+	  return 60000L;
+	}
+
 }
@@ -1,11 +1,32 @@
 package org.dschweie.neoload.advancedactions.qf_test.daemon;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestBackoff;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
 import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandFactory;
 import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestDaemonPidFile;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestDaemonSupervisor;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestOutputDrainer;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestProcessTree;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestRotatingLog;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter;
 import com.neotys.extensions.action.ActionParameter;
 import com.neotys.extensions.action.engine.Context;
 import com.neotys.extensions.action.engine.SampleResult;
@@ -34,6 +55,26 @@ import com.neotys.extensions.action.engine.SampleResult;
  */
 public class QFTestStartActionEngine extends AbstractQFTestActionEngine
 {
+  /**
+   *  \brief    Klassenkonstante mit der Wartezeit einer einzelnen Prüfung in Millisekunden
+   */
+  private static final int  PROBE_TIMEOUT_MILLIS  = 5000;
+
+  /**
+   *  \brief    Instanzvariable mit dem Arbeiter, der die Ausgabe des zuletzt gestarteten Daemon liest
+   */
+  private QFTestOutputDrainer daemonOutput = null;
+
+  /**
+   *  \brief    Instanzvariable mit der Überwachung des von dieser Instanz gestarteten Daemon
+   */
+  private volatile QFTestDaemonSupervisor supervisor = null;
+
+  /**
+   *  \brief    Instanzvariable mit den Engines der Daemons einer Farm
+   */
+  private final List<QFTestStartActionEngine> farm = new CopyOnWriteArrayList<QFTestStartActionEngine>();
+
 
    /**
     *  \brief    Schnittstelle für NeoLoad zur Ausführung der Advanced Action
@@ -43,6 +84,20 @@ public class QFTestStartActionEngine extends AbstractQFTestActionEngine
     *
     *  Konkret wird mit dieser Methode ein QF-Test Daemon gestartet.
     *
+    *  Läuft unter der Adresse bereits ein Daemon, der auf die Prüfung
+    *  antwortet, wird dieser übernommen und kein weiterer Prozess gestartet.
+    *  Gleichzeitige Starts derselben Adresse werden über QFTestDaemonPidFile
+    *  nacheinander ausgeführt.
+    *
+    *  Ein gestarteter Daemon wird anschließend über QFTestDaemonSupervisor
+    *  überwacht und bei einem Absturz neu gestartet, sofern der
+    *  ActionParameter \c supervise nicht auf \c false gesetzt ist. Läuft
+    *  für die Adresse gerade ein Neustart, wird zunächst auf dessen Ende
+    *  gewartet.
+    *
+    *  Ist der ActionParameter \c daemoncount größer als \c 1 , wird eine
+    *  Farm gestartet, siehe startFarm(Context, List, int).
+    *
     *  \warning   Da über diese Advanced Action ein QF-Test Daemon gestartet
     *             wird, der über das unsichere RPC-Protokoll arbeitet, sollte
     *             der Dienst nur direkt auf dem Lastgenerator und in einer
@@ -64,34 +119,255 @@ public class QFTestStartActionEngine extends AbstractQFTestActionEngine
   @Override
   public SampleResult execute(Context context, List<ActionParameter> parameters)
   {
-    SampleResult    result      = new SampleResult();
-    SampleResult    pingResult  = null;
-    boolean         flagPingAck = false;
-    long            timeout     = Long.parseLong(QFTestCommandElementsLibrary.getParameterValue(parameters, "timeout", "300000"));
+    try
+    {
+      SampleResult          result    = null;
+      QFTestDaemonEndpoint  endpoint  = null;
+
+      this.configure(parameters);
+      int count = (int) QFTestCommandElementsLibrary.getLongParameterValue(parameters, "daemoncount", 1L);
+      if(1 < count)
+        return this.startFarm(context, parameters, count);
+      try
+      {
+        endpoint = QFTestDaemonEndpoint.fromParameters(parameters);
+        QFTestDaemonSupervisor supervisor = QFTestDaemonSupervisor.get(endpoint);
+        if(null != supervisor)
+          supervisor.awaitAvailable(this.processTimeout);
+        //  concurrent starts of the same daemon are serialized, the later ones adopt the daemon
+        try (QFTestDaemonPidFile pidFile = QFTestDaemonPidFile.lock(endpoint, QFTestDaemonPidFile.getDirectory(parameters), this.processTimeout))
+        {
+          result = this.adoptDaemon(context, parameters, pidFile);
+          if(null == result)
+          {
+            result = this.startDaemon(context, parameters);
+            if(!result.isError())
+            {
+              pidFile.write(this.process.toHandle());
+              if(Boolean.parseBoolean(QFTestCommandElementsLibrary.getParameterValue(parameters, "supervise", "true").trim()))
+                this.superviseDaemon(endpoint, parameters);
+            }
+          }
+        }
+      }
+      catch (IOException | NumberFormatException e)
+      {
+        result = getErrorResult(context, (null == result) ? new SampleResult() : result, "QFT-DAEMON-LOCKED", "Cannot lock the QF-Test Daemon (".concat(String.valueOf(endpoint)).concat(")"), e);
+      }
+      catch (InterruptedException e)
+      {
+        result = getErrorResult(context, new SampleResult(), e.getClass().getSimpleName(), "Interrupted while waiting for the QF-Test Daemon.", e);
+        Thread.currentThread().interrupt();
+      }
+      return result;
+    }
+    finally
+    {
+      this.releaseReporting();
+    }
+  }
 
+  /**
+   *  \brief    Methode startet mehrere Daemons auf aufeinanderfolgenden Ports gleichzeitig
+   *
+   *  Die Daemons werden ab \c daemonport auf den Ports bis
+   *  \c daemonport + \c daemoncount - 1 gestartet. Jeder Daemon wird auf
+   *  einem eigenen Thread wie bei einem einzelnen Start behandelt, also
+   *  ggf. übernommen, gesperrt und überwacht. Alle teilen sich eine Frist,
+   *  die mit \c timeout beginnt, sodass die Farm etwa so lange wie der
+   *  Start eines einzelnen Daemon benötigt.
+   *
+   *  Das Ergebnis enthält je Daemon ein Teilergebnis. Es ist fehlerhaft,
+   *  sobald ein Daemon nicht gestartet werden konnte; der Statuscode ist
+   *  dann \c QFT-DAEMONFARM-PARTIAL oder \c QFT-DAEMONFARM-FAILED .
+   *
+   *  @param    count         Anzahl der Daemons
+   */
+  private SampleResult startFarm(Context context, List<ActionParameter> parameters, int count)
+  {
+    SampleResult          result    = new SampleResult();
+    QFTestDaemonEndpoint  first;
     try
     {
-      this.process = new ProcessBuilder(QFTestCommandFactory.buildCommand(QFTestStartAction.TYPE, parameters)).start();
+      first = QFTestDaemonEndpoint.fromParameters(parameters);
+    }
+    catch (NumberFormatException e)
+    {
+      return getErrorResult(context, result, e.getClass().getSimpleName(), "Invalid daemonport for the QF-Test Daemon farm.", e);
+    }
+
+    long                  deadline  = (0L < this.processTimeout) ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.processTimeout) : Long.MAX_VALUE;
+    AtomicInteger         counter   = new AtomicInteger();
+    ExecutorService       starters  = Executors.newFixedThreadPool(count, runnable ->
+    {
+      Thread thread = new Thread(runnable, "qftest-farm-".concat(String.valueOf(first.getPort() + counter.getAndIncrement())));
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<Future<SampleResult>> starts = new ArrayList<Future<SampleResult>>(count);
+
+    this.farm.clear();
+    result.sampleStart();
+    for(int i = 0; i < count; ++i)
+    {
+      QFTestStartActionEngine engine  = new QFTestStartActionEngine();
+      int                     port    = first.getPort() + i;
+      //  the farm is recorded as one Start, not once more per daemon
+      engine.recordMetrics = false;
+      this.farm.add(engine);
+      starts.add(starters.submit(() -> engine.execute(context, getFarmParameters(parameters, port, deadline))));
+    }
+    starters.shutdown();
+
+    int started = 0;
+    this.reportToRequest("farm ".concat(first.getHost()).concat(":").concat(String.valueOf(first.getPort())).concat("-").concat(String.valueOf(first.getPort() + count - 1)));
+    QFTestResultWriter writer = this.currentReporting().getWriter();
+    writer.startElement("startFarm")
+          .element("daemoncount", String.valueOf(count));
+    try
+    {
+      for(int i = 0; i < count; ++i)
+      {
+        SampleResult daemon;
+        try
+        {
+          daemon = starts.get(i).get();
+        }
+        catch (ExecutionException e)
+        {
+          daemon = getErrorResult(context, new SampleResult(), e.getCause().getClass().getSimpleName(), "Exception occurred while starting the QF-Test Daemon farm.", null);
+        }
+        result.addSubResult(daemon);
+        if(!daemon.isError())
+          ++started;
+        writer.startElement("daemon".concat(String.valueOf(i + 1)))
+              .element("endpoint", first.getHost().concat(":").concat(String.valueOf(first.getPort() + i)))
+              .element("exitcode", daemon.getStatusCode())
+              .element("runtime", String.valueOf(daemon.getDuration()))
+              .endElement();
+      }
+      result.sampleEnd();
+      if(started == count)
+        result.setStatusCode("0");
+      else
+        getErrorResult(context, result, (0 < started) ? "QFT-DAEMONFARM-PARTIAL" : "QFT-DAEMONFARM-FAILED", "QF-Test Daemon farm started ".concat(String.valueOf(started)).concat(" of ").concat(String.valueOf(count)).concat(" daemons."), null);
+    }
+    catch (InterruptedException e)
+    {
+      result.sampleEnd();
+      starters.shutdownNow();
+      getErrorResult(context, result, e.getClass().getSimpleName(), "Interrupted while waiting for the QF-Test Daemon farm.", e);
+      Thread.currentThread().interrupt();
+    }
+    writer.element("started", String.valueOf(started))
+          .endElement();
+    result.setError(!"0".equals(result.getStatusCode()));
+    return this.completeResult(context, result);
+  }
+
+  /**
+   *  \brief    Methode liefert die ActionParameter für einen Daemon der Farm
+   *
+   *  \c daemonport wird ersetzt und \c timeout auf die verbleibende Zeit
+   *  bis zur gemeinsamen Frist gesetzt. Die Frist \c Long.MAX_VALUE steht
+   *  für unbegrenztes Warten.
+   */
+  private static List<ActionParameter> getFarmParameters(List<ActionParameter> parameters, int port, long deadline)
+  {
+    List<ActionParameter> daemon = new ArrayList<ActionParameter>(parameters.size() + 2);
+    for(ActionParameter parameter : parameters)
+      if(!"daemonport".equals(parameter.getName()) && !"daemoncount".equals(parameter.getName()) && !"timeout".equals(parameter.getName()))
+        daemon.add(parameter);
+    daemon.add(new ActionParameter("daemonport", String.valueOf(port)));
+    if(Long.MAX_VALUE == deadline)
+      daemon.add(new ActionParameter("timeout", "0"));
+    else
+      daemon.add(new ActionParameter("timeout", String.valueOf(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())))));
+    return daemon;
+  }
+
+  /**
+   *  \brief    Methode übernimmt einen Daemon, der bereits unter der Adresse läuft
+   *
+   *  Antwortet ein Daemon auf die Prüfung über QFTestDaemonProbe, wird kein
+   *  neuer Prozess gestartet. Die PID-Datei wird dabei nur ausgewertet, um
+   *  im Ergebnis den übernommenen Prozess zu nennen. Läuft der Prozess aus
+   *  der PID-Datei, ohne zu antworten, hängt er und wird mit allen seinen
+   *  Prozessen beendet, bevor neu gestartet wird. Beendet wird nur ein
+   *  Prozess, den QFTestDaemonPidFile.readProcess() an PID und Zeitpunkt
+   *  des Starts wiedererkennt.
+   *
+   *  @return   Die Methode liefert das Ergebnis, wenn ein Daemon übernommen
+   *            wurde, sonst \c null .
+   */
+  private SampleResult adoptDaemon(Context context, List<ActionParameter> parameters, QFTestDaemonPidFile pidFile)
+  {
+    SampleResult            result    = new SampleResult();
+    Optional<ProcessHandle> recorded  = pidFile.readProcess();
+
+    result.sampleStart();
+    SampleResult            probe     = this.probeDaemon(context, parameters, false, PROBE_TIMEOUT_MILLIS);
+    result.sampleEnd();
+    if(probe.isError())
+    {
+      if(recorded.isPresent())
+        QFTestProcessTree.terminate(recorded.get(), this.killGrace);
+      pidFile.delete();
+      return null;
+    }
+
+    result.setStatusCode("0");
+    result.setError(false);
+    this.reportToRequest("adopt ".concat(probe.getRequestContent()));
+    QFTestResultWriter writer = this.currentReporting().getWriter();
+    writer.startElement("startDaemon")
+          .element("exitcode", result.getStatusCode())
+          .element("attempts", "0")
+          .element("adopted", recorded.isPresent() ? String.valueOf(recorded.get().pid()) : "external")
+          .endElement();
+    writer.embed("pingDaemon", probe.getResponseContent());
+    return this.completeResult(context, result);
+  }
+
+  /**
+   *  \brief    Methode startet den Daemon und wartet, bis er bereit ist
+   */
+  private SampleResult startDaemon(Context context, List<ActionParameter> parameters)
+  {
+    SampleResult        result      = new SampleResult();
+    SampleResult        pingResult  = null;
+    int                 attempts    = 0;
 
+    boolean             deepPing    = QFTestDaemonProbe.isDeep(parameters);
+    QFTestBackoff       backoff     = QFTestBackoff.fromParameters(parameters, this.processTimeout);
+
+    try
+    {
       result.sampleStart();
+      QFTestOutputDrainer output = this.launchDaemon(parameters);
+      output.awaitReady(backoff.getInitialDelay());
 
-//      while (     ( this.process.isAlive()                                          )
-//          &&  ( timeout > ( System.currentTimeMillis()-result.getTimestamp() )  )
-//          &&  ( null == pingResult?true:pingResult.isError()                    )
-//        )
-      while (     ( timeout > ( System.currentTimeMillis()-result.getTimestamp() )  )
-              &&  ( null == pingResult?true:pingResult.isError()                    )
+      while (     ( !backoff.isExpired()                                )
+              &&  ( null == pingResult?true:pingResult.isError()        )
             )
       { //  inside this loop the action is waiting for running daemon instance
         if(this.process.isAlive())
-          pingResult = this.executeSubprocess(context, QFTestCommandFactory.buildCommand(QFTestPingAction.TYPE, parameters));
+        {
+          ++attempts;
+          pingResult = this.probeDaemon(context, parameters, deepPing, (int) Math.min(PROBE_TIMEOUT_MILLIS, Math.max(1L, backoff.getRemainingMillis())));
+        }
         else
-          this.process = new ProcessBuilder(QFTestCommandFactory.buildCommand(QFTestStartAction.TYPE, parameters)).start();
+          output = this.launchDaemon(parameters);
+
+        if((null == pingResult) || pingResult.isError())
+        { //  the pause ends early as soon as the daemon reports on stdout that it is ready
+          output.awaitReady(backoff.nextDelay());
+        }
       }
       result.sampleEnd();
 
       //  Collecting the data for the result of this action
-      if( this.process.isAlive() &&  !pingResult.isError() )
+      if( this.process.isAlive() && (null != pingResult) && !pingResult.isError() )
       { //  in this case the daemon is running and Ping was successful
         result.setStatusCode("0");
       }
@@ -99,14 +375,37 @@ public class QFTestStartActionEngine extends AbstractQFTestActionEngine
       {
         if(this.process.isAlive())
         { // in this case the process is not alive, so
-          this.process.destroyForcibly();
+          QFTestProcessTree.terminate(this.process, this.killGrace);
           result = getErrorResult(context, result, "QFT-DAEMON-UNAVAILABLE", "QF-Test Daemon is not available.", null);
         }
         else
           result = getErrorResult(context, result, "QFT-DAEMON-NOTRUNNING", "QF-Test Daemon is not running.", null);
       }
-      result.setRequestContent(this.buildProcessCallToString(QFTestCommandFactory.buildCommand(QFTestStartAction.TYPE, parameters)).concat("\n").concat(pingResult.getRequestContent()));
-      result.setResponseContent("<startDaemon>\n<exitcode>".concat(result.getStatusCode()).concat("</exitcode>\n</startDaemon>\n<pingDaemon>\n").concat(pingResult.getResponseContent()).concat("\n</pingDaemon>"));
+      this.reportToRequest(this.buildProcessCallToString(QFTestCommandFactory.buildCommand(QFTestStartAction.TYPE, parameters)));
+      if(null != pingResult)
+        this.reportToRequest(pingResult.getRequestContent());
+      QFTestResultWriter writer = this.currentReporting().getWriter();
+      writer.startElement("startDaemon")
+            .element("exitcode", result.getStatusCode())
+            .element("attempts", String.valueOf(attempts))
+            .element("outputlines", String.valueOf(output.getLineCount()));
+      if(null != output.getLog())
+        writer.element("daemonlog", output.getLog().getFile().getAbsolutePath());
+      if(result.isError())
+      { //  the last lines of the daemon usually tell why it did not come up
+        writer.startText("daemonoutput");
+        for(String line : output.getTail())
+          writer.text(line).text("\n");
+        writer.endText();
+      }
+      writer.endElement();
+      writer.embed("pingDaemon", (null == pingResult) ? null : pingResult.getResponseContent());
+    }
+    catch (InterruptedException e)
+    {
+      QFTestProcessTree.terminate(this.process, this.killGrace);
+      getErrorResult(context, result, e.getClass().getSimpleName(), "Interrupted while waiting for the QF-Test Daemon.", e);
+      Thread.currentThread().interrupt();
     }
     catch (IOException e)
     {
@@ -115,7 +414,141 @@ public class QFTestStartActionEngine extends AbstractQFTestActionEngine
 
     result.setError(!"0".equals(result.getStatusCode()));
 
-    return result;
+    return this.completeResult(context, result);
+  }
+
+  /**
+   *  \brief    Methode prüft, ob der Daemon bereit ist
+   *
+   *  Die Prüfungen gehören zum Start und werden deshalb nicht als Ping in
+   *  den Metriken gezählt. Erfasst wird nur das Ergebnis des Starts in
+   *  completeResult(Context, SampleResult).
+   *
+   *  @param    deep          \c true für einen Ping über \c qftestc ,
+   *                          sonst eine Prüfung über QFTestDaemonProbe
+   *  @param    timeoutMillis Maximale Wartezeit der Prüfung über
+   *                          QFTestDaemonProbe in Millisekunden
+   */
+  private SampleResult probeDaemon(Context context, List<ActionParameter> parameters, boolean deep, int timeoutMillis)
+  {
+    boolean record = this.recordMetrics;
+    this.recordMetrics = false;
+    try
+    {
+      if(deep)
+        return this.executeSubprocess(context, QFTestCommandFactory.buildCommand(QFTestPingAction.TYPE, parameters));
+      return this.executeProbe(context, parameters, timeoutMillis);
+    }
+    finally
+    {
+      this.recordMetrics = record;
+    }
+  }
+
+  /**
+   *  \brief    Methode übergibt den gestarteten Daemon an die Überwachung
+   *
+   *  Die ActionParameter werden kopiert, da der Neustart unabhängig von
+   *  dieser Ausführung erfolgt.
+   */
+  private void superviseDaemon(QFTestDaemonEndpoint endpoint, List<ActionParameter> parameters)
+  {
+    List<ActionParameter> snapshot  = new ArrayList<ActionParameter>(parameters);
+    Charset               charset   = this.consoleSettings.getCharset();
+    this.supervisor = QFTestDaemonSupervisor.supervise(endpoint, this.daemonOutput, () -> createDaemon(snapshot, charset), snapshot, this.processTimeout, this.killGrace);
+  }
+
+  /**
+   *  \brief    Methode startet den Prozess des Daemon für diese Ausführung
+   *
+   *  @see      createDaemon(List, Charset)
+   */
+  private QFTestOutputDrainer launchDaemon(List<ActionParameter> parameters) throws IOException
+  {
+    this.daemonOutput = createDaemon(parameters, this.consoleSettings.getCharset());
+    this.process      = this.daemonOutput.getProcess();
+    return this.daemonOutput;
+  }
+
+  /**
+   *  \brief    Methode startet den Prozess des Daemon und liest dessen Ausgabe im Hintergrund
+   *
+   *  Standard- und Fehlerausgabe werden zusammengeführt und laufend gelesen,
+   *  damit der Daemon nicht beim Schreiben blockiert. Die Ausgabe wird in
+   *  die QFTestRotatingLog des Daemon geschrieben.
+   *
+   *  @param    parameters    ActionParameter der Advanced Action
+   *  @param    charset       Zeichenkodierung der Ausgabe
+   *
+   *  @return   Die Methode liefert den Arbeiter, der die Ausgabe liest.
+   *            Der Prozess ist über QFTestOutputDrainer.getProcess() erreichbar.
+   *
+   *  @throws   IOException   wenn der Prozess nicht gestartet werden kann
+   */
+  static QFTestOutputDrainer createDaemon(List<ActionParameter> parameters, Charset charset) throws IOException
+  {
+    ProcessBuilder builder = new ProcessBuilder(QFTestCommandFactory.buildCommand(QFTestStartAction.TYPE, parameters));
+    builder.redirectErrorStream(true);
+    return QFTestOutputDrainer.start(builder.start(), charset, getReadyPattern(parameters),
+                                     QFTestRotatingLog.fromParameters(QFTestDaemonEndpoint.fromParameters(parameters), parameters),
+                                     (int) QFTestCommandElementsLibrary.getLongParameterValue(parameters, "daemontail", QFTestOutputDrainer.DEFAULT_TAIL_LINES));
+  }
+
+  /**
+   *  \brief    Methode liest das Muster aus dem ActionParameter \c readypattern
+   *
+   *  @return   Die Methode liefert das Muster oder \c null , wenn der
+   *            Parameter leer gesetzt wurde. Ist der Wert kein gültiger
+   *            regulärer Ausdruck, wird er als Text gesucht.
+   */
+  static Pattern getReadyPattern(List<ActionParameter> parameters)
+  {
+    String value = QFTestCommandElementsLibrary.getParameterValue(parameters, "readypattern", QFTestOutputDrainer.DEFAULT_READY_PATTERN);
+    if(value.trim().isEmpty())
+      return null;
+    try
+    {
+      return Pattern.compile(value);
+    }
+    catch (PatternSyntaxException e)
+    {
+      return Pattern.compile(value, Pattern.LITERAL);
+    }
+  }
+
+  /**
+   *  \brief    Methode bricht den Start ab
+   *
+   *  Ein abgebrochener Start darf nicht durch die Überwachung wieder
+   *  aufgenommen werden. Die Überwachung wird daher beendet und ein
+   *  inzwischen neu gestarteter Prozess ebenfalls beendet.
+   */
+  @Override
+  public void stopExecute()
+  {
+    for(QFTestStartActionEngine engine : this.farm)
+      engine.stopExecute();
+    QFTestDaemonSupervisor supervised = this.supervisor;
+    if(null != supervised)
+    {
+      supervised.stop();
+      Process restarted = supervised.getProcess();
+      if((null != restarted) && (restarted != this.process))
+        QFTestProcessTree.terminate(restarted, this.killGrace);
+    }
+    super.stopExecute();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Standardlaufzeit eines Prozesses
+   *
+   *  @return   Die Methode liefert die maximale Laufzeit in Millisekunden,
+   *            hier fünf Minuten.
+   */
+  @Override
+  protected long getDefaultTimeout()
+  {
+    return 300000L;
   }
 
 }
@@ -3,7 +3,14 @@ package org.dschweie.neoload.advancedactions.qf_test.daemon;
 import java.util.List;
 
 import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClient;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClientFactory;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonException;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonRunResult;
 import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandFactory;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestDaemonPidFile;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestDaemonSupervisor;
 import com.neotys.extensions.action.ActionParameter;
 import com.neotys.extensions.action.engine.Context;
 import com.neotys.extensions.action.engine.SampleResult;
@@ -25,6 +32,9 @@ public class QFTestStopActionEngine extends AbstractQFTestActionEngine
    *
    *  Konkret wird mit dieser Methode ein QF-Test Daemon gestoppt.
    *
+   *  Eine Überwachung über QFTestDaemonSupervisor wird vorher beendet,
+   *  damit der Daemon nicht neu gestartet wird.
+   *
    *  @param    context       In dem Parameter ist eine Instanz zu übergeben,
    *                          über die die Methode Zugriff auf Informationen
    *                          von NeoLoad zur Laufzeit hat.
@@ -41,7 +51,48 @@ public class QFTestStopActionEngine extends AbstractQFTestActionEngine
   @Override
   public SampleResult execute(Context context, List<ActionParameter> parameters)
   {
-    return this.executeProcess(context, QFTestCommandFactory.buildCommand(QFTestStopAction.TYPE, parameters));
+    try
+    {
+      this.configure(parameters);
+      QFTestDaemonSupervisor.unsupervise(QFTestDaemonEndpoint.fromParameters(parameters));
+      SampleResult result;
+      if(QFTestDaemonClientFactory.isDirect(parameters))
+        result = this.executeDaemon(context, parameters);
+      else
+        result = this.executeProcess(context, QFTestCommandFactory.buildCommand(QFTestStopAction.TYPE, parameters));
+      if(!result.isError())
+      { //  a later start must not adopt the terminated daemon
+        QFTestDaemonPidFile.remove(QFTestDaemonEndpoint.fromParameters(parameters), QFTestDaemonPidFile.getDirectory(parameters));
+      }
+      return result;
+    }
+    finally
+    {
+      this.releaseReporting();
+    }
+  }
+
+  /**
+   *  \brief    Methode fordert den Daemon direkt zum Beenden auf
+   */
+  @Override
+  protected QFTestDaemonRunResult callDaemon(QFTestDaemonClient client, List<ActionParameter> parameters) throws QFTestDaemonException
+  {
+    long start = System.currentTimeMillis();
+    client.terminate();
+    return new QFTestDaemonRunResult(0, false, start, System.currentTimeMillis());
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Standardlaufzeit eines Prozesses
+   *
+   *  @return   Die Methode liefert die maximale Laufzeit in Millisekunden,
+   *            hier eine Minute.
+   */
+  @Override
+  protected long getDefaultTimeout()
+  {
+    return 60000L;
   }
 
 }
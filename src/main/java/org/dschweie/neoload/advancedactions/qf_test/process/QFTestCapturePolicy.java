@@ -0,0 +1,57 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+/**
+ *  \brief    Verfahren, nach denen die Konsolenausgabe eines Prozesses behandelt wird
+ *
+ *  Der Anwender wählt das Verfahren in NeoLoad über den optionalen
+ *  ActionParameter \c consolecapture aus:
+ *  \li   \c discard verwirft alle Ausgaben bereits im Betriebssystem. Es
+ *        werden keine Ströme ausgelesen.
+ *  \li   \c tail speichert nur das Ende der Ausgabe bis zur Grenze
+ *        \c consolelimit .
+ *  \li   \c full speichert die vollständige Ausgabe.
+ *  \li   \c file schreibt die Ausgabe in eine Datei je Ausführung. In der
+ *        Response steht nur der Verweis auf die Datei.
+ *
+ *  Ohne Angabe werden Anfang und Ende der Ausgabe bis zur Grenze
+ *  \c consolelimit gespeichert.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public enum QFTestCapturePolicy
+{
+  HEADTAIL,
+  DISCARD,
+  TAIL,
+  FULL,
+  FILE;
+
+  /**
+   *  \brief    Methode liefert das Verfahren zu dem Wert eines ActionParameter
+   *
+   *  @param    value         Wert des ActionParameter \c consolecapture
+   *
+   *  @return   Die Methode liefert das passende Verfahren. Bei unbekannten
+   *            Werten wird HEADTAIL zurückgegeben.
+   */
+  public static QFTestCapturePolicy fromValue(String value)
+  {
+    String strValue = (null == value) ? "" : value.toLowerCase().trim();
+    for(QFTestCapturePolicy policy : values())
+      if(policy.name().toLowerCase().equals(strValue))
+        return policy;
+    return HEADTAIL;
+  }
+
+  /**
+   *  \brief    Methode gibt an, ob die Ströme des Prozesses gelesen werden müssen
+   *
+   *  @return   Die Methode liefert \c false , wenn die Ausgabe bereits durch
+   *            das Betriebssystem umgeleitet wird.
+   */
+  public boolean isPumping()
+  {
+    return (DISCARD != this) && (FILE != this);
+  }
+}
@@ -0,0 +1,205 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+import java.util.Arrays;
+
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter;
+
+/**
+ *  \brief    Begrenzter Speicher für die Konsolenausgabe eines Prozesses
+ *
+ *  QF-Test kann sehr umfangreiche Ausgaben über die Kommandozeile erzeugen.
+ *  Damit der Speicherbedarf je Ausführung begrenzt bleibt, hält diese Klasse
+ *  nur den Anfang und das Ende der Ausgabe:
+ *  \li   die ersten Zeichen bis zur Grenze \c headLimit und
+ *  \li   die letzten Zeichen bis zur Grenze \c tailLimit in einem Ringpuffer.
+ *
+ *  Alles dazwischen wird verworfen und lediglich gezählt. In der Ausgabe
+ *  über QFTestConsoleCapture.toString() wird an der Stelle ein
+ *  Hinweis auf die Anzahl der ausgelassenen Zeichen eingefügt.
+ *
+ *  Eine negative Grenze \c headLimit bedeutet, dass die Ausgabe vollständig
+ *  gespeichert wird.
+ *
+ *  Die meisten Aufrufe geben nur wenige Zeilen aus. Beide Puffer beginnen
+ *  deshalb klein und wachsen erst mit der Ausgabe bis zu ihrer Grenze. Der
+ *  Ringpuffer wird erst zum Ring, wenn er seine Grenze erreicht hat.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestConsoleCapture
+{
+  /**
+   *  \brief    Vollständige Ausgabe, falls keine Grenze gesetzt ist
+   */
+  private final StringBuilder unbounded;
+
+  /**
+   *  \brief    Klassenkonstante mit der Anfangsgröße der Puffer in Zeichen
+   */
+  private static final int    INITIAL_SIZE  = 256;
+
+  /**
+   *  \brief    Speicher für den Anfang der Ausgabe
+   */
+  private char[]              head;
+  private final int           headLimit;
+
+  /**
+   *  \brief    Ringpuffer für das Ende der Ausgabe
+   */
+  private char[]              tail;
+  private final int           tailLimit;
+
+  private int                 headLength  = 0;
+  private int                 tailStart   = 0;
+  private int                 tailLength  = 0;
+  private long                total       = 0L;
+
+  /**
+   *  \brief    Konstruktor für eine begrenzte Aufzeichnung
+   *
+   *  @param    headLimit     Anzahl der Zeichen vom Anfang der Ausgabe, die
+   *                          gespeichert werden. Ein negativer Wert bewirkt,
+   *                          dass die Ausgabe unbegrenzt gespeichert wird.
+   *  @param    tailLimit     Anzahl der Zeichen vom Ende der Ausgabe, die
+   *                          gespeichert werden.
+   */
+  public QFTestConsoleCapture(int headLimit, int tailLimit)
+  {
+    if(0 > headLimit)
+    {
+      this.unbounded  = new StringBuilder();
+      this.headLimit  = 0;
+      this.tailLimit  = 0;
+    }
+    else
+    {
+      this.unbounded  = null;
+      this.headLimit  = headLimit;
+      this.tailLimit  = Math.max(0, tailLimit);
+    }
+    this.head = new char[Math.min(INITIAL_SIZE, this.headLimit)];
+    this.tail = new char[Math.min(INITIAL_SIZE, this.tailLimit)];
+  }
+
+  /**
+   *  \brief    Methode übernimmt einen Block dekodierter Zeichen
+   *
+   *  @param    chars         Feld mit den Zeichen
+   *  @param    offset        Position des ersten Zeichens im Feld
+   *  @param    length        Anzahl der Zeichen
+   */
+  public synchronized void append(char[] chars, int offset, int length)
+  {
+    this.total += length;
+    if(null != this.unbounded)
+    {
+      this.unbounded.append(chars, offset, length);
+      return;
+    }
+
+    // fill the head first
+    int count = Math.min(length, this.headLimit - this.headLength);
+    if(this.headLength + count > this.head.length)
+      this.head = Arrays.copyOf(this.head, Math.min(this.headLimit, Math.max(2 * this.head.length, this.headLength + count)));
+    System.arraycopy(chars, offset, this.head, this.headLength, count);
+    this.headLength += count;
+    offset += count;
+    length -= count;
+
+    // the rest goes to the ring buffer, only the last characters matter
+    if((0 == length) || (0 == this.tailLimit))
+      return;
+    if(length > this.tailLimit)
+    {
+      offset += length - this.tailLimit;
+      length = this.tailLimit;
+    }
+    if((this.tailLength + length > this.tail.length) && (this.tail.length < this.tailLimit))
+    { //  the buffer is no ring yet while it grows, so the characters start at index 0
+      this.tail = Arrays.copyOf(this.tail, Math.min(this.tailLimit, Math.max(2 * this.tail.length, this.tailLength + length)));
+    }
+    for(int i = 0; i < length; ++i)
+    {
+      this.tail[(this.tailStart + this.tailLength) % this.tail.length] = chars[offset + i];
+      if(this.tailLength < this.tail.length)
+        ++this.tailLength;
+      else
+        this.tailStart = (this.tailStart + 1) % this.tail.length;
+    }
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl aller übergebenen Zeichen
+   *
+   *  @return   Die Methode liefert die Anzahl der Zeichen, einschließlich
+   *            der verworfenen.
+   */
+  public synchronized long getTotalLength()
+  {
+    return this.total;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der verworfenen Zeichen
+   *
+   *  @return   Die Methode liefert die Anzahl der Zeichen, die wegen der
+   *            Grenzen nicht gespeichert wurden.
+   */
+  public synchronized long getOmittedLength()
+  {
+    if(null != this.unbounded)
+      return 0L;
+    return this.total - this.headLength - this.tailLength;
+  }
+
+  /**
+   *  \brief    Methode liefert die gespeicherte Ausgabe
+   *
+   *  @return   Die Methode liefert Anfang und Ende der Ausgabe. Wurden
+   *            Zeichen verworfen, steht dazwischen ein Hinweis.
+   */
+  @Override
+  public synchronized String toString()
+  {
+    if(null != this.unbounded)
+      return this.unbounded.toString();
+
+    StringBuilder builder = new StringBuilder(this.headLength + this.tailLength + 64);
+    builder.append(this.head, 0, this.headLength);
+    long omitted = this.getOmittedLength();
+    if(0L < omitted)
+      builder.append("\n[... ").append(omitted).append(" characters omitted ...]\n");
+    for(int i = 0; i < this.tailLength; ++i)
+      builder.append(this.tail[(this.tailStart + i) % this.tail.length]);
+    return builder.toString();
+  }
+
+  /**
+   *  \brief    Methode schreibt die gespeicherte Ausgabe ohne Zwischenkopie
+   *
+   *  Die Zeichen werden direkt aus den Puffern an den Writer übergeben, der
+   *  sie maskiert in die Response schreibt.
+   *
+   *  @param    writer        Writer, in dem zuvor ein Text-Element mit
+   *                          QFTestResultWriter.startText(String) geöffnet
+   *                          wurde
+   */
+  public synchronized void writeTo(QFTestResultWriter writer)
+  {
+    if(null != this.unbounded)
+    {
+      writer.text(this.unbounded);
+      return;
+    }
+
+    writer.text(this.head, 0, this.headLength);
+    long omitted = this.getOmittedLength();
+    if(0L < omitted)
+      writer.text("\n[... ").text(String.valueOf(omitted)).text(" characters omitted ...]\n");
+    int first = Math.min(this.tailLength, this.tail.length - this.tailStart);
+    writer.text(this.tail, this.tailStart, first);
+    writer.text(this.tail, 0, this.tailLength - first);
+  }
+}
@@ -0,0 +1,236 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Einstellungen zur Aufzeichnung der Konsolenausgabe eines Prozesses
+ *
+ *  Der Anwender kann in NeoLoad über optionale ActionParameter steuern, wie
+ *  die Ausgaben von QF-Test über die Kommandozeile gelesen werden:
+ *  \li   \c consolecharset legt die Zeichenkodierung der Ausgabe fest. Ohne
+ *        Angabe gilt die Standardkodierung der JVM des Lastgenerators.
+ *  \li   \c consolelimit legt in Einheiten von 1024 Zeichen fest, wie viel
+ *        Ausgabe je Ausführung gespeichert wird. Die eine Hälfte entfällt
+ *        auf den Anfang, die andere Hälfte auf das Ende der Ausgabe. Der
+ *        Wert \c 0 hebt die Grenze auf. Der Speicher wächst erst mit der
+ *        Ausgabe bis zu dieser Grenze.
+ *  \li   \c consolecapture wählt das Verfahren gemäß QFTestCapturePolicy.
+ *  \li   \c consoledir legt das Verzeichnis für das Verfahren \c file fest.
+ *        Ohne Angabe wird das temporäre Verzeichnis der JVM verwendet.
+ *  \li   \c consolefilesize und \c consolefiles begrenzen beim Verfahren
+ *        \c file die Datei je virtuellem Anwender wie \c daemonlogsize und
+ *        \c daemonlogfiles die Ausgabe des Daemon, siehe QFTestRotatingLog.
+ *
+ *  Instanzen dieser Klasse sind unveränderlich.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestConsoleSettings
+{
+  /**
+   *  \brief    Klassenkonstante mit der Standardgrenze in Einheiten von 1024 Zeichen
+   */
+  public static final int DEFAULT_LIMIT_KCHARS = 256;
+
+  /**
+   *  \brief    Klassenkonstante mit den Einstellungen ohne ActionParameter
+   */
+  public static final QFTestConsoleSettings DEFAULT = new QFTestConsoleSettings(Charset.defaultCharset(), DEFAULT_LIMIT_KCHARS);
+
+  private final Charset             charset;
+  private final int                 limitKChars;
+  private final QFTestCapturePolicy policy;
+  private final File                directory;
+  private final long                fileSizeKB;
+  private final int                 files;
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    charset       Zeichenkodierung der Ausgabe
+   *  @param    limitKChars   Grenze der gespeicherten Ausgabe in Einheiten
+   *                          von 1024 Zeichen, der Wert \c 0 steht für
+   *                          keine Grenze.
+   */
+  public QFTestConsoleSettings(Charset charset, int limitKChars)
+  {
+    this(charset, limitKChars, QFTestCapturePolicy.HEADTAIL, new File(System.getProperty("java.io.tmpdir")));
+  }
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    charset       Zeichenkodierung der Ausgabe
+   *  @param    limitKChars   Grenze der gespeicherten Ausgabe in Einheiten
+   *                          von 1024 Zeichen, der Wert \c 0 steht für
+   *                          keine Grenze.
+   *  @param    policy        Verfahren zur Behandlung der Ausgabe
+   *  @param    directory     Verzeichnis für das Verfahren \c file
+   */
+  public QFTestConsoleSettings(Charset charset, int limitKChars, QFTestCapturePolicy policy, File directory)
+  {
+    this(charset, limitKChars, policy, directory, QFTestRotatingLog.DEFAULT_SIZE_KB, QFTestRotatingLog.DEFAULT_FILES);
+  }
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    charset       Zeichenkodierung der Ausgabe
+   *  @param    limitKChars   Grenze der gespeicherten Ausgabe in Einheiten
+   *                          von 1024 Zeichen, der Wert \c 0 steht für
+   *                          keine Grenze.
+   *  @param    policy        Verfahren zur Behandlung der Ausgabe
+   *  @param    directory     Verzeichnis für das Verfahren \c file
+   *  @param    fileSizeKB    Größe in KB, ab der die Datei des Verfahrens
+   *                          \c file rotiert wird, \c 0 steht für keine
+   *                          Grenze
+   *  @param    files         Anzahl der Dateien je virtuellem Anwender
+   *                          einschließlich der aktuellen
+   */
+  public QFTestConsoleSettings(Charset charset, int limitKChars, QFTestCapturePolicy policy, File directory, long fileSizeKB, int files)
+  {
+    this.charset      = charset;
+    this.limitKChars  = limitKChars;
+    this.policy       = policy;
+    this.directory    = directory;
+    this.fileSizeKB   = fileSizeKB;
+    this.files        = files;
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die die Einstellungen aus den ActionParametern liest
+   *
+   *  Ungültige Angaben führen nicht zu einem Fehler, sondern es werden die
+   *  Standardwerte verwendet.
+   *
+   *  @param  parameters      In dem Parameter wird eine Liste der
+   *                          ActionParameter übergeben, die der Anwender
+   *                          über die GUI von NeoLoad erfasst hat.
+   *
+   *  @return Die Methode liefert die Einstellungen für die Ausführung.
+   */
+  public static QFTestConsoleSettings fromParameters(List<ActionParameter> parameters)
+  {
+    Charset charset = DEFAULT.charset;
+    int     limitKChars = DEFAULT.limitKChars;
+    String  strCharset  = QFTestCommandElementsLibrary.getParameterValue(parameters, "consolecharset", "no value").trim();
+    String  strLimit    = QFTestCommandElementsLibrary.getParameterValue(parameters, "consolelimit", "no value").trim();
+    String  strPolicy   = QFTestCommandElementsLibrary.getParameterValue(parameters, "consolecapture", "no value");
+    String  strDir      = QFTestCommandElementsLibrary.getParameterValue(parameters, "consoledir", System.getProperty("java.io.tmpdir")).trim();
+
+    if(!("no value".equals(strCharset)))
+    {
+      try
+      {
+        if(Charset.isSupported(strCharset))
+          charset = Charset.forName(strCharset);
+      }
+      catch (IllegalArgumentException e)
+      { //  an empty or illegal name like "UTF 8" keeps the default charset
+      }
+    }
+
+    if(!("no value".equals(strLimit)))
+    {
+      try
+      {
+        limitKChars = Math.max(0, Integer.parseInt(strLimit));
+      }
+      catch (NumberFormatException e)
+      { //  the default value stays valid
+      }
+    }
+
+    return new QFTestConsoleSettings(charset, limitKChars, QFTestCapturePolicy.fromValue(strPolicy), new File(strDir),
+                                     QFTestCommandElementsLibrary.getLongParameterValue(parameters, "consolefilesize", QFTestRotatingLog.DEFAULT_SIZE_KB),
+                                     (int) Math.min(Integer.MAX_VALUE, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "consolefiles", QFTestRotatingLog.DEFAULT_FILES)));
+  }
+
+  /**
+   *  \brief    Methode bereitet die Umleitung der Ausgaben eines Prozesses vor
+   *
+   *  Bei den Verfahren \c discard und \c file werden stdout und stderr
+   *  bereits im ProcessBuilder umgeleitet, sodass keine Ströme gelesen
+   *  werden müssen.
+   *
+   *  @param    builder       ProcessBuilder des Prozesses, der noch nicht
+   *                          gestartet wurde
+   *  @param    virtualUser   Kennung des virtuellen Anwenders für den Namen
+   *                          der Datei. Der Wert darf \c null sein.
+   *
+   *  @return   Die Methode liefert beim Verfahren \c file die Datei, in die
+   *            geschrieben wird, andernfalls \c null . Jeder virtuelle
+   *            Anwender hat eine Datei \c qftest-console-<user>.log , an
+   *            die jede Ausführung nach einer Zeile mit dem Zeitpunkt ihres
+   *            Starts anhängt. Hat die Datei \c consolefilesize KB
+   *            erreicht, wird sie vorher über QFTestRotatingLog rotiert.
+   */
+  public File redirect(ProcessBuilder builder, String virtualUser)
+  {
+    File file = null;
+    if(QFTestCapturePolicy.DISCARD == this.policy)
+    {
+      builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+      builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+    }
+    else if(QFTestCapturePolicy.FILE == this.policy)
+    {
+      String user = (null == virtualUser) ? "local" : virtualUser;
+      this.directory.mkdirs();
+      file = new File(this.directory, "qftest-console-".concat(user.replaceAll("[^A-Za-z0-9._-]", "_")).concat(".log"));
+      new QFTestRotatingLog(file, 1024L * this.fileSizeKB, this.files).rotateIfFull();
+      try
+      { //  the marker separates the executions of the virtual user in its file
+        Files.write(file.toPath(), "--- ".concat(Instant.now().toString()).concat(" ---").concat(System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      }
+      catch (IOException e)
+      { //  ProcessBuilder.start() reports a file that cannot be written
+      }
+      builder.redirectErrorStream(true);
+      builder.redirectOutput(ProcessBuilder.Redirect.appendTo(file));
+    }
+    return file;
+  }
+
+  /**
+   *  \brief    Methode erzeugt einen leeren Speicher gemäß der Einstellungen
+   *
+   *  @return   Die Methode liefert eine neue Instanz von QFTestConsoleCapture.
+   */
+  public QFTestConsoleCapture createCapture()
+  {
+    if((0 == this.limitKChars) || (QFTestCapturePolicy.FULL == this.policy))
+      return new QFTestConsoleCapture(-1, 0);
+    int limit = this.limitKChars * 1024;
+    if(QFTestCapturePolicy.TAIL == this.policy)
+      return new QFTestConsoleCapture(0, limit);
+    return new QFTestConsoleCapture(limit / 2, limit - limit / 2);
+  }
+
+  public Charset getCharset()
+  {
+    return this.charset;
+  }
+
+  public int getLimitKChars()
+  {
+    return this.limitKChars;
+  }
+
+  public QFTestCapturePolicy getPolicy()
+  {
+    return this.policy;
+  }
+}
@@ -0,0 +1,240 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Sperre und PID-Datei für einen Daemon auf dem Lastgenerator
+ *
+ *  Starten mehrere virtuelle Anwender oder ein neu gestartetes Szenario
+ *  denselben Daemon, darf nur einer den Prozess tatsächlich starten. Die
+ *  anderen sollen den laufenden Daemon übernehmen.
+ *
+ *  Je Adresse gibt es im Verzeichnis \c daemonlockdir (Standard ist das
+ *  temporäre Verzeichnis der JVM) zwei Dateien:
+ *  \li   \c qftest-daemon-<host>-<port>.lock wird für die Dauer eines Starts
+ *        gesperrt, auch gegenüber anderen JVMs auf dem Lastgenerator,
+ *  \li   \c qftest-daemon-<host>-<port>.pid enthält die PID des Daemon, der
+ *        zuletzt erfolgreich gestartet wurde, und den Zeitpunkt seines
+ *        Starts in Millisekunden seit 1970.
+ *
+ *  Eine Instanz hält die Sperre, bis sie über QFTestDaemonPidFile.close()
+ *  freigegeben wird.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonPidFile implements AutoCloseable
+{
+  /**
+   *  \brief    Klassenvariable mit den Sperren innerhalb der JVM je Sperrdatei
+   *
+   *  Eine FileLock gilt für die ganze JVM. Threads derselben JVM werden
+   *  daher zusätzlich über eine eigene Sperre nacheinander zugelassen.
+   */
+  private static final ConcurrentMap<String, ReentrantLock> LOCKS = new ConcurrentHashMap<String, ReentrantLock>();
+
+  private static final long     POLL_MILLIS = 50L;
+
+  private final File            pidFile;
+  private final ReentrantLock   localLock;
+  private final FileChannel     channel;
+  private final FileLock        fileLock;
+
+  private QFTestDaemonPidFile(File pidFile, ReentrantLock localLock, FileChannel channel, FileLock fileLock)
+  {
+    this.pidFile    = pidFile;
+    this.localLock  = localLock;
+    this.channel    = channel;
+    this.fileLock   = fileLock;
+  }
+
+  /**
+   *  \brief    Methode liest das Verzeichnis aus dem ActionParameter \c daemonlockdir
+   */
+  public static File getDirectory(List<ActionParameter> parameters)
+  {
+    return new File(QFTestCommandElementsLibrary.getParameterValue(parameters, "daemonlockdir", System.getProperty("java.io.tmpdir")).trim());
+  }
+
+  /**
+   *  \brief    Methode sperrt die Adresse für einen Start
+   *
+   *  @param    endpoint      Adresse des Daemon
+   *  @param    directory     Verzeichnis der Sperr- und PID-Dateien
+   *  @param    timeoutMillis Maximale Wartezeit auf die Sperre, \c 0 steht
+   *                          für unbegrenztes Warten
+   *
+   *  @return   Die Methode liefert die gehaltene Sperre.
+   *
+   *  @throws   IOException   wenn die Sperre nicht in der Wartezeit erlangt
+   *                          oder die Datei nicht angelegt werden kann
+   *  @throws   InterruptedException  wenn der wartende Thread unterbrochen
+   *                          wurde
+   */
+  public static QFTestDaemonPidFile lock(QFTestDaemonEndpoint endpoint, File directory, long timeoutMillis) throws IOException, InterruptedException
+  {
+    String        name      = baseName(endpoint);
+    File          lockFile  = new File(directory, name.concat(".lock"));
+    ReentrantLock localLock = LOCKS.computeIfAbsent(lockFile.getAbsolutePath(), key -> new ReentrantLock(true));
+    long          deadline  = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+    if(0L < timeoutMillis)
+    {
+      if(!localLock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS))
+        throw new IOException("timeout while waiting for ".concat(lockFile.getAbsolutePath()));
+    }
+    else
+      localLock.lockInterruptibly();
+
+    FileChannel channel = null;
+    try
+    {
+      Files.createDirectories(directory.toPath());
+      channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      FileLock fileLock = channel.tryLock();
+      while(null == fileLock)
+      { //  another JVM on this load generator is starting the daemon
+        if((0L < timeoutMillis) && (0L >= deadline - System.nanoTime()))
+          throw new IOException("timeout while waiting for ".concat(lockFile.getAbsolutePath()));
+        Thread.sleep(POLL_MILLIS);
+        fileLock = channel.tryLock();
+      }
+      return new QFTestDaemonPidFile(new File(directory, name.concat(".pid")), localLock, channel, fileLock);
+    }
+    catch (IOException | InterruptedException | RuntimeException e)
+    {
+      if(null != channel)
+        channel.close();
+      localLock.unlock();
+      throw e;
+    }
+  }
+
+  /**
+   *  \brief    Methode liefert den Prozess aus der PID-Datei
+   *
+   *  Der Prozess wird unter Umständen beendet, die Datei muss ihn deshalb
+   *  zweifelsfrei bezeichnen. Nach einem Absturz des Daemon kann seine PID
+   *  an einen anderen Prozess vergeben worden sein, auch an eine andere JVM.
+   *  Die Datei gilt daher als veraltet, wenn
+   *  \li   unter der PID kein Prozess läuft,
+   *  \li   der Zeitpunkt des Starts fehlt, unbekannt ist oder abweicht oder
+   *  \li   das Programm unbekannt oder weder QF-Test noch eine JVM ist.
+   *
+   *  @return   Die Methode liefert den Prozess oder \c Optional.empty() .
+   */
+  public Optional<ProcessHandle> readProcess()
+  {
+    try
+    {
+      if(!this.pidFile.isFile())
+        return Optional.empty();
+      String[] values = new String(Files.readAllBytes(this.pidFile.toPath()), StandardCharsets.US_ASCII).trim().split("\\s+");
+      if(2 != values.length)
+        return Optional.empty();
+      long pid      = Long.parseLong(values[0]);
+      long started  = Long.parseLong(values[1]);
+      return ProcessHandle.of(pid).filter(ProcessHandle::isAlive)
+                                  .filter(handle -> isStartedAt(handle, started))
+                                  .filter(QFTestDaemonPidFile::isDaemonCommand);
+    }
+    catch (IOException | NumberFormatException e)
+    {
+      return Optional.empty();
+    }
+  }
+
+  private static boolean isStartedAt(ProcessHandle handle, long started)
+  {
+    return handle.info().startInstant().map(instant -> instant.toEpochMilli() == started).orElse(Boolean.FALSE).booleanValue();
+  }
+
+  private static boolean isDaemonCommand(ProcessHandle handle)
+  {
+    Optional<String> command = handle.info().command();
+    if(!command.isPresent())
+      return false;
+    String name = new File(command.get()).getName().toLowerCase();
+    return name.contains("qftest") || name.contains("java");
+  }
+
+  /**
+   *  \brief    Methode schreibt PID und Zeitpunkt des Starts des gestarteten Daemon
+   *
+   *  Ist der Zeitpunkt des Starts nicht bekannt, wird die Datei gelöscht,
+   *  da readProcess() den Prozess ohne ihn nicht sicher wiedererkennt.
+   */
+  public void write(ProcessHandle process) throws IOException
+  {
+    Optional<Instant> started = process.info().startInstant();
+    if(!started.isPresent())
+    {
+      this.delete();
+      return;
+    }
+    Files.write(this.pidFile.toPath(), String.valueOf(process.pid()).concat(" ").concat(String.valueOf(started.get().toEpochMilli())).getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   *  \brief    Methode löscht die PID-Datei
+   */
+  public void delete()
+  {
+    this.pidFile.delete();
+  }
+
+  public File getFile()
+  {
+    return this.pidFile;
+  }
+
+  /**
+   *  \brief    Methode löscht die PID-Datei einer Adresse, z.B. nach dem Beenden des Daemon
+   */
+  public static void remove(QFTestDaemonEndpoint endpoint, File directory)
+  {
+    new File(directory, baseName(endpoint).concat(".pid")).delete();
+  }
+
+  /**
+   *  \brief    Methode gibt die Sperre frei
+   */
+  @Override
+  public void close()
+  {
+    try
+    {
+      this.fileLock.release();
+      this.channel.close();
+    }
+    catch (IOException e)
+    { //  the lock is released with the channel anyway
+    }
+    finally
+    {
+      this.localLock.unlock();
+    }
+  }
+
+  private static String baseName(QFTestDaemonEndpoint endpoint)
+  {
+    return "qftest-daemon-".concat(endpoint.getHost().replaceAll("[^A-Za-z0-9.-]", "_")).concat("-").concat(String.valueOf(endpoint.getPort()));
+  }
+}
@@ -0,0 +1,541 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestBackoff;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonException;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatistics;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatisticsSource;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Überwachung eines gestarteten Daemon mit automatischem Neustart
+ *
+ *  Stürzt ein Daemon während eines Lasttests ab, schlagen ohne Überwachung
+ *  alle folgenden Aufrufe fehl, bis erneut die Advanced Action zum Start
+ *  ausgeführt wird. Eine Instanz dieser Klasse überwacht deshalb den
+ *  Prozess eines Daemon, den die Engine zum Start gestartet hat:
+ *  \li   das Ende des Prozesses wird über Process.onExit() gemeldet,
+ *  \li   zusätzlich wird der Daemon regelmäßig über QFTestDaemonProbe
+ *        geprüft. Antwortet er dreimal in Folge nicht, hängt er und wird
+ *        mit allen seinen Prozessen beendet.
+ *
+ *  In beiden Fällen wird der Daemon auf einem eigenen Thread neu gestartet.
+ *  Die Pausen vor einem Neustart verdoppeln sich mit jedem Neustart im
+ *  Zeitfenster, die Bereitschaft wird wie beim ersten Start über
+ *  QFTestBackoff geprüft. Werden innerhalb von \c restartwindow (Standard
+ *  300000 ms) mehr als \c restartmax (Standard 5) Neustarts nötig, stürzt
+ *  der Daemon offenbar immer wieder ab. Die Überwachung gibt dann auf und
+ *  wechselt in den Zustand State.FAILED.
+ *
+ *  Während eines Neustarts warten Aufrufe über awaitAvailable(long) auf den
+ *  Daemon, statt einen weiteren Prozess zu starten.
+ *
+ *  Je Adresse gibt es höchstens eine Überwachung. Die Überwachungen aller
+ *  Adressen teilen sich einen Daemon-Thread für die Prüfungen.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonSupervisor
+{
+  /**
+   *  \brief    Zustände einer Überwachung
+   */
+  public enum State
+  {
+    RUNNING, RESTARTING, FAILED, STOPPED
+  }
+
+  /**
+   *  \brief    Schnittstelle, über die der Prozess des Daemon gestartet wird
+   */
+  @FunctionalInterface
+  public interface Launcher
+  {
+    /**
+     *  @return   Die Methode liefert den Arbeiter, der die Ausgabe des
+     *            gestarteten Prozesses liest.
+     *
+     *  @throws   IOException   wenn der Prozess nicht gestartet werden kann
+     */
+    QFTestOutputDrainer launch() throws IOException;
+  }
+
+  public static final int     DEFAULT_RESTART_MAX     = 5;
+  public static final long    DEFAULT_RESTART_WINDOW  = 300000L;
+  public static final long    DEFAULT_RESTART_WAIT    = 30000L;
+
+  /**
+   *  \brief    Klassenkonstante mit dem Abstand der Prüfungen in Millisekunden
+   */
+  public static final long    PROBE_INTERVAL_MILLIS   = 10000L;
+
+  /**
+   *  \brief    Klassenkonstante mit der Anzahl der Prüfungen in Folge, nach denen der Daemon als hängend gilt
+   */
+  public static final int     PROBE_FAILURES          = 3;
+
+  private static final int    PROBE_TIMEOUT_MILLIS    = 5000;
+
+  private static final ConcurrentMap<QFTestDaemonEndpoint, QFTestDaemonSupervisor> SUPERVISORS = new ConcurrentHashMap<QFTestDaemonEndpoint, QFTestDaemonSupervisor>();
+
+  static
+  { //  a supervised daemon reports its own state instead of the last probe
+    QFTestDaemonStatistics.addSource(new QFTestDaemonStatisticsSource()
+    {
+      @Override
+      public String getState(String daemon)
+      {
+        QFTestDaemonSupervisor supervisor = SUPERVISORS.get(QFTestDaemonEndpoint.valueOf(daemon));
+        return (null == supervisor) ? null : supervisor.getState().name();
+      }
+
+      @Override
+      public long getRestartCount(String daemon)
+      {
+        QFTestDaemonSupervisor supervisor = SUPERVISORS.get(QFTestDaemonEndpoint.valueOf(daemon));
+        return (null == supervisor) ? 0L : supervisor.getRestartCount();
+      }
+    });
+  }
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable ->
+  {
+    Thread thread = new Thread(runnable, "qftest-supervisor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final QFTestDaemonEndpoint  endpoint;
+  private final Launcher              launcher;
+  private final File                  lockDirectory;
+  private final boolean               handshake;
+  private final long                  initialDelay;
+  private final long                  interval;
+  private final long                  maxInterval;
+  private final long                  readyTimeout;
+  private final long                  killGrace;
+  private final int                   restartMax;
+  private final long                  restartWindow;
+
+  /**
+   *  \brief    Zeitpunkte der Neustarts im Zeitfenster über System.nanoTime()
+   */
+  private final Deque<Long>           restartTimes  = new ArrayDeque<Long>();
+
+  private State                       state         = State.RUNNING;
+  private QFTestOutputDrainer         output        = null;
+  private ScheduledFuture<?>          probeTask     = null;
+  private int                         probeFailures = 0;
+  private long                        restarts      = 0L;
+  private String                      lastFailure   = null;
+
+  private QFTestDaemonSupervisor(QFTestDaemonEndpoint endpoint, Launcher launcher, List<ActionParameter> parameters, long readyTimeout, long killGrace)
+  {
+    this.endpoint       = endpoint;
+    this.launcher       = launcher;
+    this.lockDirectory  = QFTestDaemonPidFile.getDirectory(parameters);
+    this.handshake      = QFTestDaemonProbe.isHandshakePossible(parameters);
+    this.initialDelay   = QFTestCommandElementsLibrary.getLongParameterValue(parameters, "readydelay", QFTestBackoff.DEFAULT_INITIAL_DELAY);
+    this.interval       = Math.max(1L, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "readyinterval", QFTestBackoff.DEFAULT_INTERVAL));
+    this.maxInterval    = Math.max(this.interval, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "readymaxinterval", QFTestBackoff.DEFAULT_MAX_INTERVAL));
+    this.readyTimeout   = readyTimeout;
+    this.killGrace      = killGrace;
+    this.restartMax     = (int) QFTestCommandElementsLibrary.getLongParameterValue(parameters, "restartmax", DEFAULT_RESTART_MAX);
+    this.restartWindow  = QFTestCommandElementsLibrary.getLongParameterValue(parameters, "restartwindow", DEFAULT_RESTART_WINDOW);
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die einen gestarteten Daemon überwacht
+   *
+   *  Eine bestehende Überwachung derselben Adresse wird beendet und ersetzt.
+   *
+   *  @param    endpoint      Adresse des Daemon
+   *  @param    output        Arbeiter, der die Ausgabe des gestarteten
+   *                          Prozesses liest
+   *  @param    launcher      Startet den Daemon bei Bedarf erneut
+   *  @param    parameters    ActionParameter der Advanced Action zum Start
+   *  @param    readyTimeout  Frist für einen Neustart in Millisekunden
+   *  @param    killGrace     Wartezeit beim Beenden eines hängenden Prozesses
+   *                          in Millisekunden
+   *
+   *  @return   Die Methode liefert die laufende Überwachung.
+   */
+  public static QFTestDaemonSupervisor supervise(QFTestDaemonEndpoint endpoint, QFTestOutputDrainer output, Launcher launcher,
+                                                 List<ActionParameter> parameters, long readyTimeout, long killGrace)
+  {
+    QFTestDaemonSupervisor supervisor = new QFTestDaemonSupervisor(endpoint, launcher, parameters, readyTimeout, killGrace);
+    QFTestDaemonSupervisor previous   = SUPERVISORS.put(endpoint, supervisor);
+    if(null != previous)
+      previous.stop();
+    supervisor.watch(output);
+    synchronized (supervisor)
+    {
+      if(State.STOPPED != supervisor.state)
+        supervisor.probeTask = SCHEDULER.scheduleWithFixedDelay(supervisor::probe, PROBE_INTERVAL_MILLIS, PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    return supervisor;
+  }
+
+  /**
+   *  \brief    Methode liefert die Überwachung einer Adresse
+   *
+   *  @return   Die Methode liefert die Überwachung oder \c null , wenn der
+   *            Daemon unter der Adresse nicht überwacht wird.
+   */
+  public static QFTestDaemonSupervisor get(QFTestDaemonEndpoint endpoint)
+  {
+    return SUPERVISORS.get(endpoint);
+  }
+
+  /**
+   *  \brief    Methode beendet die Überwachung einer Adresse
+   *
+   *  Der Prozess des Daemon wird dabei nicht beendet. Die Methode ist vor
+   *  dem regulären Beenden des Daemon aufzurufen, damit dieser nicht neu
+   *  gestartet wird.
+   *
+   *  @return   Die Methode liefert die beendete Überwachung oder \c null .
+   */
+  public static QFTestDaemonSupervisor unsupervise(QFTestDaemonEndpoint endpoint)
+  {
+    QFTestDaemonSupervisor supervisor = SUPERVISORS.remove(endpoint);
+    if(null != supervisor)
+      supervisor.stop();
+    return supervisor;
+  }
+
+  /**
+   *  \brief    Methode liefert alle aktuellen Überwachungen
+   */
+  public static Collection<QFTestDaemonSupervisor> getSupervisors()
+  {
+    return Collections.unmodifiableCollection(SUPERVISORS.values());
+  }
+
+  /**
+   *  \brief    Methode beendet die Überwachung, ohne den Daemon zu beenden
+   */
+  public void stop()
+  {
+    synchronized (this)
+    {
+      this.state = State.STOPPED;
+      if(null != this.probeTask)
+        this.probeTask.cancel(false);
+      this.notifyAll();
+    }
+    SUPERVISORS.remove(this.endpoint, this);
+  }
+
+  /**
+   *  \brief    Methode wartet, bis ein laufender Neustart abgeschlossen ist
+   *
+   *  @param    millis        Maximale Wartezeit in Millisekunden, \c 0 kehrt
+   *                          sofort zurück
+   *
+   *  @return   Die Methode liefert den Zustand nach dem Warten. Nur bei
+   *            State.RESTARTING ist die Wartezeit abgelaufen.
+   *
+   *  @throws   InterruptedException  wenn der wartende Thread unterbrochen
+   *                          wurde
+   */
+  public synchronized State awaitAvailable(long millis) throws InterruptedException
+  {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, millis));
+    long remaining = deadline - System.nanoTime();
+    while((State.RESTARTING == this.state) && (0L < remaining))
+    {
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      remaining = deadline - System.nanoTime();
+    }
+    return this.state;
+  }
+
+  /**
+   *  \brief    Methode überwacht einen neu gestarteten Prozess
+   */
+  private void watch(QFTestOutputDrainer drainer)
+  {
+    Process started = drainer.getProcess();
+    synchronized (this)
+    {
+      if(State.STOPPED == this.state)
+        return;
+      this.output         = drainer;
+      this.probeFailures  = 0;
+      this.state          = State.RUNNING;
+      this.notifyAll();
+    }
+    started.onExit().thenAccept(this::exited);
+  }
+
+  /**
+   *  \brief    Methode wird aufgerufen, wenn ein überwachter Prozess endet
+   */
+  private void exited(Process exited)
+  {
+    synchronized (this)
+    { //  a process that was replaced or killed by this supervisor is not reported again
+      if((State.RUNNING != this.state) || (exited != this.output.getProcess()))
+        return;
+      this.lastFailure = "process ".concat(String.valueOf(exited.pid())).concat(" exited with ").concat(String.valueOf(exited.exitValue()));
+    }
+    this.restart(exited);
+  }
+
+  /**
+   *  \brief    Methode prüft den Daemon, sie wird regelmäßig aufgerufen
+   */
+  private void probe()
+  {
+    Process running;
+    synchronized (this)
+    {
+      if(State.RUNNING != this.state)
+        return;
+      running = this.output.getProcess();
+    }
+    try
+    {
+      QFTestDaemonProbe.probe(this.endpoint, PROBE_TIMEOUT_MILLIS, this.handshake);
+      synchronized (this)
+      {
+        this.probeFailures = 0;
+      }
+    }
+    catch (QFTestDaemonException e)
+    {
+      synchronized (this)
+      {
+        if((State.RUNNING != this.state) || (running != this.output.getProcess()) || (PROBE_FAILURES > ++this.probeFailures))
+          return;
+        this.lastFailure = e.getMessage();
+      }
+      this.restart(running);
+    }
+  }
+
+  /**
+   *  \brief    Methode startet den Neustart auf einem eigenen Thread
+   */
+  private void restart(Process previous)
+  {
+    synchronized (this)
+    {
+      if(!this.admitRestart())
+        return;
+    }
+    Thread thread = new Thread(() -> this.relaunch(previous), "qftest-restart-".concat(String.valueOf(this.endpoint.getPort())));
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   *  \brief    Methode zählt einen Neustart und prüft die Grenze im Zeitfenster
+   *
+   *  Die Methode muss mit der Sperre dieser Instanz aufgerufen werden.
+   *
+   *  @return   Die Methode liefert \c false , wenn nicht neu gestartet
+   *            werden darf. Der Zustand ist dann State.FAILED oder
+   *            State.STOPPED.
+   */
+  private boolean admitRestart()
+  {
+    if(State.STOPPED == this.state)
+      return false;
+    long now = System.nanoTime();
+    while(!this.restartTimes.isEmpty() && (TimeUnit.MILLISECONDS.toNanos(this.restartWindow) < now - this.restartTimes.peekFirst()))
+      this.restartTimes.pollFirst();
+    if(this.restartTimes.size() >= this.restartMax)
+    { //  crash loop, restarting again would only burn the load generator's CPU
+      this.state = State.FAILED;
+      this.notifyAll();
+      return false;
+    }
+    this.restartTimes.addLast(now);
+    ++this.restarts;
+    this.state = State.RESTARTING;
+    this.notifyAll();
+    return true;
+  }
+
+  /**
+   *  \brief    Methode startet den Daemon neu, bis er bereit ist oder die Grenze erreicht ist
+   */
+  private void relaunch(Process previous)
+  {
+    boolean running = false;
+    try
+    {
+      QFTestProcessTree.terminate(previous, this.killGrace);
+      do
+      {
+        Thread.sleep(this.getRestartDelay());
+        running = this.launchOnce();
+        synchronized (this)
+        {
+          if(!running && !this.admitRestart())
+            return;
+        }
+      }
+      while(!running);
+    }
+    catch (InterruptedException e)
+    {
+      synchronized (this)
+      {
+        this.lastFailure = "interrupted while restarting";
+        if(State.STOPPED != this.state)
+          this.state = State.FAILED;
+        this.notifyAll();
+      }
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   *  \brief    Methode liefert die Pause vor dem nächsten Neustart
+   *
+   *  Die Pause beginnt bei \c readyinterval und verdoppelt sich mit jedem
+   *  Neustart im Zeitfenster bis höchstens \c readymaxinterval .
+   */
+  private synchronized long getRestartDelay()
+  {
+    int shift = Math.min(30, Math.max(0, this.restartTimes.size() - 1));
+    return Math.min(this.maxInterval, this.interval << shift);
+  }
+
+  /**
+   *  \brief    Methode startet den Prozess einmal und wartet, bis der Daemon antwortet
+   *
+   *  Der Start erfolgt unter der Sperre aus QFTestDaemonPidFile, damit eine
+   *  gleichzeitige Advanced Action zum Start den neuen Daemon übernimmt.
+   *
+   *  @return   Die Methode liefert \c true , wenn der Daemon bereit ist.
+   */
+  private boolean launchOnce() throws InterruptedException
+  {
+    QFTestOutputDrainer drainer = null;
+    try (QFTestDaemonPidFile pidFile = QFTestDaemonPidFile.lock(this.endpoint, this.lockDirectory, this.readyTimeout))
+    {
+      synchronized (this)
+      {
+        if(State.STOPPED == this.state)
+          return true;
+      }
+      QFTestBackoff backoff = new QFTestBackoff(this.initialDelay, this.interval, this.maxInterval, this.readyTimeout);
+      drainer = this.launcher.launch();
+      drainer.awaitReady(backoff.getInitialDelay());
+      while(!backoff.isExpired() && drainer.getProcess().isAlive())
+      {
+        try
+        {
+          QFTestDaemonProbe.probe(this.endpoint, (int) Math.min(PROBE_TIMEOUT_MILLIS, Math.max(1L, backoff.getRemainingMillis())), this.handshake);
+          pidFile.write(drainer.getProcess().toHandle());
+          this.watch(drainer);
+          synchronized (this)
+          { //  stopped while the daemon was starting, the process belongs to nobody
+            if(State.STOPPED == this.state)
+              QFTestProcessTree.terminate(drainer.getProcess(), this.killGrace);
+          }
+          return true;
+        }
+        catch (QFTestDaemonException e)
+        {
+          drainer.awaitReady(backoff.nextDelay());
+        }
+      }
+      synchronized (this)
+      {
+        this.lastFailure = drainer.getProcess().isAlive() ? "daemon did not answer after restart" : "daemon exited during restart";
+      }
+    }
+    catch (IOException e)
+    {
+      synchronized (this)
+      {
+        this.lastFailure = e.getMessage();
+      }
+    }
+    if(null != drainer)
+      QFTestProcessTree.terminate(drainer.getProcess(), this.killGrace);
+    return false;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Adresse des Daemon
+   */
+  public QFTestDaemonEndpoint getEndpoint()
+  {
+    return this.endpoint;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Zustand der Überwachung
+   */
+  public synchronized State getState()
+  {
+    return this.state;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl aller Neustarts
+   */
+  public synchronized long getRestartCount()
+  {
+    return this.restarts;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Grund des letzten Neustarts
+   *
+   *  @return   Die Methode liefert eine Beschreibung oder \c null .
+   */
+  public synchronized String getLastFailure()
+  {
+    return this.lastFailure;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den überwachten Prozess
+   *
+   *  @return   Die Methode liefert den zuletzt gestarteten Prozess.
+   */
+  public synchronized Process getProcess()
+  {
+    return (null == this.output) ? null : this.output.getProcess();
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Arbeiter, der die Ausgabe des Daemon liest
+   */
+  public synchronized QFTestOutputDrainer getOutput()
+  {
+    return this.output;
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return this.endpoint.toString().concat(" ").concat(this.state.name())
+                                   .concat(" restarts=").concat(String.valueOf(this.restarts))
+                                   .concat((null == this.lastFailure) ? "" : " last=".concat(this.lastFailure));
+  }
+}
@@ -0,0 +1,228 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ *  \brief    Arbeiter, der die Ausgabe eines lang laufenden Prozesses zeilenweise liest
+ *
+ *  Ein QF-Test Daemon läuft über die ganze Dauer eines Tests. Anders als bei
+ *  QFTestStreamPump wird seine Ausgabe nicht für eine Response gesammelt,
+ *  sondern muss nur laufend gelesen werden, damit der Daemon nicht beim
+ *  Schreiben blockiert.
+ *
+ *  Jede Zeile wird in eine QFTestRotatingLog geschrieben. Die letzten
+ *  \c daemontail Zeilen (Standard 50) bleiben zusätzlich im Speicher und
+ *  können über QFTestOutputDrainer.getTail() für Fehlermeldungen abgefragt
+ *  werden.
+ *
+ *  Enthält eine Zeile das Muster \c readypattern , wird ein Signal
+ *  ausgelöst, auf das über QFTestOutputDrainer.awaitReady(long) gewartet
+ *  werden kann. Die Engine prüft dann sofort, ob der Daemon bereit ist,
+ *  statt die nächste Pause abzuwarten.
+ *
+ *  Jeder Arbeiter läuft in einem eigenen Daemon-Thread, da er so lange
+ *  benötigt wird wie der Prozess.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestOutputDrainer implements Runnable
+{
+  /**
+   *  \brief    Klassenkonstante mit dem Standardmuster für die Bereitschaft des Daemon
+   */
+  public static final String  DEFAULT_READY_PATTERN = "(?i)daemon|listening|port\\s+\\d+";
+
+  /**
+   *  \brief    Klassenkonstante mit der Standardanzahl der Zeilen, die im Speicher bleiben
+   */
+  public static final int     DEFAULT_TAIL_LINES    = 50;
+
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+
+  private final Process           process;
+  private final InputStream       stream;
+  private final Charset           charset;
+  private final Pattern           readyPattern;
+  private final QFTestRotatingLog log;
+  private final String[]          tail;
+  private final Semaphore         ready       = new Semaphore(0);
+  private volatile long           lines       = 0L;
+  private volatile boolean        finished    = false;
+  private volatile IOException    logError    = null;
+
+  private QFTestOutputDrainer(Process process, Charset charset, Pattern readyPattern, QFTestRotatingLog log, int tailLines)
+  {
+    this.process      = process;
+    this.stream       = process.getInputStream();
+    this.charset      = charset;
+    this.readyPattern = readyPattern;
+    this.log          = log;
+    this.tail         = new String[Math.max(0, tailLines)];
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die die Ausgabe eines Prozesses in einem eigenen Thread liest
+   *
+   *  @param    process       Prozess, dessen Standardausgabe gelesen wird.
+   *                          Die Fehlerausgabe sollte über
+   *                          ProcessBuilder.redirectErrorStream(boolean)
+   *                          zusammengeführt sein.
+   *  @param    charset       Zeichenkodierung der Ausgabe
+   *  @param    readyPattern  Muster, das die Bereitschaft anzeigt, oder \c null
+   *  @param    log           Logdatei für die Ausgabe oder \c null
+   *  @param    tailLines     Anzahl der letzten Zeilen, die im Speicher bleiben
+   *
+   *  @return   Die Methode liefert den bereits gestarteten Arbeiter zurück.
+   */
+  public static QFTestOutputDrainer start(Process process, Charset charset, Pattern readyPattern, QFTestRotatingLog log, int tailLines)
+  {
+    QFTestOutputDrainer drainer = new QFTestOutputDrainer(process, charset, readyPattern, log, tailLines);
+    Thread thread = new Thread(drainer, "qftest-drainer-".concat(String.valueOf(COUNTER.incrementAndGet())));
+    thread.setDaemon(true);
+    thread.start();
+    return drainer;
+  }
+
+  @Override
+  public void run()
+  {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(this.stream, this.charset)))
+    {
+      String line = reader.readLine();
+      while(null != line)
+      {
+        this.remember(line);
+        this.write(line, !reader.ready());
+        if((null != this.readyPattern) && this.readyPattern.matcher(line).find())
+          this.ready.release();
+        line = reader.readLine();
+      }
+    }
+    catch (IOException e)
+    { //  the process has ended or its pipe was closed
+    }
+    finally
+    {
+      this.finished = true;
+      if(null != this.log)
+        this.log.close();
+    }
+  }
+
+  private synchronized void remember(String line)
+  {
+    if(0 < this.tail.length)
+      this.tail[(int) (this.lines % this.tail.length)] = line;
+    ++this.lines;
+  }
+
+  /**
+   *  \brief    Methode schreibt eine Zeile in die Logdatei
+   *
+   *  Die Datei wird erst geleert, wenn keine weitere Ausgabe ansteht. Ist die
+   *  Datei nicht beschreibbar, wird weiter gelesen, damit der Daemon nicht
+   *  blockiert.
+   */
+  private void write(String line, boolean flush)
+  {
+    if((null == this.log) || (null != this.logError))
+      return;
+    try
+    {
+      this.log.append(line);
+      if(flush)
+        this.log.flush();
+    }
+    catch (IOException e)
+    {
+      this.logError = e;
+    }
+  }
+
+  /**
+   *  \brief    Methode liefert die letzten gelesenen Zeilen
+   *
+   *  @return   Die Methode liefert eine Kopie der letzten Zeilen in der
+   *            Reihenfolge der Ausgabe.
+   */
+  public synchronized List<String> getTail()
+  {
+    int           count   = (int) Math.min(this.lines, this.tail.length);
+    List<String>  result  = new ArrayList<String>(count);
+    for(long i = this.lines - count; i < this.lines; ++i)
+      result.add(this.tail[(int) (i % this.tail.length)]);
+    return result;
+  }
+
+  /**
+   *  \brief    Methode wartet begrenzt auf eine Zeile mit dem Muster der Bereitschaft
+   *
+   *  @param    millis        Maximale Wartezeit in Millisekunden
+   *
+   *  @return   Die Methode liefert \c true , wenn seit dem letzten Aufruf
+   *            eine passende Zeile gelesen wurde.
+   *
+   *  @throws   InterruptedException  wenn der wartende Thread unterbrochen
+   *                          wurde
+   */
+  public boolean awaitReady(long millis) throws InterruptedException
+  {
+    boolean signalled = this.ready.tryAcquire(millis, TimeUnit.MILLISECONDS);
+    //  further matching lines since then carry no new information
+    this.ready.drainPermits();
+    return signalled;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Prozess, dessen Ausgabe gelesen wird
+   */
+  public Process getProcess()
+  {
+    return this.process;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Logdatei
+   *
+   *  @return   Die Methode liefert die Logdatei oder \c null .
+   */
+  public QFTestRotatingLog getLog()
+  {
+    return this.log;
+  }
+
+  /**
+   *  \brief    Getter-Methode für einen Fehler beim Schreiben der Logdatei
+   */
+  public IOException getLogError()
+  {
+    return this.logError;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der bisher gelesenen Zeilen
+   */
+  public long getLineCount()
+  {
+    return this.lines;
+  }
+
+  /**
+   *  \brief    Methode prüft, ob das Ende der Ausgabe erreicht wurde
+   */
+  public boolean isFinished()
+  {
+    return this.finished;
+  }
+}
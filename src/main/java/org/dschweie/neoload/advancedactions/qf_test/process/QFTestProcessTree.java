@@ -0,0 +1,109 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ *  \brief    Hilfsklasse zum Beenden eines Prozesses samt aller Nachfahren
+ *
+ *  Die Programme \c qftest.exe und \c qftestc.exe starten selbst weitere
+ *  JVMs. Wird nur der direkt gestartete Prozess beendet, laufen diese
+ *  Nachfahren weiter und belegen den Lastgenerator.
+ *
+ *  Diese Klasse ermittelt deshalb zuerst alle Nachfahren über
+ *  ProcessHandle.descendants(), solange der Elternprozess noch lebt, und
+ *  beendet dann den gesamten Baum in zwei Stufen:
+ *  \li   zuerst wird jeder Prozess regulär zum Beenden aufgefordert und
+ *  \li   nach Ablauf der Wartezeit werden alle verbliebenen Prozesse
+ *        zwangsweise beendet.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestProcessTree
+{
+  /**
+   *  \brief    Klassenkonstante mit der Standardwartezeit zwischen beiden Stufen
+   */
+  public static final long DEFAULT_GRACE_MILLIS = 5000L;
+
+  /**
+   *  \brief    Konstruktor ist privat, da die Klasse nur Klassenmethoden bietet
+   */
+  private QFTestProcessTree()
+  {
+  }
+
+  /**
+   *  \brief    Methode beendet einen Prozess und alle seine Nachfahren
+   *
+   *  @param    process       Prozess, der beendet werden soll. Der Wert
+   *                          \c null wird ignoriert.
+   *  @param    graceMillis   Wartezeit in Millisekunden, bevor die Prozesse
+   *                          zwangsweise beendet werden
+   *
+   *  @return   Die Methode liefert \c true , wenn alle Prozesse innerhalb
+   *            der Wartezeit regulär beendet wurden, und \c false , wenn
+   *            Prozesse zwangsweise beendet werden mussten.
+   */
+  public static boolean terminate(Process process, long graceMillis)
+  {
+    if(null == process)
+      return true;
+    return terminate(process.toHandle(), graceMillis);
+  }
+
+  /**
+   *  \brief    Methode beendet einen Prozess und alle seine Nachfahren
+   *
+   *  @param    root          Handle des Prozesses, der beendet werden soll
+   *  @param    graceMillis   Wartezeit in Millisekunden, bevor die Prozesse
+   *                          zwangsweise beendet werden
+   *
+   *  @return   Die Methode liefert \c true , wenn alle Prozesse innerhalb
+   *            der Wartezeit regulär beendet wurden, und \c false , wenn
+   *            Prozesse zwangsweise beendet werden mussten.
+   */
+  public static boolean terminate(ProcessHandle root, long graceMillis)
+  {
+    // the tree has to be collected before the parent dies, afterwards the children are orphans
+    List<ProcessHandle> tree = root.descendants().collect(Collectors.toList());
+    tree.add(root);
+
+    for(ProcessHandle handle : tree)
+      handle.destroy();
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(graceMillis);
+    for(ProcessHandle handle : tree)
+    {
+      long remaining = deadline - System.nanoTime();
+      if(0L < remaining)
+      {
+        try
+        {
+          handle.onExit().get(remaining, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          break;
+        }
+        catch (Exception e)
+        { //  timeout or failure, the process is killed below
+        }
+      }
+    }
+
+    boolean terminated = true;
+    for(ProcessHandle handle : tree)
+    {
+      if(handle.isAlive())
+      {
+        handle.destroyForcibly();
+        terminated = false;
+      }
+    }
+    return terminated;
+  }
+}
@@ -0,0 +1,180 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Logdatei mit begrenzter Größe, die bei Erreichen der Grenze rotiert
+ *
+ *  Die Ausgabe eines Daemon wird über die ganze Dauer eines Tests
+ *  geschrieben. Damit ein Dauertest die Platte des Lastgenerators nicht
+ *  füllt, wird die Datei beim Erreichen von \c daemonlogsize Kilobyte
+ *  (Standard 10240) in \c <name>.1 umbenannt, ältere Dateien rücken nach.
+ *  Es bleiben höchstens \c daemonlogfiles Dateien (Standard 3) erhalten.
+ *
+ *  Die Datei wird im Verzeichnis \c daemonlogdir (Standard ist das
+ *  temporäre Verzeichnis der JVM) unter dem Namen
+ *  \c qftest-daemon-<host>-<port>.log in UTF-8 geschrieben.
+ *
+ *  Schreibt ein anderer Prozess direkt in die Datei, z.B. die Konsole von
+ *  \c qftestc.exe beim Verfahren \c file , wird vor jedem Start über
+ *  rotateIfFull() rotiert.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestRotatingLog
+{
+  public static final long  DEFAULT_SIZE_KB = 10240L;
+  public static final int   DEFAULT_FILES   = 3;
+
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
+  private final File  file;
+  private final long  maxBytes;
+  private final int   files;
+  private Writer      writer  = null;
+  private long        written = 0L;
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    file          Aktuelle Logdatei
+   *  @param    maxBytes      Größe, ab der rotiert wird, \c 0 steht für
+   *                          keine Grenze
+   *  @param    files         Anzahl der Dateien einschließlich der aktuellen
+   */
+  public QFTestRotatingLog(File file, long maxBytes, int files)
+  {
+    this.file     = file;
+    this.maxBytes = maxBytes;
+    this.files    = Math.max(1, files);
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die die Logdatei eines Daemon aus den ActionParametern anlegt
+   *
+   *  Ungültige Werte von \c daemonlogsize und \c daemonlogfiles werden
+   *  jeweils einzeln durch ihren Standardwert ersetzt.
+   *
+   *  @return   Die Methode liefert die Logdatei oder \c null , wenn der
+   *            ActionParameter \c daemonlogsize den Wert \c -1 hat.
+   */
+  public static QFTestRotatingLog fromParameters(QFTestDaemonEndpoint endpoint, List<ActionParameter> parameters)
+  {
+    if("-1".equals(QFTestCommandElementsLibrary.getParameterValue(parameters, "daemonlogsize", "").trim()))
+      return null;
+    long sizeKB = QFTestCommandElementsLibrary.getLongParameterValue(parameters, "daemonlogsize", DEFAULT_SIZE_KB);
+    int  count  = (int) Math.min(Integer.MAX_VALUE, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "daemonlogfiles", DEFAULT_FILES));
+    File directory = new File(QFTestCommandElementsLibrary.getParameterValue(parameters, "daemonlogdir", System.getProperty("java.io.tmpdir")).trim());
+    String name = "qftest-daemon-".concat(endpoint.getHost().replaceAll("[^A-Za-z0-9.-]", "_")).concat("-").concat(String.valueOf(endpoint.getPort())).concat(".log");
+    return new QFTestRotatingLog(new File(directory, name), 1024L * sizeKB, count);
+  }
+
+  /**
+   *  \brief    Methode schreibt eine Zeile und rotiert bei Bedarf vorher
+   *
+   *  @throws   IOException   wenn die Datei nicht geschrieben werden kann
+   */
+  public synchronized void append(String line) throws IOException
+  {
+    if(null == this.writer)
+      this.open();
+    else if((0L < this.maxBytes) && (this.written >= this.maxBytes))
+      this.rotate();
+    this.writer.write(line);
+    this.writer.write(LINE_SEPARATOR);
+    //  the size is estimated in characters, this is exact for the usual ASCII output
+    this.written += line.length() + LINE_SEPARATOR.length();
+  }
+
+  /**
+   *  \brief    Methode schreibt gepufferte Zeilen in die Datei
+   */
+  public synchronized void flush() throws IOException
+  {
+    if(null != this.writer)
+      this.writer.flush();
+  }
+
+  /**
+   *  \brief    Methode schließt die Datei
+   */
+  public synchronized void close()
+  {
+    try
+    {
+      if(null != this.writer)
+        this.writer.close();
+    }
+    catch (IOException e)
+    { //  nothing left to write
+    }
+    this.writer = null;
+  }
+
+  /**
+   *  \brief    Methode rotiert die Datei, wenn sie die Grenze erreicht hat
+   *
+   *  Die Größe wird hier aus der Datei gelesen, da ein anderer Prozess in
+   *  sie geschrieben haben kann. Ein offener Writer wird geschlossen und
+   *  beim nächsten append(String) neu geöffnet.
+   *
+   *  @return   Die Methode liefert \c true , wenn rotiert wurde.
+   */
+  public synchronized boolean rotateIfFull()
+  {
+    if((0L >= this.maxBytes) || (this.file.length() < this.maxBytes))
+      return false;
+    this.close();
+    this.shift();
+    return true;
+  }
+
+  public File getFile()
+  {
+    return this.file;
+  }
+
+  private void open() throws IOException
+  {
+    File directory = this.file.getAbsoluteFile().getParentFile();
+    if(null != directory)
+      directory.mkdirs();
+    //  a restarted daemon continues the current file of its endpoint
+    this.written  = this.file.length();
+    this.writer   = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file, true), StandardCharsets.UTF_8));
+  }
+
+  private void rotate() throws IOException
+  {
+    this.writer.close();
+    this.shift();
+    this.written  = 0L;
+    this.writer   = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file, false), StandardCharsets.UTF_8));
+  }
+
+  /**
+   *  \brief    Methode benennt die Dateien um, die älteste entfällt
+   */
+  private void shift()
+  {
+    new File(this.file.getPath().concat(".").concat(String.valueOf(this.files - 1))).delete();
+    for(int i = this.files - 2; i >= 1; --i)
+      new File(this.file.getPath().concat(".").concat(String.valueOf(i))).renameTo(new File(this.file.getPath().concat(".").concat(String.valueOf(i + 1))));
+    if(1 < this.files)
+      this.file.renameTo(new File(this.file.getPath().concat(".1")));
+    else
+      this.file.delete();
+  }
+}
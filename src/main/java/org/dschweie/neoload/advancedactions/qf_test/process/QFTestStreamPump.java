@@ -0,0 +1,465 @@
+package org.dschweie.neoload.advancedactions.qf_test.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ *  \brief    Arbeiter, der einen Ausgabestrom eines Prozesses nebenläufig ausliest
+ *
+ *  Ein Prozess, der über die Kommandozeile gestartet wurde, schreibt seine
+ *  Ausgaben in Pipes des Betriebssystems. Werden diese Pipes nicht parallel
+ *  zur Ausführung geleert, blockiert der Prozess, sobald der Puffer des
+ *  Betriebssystems voll ist, und das Warten auf das Prozessende endet nie.
+ *
+ *  Diese Klasse liest deshalb einen Strom bereits während der Ausführung
+ *  aus. Ein blockierendes Lesen würde je Strom einen Thread belegen, bei
+ *  500 virtuellen Anwendern also bis zu 1000 Threads. Stattdessen teilen
+ *  sich alle Engines eine kleine, feste Anzahl an Threads, die reihum alle
+ *  Ströme abfragen und nur so viel lesen, wie InputStream.available()
+ *  meldet. Ein Strom belegt damit keinen Thread, solange der Prozess nichts
+ *  ausgibt. Ist in einem Durchlauf nichts zu lesen, wartet ein Thread
+ *  zunehmend länger, höchstens MAX_IDLE_MILLIS.
+ *
+ *  Die Anzahl der Threads ist das Minimum aus 8 und der Anzahl der
+ *  Prozessoren, mindestens 2. Sie kann mit der System Property
+ *  \c qftest.pump.threads festgelegt werden.
+ *
+ *  Das Ende eines Stroms eines Prozesses ist erreicht, wenn der Prozess
+ *  beendet ist und nichts mehr zu lesen ist. Prozesse, die weitere Prozesse
+ *  mit geerbter Pipe gestartet haben, halten damit keinen Thread auf.
+ *
+ *  Der Strom wird blockweise gelesen und mit der Zeichenkodierung aus
+ *  QFTestConsoleSettings dekodiert. Die Zeichen werden in einer Instanz
+ *  von QFTestConsoleCapture abgelegt, die den Speicherbedarf begrenzt.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestStreamPump
+{
+  /**
+   *  \brief    Klassenkonstante mit der Anzahl der Threads, die die Ströme abfragen
+   */
+  public static final int       POLLER_COUNT    = Math.max(1, Integer.getInteger("qftest.pump.threads", Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()))).intValue());
+
+  /**
+   *  \brief    Klassenkonstante mit der längsten Wartezeit eines Threads ohne Ausgabe in Millisekunden
+   */
+  public static final long      MAX_IDLE_MILLIS = 16L;
+
+  /**
+   *  \brief    Klassenvariable mit den Threads, die die Ströme abfragen
+   *
+   *  Die Threads werden beim ersten Strom gestartet und laufen danach als
+   *  Daemon-Threads, bis die JVM endet. Ohne Ströme warten sie blockierend
+   *  auf den nächsten Strom.
+   */
+  private static final Poller[] POLLERS         = new Poller[POLLER_COUNT];
+  private static final AtomicInteger NEXT       = new AtomicInteger();
+
+  /**
+   *  \brief    Klassenkonstante mit der Größe der Puffer in Bytes bzw. Zeichen
+   */
+  private static final int      BUFFER_SIZE = 8192;
+
+  /**
+   *  \brief    Strom, der von dieser Instanz ausgelesen wird
+   */
+  private final InputStream     stream;
+
+  /**
+   *  \brief    Abfrage, ob der Prozess noch läuft, oder \c null für einen Strom ohne Prozess
+   */
+  private final BooleanSupplier alive;
+
+  /**
+   *  \brief    Puffer für gelesene Bytes und dekodierte Zeichen
+   */
+  private final ByteBuffer      bytes     = ByteBuffer.allocate(BUFFER_SIZE);
+  private final CharBuffer      chars     = CharBuffer.allocate(BUFFER_SIZE);
+
+  /**
+   *  \brief    Dekodierer für die Zeichenkodierung der Ausgabe
+   */
+  private final CharsetDecoder  decoder;
+
+  /**
+   *  \brief    Bisher aus dem Strom gelesener Inhalt
+   */
+  private final QFTestConsoleCapture content;
+
+  /**
+   *  \brief    Signal, das beim Ende des Stroms ausgelöst wird
+   */
+  private final CountDownLatch  finished  = new CountDownLatch(1);
+
+  /**
+   *  \brief    Fehler, der beim Lesen aufgetreten ist, sonst \c null
+   */
+  private volatile IOException  exception = null;
+
+  /**
+   *  \brief    Zeitpunkt der ersten und letzten gelesenen Ausgabe über System.currentTimeMillis(), sonst \c 0
+   */
+  private volatile long         firstRead = 0L;
+  private volatile long         lastRead  = 0L;
+
+  /**
+   *  \brief    Konstruktor, der den auszulesenden Strom übernimmt
+   *
+   *  @param    stream        In dem Parameter wird der Strom erwartet,
+   *                          der ausgelesen werden soll.
+   *  @param    alive         Abfrage, ob der schreibende Prozess noch läuft,
+   *                          oder \c null
+   *  @param    settings      Einstellungen zu Kodierung und Grenze
+   */
+  private QFTestStreamPump(InputStream stream, BooleanSupplier alive, QFTestConsoleSettings settings)
+  {
+    this.stream   = stream;
+    this.alive    = alive;
+    this.decoder  = settings.getCharset().newDecoder()
+                            .onMalformedInput(CodingErrorAction.REPLACE)
+                            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.content  = settings.createCapture();
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die einen Strom ohne Prozess auf einem eigenen Thread ausliest
+   *
+   *  Ohne Prozess lässt sich das Ende des Stroms nur durch blockierendes
+   *  Lesen erkennen. Der Strom wird daher nicht von den gemeinsamen Threads
+   *  abgefragt, sondern von einem eigenen Daemon-Thread, der mit dem Ende
+   *  des Stroms endet. So kann ein Strom, der auf Daten wartet, die Ströme
+   *  der Prozesse nicht aufhalten.
+   *
+   *  @param    stream        In dem Parameter wird der Strom erwartet,
+   *                          der ausgelesen werden soll.
+   *
+   *  @return   Die Methode liefert den bereits gestarteten Arbeiter zurück.
+   */
+  public static QFTestStreamPump start(InputStream stream)
+  {
+    return start(stream, QFTestConsoleSettings.DEFAULT);
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die einen Strom ohne Prozess auf einem eigenen Thread ausliest
+   *
+   *  @param    stream        In dem Parameter wird der Strom erwartet,
+   *                          der ausgelesen werden soll.
+   *  @param    settings      In dem Parameter werden Kodierung und Grenze
+   *                          für die Aufzeichnung übergeben.
+   *
+   *  @return   Die Methode liefert den bereits gestarteten Arbeiter zurück.
+   *
+   *  \see      QFTestStreamPump.start(InputStream)
+   */
+  public static QFTestStreamPump start(InputStream stream, QFTestConsoleSettings settings)
+  {
+    QFTestStreamPump  pump    = new QFTestStreamPump(stream, null, settings);
+    Thread            thread  = new Thread(() ->
+    {
+      try
+      {
+        while(!pump.isFinished())
+          pump.poll();
+      }
+      catch (RuntimeException e)
+      {
+        pump.close();
+      }
+    }, "qftest-pump-stream");
+    thread.setDaemon(true);
+    thread.start();
+    return pump;
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die einen Strom eines Prozesses im gemeinsamen Pool ausliest
+   *
+   *  @param    process       In dem Parameter wird der Prozess erwartet,
+   *                          der in den Strom schreibt.
+   *  @param    stream        In dem Parameter wird der Strom erwartet,
+   *                          der ausgelesen werden soll, z.B. das Ergebnis
+   *                          von Process.getInputStream().
+   *  @param    settings      In dem Parameter werden Kodierung und Grenze
+   *                          für die Aufzeichnung übergeben.
+   *
+   *  @return   Die Methode liefert den bereits gestarteten Arbeiter zurück.
+   */
+  public static QFTestStreamPump start(Process process, InputStream stream, QFTestConsoleSettings settings)
+  {
+    return register(new QFTestStreamPump(stream, process::isAlive, settings));
+  }
+
+  private static QFTestStreamPump register(QFTestStreamPump pump)
+  {
+    int     index   = Math.floorMod(NEXT.getAndIncrement(), POLLER_COUNT);
+    Poller  poller;
+    synchronized(POLLERS)
+    {
+      if(null == POLLERS[index])
+      {
+        POLLERS[index] = new Poller();
+        Thread thread = new Thread(POLLERS[index], "qftest-pump-".concat(String.valueOf(index + 1)));
+        thread.setDaemon(true);
+        thread.start();
+      }
+      poller = POLLERS[index];
+    }
+    poller.incoming.add(pump);
+    return pump;
+  }
+
+  /**
+   *  \brief    Methode liest, was der Strom ohne Blockieren liefert
+   *
+   *  @return   Die Methode liefert \c true , wenn gelesen wurde oder der
+   *            Strom zu Ende ist.
+   */
+  boolean poll()
+  {
+    try
+    {
+      int available = this.stream.available();
+      if((0 >= available) && (null != this.alive))
+      { //  the check for more output after the end of the process catches output written just before
+        if(this.alive.getAsBoolean() || (0 < this.stream.available()))
+          return false;
+        this.finish();
+        return true;
+      }
+
+      int length  = (null == this.alive) ? this.bytes.remaining() : Math.min(available, this.bytes.remaining());
+      int count   = this.stream.read(this.bytes.array(), this.bytes.position(), length);
+      if(-1 == count)
+      {
+        this.finish();
+        return true;
+      }
+      if(0 < count)
+        this.mark(System.currentTimeMillis());
+      this.bytes.position(this.bytes.position() + count);
+      this.bytes.flip();
+      this.decode(this.bytes, this.chars, false);
+      this.bytes.compact();
+      return 0 < count;
+    }
+    catch (IOException e)
+    {
+      this.exception = e;
+      this.close();
+      return true;
+    }
+  }
+
+  /**
+   *  \brief    Methode dekodiert den Rest und beendet das Lesen
+   */
+  private void finish()
+  {
+    // an incomplete sequence at the end is replaced by the decoder
+    this.bytes.flip();
+    this.decode(this.bytes, this.chars, true);
+    while(this.decoder.flush(this.chars).isOverflow())
+      this.drain(this.chars);
+    this.drain(this.chars);
+    this.close();
+  }
+
+  private void close()
+  {
+    try
+    {
+      this.stream.close();
+    }
+    catch (IOException e)
+    { //  the stream is not used anymore, so there is nothing left to do
+    }
+    this.finished.countDown();
+  }
+
+  boolean isFinished()
+  {
+    return 0L == this.finished.getCount();
+  }
+
+  private void mark(long now)
+  {
+    if(0L == this.firstRead)
+      this.firstRead = now;
+    this.lastRead = now;
+  }
+
+  /**
+   *  \brief    Methode dekodiert die gelesenen Bytes in den Zeichenpuffer
+   *
+   *  Bytes einer unvollständigen Zeichenfolge bleiben im Puffer \b bytes
+   *  stehen und werden mit dem nächsten Block dekodiert.
+   */
+  private void decode(ByteBuffer bytes, CharBuffer chars, boolean endOfInput)
+  {
+    CoderResult state = this.decoder.decode(bytes, chars, endOfInput);
+    while(state.isOverflow())
+    {
+      this.drain(chars);
+      state = this.decoder.decode(bytes, chars, endOfInput);
+    }
+    this.drain(chars);
+  }
+
+  /**
+   *  \brief    Methode übergibt die dekodierten Zeichen an den Speicher
+   */
+  private void drain(CharBuffer chars)
+  {
+    chars.flip();
+    if(chars.hasRemaining())
+      this.content.append(chars.array(), chars.position(), chars.remaining());
+    chars.clear();
+  }
+
+  /**
+   *  \brief    Methode wartet begrenzt auf das Ende des Stroms
+   *
+   *  Nach dem Ende eines Prozesses liefert der Strom üblicherweise sofort
+   *  das Dateiende. Hat der Prozess jedoch weitere Prozesse gestartet, die
+   *  die Pipe geerbt haben, kann das Dateiende ausbleiben. Daher wird nur
+   *  begrenzt gewartet.
+   *
+   *  @param    millis        Maximale Wartezeit in Millisekunden
+   *
+   *  @return   Die Methode liefert \c true , wenn der Strom vollständig
+   *            gelesen wurde.
+   *
+   *  @throws   InterruptedException  wenn der wartende Thread unterbrochen
+   *                          wurde
+   */
+  public boolean await(long millis) throws InterruptedException
+  {
+    return this.finished.await(millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   *  \brief    Getter-Methode für den bisher gelesenen Inhalt
+   *
+   *  @return   Die Methode liefert eine Kopie des bisher gelesenen Inhalts.
+   */
+  public String getContent()
+  {
+    return this.content.toString();
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Speicher der gelesenen Ausgabe
+   *
+   *  @return   Die Methode liefert den Speicher, über den z.B. die Anzahl
+   *            der verworfenen Zeichen abgefragt werden kann.
+   */
+  public QFTestConsoleCapture getCapture()
+  {
+    return this.content;
+  }
+
+  /**
+   *  \brief    Getter-Methode für einen Fehler beim Lesen
+   *
+   *  @return   Die Methode liefert die Exception, die beim Lesen aufgetreten
+   *            ist, oder \c null .
+   */
+  public IOException getException()
+  {
+    return this.exception;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Zeitpunkt der ersten Ausgabe
+   *
+   *  @return   Die Methode liefert den Zeitpunkt über
+   *            System.currentTimeMillis() oder \c 0 , wenn noch nichts
+   *            gelesen wurde.
+   */
+  public long getFirstRead()
+  {
+    return this.firstRead;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Zeitpunkt der letzten Ausgabe
+   *
+   *  \see      QFTestStreamPump.getFirstRead()
+   */
+  public long getLastRead()
+  {
+    return this.lastRead;
+  }
+
+  /**
+   *  \brief    Thread, der reihum seine Ströme abfragt
+   */
+  private static final class Poller implements Runnable
+  {
+    private final BlockingQueue<QFTestStreamPump> incoming = new LinkedBlockingQueue<QFTestStreamPump>();
+
+    @Override
+    public void run()
+    {
+      List<QFTestStreamPump>  pumps = new ArrayList<QFTestStreamPump>();
+      long                    idle  = 1L;
+      try
+      {
+        while(true)
+        {
+          if(pumps.isEmpty())
+            pumps.add(this.incoming.take());
+          this.incoming.drainTo(pumps);
+
+          boolean progress = false;
+          for(Iterator<QFTestStreamPump> it = pumps.iterator(); it.hasNext(); )
+          {
+            QFTestStreamPump pump = it.next();
+            try
+            {
+              progress |= pump.poll();
+            }
+            catch (RuntimeException e)
+            { //  a broken decoder or capture must not stop the other streams
+              pump.close();
+            }
+            if(pump.isFinished())
+              it.remove();
+          }
+
+          if(progress)
+            idle = 1L;
+          else
+          { //  a new stream ends the wait early
+            QFTestStreamPump pump = this.incoming.poll(idle, TimeUnit.MILLISECONDS);
+            if(null != pump)
+              pumps.add(pump);
+            idle = Math.min(MAX_IDLE_MILLIS, 2L * idle);
+          }
+        }
+      }
+      catch (InterruptedException e)
+      {
+        for(QFTestStreamPump pump : pumps)
+          pump.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *  \brief    Werte eines Daemon für JMX
+ *
+ *  Je Adresse in der Schreibweise \c host:port gibt es eine Instanz, die beim ersten Zugriff angelegt und im
+ *  MBeanServer der JVM registriert wird. Die Engines melden Beginn und Ende
+ *  jedes Testfalls, QFTestDaemonProbe die Dauer jeder Prüfung. Diese
+ *  Meldungen verwenden nur atomare Variablen, LongAdder und
+ *  QFTestLatencyHistogram und kommen ohne Sperre aus.
+ *
+ *  Zustand und Neustarts stammen aus der QFTestDaemonSupervisor, die
+ *  Warteschlange aus QFTestDaemonSessionPool und QFTestDaemonDispatcher.
+ *  Diese Klassen melden sich als QFTestDaemonStatisticsSource an, ihre
+ *  Werte werden erst gelesen, wenn JMX sie abfragt.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestDaemonStatistics implements QFTestDaemonStatisticsMXBean
+{
+  /**
+   *  \brief    Klassenkonstante mit der Domäne der Einträge in JMX
+   */
+  public static final String DOMAIN = "org.dschweie.neoload.advancedactions.qf_test";
+
+  private static final ConcurrentMap<String, QFTestDaemonStatistics> DAEMONS = new ConcurrentHashMap<String, QFTestDaemonStatistics>();
+
+  private static final List<QFTestDaemonStatisticsSource> SOURCES = new CopyOnWriteArrayList<QFTestDaemonStatisticsSource>();
+
+  private final String                  daemon;
+  private final AtomicInteger           inFlight    = new AtomicInteger();
+  private final LongAdder               failures    = new LongAdder();
+  private final QFTestLatencyHistogram  executions  = new QFTestLatencyHistogram();
+  private volatile long                 pingNanos   = -1L;
+  private volatile boolean              pinged      = false;
+
+  private QFTestDaemonStatistics(String daemon)
+  {
+    this.daemon = daemon;
+  }
+
+  /**
+   *  \brief    Methode liefert die Werte eines Daemon und registriert sie beim ersten Aufruf
+   *
+   *  @param    daemon        Adresse des Daemon in der Schreibweise
+   *                          \c host:port , z.B. QFTestDaemonEndpoint.toString()
+   */
+  public static QFTestDaemonStatistics get(String daemon)
+  {
+    String                  key         = daemon.toLowerCase();
+    QFTestDaemonStatistics  statistics  = DAEMONS.get(key);
+    if(null != statistics)
+      return statistics;
+    return DAEMONS.computeIfAbsent(key, k -> register(new QFTestDaemonStatistics(k), "Daemon", k));
+  }
+
+  /**
+   *  \brief    Methode meldet eine Quelle für Zustand, Neustarts und Warteschlange an
+   *
+   *  Die Klassen, die diese Werte halten, melden sich einmal beim Laden an.
+   */
+  public static void addSource(QFTestDaemonStatisticsSource source)
+  {
+    SOURCES.add(source);
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Werte aller Daemons
+   */
+  public static Collection<QFTestDaemonStatistics> getDaemons()
+  {
+    return Collections.unmodifiableCollection(DAEMONS.values());
+  }
+
+  /**
+   *  \brief    Methode registriert ein MXBean im MBeanServer der JVM
+   *
+   *  Ist unter dem Namen bereits ein Eintrag vorhanden, z.B. von einer
+   *  zweiten Kopie des Plugins in einem anderen ClassLoader, bleibt das
+   *  MXBean unregistriert. Die Werte werden trotzdem erfasst.
+   *
+   *  @return   Die Methode liefert das übergebene MXBean.
+   */
+  static <T> T register(T bean, String type, String name)
+  {
+    try
+    {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName  object = getObjectName(type, name);
+      if(!server.isRegistered(object))
+        server.registerMBean(bean, object);
+    }
+    catch (JMException | SecurityException e)
+    { //  JMX is an aid for diagnosis, it must never fail a test
+    }
+    return bean;
+  }
+
+  /**
+   *  \brief    Methode liefert den Namen eines Eintrags in JMX
+   *
+   *  @param    type          \c Daemon oder \c Engine
+   *  @param    name          Adresse des Daemon oder Kurzname der Action
+   */
+  public static ObjectName getObjectName(String type, String name) throws JMException
+  {
+    return new ObjectName(DOMAIN.concat(":type=").concat(type).concat(",name=").concat(ObjectName.quote(name)));
+  }
+
+  /**
+   *  \brief    Methode meldet den Beginn eines Testfalls
+   *
+   *  @return   Die Methode liefert den Zeitpunkt des Beginns für
+   *            finish(long, boolean).
+   */
+  public long start()
+  {
+    this.inFlight.incrementAndGet();
+    return System.currentTimeMillis();
+  }
+
+  /**
+   *  \brief    Methode meldet das Ende eines Testfalls
+   *
+   *  @param    started       Rückgabewert von start()
+   *  @param    failed        \c true , wenn der Testfall fehlschlug
+   */
+  public void finish(long started, boolean failed)
+  {
+    this.executions.record(System.currentTimeMillis() - started);
+    if(failed)
+      this.failures.increment();
+    this.inFlight.decrementAndGet();
+  }
+
+  /**
+   *  \brief    Methode meldet das Ergebnis einer Prüfung
+   *
+   *  @param    nanos         Dauer der Prüfung in Nanosekunden oder \c -1 ,
+   *                          wenn der Daemon nicht antwortete
+   */
+  public void ping(long nanos)
+  {
+    this.pingNanos  = nanos;
+    this.pinged     = true;
+  }
+
+  @Override
+  public String getEndpoint()
+  {
+    return this.daemon;
+  }
+
+  @Override
+  public String getState()
+  {
+    for(QFTestDaemonStatisticsSource source : SOURCES)
+    {
+      String state = source.getState(this.daemon);
+      if(null != state)
+        return state;
+    }
+    if(!this.pinged)
+      return "UNKNOWN";
+    return (0L <= this.pingNanos) ? "REACHABLE" : "UNREACHABLE";
+  }
+
+  @Override
+  public int getInFlight()
+  {
+    return this.inFlight.get();
+  }
+
+  @Override
+  public int getQueueDepth()
+  {
+    int depth = 0;
+    for(QFTestDaemonStatisticsSource source : SOURCES)
+      depth += source.getQueueDepth(this.daemon);
+    return depth;
+  }
+
+  @Override
+  public long getRestartCount()
+  {
+    long restarts = 0L;
+    for(QFTestDaemonStatisticsSource source : SOURCES)
+      restarts += source.getRestartCount(this.daemon);
+    return restarts;
+  }
+
+  @Override
+  public long getExecutionCount()
+  {
+    return this.executions.getCount();
+  }
+
+  @Override
+  public long getFailureCount()
+  {
+    return this.failures.sum();
+  }
+
+  @Override
+  public double getLastPingMillis()
+  {
+    long nanos = this.pingNanos;
+    return (0L > nanos) ? -1.0 : nanos / 1000000.0;
+  }
+
+  @Override
+  public long getExecuteP50Millis()
+  {
+    return this.executions.getValueAtQuantile(0.5);
+  }
+
+  @Override
+  public long getExecuteP99Millis()
+  {
+    return this.executions.getValueAtQuantile(0.99);
+  }
+
+  @Override
+  public long getExecuteMaxMillis()
+  {
+    return this.executions.getMax();
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.getEndpoint().concat(" inflight=").concat(String.valueOf(this.getInFlight()))
+                             .concat(" executions=").concat(String.valueOf(this.getExecutionCount()))
+                             .concat(" failures=").concat(String.valueOf(this.getFailureCount()));
+  }
+}
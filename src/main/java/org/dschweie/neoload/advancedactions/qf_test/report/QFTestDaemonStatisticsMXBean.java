@@ -0,0 +1,81 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+/**
+ *  \brief    Schnittstelle eines Daemon für JMX
+ *
+ *  Über JConsole oder VisualVM sind die Werte unter
+ *  \c org.dschweie.neoload.advancedactions.qf_test:type=Daemon zu finden,
+ *  je Daemon ein Eintrag mit seiner Adresse als Name.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public interface QFTestDaemonStatisticsMXBean
+{
+  /**
+   *  \brief    Getter-Methode für die Adresse des Daemon
+   */
+  String getEndpoint();
+
+  /**
+   *  \brief    Getter-Methode für den Zustand des Daemon
+   *
+   *  @return   Die Methode liefert den Zustand der Überwachung, z.B.
+   *            \c RUNNING oder \c RESTARTING . Ohne Überwachung liefert sie
+   *            \c REACHABLE oder \c UNREACHABLE nach der letzten Prüfung
+   *            oder \c UNKNOWN , wenn der Daemon noch nicht geprüft wurde.
+   */
+  String getState();
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der laufenden Testfälle
+   */
+  int getInFlight();
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Aufrufe, die auf den Daemon warten
+   *
+   *  Gezählt werden Aufrufe, die auf eine Verbindung aus dem
+   *  QFTestDaemonSessionPool oder auf eine Zuteilung der
+   *  QFTestDaemonDispatcher warten, zu denen der Daemon gehört.
+   */
+  int getQueueDepth();
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Neustarts durch die Überwachung
+   */
+  long getRestartCount();
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der beendeten Testfälle
+   */
+  long getExecutionCount();
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Testfälle mit Fehler
+   */
+  long getFailureCount();
+
+  /**
+   *  \brief    Getter-Methode für die Dauer der letzten Prüfung in Millisekunden
+   *
+   *  @return   Die Methode liefert \c -1 , wenn der Daemon noch nicht
+   *            geprüft wurde oder die letzte Prüfung fehlschlug.
+   */
+  double getLastPingMillis();
+
+  /**
+   *  \brief    Getter-Methode für den Median der Laufzeit eines Testfalls in Millisekunden
+   */
+  long getExecuteP50Millis();
+
+  /**
+   *  \brief    Getter-Methode für das 99. Perzentil der Laufzeit eines Testfalls in Millisekunden
+   */
+  long getExecuteP99Millis();
+
+  /**
+   *  \brief    Getter-Methode für die längste Laufzeit eines Testfalls in Millisekunden
+   */
+  long getExecuteMaxMillis();
+}
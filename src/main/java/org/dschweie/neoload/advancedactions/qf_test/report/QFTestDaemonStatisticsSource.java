@@ -0,0 +1,43 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+/**
+ *  \brief    Schnittstelle, über die QFTestDaemonStatistics Werte eines Daemon liest, die andere Klassen halten
+ *
+ *  Zustand, Neustarts und Warteschlange eines Daemon führen Supervisor,
+ *  Pools und Verteiler selbst. Sie melden sich über
+ *  QFTestDaemonStatistics.addSource(QFTestDaemonStatisticsSource) an und
+ *  werden erst gefragt, wenn JMX die Werte abfragt. Das Paket \c report
+ *  hängt damit nicht von den Paketen dieser Klassen ab.
+ *
+ *  Der Daemon wird in der Schreibweise \c host:port übergeben. Eine Quelle
+ *  implementiert nur die Methoden zu den Werten, die sie kennt.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public interface QFTestDaemonStatisticsSource
+{
+  /**
+   *  \brief    Methode liefert den Zustand des Daemon oder \c null , wenn die Quelle ihn nicht kennt
+   */
+  default String getState(String daemon)
+  {
+    return null;
+  }
+
+  /**
+   *  \brief    Methode liefert die Anzahl der Neustarts des Daemon
+   */
+  default long getRestartCount(String daemon)
+  {
+    return 0L;
+  }
+
+  /**
+   *  \brief    Methode liefert die Anzahl der Aufrufe, die auf den Daemon warten
+   */
+  default int getQueueDepth(String daemon)
+  {
+    return 0;
+  }
+}
@@ -0,0 +1,108 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *  \brief    Werte einer Action für JMX
+ *
+ *  Eine Instanz dieser Klasse liest die Werte, die die Engines einer Action
+ *  in QFTestMetrics erfassen. Sie wird über register(String) beim Anlegen
+ *  der ersten Engine der Action angelegt und registriert.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestEngineStatistics implements QFTestEngineStatisticsMXBean
+{
+  private static final ConcurrentMap<String, QFTestEngineStatistics> ENGINES = new ConcurrentHashMap<String, QFTestEngineStatistics>();
+
+  private final String name;
+
+  private QFTestEngineStatistics(String name)
+  {
+    this.name = name;
+  }
+
+  /**
+   *  \brief    Methode liefert die Werte einer Action und registriert sie beim ersten Aufruf
+   *
+   *  @param    name          Kurzname der Action, z.B. \c Execute
+   */
+  public static QFTestEngineStatistics get(String name)
+  {
+    QFTestEngineStatistics statistics = ENGINES.get(name);
+    if(null != statistics)
+      return statistics;
+    return ENGINES.computeIfAbsent(name, key -> QFTestDaemonStatistics.register(new QFTestEngineStatistics(key), "Engine", key));
+  }
+
+  /**
+   *  \brief    Methode registriert die Werte einer Action in JMX, falls das noch nicht geschehen ist
+   *
+   *  @param    name          Kurzname der Action, z.B. \c Execute
+   */
+  public static void register(String name)
+  {
+    get(name);
+  }
+
+  @Override
+  public String getName()
+  {
+    return this.name;
+  }
+
+  @Override
+  public long getCallCount()
+  {
+    return this.getDuration().getCount();
+  }
+
+  @Override
+  public long getErrorCount()
+  {
+    long errors = 0L;
+    for(Map.Entry<String, Long> entry : this.getStatusCodes().entrySet())
+      if(!"0".equals(entry.getKey()))
+        errors += entry.getValue();
+    return errors;
+  }
+
+  @Override
+  public Map<String, Long> getStatusCodes()
+  {
+    return QFTestMetrics.getCounts(QFTestMetrics.EXIT_CODE, this.name);
+  }
+
+  @Override
+  public long getP50Millis()
+  {
+    return this.getDuration().getValueAtQuantile(0.5);
+  }
+
+  @Override
+  public long getP99Millis()
+  {
+    return this.getDuration().getValueAtQuantile(0.99);
+  }
+
+  @Override
+  public long getMaxMillis()
+  {
+    return this.getDuration().getMax();
+  }
+
+  private QFTestLatencyHistogram getDuration()
+  {
+    return QFTestMetrics.histogram(QFTestMetrics.DURATION, this.name, null);
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.name.concat(" calls=").concat(String.valueOf(this.getCallCount()))
+                    .concat(" errors=").concat(String.valueOf(this.getErrorCount()));
+  }
+}
@@ -0,0 +1,51 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.util.Map;
+
+/**
+ *  \brief    Schnittstelle einer Action für JMX
+ *
+ *  Über JConsole oder VisualVM sind die Werte unter
+ *  \c org.dschweie.neoload.advancedactions.qf_test:type=Engine zu finden,
+ *  je Action ein Eintrag mit ihrem Kurznamen, z.B. \c Execute .
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public interface QFTestEngineStatisticsMXBean
+{
+  /**
+   *  \brief    Getter-Methode für den Kurznamen der Action
+   */
+  String getName();
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der beendeten Aufrufe
+   */
+  long getCallCount();
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Aufrufe mit einem Statuscode ungleich \c 0
+   */
+  long getErrorCount();
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der Aufrufe je Statuscode
+   */
+  Map<String, Long> getStatusCodes();
+
+  /**
+   *  \brief    Getter-Methode für den Median der Laufzeit in Millisekunden
+   */
+  long getP50Millis();
+
+  /**
+   *  \brief    Getter-Methode für das 99. Perzentil der Laufzeit in Millisekunden
+   */
+  long getP99Millis();
+
+  /**
+   *  \brief    Getter-Methode für die längste Laufzeit in Millisekunden
+   */
+  long getMaxMillis();
+}
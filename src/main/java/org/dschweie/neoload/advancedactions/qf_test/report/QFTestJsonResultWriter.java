@@ -0,0 +1,187 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  \brief    Writer, der die Response als kompaktes JSON-Objekt schreibt
+ *
+ *  Jedes Element wird zu einem Attribut des umgebenden Objekts. Texte
+ *  werden als JSON-Strings geschrieben, Elemente mit weiteren Elementen als
+ *  Objekte.
+ *
+ *  Anders als in XML darf ein Name in einem JSON-Objekt nur einmal
+ *  vorkommen. Wird ein Element mit einem Namen wiederholt, z.B.
+ *  \c exception , erhält es wie bei \c testcase1 eine laufende Nummer:
+ *  \c exception , \c exception2 , \c exception3 usw.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public class QFTestJsonResultWriter extends QFTestResultWriter
+{
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   *  \brief    Merker je Ebene, ob in dem Objekt bereits ein Attribut steht
+   */
+  private boolean[]           filled  = new boolean[8];
+
+  /**
+   *  \brief    Vergebene Namen je Ebene mit der nächsten zu prüfenden Nummer
+   *
+   *  Die Maps werden für spätere Objekte derselben Ebene wiederverwendet.
+   */
+  private final List<Map<String, Integer>> names = new ArrayList<Map<String, Integer>>();
+
+  /**
+   *  \brief    Aktuelle Ebene der Verschachtelung
+   */
+  private int                 depth   = -1;
+
+  //! \copydoc QFTestResultWriter::QFTestResultWriter(StringBuilder)
+  public QFTestJsonResultWriter(StringBuilder out)
+  {
+    super(out);
+  }
+
+  @Override
+  public QFTestResultWriter startDocument()
+  {
+    this.out.append('{');
+    this.push();
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter endDocument()
+  {
+    while(0 <= this.depth)
+      this.endElement();
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter startElement(String name)
+  {
+    this.name(name);
+    this.out.append('{');
+    this.push();
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter endElement()
+  {
+    this.out.append('}');
+    --this.depth;
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter startText(String name)
+  {
+    this.name(name);
+    this.out.append('"');
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter endText()
+  {
+    this.out.append('"');
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter text(char[] chars, int offset, int length)
+  {
+    for(int i = offset; i < offset + length; ++i)
+      this.escape(chars[i]);
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter text(CharSequence value)
+  {
+    if(null != value)
+      for(int i = 0; i < value.length(); ++i)
+        this.escape(value.charAt(i));
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter embed(String name, String document)
+  {
+    this.name(name);
+    this.out.append((null == document) || document.isEmpty() ? "null" : document);
+    return this;
+  }
+
+  /**
+   *  \brief    Methode öffnet eine neue Ebene und vergrößert bei Bedarf die Merker
+   */
+  private void push()
+  {
+    if(++this.depth == this.filled.length)
+      this.filled = Arrays.copyOf(this.filled, 2 * this.filled.length);
+    if(this.depth == this.names.size())
+      this.names.add(new HashMap<String, Integer>());
+    this.filled[this.depth] = false;
+    this.names.get(this.depth).clear();
+  }
+
+  /**
+   *  \brief    Methode schreibt den Namen eines Attributs
+   *
+   *  Ist der Name in dem Objekt bereits vergeben, wird er um die nächste
+   *  freie Nummer ergänzt. Die Suche beginnt bei der Nummer, die zuletzt für
+   *  diesen Namen vergeben wurde, sodass sich wiederholte Elemente nicht bei
+   *  jeder Wiederholung von vorne durchsuchen.
+   */
+  private void name(String name)
+  {
+    Map<String, Integer>  used    = this.names.get(this.depth);
+    Integer               next    = used.get(name);
+    String                unique  = name;
+    if(null != next)
+    {
+      int number = next.intValue();
+      do
+        unique = name.concat(String.valueOf(number++));
+      while(used.containsKey(unique));
+      used.put(name, Integer.valueOf(number));
+    }
+    used.put(unique, Integer.valueOf(2));
+
+    if(this.filled[this.depth])
+      this.out.append(',');
+    this.filled[this.depth] = true;
+    this.out.append('"');
+    this.text(unique);
+    this.out.append("\":");
+  }
+
+  /**
+   *  \brief    Methode schreibt ein einzelnes Zeichen maskiert
+   */
+  private void escape(char c)
+  {
+    switch(c)
+    {
+      case '"':   this.out.append("\\\"");  break;
+      case '\\':  this.out.append("\\\\");  break;
+      case '\n':  this.out.append("\\n");   break;
+      case '\r':  this.out.append("\\r");   break;
+      case '\t':  this.out.append("\\t");   break;
+      default:
+        if(0x20 > c)
+          this.out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+        else
+          this.out.append(c);
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  \brief    Histogramm für Laufzeiten mit logarithmisch-linearer Einteilung
+ *
+ *  Werte unter SUB_BUCKETS werden exakt gezählt. Darüber wird jede
+ *  Zweierpotenz in SUB_BUCKETS / 2 gleich breite Klassen geteilt, der
+ *  relative Fehler eines Quantils liegt damit unter 1/32 über den gesamten
+ *  Wertebereich von 0 bis MAX_VALUE. Größere Werte werden MAX_VALUE
+ *  zugeordnet.
+ *
+ *  Das Erfassen eines Werts ist ohne Sperre: Die Klasse wird in einem
+ *  AtomicLongArray gezählt, Anzahl und Summe in LongAdder. Da sich
+ *  gleichzeitige Werte in der Regel auf verschiedene Klassen verteilen,
+ *  behindern sich die Threads der virtuellen Anwender kaum. Auswertungen
+ *  lesen die Klassen ohne Sperre und sind daher nur eine Momentaufnahme.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestLatencyHistogram
+{
+  private static final int  SUB_BITS    = 6;
+  public static final int   SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int  HALF        = SUB_BUCKETS / 2;
+  private static final int  MAX_BITS    = 40;
+
+  /**
+   *  \brief    Klassenkonstante mit dem größten erfassten Wert, etwa 35 Jahre in Millisekunden
+   */
+  public static final long  MAX_VALUE   = (1L << MAX_BITS) - 1L;
+
+  private final AtomicLongArray counts  = new AtomicLongArray(index(MAX_VALUE) + 1);
+  private final LongAdder       count   = new LongAdder();
+  private final LongAdder       sum     = new LongAdder();
+  private final LongAccumulator max     = new LongAccumulator(Math::max, 0L);
+
+  /**
+   *  \brief    Methode liefert die Klasse eines Werts
+   */
+  static int index(long value)
+  {
+    if(SUB_BUCKETS > value)
+      return (int) value;
+    int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+    return SUB_BUCKETS + (shift - 1) * HALF + (int) ((value >>> shift) - HALF);
+  }
+
+  /**
+   *  \brief    Methode liefert den größten Wert einer Klasse
+   */
+  static long highestValue(int index)
+  {
+    if(SUB_BUCKETS > index)
+      return index;
+    int shift = (index - SUB_BUCKETS) / HALF + 1;
+    return ((((long) (index - SUB_BUCKETS) % HALF + HALF) + 1L) << shift) - 1L;
+  }
+
+  /**
+   *  \brief    Methode erfasst einen Wert
+   *
+   *  @param    value         Wert, z.B. eine Laufzeit in Millisekunden.
+   *                          Negative Werte werden als \c 0 erfasst.
+   */
+  public void record(long value)
+  {
+    long bounded = Math.min(MAX_VALUE, Math.max(0L, value));
+    this.counts.incrementAndGet(index(bounded));
+    this.count.increment();
+    this.sum.add(bounded);
+    this.max.accumulate(bounded);
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Anzahl der erfassten Werte
+   */
+  public long getCount()
+  {
+    return this.count.sum();
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Summe der erfassten Werte
+   */
+  public long getSum()
+  {
+    return this.sum.sum();
+  }
+
+  /**
+   *  \brief    Getter-Methode für den größten erfassten Wert
+   */
+  public long getMax()
+  {
+    return this.max.get();
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Mittelwert
+   */
+  public double getMean()
+  {
+    long n = this.getCount();
+    return (0L == n) ? 0.0 : (double) this.getSum() / n;
+  }
+
+  /**
+   *  \brief    Methode liefert ein Quantil
+   *
+   *  @param    quantile      Quantil zwischen \c 0.0 und \c 1.0 , z.B.
+   *                          \c 0.99
+   *
+   *  @return   Die Methode liefert den größten Wert der Klasse, in der das
+   *            Quantil liegt, höchstens den größten erfassten Wert, oder
+   *            \c 0 , wenn kein Wert erfasst ist.
+   */
+  public long getValueAtQuantile(double quantile)
+  {
+    long total = 0L;
+    for(int i = 0; i < this.counts.length(); ++i)
+      total += this.counts.get(i);
+    if(0L == total)
+      return 0L;
+
+    long rank   = Math.max(1L, (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * total));
+    long passed = 0L;
+    for(int i = 0; i < this.counts.length(); ++i)
+    {
+      passed += this.counts.get(i);
+      if(rank <= passed)
+        return Math.min(highestValue(i), this.getMax());
+    }
+    return this.getMax();
+  }
+
+  /**
+   *  \brief    Methode setzt das Histogramm zurück
+   *
+   *  Werte, die während des Zurücksetzens erfasst werden, können teilweise
+   *  erhalten bleiben.
+   */
+  public void reset()
+  {
+    for(int i = 0; i < this.counts.length(); ++i)
+      this.counts.set(i, 0L);
+    this.count.reset();
+    this.sum.reset();
+    this.max.reset();
+  }
+}
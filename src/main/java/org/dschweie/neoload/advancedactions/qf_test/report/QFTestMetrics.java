@@ -0,0 +1,241 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  \brief    Gemeinsame Messwerte aller Actions in der JVM eines Lastgenerators
+ *
+ *  Die Engines erfassen hier Laufzeiten und Zähler, z.B. die Dauer jedes
+ *  Aufrufs je Action und je Testfall, die Phasen aus QFTestPhases, die
+ *  Wartezeit auf einen Daemon und die Verteilung der Rückgabewerte. Eine
+ *  Messreihe wird über Name, Action und eine optionale Bezeichnung wie den
+ *  Testfall unterschieden.
+ *
+ *  Laufzeiten werden in QFTestLatencyHistogram erfasst, Zähler in
+ *  LongAdder. Nach dem ersten Wert einer Messreihe ist das Erfassen ohne
+ *  Sperre, die Threads der virtuellen Anwender behindern sich nicht.
+ *
+ *  Die Messwerte werden als CSV ausgegeben:
+ *  \li   über die Action QFTestMetricsAction, z.B. im Container \c End
+ *        eines User Path,
+ *  \li   beim Beenden der JVM in die Datei, die zuletzt über den
+ *        ActionParameter \c metricsfile einer Action gesetzt wurde.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestMetrics
+{
+  public static final String  DURATION    = "duration";
+  public static final String  TESTCASE    = "testcase";
+  public static final String  QUEUE_WAIT  = "queuewait";
+  public static final String  EXIT_CODE   = "exitcode";
+
+  /**
+   *  \brief    Klassenkonstante mit der Kopfzeile der CSV-Ausgabe
+   */
+  public static final String  CSV_HEADER  = "kind;metric;action;label;count;mean;p50;p90;p99;max";
+
+  private static final char   SEPARATOR   = ';';
+
+  private static final ConcurrentMap<String, QFTestLatencyHistogram>  HISTOGRAMS  = new ConcurrentHashMap<String, QFTestLatencyHistogram>();
+  private static final ConcurrentMap<String, LongAdder>               COUNTERS    = new ConcurrentHashMap<String, LongAdder>();
+  private static final AtomicReference<File>                          DUMP_FILE   = new AtomicReference<File>();
+  private static final AtomicBoolean                                  HOOK        = new AtomicBoolean();
+
+  private QFTestMetrics()
+  {
+  }
+
+  private static String key(String metric, String action, String label)
+  {
+    return metric.concat("\u0000").concat(action).concat("\u0000").concat((null == label) ? "" : label);
+  }
+
+  /**
+   *  \brief    Getter-Methode für das Histogramm einer Messreihe
+   *
+   *  Das Histogramm wird beim ersten Zugriff angelegt.
+   */
+  public static QFTestLatencyHistogram histogram(String metric, String action, String label)
+  {
+    String                  key       = key(metric, action, label);
+    QFTestLatencyHistogram  histogram = HISTOGRAMS.get(key);
+    return (null != histogram) ? histogram : HISTOGRAMS.computeIfAbsent(key, k -> new QFTestLatencyHistogram());
+  }
+
+  /**
+   *  \brief    Methode erfasst eine Laufzeit in Millisekunden
+   *
+   *  @param    metric        Name der Messreihe, z.B. DURATION
+   *  @param    action        Kurzname der Action, z.B. \c Execute
+   *  @param    label         Optionale Bezeichnung, z.B. der Testfall, oder \c null
+   *  @param    millis        Laufzeit in Millisekunden
+   */
+  public static void record(String metric, String action, String label, long millis)
+  {
+    histogram(metric, action, label).record(millis);
+  }
+
+  /**
+   *  \brief    Methode erhöht einen Zähler um eins
+   */
+  public static void count(String metric, String action, String label)
+  {
+    String    key     = key(metric, action, label);
+    LongAdder counter = COUNTERS.get(key);
+    if(null == counter)
+      counter = COUNTERS.computeIfAbsent(key, k -> new LongAdder());
+    counter.increment();
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Stand eines Zählers
+   */
+  public static long getCount(String metric, String action, String label)
+  {
+    LongAdder counter = COUNTERS.get(key(metric, action, label));
+    return (null == counter) ? 0L : counter.sum();
+  }
+
+  /**
+   *  \brief    Getter-Methode für alle Zähler einer Messreihe und Action
+   *
+   *  @return   Die Methode liefert den Stand je Bezeichnung, sortiert nach
+   *            der Bezeichnung.
+   */
+  public static Map<String, Long> getCounts(String metric, String action)
+  {
+    String            prefix  = key(metric, action, "");
+    Map<String, Long> counts  = new TreeMap<String, Long>();
+    for(Map.Entry<String, LongAdder> entry : COUNTERS.entrySet())
+      if(entry.getKey().startsWith(prefix))
+        counts.put(entry.getKey().substring(prefix.length()), entry.getValue().sum());
+    return counts;
+  }
+
+  /**
+   *  \brief    Methode setzt die Datei, in die beim Beenden der JVM geschrieben wird
+   *
+   *  Beim ersten Aufruf wird dafür ein Shutdown-Hook registriert.
+   */
+  public static void setDumpFile(File file)
+  {
+    DUMP_FILE.set(file);
+    if(HOOK.compareAndSet(false, true))
+      Runtime.getRuntime().addShutdownHook(new Thread(QFTestMetrics::dumpOnExit, "qftest-metrics"));
+  }
+
+  private static void dumpOnExit()
+  {
+    File file = DUMP_FILE.get();
+    if(null == file)
+      return;
+    try
+    {
+      dump(file);
+    }
+    catch (IOException e)
+    {
+      System.err.println("QF-Test metrics could not be written to ".concat(file.getPath()).concat(": ").concat(String.valueOf(e.getLocalizedMessage())));
+    }
+  }
+
+  /**
+   *  \brief    Methode schreibt die Messwerte als CSV in eine Datei
+   */
+  public static void dump(File file) throws IOException
+  {
+    File directory = file.getAbsoluteFile().getParentFile();
+    if(null != directory)
+      Files.createDirectories(directory.toPath());
+    try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+    {
+      writeCsv(out);
+    }
+  }
+
+  /**
+   *  \brief    Methode liefert die Messwerte als CSV
+   */
+  public static String toCsv()
+  {
+    StringBuilder out = new StringBuilder(4096);
+    try
+    {
+      writeCsv(out);
+    }
+    catch (IOException e)
+    { //  a StringBuilder does not throw
+      throw new IllegalStateException(e);
+    }
+    return out.toString();
+  }
+
+  /**
+   *  \brief    Methode schreibt die Messwerte als CSV
+   *
+   *  Die Spalten sind durch Semikolon getrennt, Laufzeiten in Millisekunden.
+   *  Zeilen der Art \c counter enthalten nur die Anzahl. Die Zeilen sind
+   *  nach Messreihe sortiert.
+   */
+  public static void writeCsv(Appendable out) throws IOException
+  {
+    out.append(CSV_HEADER).append('\n');
+    for(Map.Entry<String, QFTestLatencyHistogram> entry : new TreeMap<String, QFTestLatencyHistogram>(HISTOGRAMS).entrySet())
+    {
+      QFTestLatencyHistogram histogram = entry.getValue();
+      if(0L == histogram.getCount())
+        continue;
+      appendKey(out.append("histogram").append(SEPARATOR), entry.getKey());
+      out.append(String.valueOf(histogram.getCount())).append(SEPARATOR)
+         .append(String.format(Locale.ROOT, "%.1f", histogram.getMean())).append(SEPARATOR)
+         .append(String.valueOf(histogram.getValueAtQuantile(0.5))).append(SEPARATOR)
+         .append(String.valueOf(histogram.getValueAtQuantile(0.9))).append(SEPARATOR)
+         .append(String.valueOf(histogram.getValueAtQuantile(0.99))).append(SEPARATOR)
+         .append(String.valueOf(histogram.getMax())).append('\n');
+    }
+    for(Map.Entry<String, LongAdder> entry : new TreeMap<String, LongAdder>(COUNTERS).entrySet())
+    {
+      appendKey(out.append("counter").append(SEPARATOR), entry.getKey());
+      out.append(String.valueOf(entry.getValue().sum())).append(";;;;;\n");
+    }
+  }
+
+  private static void appendKey(Appendable out, String key) throws IOException
+  {
+    for(String part : key.split("\u0000", 3))
+      out.append(escape(part)).append(SEPARATOR);
+  }
+
+  /**
+   *  \brief    Methode maskiert ein Feld der CSV-Ausgabe, wenn es Trennzeichen oder Anführungszeichen enthält
+   */
+  static String escape(String field)
+  {
+    if((0 > field.indexOf(SEPARATOR)) && (0 > field.indexOf('"')) && (0 > field.indexOf('\n')))
+      return field;
+    return "\"".concat(field.replace("\"", "\"\"")).concat("\"");
+  }
+
+  /**
+   *  \brief    Methode verwirft alle Messwerte
+   */
+  public static void reset()
+  {
+    HISTOGRAMS.clear();
+    COUNTERS.clear();
+  }
+}
@@ -0,0 +1,205 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief    Zerlegung der Laufzeit eines Aufrufs in Phasen
+ *
+ *  Die Laufzeit eines Aufrufs über \c qftestc.exe enthält neben dem
+ *  eigentlichen Testlauf den Start der JVM, den Aufbau der Verbindung zum
+ *  Daemon und das Beenden des Prozesses. Diese Klasse teilt die Laufzeit
+ *  anhand von Zeitpunkten über System.currentTimeMillis() in vier Phasen:
+ *  \li   \c spawn vom Aufruf von ProcessBuilder.start() bis die JVM bereit
+ *        ist, erkennbar an der ersten Ausgabe des Prozesses,
+ *  \li   \c connect bis zum Beginn des Testlaufs,
+ *  \li   \c run der Testlauf selbst und
+ *  \li   \c teardown vom Ende des Testlaufs bis zum Ende des Prozesses.
+ *
+ *  Beginn und Ende des Testlaufs sind von außen nicht direkt sichtbar. Sie
+ *  werden aus der besten verfügbaren Quelle übernommen, die im Element
+ *  \c source der Response steht:
+ *  \li   \c runlog aus dem Protokoll von QF-Test, nur hier ist \c connect
+ *        vom Testlauf getrennt,
+ *  \li   \c console aus der ersten und letzten Ausgabe des Prozesses, der
+ *        Aufbau der Verbindung zählt dann zum Testlauf,
+ *  \li   \c daemon aus dem direkten Aufruf des Daemon oder
+ *  \li   \c process ohne Quelle, dann zählt die gesamte Laufzeit des
+ *        Prozesses nach seiner Erzeugung als Testlauf, einschließlich des
+ *        Starts der JVM.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestPhases
+{
+  public static final String  SPAWN           = "spawn";
+  public static final String  CONNECT         = "connect";
+  public static final String  RUN             = "run";
+  public static final String  TEARDOWN        = "teardown";
+
+  public static final String  SOURCE_PROCESS  = "process";
+  public static final String  SOURCE_CONSOLE  = "console";
+  public static final String  SOURCE_RUNLOG   = "runlog";
+  public static final String  SOURCE_DAEMON   = "daemon";
+  public static final String  SOURCE_CLIENT   = "client";
+
+  private final long  spawnStart;
+  private long        spawnEnd;
+  private final long  end;
+  private long        runStart;
+  private long        runEnd;
+  private String      source  = SOURCE_PROCESS;
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  Bis zum Aufruf von setRun(long, long, String) zählt die Zeit von
+   *  \em spawnEnd bis \em end als Testlauf.
+   *
+   *  @param    spawnStart    Zeitpunkt vor dem Start des Prozesses
+   *  @param    spawnEnd      Zeitpunkt, zu dem die JVM bereit ist, ohne
+   *                          Ausgabe des Prozesses der Zeitpunkt, zu dem er
+   *                          erzeugt ist
+   *  @param    end           Zeitpunkt, zu dem der Prozess beendet ist
+   */
+  public QFTestPhases(long spawnStart, long spawnEnd, long end)
+  {
+    this.spawnStart = spawnStart;
+    this.spawnEnd   = Math.max(spawnStart, spawnEnd);
+    this.end        = Math.max(this.spawnEnd, end);
+    this.runStart   = this.spawnEnd;
+    this.runEnd     = this.end;
+  }
+
+  /**
+   *  \brief    Setter-Methode für Beginn und Ende des Testlaufs
+   *
+   *  Die Zeitpunkte werden in den Zeitraum des Prozesses verschoben, falls
+   *  sie wegen der Genauigkeit der Quelle außerhalb liegen. Beginnt der
+   *  Testlauf vor dem Ende von \c spawn , z.B. weil die erste Ausgabe
+   *  verzögert gelesen wurde, endet \c spawn mit dem Beginn des Testlaufs.
+   *
+   *  @param    start         Beginn des Testlaufs
+   *  @param    end           Ende des Testlaufs
+   *  @param    source        Quelle der Zeitpunkte, z.B. SOURCE_RUNLOG
+   *
+   *  @return   Die Methode liefert die Instanz selbst.
+   */
+  public QFTestPhases setRun(long start, long end, String source)
+  {
+    this.spawnEnd = Math.max(this.spawnStart, Math.min(this.spawnEnd, start));
+    this.runStart = Math.max(this.spawnEnd, Math.min(start, this.end));
+    this.runEnd   = Math.max(this.runStart, Math.min(end, this.end));
+    this.source   = source;
+    return this;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Zeitpunkt vor dem Start des Prozesses
+   */
+  public long getSpawnStart()
+  {
+    return this.spawnStart;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Dauer der Phase \c spawn in Millisekunden
+   */
+  public long getSpawn()
+  {
+    return this.spawnEnd - this.spawnStart;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Dauer der Phase \c connect in Millisekunden
+   */
+  public long getConnect()
+  {
+    return this.runStart - this.spawnEnd;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Dauer der Phase \c run in Millisekunden
+   */
+  public long getRun()
+  {
+    return this.runEnd - this.runStart;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Dauer der Phase \c teardown in Millisekunden
+   */
+  public long getTeardown()
+  {
+    return this.end - this.runEnd;
+  }
+
+  /**
+   *  \brief    Getter-Methode für die Quelle von Beginn und Ende des Testlaufs
+   */
+  public String getSource()
+  {
+    return this.source;
+  }
+
+  /**
+   *  \brief    Methode schreibt die Phasen als Element \c phases in die Response
+   */
+  public void write(QFTestResultWriter writer)
+  {
+    writer.startElement("phases")
+          .element(SPAWN, String.valueOf(this.getSpawn()))
+          .element(CONNECT, String.valueOf(this.getConnect()))
+          .element(RUN, String.valueOf(this.getRun()))
+          .element(TEARDOWN, String.valueOf(this.getTeardown()))
+          .element("source", this.source)
+          .endElement();
+  }
+
+  /**
+   *  \brief    Methode hängt je Phase ein Teilergebnis an
+   *
+   *  Der Request eines Teilergebnisses enthält den Namen der Phase, die
+   *  Response die Quelle.
+   */
+  public void attach(SampleResult result)
+  {
+    result.addSubResult(this.createResult(SPAWN, this.getSpawn()));
+    result.addSubResult(this.createResult(CONNECT, this.getConnect()));
+    result.addSubResult(this.createResult(RUN, this.getRun()));
+    result.addSubResult(this.createResult(TEARDOWN, this.getTeardown()));
+  }
+
+  /**
+   *  \brief    Methode erfasst die Dauer jeder Phase in QFTestMetrics
+   *
+   *  @param    action        Kurzname der Action, z.B. \c Execute
+   */
+  public void record(String action)
+  {
+    QFTestMetrics.record(SPAWN, action, this.source, this.getSpawn());
+    QFTestMetrics.record(CONNECT, action, this.source, this.getConnect());
+    QFTestMetrics.record(RUN, action, this.source, this.getRun());
+    QFTestMetrics.record(TEARDOWN, action, this.source, this.getTeardown());
+  }
+
+  private SampleResult createResult(String phase, long duration)
+  {
+    SampleResult result = new SampleResult();
+    result.setDuration(duration);
+    result.setStatusCode("0");
+    result.setRequestContent(phase);
+    result.setResponseContent(this.source);
+    return result;
+  }
+
+  @Override
+  public String toString()
+  {
+    return SPAWN.concat("=").concat(String.valueOf(this.getSpawn()))
+           .concat(" ").concat(CONNECT).concat("=").concat(String.valueOf(this.getConnect()))
+           .concat(" ").concat(RUN).concat("=").concat(String.valueOf(this.getRun()))
+           .concat(" ").concat(TEARDOWN).concat("=").concat(String.valueOf(this.getTeardown()))
+           .concat(" (").concat(this.source).concat(")");
+  }
+}
@@ -0,0 +1,171 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  \brief    Speicher für Request und Response einer einzelnen Ausführung
+ *
+ *  Eine Engine sammelt während einer Ausführung den Aufruf als Request und
+ *  die Ausgaben als Response der Advanced Action. Früher wurden dafür
+ *  Instanzvariablen der Engine verwendet, die über alle Iterationen eines
+ *  virtuellen Anwenders weiter gewachsen sind.
+ *
+ *  Eine Instanz dieser Klasse gilt dagegen nur für eine Ausführung. Sie wird
+ *  über QFTestReportingContext.acquire() aus einem gemeinsamen Pool geholt
+ *  und nach der Ausführung über QFTestReportingContext.release(QFTestReportingContext)
+ *  geleert zurückgegeben. Die Puffer sind vorab dimensioniert. Puffer, die
+ *  durch eine außergewöhnlich große Ausgabe gewachsen sind, werden beim
+ *  Zurückgeben verworfen, damit der Pool keinen Speicher festhält.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestReportingContext
+{
+  /**
+   *  \brief    Klassenkonstante mit der Anfangsgröße des Request in Zeichen
+   */
+  public static final int REQUEST_CAPACITY    = 1024;
+
+  /**
+   *  \brief    Klassenkonstante mit der Anfangsgröße der Response in Zeichen
+   */
+  public static final int RESPONSE_CAPACITY   = 16 * 1024;
+
+  /**
+   *  \brief    Klassenkonstante mit der maximalen Größe, die ein Puffer im Pool behalten darf
+   */
+  public static final int RETAINED_CAPACITY   = 256 * 1024;
+
+  /**
+   *  \brief    Klassenkonstante mit der maximalen Anzahl freier Instanzen im Pool
+   */
+  public static final int POOL_SIZE           = 256;
+
+  private static final Queue<QFTestReportingContext>  POOL      = new ConcurrentLinkedQueue<QFTestReportingContext>();
+  private static final AtomicInteger                  POOLED    = new AtomicInteger();
+
+  private StringBuilder       request   = new StringBuilder(REQUEST_CAPACITY);
+  private StringBuilder       response  = new StringBuilder(RESPONSE_CAPACITY);
+  private QFTestResultWriter  writer    = null;
+
+  /**
+   *  \brief    Konstruktor ist privat, Instanzen werden über acquire() bezogen
+   */
+  private QFTestReportingContext()
+  {
+  }
+
+  /**
+   *  \brief    Methode liefert einen leeren Kontext aus dem Pool
+   *
+   *  @return   Die Methode liefert eine leere Instanz. Ist der Pool leer,
+   *            wird eine neue Instanz erzeugt.
+   */
+  public static QFTestReportingContext acquire()
+  {
+    QFTestReportingContext reporting = POOL.poll();
+    if(null == reporting)
+      return new QFTestReportingContext();
+    POOLED.decrementAndGet();
+    return reporting;
+  }
+
+  /**
+   *  \brief    Methode gibt einen Kontext geleert an den Pool zurück
+   *
+   *  Nach dem Aufruf darf der Aufrufer die Instanz nicht mehr verwenden.
+   *
+   *  @param    reporting     Kontext, der nicht mehr benötigt wird. Der Wert
+   *                          \c null wird ignoriert.
+   */
+  public static void release(QFTestReportingContext reporting)
+  {
+    if(null == reporting)
+      return;
+    reporting.reset();
+    if(POOL_SIZE > POOLED.get())
+    {
+      POOLED.incrementAndGet();
+      POOL.offer(reporting);
+    }
+  }
+
+  /**
+   *  \brief    Methode leert beide Puffer
+   *
+   *  Puffer, die über RETAINED_CAPACITY gewachsen sind, werden durch neue
+   *  Puffer in der Anfangsgröße ersetzt.
+   */
+  public void reset()
+  {
+    if(RETAINED_CAPACITY < this.request.capacity())
+      this.request = new StringBuilder(REQUEST_CAPACITY);
+    else
+      this.request.setLength(0);
+
+    if(RETAINED_CAPACITY < this.response.capacity())
+      this.response = new StringBuilder(RESPONSE_CAPACITY);
+    else
+      this.response.setLength(0);
+
+    this.writer = null;
+  }
+
+  /**
+   *  \brief    Methode beginnt das Dokument der Response in einem Format
+   *
+   *  @param    format        Format gemäß QFTestResultWriter.create(String, StringBuilder)
+   *
+   *  @return   Die Methode liefert den Writer, mit dem die Response
+   *            geschrieben wird.
+   */
+  public QFTestResultWriter open(String format)
+  {
+    this.writer = QFTestResultWriter.create(format, this.response);
+    this.writer.startDocument();
+    return this.writer;
+  }
+
+  /**
+   *  \brief    Methode schließt das Dokument der Response ab
+   *
+   *  @return   Die Methode liefert die vollständige Response als String.
+   */
+  public String close()
+  {
+    if(null != this.writer)
+      this.writer.endDocument();
+    this.writer = null;
+    return this.response.toString();
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Writer der Response
+   *
+   *  @return   Die Methode liefert den Writer, der mit open(String) erzeugt
+   *            wurde, oder \c null .
+   */
+  public QFTestResultWriter getWriter()
+  {
+    return this.writer;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Puffer des Request
+   */
+  public StringBuilder getRequest()
+  {
+    return this.request;
+  }
+
+  /**
+   *  \brief    Getter-Methode für den Puffer der Response
+   */
+  public StringBuilder getResponse()
+  {
+    return this.response;
+  }
+}
@@ -0,0 +1,165 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Abstrakte Klasse zum Schreiben der Response einer Advanced Action
+ *
+ *  Die Response einer Advanced Action ist ein strukturiertes Dokument aus
+ *  benannten Elementen, z.B. der Konsolenausgabe und dem Rückgabewert von
+ *  QF-Test. Die Spezialisierungen dieser Klasse schreiben das Dokument
+ *  direkt in einen StringBuilder, in der Regel den Puffer der Response aus
+ *  einem QFTestReportingContext. Alle Texte werden dabei gemäß des Formats
+ *  maskiert, sodass Zeichen wie \c < oder \c & in der Ausgabe von QF-Test
+ *  das Dokument nicht beschädigen.
+ *
+ *  Der Anwender wählt das Format in NeoLoad über den optionalen
+ *  ActionParameter \c responseformat aus:
+ *  \li   \c xml erzeugt ein XML-Dokument mit dem Wurzelelement \c result
+ *        (Standard) und
+ *  \li   \c json erzeugt ein kompaktes JSON-Objekt.
+ *
+ *  Ein Dokument wird immer in der Reihenfolge startDocument(), beliebige
+ *  Elemente und endDocument() geschrieben.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public abstract class QFTestResultWriter
+{
+  /**
+   *  \brief    Klassenkonstante für das Format XML
+   */
+  public static final String FORMAT_XML   = "xml";
+
+  /**
+   *  \brief    Klassenkonstante für das Format JSON
+   */
+  public static final String FORMAT_JSON  = "json";
+
+  /**
+   *  \brief    Puffer, in den das Dokument geschrieben wird
+   */
+  protected final StringBuilder out;
+
+  /**
+   *  \brief    Konstruktor der Klasse
+   *
+   *  @param    out           Puffer, an den das Dokument angehängt wird
+   */
+  protected QFTestResultWriter(StringBuilder out)
+  {
+    this.out = out;
+  }
+
+  /**
+   *  \brief    Fabrikmethode, die einen Writer für ein Format erzeugt
+   *
+   *  @param    format        Format des Dokuments, unbekannte Werte führen
+   *                          zum Format XML.
+   *  @param    out           Puffer, an den das Dokument angehängt wird
+   *
+   *  @return   Die Methode liefert den passenden Writer zurück.
+   */
+  public static QFTestResultWriter create(String format, StringBuilder out)
+  {
+    if(FORMAT_JSON.equals(format))
+      return new QFTestJsonResultWriter(out);
+    return new QFTestXmlResultWriter(out);
+  }
+
+  /**
+   *  \brief    Methode liest das Format aus den ActionParametern
+   *
+   *  @param  parameters      In dem Parameter wird eine Liste der
+   *                          ActionParameter übergeben, die der Anwender
+   *                          über die GUI von NeoLoad erfasst hat.
+   *
+   *  @return Die Methode liefert FORMAT_JSON oder FORMAT_XML zurück.
+   */
+  public static String getFormat(List<ActionParameter> parameters)
+  {
+    String strFormat = QFTestCommandElementsLibrary.getParameterValue(parameters, "responseformat", FORMAT_XML).toLowerCase().trim();
+    return FORMAT_JSON.equals(strFormat) ? FORMAT_JSON : FORMAT_XML;
+  }
+
+  /**
+   *  \brief    Methode beginnt das Dokument
+   */
+  public abstract QFTestResultWriter startDocument();
+
+  /**
+   *  \brief    Methode schließt das Dokument ab
+   */
+  public abstract QFTestResultWriter endDocument();
+
+  /**
+   *  \brief    Methode öffnet ein Element, das weitere Elemente enthält
+   *
+   *  @param    name          Name des Elements
+   */
+  public abstract QFTestResultWriter startElement(String name);
+
+  /**
+   *  \brief    Methode schließt das zuletzt geöffnete Element
+   */
+  public abstract QFTestResultWriter endElement();
+
+  /**
+   *  \brief    Methode öffnet ein Element, das einen Text enthält
+   *
+   *  Der Text wird danach mit text(CharSequence) bzw. text(char[], int, int)
+   *  in beliebig vielen Teilen geschrieben und mit endText() abgeschlossen.
+   *
+   *  @param    name          Name des Elements
+   */
+  public abstract QFTestResultWriter startText(String name);
+
+  /**
+   *  \brief    Methode schließt ein Element, das einen Text enthält
+   */
+  public abstract QFTestResultWriter endText();
+
+  /**
+   *  \brief    Methode schreibt einen Teil eines Textes maskiert
+   *
+   *  @param    chars         Feld mit den Zeichen
+   *  @param    offset        Position des ersten Zeichens im Feld
+   *  @param    length        Anzahl der Zeichen
+   */
+  public abstract QFTestResultWriter text(char[] chars, int offset, int length);
+
+  /**
+   *  \brief    Methode schreibt einen Teil eines Textes maskiert
+   *
+   *  @param    value         Text, der Wert \c null wird als leerer Text
+   *                          geschrieben.
+   */
+  public abstract QFTestResultWriter text(CharSequence value);
+
+  /**
+   *  \brief    Methode bettet ein Dokument desselben Formats als Element ein
+   *
+   *  Die Methode wird verwendet, um die Response eines Unterprozesses in die
+   *  Response des Hauptprozesses zu übernehmen.
+   *
+   *  @param    name          Name des Elements
+   *  @param    document      Dokument, das mit einem Writer desselben
+   *                          Formats geschrieben wurde
+   */
+  public abstract QFTestResultWriter embed(String name, String document);
+
+  /**
+   *  \brief    Methode schreibt ein Element mit einem Text
+   *
+   *  @param    name          Name des Elements
+   *  @param    value         Text des Elements
+   */
+  public QFTestResultWriter element(String name, CharSequence value)
+  {
+    return this.startText(name).text(value).endText();
+  }
+}
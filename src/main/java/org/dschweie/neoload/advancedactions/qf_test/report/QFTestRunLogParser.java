@@ -0,0 +1,258 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ *  \brief    Klasse liest die Laufzeiten der Schritte aus einem Protokoll von QF-Test
+ *
+ *  QF-Test schreibt mit \c -runlog ein Protokoll als XML-Dokument, in der
+ *  Regel mit GZIP komprimiert als \c .qrz . Jeder ausgeführte Knoten wird
+ *  ein Element, dessen Attribute u.a. die Laufzeit enthalten.
+ *
+ *  Das Protokoll wird mit einem XMLStreamReader gelesen. Es wird kein
+ *  Dokumentbaum aufgebaut, der Speicherbedarf hängt nur von der
+ *  Verschachtelungstiefe und der Anzahl der gelieferten Schritte ab, nicht
+ *  von der Größe des Protokolls. Sobald \em limit Schritte gefunden sind,
+ *  wird das Lesen beendet.
+ *
+ *  Als Schritt gelten Elemente, deren Name in \em types enthalten ist. Die
+ *  Laufzeit wird aus dem ersten der Attribute DURATION_ATTRIBUTES gelesen,
+ *  das eine Zahl enthält. Schritte ohne Laufzeit werden übergangen, ihre
+ *  Kinder werden dann dem nächsten äußeren Schritt zugeordnet.
+ *
+ *  DTD und externe Entitäten sind abgeschaltet.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public final class QFTestRunLogParser
+{
+  /**
+   *  \brief    Klassenkonstante mit den Elementen, die standardmäßig als Schritt gelten
+   */
+  public static final String    DEFAULT_TYPES         = "TestSet,TestCase,TestStep,Sequence";
+
+  /**
+   *  \brief    Klassenkonstante mit der Standardanzahl der gelieferten Schritte
+   */
+  public static final int       DEFAULT_LIMIT         = 200;
+
+  /**
+   *  \brief    Klassenkonstante mit den Attributen, die die Laufzeit in Millisekunden enthalten
+   */
+  static final String[]         DURATION_ATTRIBUTES   = { "realtime", "duration" };
+
+  private static final int      BUFFER_SIZE           = 65536;
+
+  /**
+   *  \brief    Ein Schritt aus dem Protokoll
+   */
+  public static final class Step
+  {
+    private final String  type;
+    private final String  name;
+    private final int     level;
+    private final long    duration;
+
+    Step(String type, String name, int level, long duration)
+    {
+      this.type     = type;
+      this.name     = name;
+      this.level    = level;
+      this.duration = duration;
+    }
+
+    /**
+     *  \brief    Getter-Methode für den Namen des Elements, z.B. \c TestStep
+     */
+    public String getType()
+    {
+      return this.type;
+    }
+
+    /**
+     *  \brief    Getter-Methode für den Namen des Knotens aus dem Attribut \c name bzw. \c id
+     */
+    public String getName()
+    {
+      return this.name;
+    }
+
+    /**
+     *  \brief    Getter-Methode für die Verschachtelung, \c 0 für Schritte ohne äußeren Schritt
+     */
+    public int getLevel()
+    {
+      return this.level;
+    }
+
+    /**
+     *  \brief    Getter-Methode für die Laufzeit in Millisekunden
+     */
+    public long getDuration()
+    {
+      return this.duration;
+    }
+
+    @Override
+    public String toString()
+    {
+      return this.type.concat(": ").concat(this.name);
+    }
+  }
+
+  private QFTestRunLogParser()
+  {
+  }
+
+  /**
+   *  \brief    Methode zerlegt eine Liste von Elementnamen, getrennt durch Komma oder Leerzeichen
+   *
+   *  @return   Die Methode liefert eine leere Menge für \c none .
+   */
+  public static Set<String> parseTypes(String value)
+  {
+    Set<String> types = new LinkedHashSet<String>();
+    if("none".equalsIgnoreCase(value.trim()))
+      return types;
+    for(String type : value.split("[,;\\s]+"))
+      if(!type.isEmpty())
+        types.add(type);
+    return types;
+  }
+
+  /**
+   *  \brief    Methode liest die Schritte aus einer Protokolldatei
+   *
+   *  Ob die Datei komprimiert ist, wird am Inhalt erkannt, nicht an der
+   *  Endung.
+   */
+  public static List<Step> parse(File file, Set<String> types, int limit) throws IOException, XMLStreamException
+  {
+    try (InputStream in = new FileInputStream(file))
+    {
+      return parse(in, types, limit);
+    }
+  }
+
+  /**
+   *  \brief    Methode liest die Schritte aus einem Protokoll
+   *
+   *  @param    in            Protokoll als XML oder mit GZIP komprimiertes XML
+   *  @param    types         Namen der Elemente, die als Schritt gelten
+   *  @param    limit         Maximale Anzahl der gelieferten Schritte
+   *
+   *  @return   Die Methode liefert die Schritte in der Reihenfolge ihres
+   *            Beginns.
+   */
+  public static List<Step> parse(InputStream in, Set<String> types, int limit) throws IOException, XMLStreamException
+  {
+    if(types.isEmpty() || (0 >= limit))
+      return Collections.emptyList();
+
+    XMLStreamReader reader = createFactory().createXMLStreamReader(decompress(in));
+    try
+    {
+      List<Step>  steps   = new ArrayList<Step>();
+      //  element depth of every open step, the size is the level of the next step
+      int[]       open    = new int[16];
+      int         level   = 0;
+      int         depth   = 0;
+      while(reader.hasNext() && (steps.size() < limit))
+      {
+        int event = reader.next();
+        if(XMLStreamConstants.START_ELEMENT == event)
+        {
+          ++depth;
+          String type = reader.getLocalName();
+          if(!types.contains(type))
+            continue;
+          long duration = getDuration(reader);
+          if(0L > duration)
+            continue;
+          steps.add(new Step(type, getName(reader, type), level, duration));
+          if(open.length == level)
+            open = Arrays.copyOf(open, 2 * level);
+          open[level++] = depth;
+        }
+        else if(XMLStreamConstants.END_ELEMENT == event)
+        {
+          if((0 < level) && (open[level - 1] == depth))
+            --level;
+          --depth;
+        }
+      }
+      return steps;
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  private static XMLInputFactory createFactory()
+  {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    return factory;
+  }
+
+  /**
+   *  \brief    Methode entpackt den Strom, wenn er mit der Kennung von GZIP beginnt
+   */
+  private static InputStream decompress(InputStream in) throws IOException
+  {
+    BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+    buffered.mark(2);
+    int first   = buffered.read();
+    int second  = buffered.read();
+    buffered.reset();
+    if((0x1f == first) && (0x8b == second))
+      return new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+    return buffered;
+  }
+
+  private static long getDuration(XMLStreamReader reader)
+  {
+    for(String attribute : DURATION_ATTRIBUTES)
+    {
+      String value = reader.getAttributeValue(null, attribute);
+      if(null == value)
+        continue;
+      try
+      {
+        return Math.max(0L, Long.parseLong(value.trim()));
+      }
+      catch (NumberFormatException e)
+      { //  try the next attribute
+      }
+    }
+    return -1L;
+  }
+
+  private static String getName(XMLStreamReader reader, String type)
+  {
+    String name = reader.getAttributeValue(null, "name");
+    if((null == name) || name.isEmpty())
+      name = reader.getAttributeValue(null, "id");
+    return ((null == name) || name.isEmpty()) ? type : name;
+  }
+}
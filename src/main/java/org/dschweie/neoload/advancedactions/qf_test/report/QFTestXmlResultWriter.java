@@ -0,0 +1,122 @@
+package org.dschweie.neoload.advancedactions.qf_test.report;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ *  \brief    Writer, der die Response als XML-Dokument schreibt
+ *
+ *  Das Dokument hat das Wurzelelement \c result . Jedes Element beginnt in
+ *  einer neuen Zeile. Zeichen, die in XML 1.0 nicht zulässig sind, werden
+ *  durch \c ? ersetzt.
+ *
+ *  @author   dirk.schweier
+ *  @since    0.4.0
+ */
+public class QFTestXmlResultWriter extends QFTestResultWriter
+{
+  private static final String DECLARATION = "<?xml version=\"1.0\"?>";
+
+  private final Deque<String> elements = new ArrayDeque<String>();
+
+  //! \copydoc QFTestResultWriter::QFTestResultWriter(StringBuilder)
+  public QFTestXmlResultWriter(StringBuilder out)
+  {
+    super(out);
+  }
+
+  @Override
+  public QFTestResultWriter startDocument()
+  {
+    this.out.append(DECLARATION);
+    return this.startElement("result");
+  }
+
+  @Override
+  public QFTestResultWriter endDocument()
+  {
+    while(!this.elements.isEmpty())
+      this.endElement();
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter startElement(String name)
+  {
+    this.elements.push(name);
+    this.out.append('\n').append('<').append(name).append('>');
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter endElement()
+  {
+    this.out.append('\n').append("</").append(this.elements.pop()).append('>');
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter startText(String name)
+  {
+    this.elements.push(name);
+    this.out.append('\n').append('<').append(name).append('>');
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter endText()
+  {
+    this.out.append("</").append(this.elements.pop()).append('>');
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter text(char[] chars, int offset, int length)
+  {
+    for(int i = offset; i < offset + length; ++i)
+      this.escape(chars[i]);
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter text(CharSequence value)
+  {
+    if(null != value)
+      for(int i = 0; i < value.length(); ++i)
+        this.escape(value.charAt(i));
+    return this;
+  }
+
+  @Override
+  public QFTestResultWriter embed(String name, String document)
+  {
+    this.startElement(name);
+    if(null != document)
+    { //  the embedded document must not repeat the declaration
+      String strDocument = document.startsWith(DECLARATION) ? document.substring(DECLARATION.length()) : document;
+      this.out.append(strDocument);
+    }
+    return this.endElement();
+  }
+
+  /**
+   *  \brief    Methode schreibt ein einzelnes Zeichen maskiert
+   */
+  private void escape(char c)
+  {
+    switch(c)
+    {
+      case '<':   this.out.append("&lt;");  break;
+      case '>':   this.out.append("&gt;");  break;
+      case '&':   this.out.append("&amp;"); break;
+      case '\t':
+      case '\n':
+      case '\r':  this.out.append(c);       break;
+      default:
+        if((0x20 > c) || (0xFFFE == c) || (0xFFFF == c))
+          this.out.append('?');
+        else
+          this.out.append(c);
+    }
+  }
+}
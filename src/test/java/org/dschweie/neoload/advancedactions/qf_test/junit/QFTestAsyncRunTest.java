@@ -0,0 +1,142 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+import static org.dschweie.neoload.advancedactions.qf_test.junit.QFTestDaemonFixture.freePort;
+import static org.dschweie.neoload.advancedactions.qf_test.junit.QFTestDaemonFixture.parameters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestAsyncRunRegistry;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestAwaitActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteAsyncActionEngine;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.Context;
+import com.neotys.extensions.action.engine.SampleResult;
+import com.neotys.extensions.action.engine.VirtualUser;
+
+public class QFTestAsyncRunTest
+{
+  private static String handle(SampleResult submitted)
+  {
+    String response = submitted.getResponseContent();
+    int start = response.indexOf("<handle>") + "<handle>".length();
+    return response.substring(start, response.indexOf("</handle>", start));
+  }
+
+  @Test
+  public void testSubmitAndAwait() throws Exception
+  {
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", freePort()));
+    try
+    {
+      daemon.setLatency(300L);
+      long start = System.nanoTime();
+      SampleResult submitted = new QFTestExecuteAsyncActionEngine().execute(null, parameters("engine", "standin", "daemonport", String.valueOf(daemon.getEndpoint().getPort()), "testcase", "suite.qft#case"));
+      assertTrue(200L > (System.nanoTime() - start) / 1000000L);
+      assertEquals("0", submitted.getStatusCode());
+
+      //  the detached run reports only through the result collected by await
+      String                handle    = handle(submitted);
+      PrintStream           out       = System.out;
+      ByteArrayOutputStream printed   = new ByteArrayOutputStream();
+      SampleResult          collected = null;
+      System.setOut(new PrintStream(printed, true));
+      try
+      {
+        collected = new QFTestAwaitActionEngine().execute(null, parameters("handle", handle));
+      }
+      finally
+      {
+        System.setOut(out);
+      }
+      assertFalse(printed.toString(), printed.toString().contains("suite.qft#case"));
+      assertEquals("0", collected.getStatusCode());
+      assertTrue(250L <= collected.getDuration());
+      assertEquals(1L, daemon.getRunCount());
+      assertNull(QFTestAsyncRunRegistry.get(handle));
+
+      SampleResult again = new QFTestAwaitActionEngine().execute(null, parameters("handle", handle));
+      assertTrue(again.isError());
+      assertEquals(QFTestAwaitActionEngine.STATUS_UNKNOWN, again.getStatusCode());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void testCapacityAndTimeout() throws Exception
+  {
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", freePort()));
+    try
+    {
+      daemon.setLatency(500L);
+      String limit = String.valueOf(QFTestAsyncRunRegistry.getOccupied() + 1);
+      List<ActionParameter> parameters = parameters("engine", "standin", "daemonport", String.valueOf(daemon.getEndpoint().getPort()), "testcase", "suite.qft#case", "asynclimit", limit);
+      SampleResult submitted = new QFTestExecuteAsyncActionEngine().execute(null, new ArrayList<>(parameters));
+      assertEquals("0", submitted.getStatusCode());
+      SampleResult rejected = new QFTestExecuteAsyncActionEngine().execute(null, new ArrayList<>(parameters));
+      assertTrue(rejected.isError());
+      assertEquals(QFTestExecuteAsyncActionEngine.STATUS_FULL, rejected.getStatusCode());
+
+      //  the run keeps its slot after an await without cancel
+      String handle = handle(submitted);
+      SampleResult pending = new QFTestAwaitActionEngine().execute(null, parameters("handle", handle, "timeout", "50", "cancel", "false"));
+      assertEquals("QFT-TIMEOUT", pending.getStatusCode());
+      assertTrue(pending.getResponseContent().contains("<running>true</running>"));
+      assertNotNull(QFTestAsyncRunRegistry.get(handle));
+
+      assertEquals("0", new QFTestAwaitActionEngine().execute(null, parameters("handle", handle)).getStatusCode());
+      SampleResult next = new QFTestExecuteAsyncActionEngine().execute(null, new ArrayList<>(parameters));
+      assertEquals("0", next.getStatusCode());
+      assertEquals("0", new QFTestAwaitActionEngine().execute(null, parameters("handle", handle(next))).getStatusCode());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void testRunDoesNotUseContextAfterSubmit() throws Exception
+  {
+    final AtomicBoolean returned  = new AtomicBoolean(false);
+    final AtomicInteger late      = new AtomicInteger();
+    final VirtualUser   user      = (VirtualUser) Proxy.newProxyInstance(VirtualUser.class.getClassLoader(), new Class<?>[] { VirtualUser.class }, (proxy, method, args) -> "getId".equals(method.getName()) ? "vu-7" : null);
+    Context             context   = (Context) Proxy.newProxyInstance(Context.class.getClassLoader(), new Class<?>[] { Context.class }, (proxy, method, args) ->
+                                    {
+                                      if(returned.get())
+                                        late.incrementAndGet();
+                                      return "getCurrentVirtualUser".equals(method.getName()) ? user : null;
+                                    });
+
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", freePort()));
+    try
+    {
+      daemon.setLatency(200L);
+      SampleResult submitted = new QFTestExecuteAsyncActionEngine().execute(context, parameters("engine", "standin", "daemonport", String.valueOf(daemon.getEndpoint().getPort()), "testcase", "suite.qft#case"));
+      returned.set(true);
+      assertEquals("0", submitted.getStatusCode());
+
+      SampleResult collected = new QFTestAwaitActionEngine().execute(null, parameters("handle", handle(submitted)));
+      assertEquals("0", collected.getStatusCode());
+      assertEquals(0, late.get());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+}
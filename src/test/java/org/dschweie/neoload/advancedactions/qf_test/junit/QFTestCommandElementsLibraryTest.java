@@ -3,6 +3,7 @@ package org.dschweie.neoload.advancedactions.qf_test.junit;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
@@ -40,6 +41,20 @@ public class QFTestCommandElementsLibraryTest
     }
   }
   
+  @Test
+  public void test_getLongParameterValue()
+  {
+    List<ActionParameter> parameters = new ArrayList<ActionParameter>();
+    parameters.add(new ActionParameter("poolwait", " 250 "));
+    parameters.add(new ActionParameter("restartmax", "-1"));
+    parameters.add(new ActionParameter("daemonlimit", "many"));
+    assertEquals(250L, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "poolwait", 5L));
+    //  negative and invalid values fall back to the default
+    assertEquals(3L, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "restartmax", 3L));
+    assertEquals(0L, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "daemonlimit", 0L));
+    assertEquals(7L, QFTestCommandElementsLibrary.getLongParameterValue(parameters, "missing", 7L));
+  }
+
   @Test
   public void test_generationPingCommand()
   {
@@ -0,0 +1,152 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandFactory;
+import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandTemplate;
+import org.dschweie.neoload.advancedactions.qf_test.command.QFTestCommandTemplateCache;
+import org.dschweie.neoload.advancedactions.qf_test.command.library.QFTestCommandElementsLibrary;
+import org.dschweie.neoload.advancedactions.qf_test.command.worker.QFTestCommandWorkerTestCallDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteAction;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestPingAction;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStartAction;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStopAction;
+import com.neotys.extensions.action.ActionParameter;
+
+public class QFTestCommandTemplateTest
+{
+  private static List<ActionParameter> createParameters(String daemonport, String testcase, String runlog, String... variables)
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("qftestPath", "/opt/qftest/bin/"));
+    parameters.add(new ActionParameter("daemonport", daemonport));
+    parameters.add(new ActionParameter("jvm", "-Xmx512m"));
+    parameters.add(new ActionParameter("exitcodeignore", "warning"));
+    parameters.add(new ActionParameter("verbose", "all"));
+    parameters.add(new ActionParameter("suitedir", "/suites"));
+    parameters.add(new ActionParameter("testcase", testcase));
+    if(null != runlog)
+      parameters.add(new ActionParameter("runlog", runlog));
+    for(String variable : variables)
+      parameters.add(new ActionParameter("variable", variable));
+    return parameters;
+  }
+
+  @Test
+  public void testTemplate()
+  {
+    QFTestCommandTemplate template = new QFTestCommandTemplate.Builder()
+                                         .add("qftest.exe")
+                                         .slot(QFTestCommandElementsLibrary::getVariableSettings)
+                                         .add("-end")
+                                         .build();
+    assertEquals(1, template.getSlotCount());
+    assertEquals(2, template.getFixedSize());
+
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("variable", "a=1"));
+    List<String> command = template.fill(parameters);
+    assertEquals("[qftest.exe, -variable, a=1, -end]", command.toString());
+
+    //  the caller may change the result without affecting the template
+    command.clear();
+    assertEquals("[qftest.exe, -end]", template.fill(new ArrayList<ActionParameter>()).toString());
+  }
+
+  @Test
+  public void testExecuteMatchesUncachedCommand()
+  {
+    QFTestCommandFactory.getTemplateCache().clear();
+    List<ActionParameter> first   = createParameters("3543", "a.qft#one", null, "user=1");
+    List<ActionParameter> second  = createParameters("3543", "b.qft#two", "logs/run", "user=2", "mode=fast");
+    List<ActionParameter> other   = createParameters("3544", "a.qft#one", null);
+
+    assertEquals(QFTestCommandFactory.buildUncachedCommand(QFTestExecuteAction.TYPE, first), QFTestCommandFactory.buildCommand(QFTestExecuteAction.TYPE, first));
+    //  only dynamic parameters differ, the template is reused
+    List<String> command = QFTestCommandFactory.buildCommand(QFTestExecuteAction.TYPE, second);
+    assertEquals(QFTestCommandFactory.buildUncachedCommand(QFTestExecuteAction.TYPE, second), command);
+    assertEquals("b.qft#two", command.get(command.size() - 1));
+    assertTrue(command.contains("-runlog"));
+    assertEquals(1L, QFTestCommandFactory.getTemplateCache().getHits());
+
+    assertTrue(QFTestCommandFactory.buildCommand(QFTestExecuteAction.TYPE, other).contains("3544"));
+    assertEquals(2, QFTestCommandFactory.getTemplateCache().size());
+
+    for(String type : new String[] { QFTestPingAction.TYPE, QFTestStartAction.TYPE, QFTestStopAction.TYPE })
+    {
+      assertEquals(QFTestCommandFactory.buildUncachedCommand(type, second), QFTestCommandFactory.buildCommand(type, second));
+      assertEquals(QFTestCommandFactory.buildUncachedCommand(type, second), QFTestCommandFactory.buildCommand(type, second));
+    }
+    assertNull(QFTestCommandFactory.buildCommand("unknown", second));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction()
+  {
+    QFTestCommandTemplateCache cache = new QFTestCommandTemplateCache(2);
+    List<ActionParameter> a = createParameters("1", "t", null);
+    List<ActionParameter> b = createParameters("2", "t", null);
+    List<ActionParameter> c = createParameters("3", "t", null);
+
+    cache.get(QFTestExecuteAction.TYPE, a, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, QFTestCommandWorkerTestCallDaemon::buildTemplate);
+    cache.get(QFTestExecuteAction.TYPE, b, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, QFTestCommandWorkerTestCallDaemon::buildTemplate);
+    cache.get(QFTestExecuteAction.TYPE, a, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, QFTestCommandWorkerTestCallDaemon::buildTemplate);
+    //  b is the least recently used one and makes room for c
+    cache.get(QFTestExecuteAction.TYPE, c, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, QFTestCommandWorkerTestCallDaemon::buildTemplate);
+    assertEquals(2, cache.size());
+    assertEquals(3L, cache.getMisses());
+
+    cache.get(QFTestExecuteAction.TYPE, a, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, QFTestCommandWorkerTestCallDaemon::buildTemplate);
+    assertEquals(2L, cache.getHits());
+    cache.get(QFTestExecuteAction.TYPE, b, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, QFTestCommandWorkerTestCallDaemon::buildTemplate);
+    assertEquals(4L, cache.getMisses());
+
+    //  names and values are separated unambiguously
+    List<ActionParameter> shifted = new ArrayList<>();
+    shifted.add(new ActionParameter("daemonport", "1|4:jvm"));
+    List<ActionParameter> split   = new ArrayList<>();
+    split.add(new ActionParameter("daemonport", "1"));
+    split.add(new ActionParameter("jvm", ""));
+    cache.clear();
+    cache.get(QFTestStopAction.TYPE, shifted, Collections.<String>emptySet(), p -> QFTestCommandTemplate.of(QFTestCommandFactory.buildUncachedCommand(QFTestStopAction.TYPE, p)));
+    cache.get(QFTestStopAction.TYPE, split, Collections.<String>emptySet(), p -> QFTestCommandTemplate.of(QFTestCommandFactory.buildUncachedCommand(QFTestStopAction.TYPE, p)));
+    assertEquals(2L, cache.getMisses());
+  }
+
+  @Test
+  public void testConcurrentAccess() throws Exception
+  {
+    final QFTestCommandTemplateCache  cache   = new QFTestCommandTemplateCache(4);
+    final AtomicInteger               wrong   = new AtomicInteger();
+    Thread[]                          threads = new Thread[8];
+    for(int t = 0; t < threads.length; ++t)
+    {
+      final int offset = t;
+      threads[t] = new Thread(() -> {
+        for(int i = 0; i < 2000; ++i)
+        {
+          List<ActionParameter> parameters = createParameters(String.valueOf((offset + i) % 6), "t", null, "user=" + i);
+          List<String>          command    = cache.get(QFTestExecuteAction.TYPE, parameters, QFTestCommandWorkerTestCallDaemon.DYNAMIC_PARAMETERS, QFTestCommandWorkerTestCallDaemon::buildTemplate).fill(parameters);
+          if(!QFTestCommandFactory.buildUncachedCommand(QFTestExecuteAction.TYPE, parameters).equals(command))
+            wrong.incrementAndGet();
+        }
+      });
+      threads[t].start();
+    }
+    for(Thread thread : threads)
+      thread.join();
+
+    assertEquals(0, wrong.get());
+    //  the bound may be exceeded only while a new template is added
+    assertTrue(4 >= cache.size());
+    assertEquals(8L * 2000L, cache.getHits() + cache.getMisses());
+  }
+
+}
@@ -0,0 +1,150 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestCapturePolicy;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestConsoleCapture;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestConsoleSettings;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestStreamPump;
+import com.neotys.extensions.action.ActionParameter;
+
+public class QFTestConsoleCaptureTest
+{
+  @Test
+  public void testHeadAndTail()
+  {
+    QFTestConsoleCapture capture = new QFTestConsoleCapture(3, 4);
+    char[] chars = "abcdefghijklmnop".toCharArray();
+    capture.append(chars, 0, 5);
+    capture.append(chars, 5, chars.length - 5);
+    assertEquals(16L, capture.getTotalLength());
+    assertEquals(9L, capture.getOmittedLength());
+    assertEquals("abc\n[... 9 characters omitted ...]\nmnop", capture.toString());
+  }
+
+  @Test
+  public void testBuffersGrowWithOutput()
+  {
+    QFTestConsoleCapture  capture = new QFTestConsoleCapture(1000, 1000);
+    StringBuilder         output  = new StringBuilder();
+    for(int i = 0; output.length() < 5000; ++i)
+      output.append(i).append(' ');
+    char[] chars = output.toString().toCharArray();
+    for(int offset = 0; offset < chars.length; offset += 7)
+      capture.append(chars, offset, Math.min(7, chars.length - offset));
+
+    long omitted = chars.length - 2000L;
+    assertEquals(omitted, capture.getOmittedLength());
+    assertEquals(output.substring(0, 1000) + "\n[... " + omitted + " characters omitted ...]\n" + output.substring(chars.length - 1000), capture.toString());
+  }
+
+  @Test
+  public void testUnbounded()
+  {
+    QFTestConsoleCapture capture = new QFTestConsoleCapture(-1, 0);
+    char[] chars = "abcdefghijklmnop".toCharArray();
+    capture.append(chars, 0, chars.length);
+    assertEquals("abcdefghijklmnop", capture.toString());
+    assertEquals(0L, capture.getOmittedLength());
+  }
+
+  @Test
+  public void testMultibyteAcrossBlocks() throws InterruptedException
+  {
+    StringBuilder expected = new StringBuilder();
+    for(int i = 0; i < 10000; ++i)
+      expected.append("über€");
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("consolecharset", "UTF-8"));
+    parameters.add(new ActionParameter("consolelimit", "0"));
+    byte[] bytes = expected.toString().getBytes(Charset.forName("UTF-8"));
+    QFTestStreamPump pump = QFTestStreamPump.start(new ByteArrayInputStream(bytes), QFTestConsoleSettings.fromParameters(parameters));
+    assertTrue(pump.await(10000L));
+    assertEquals(expected.toString(), pump.getContent());
+  }
+
+  @Test
+  public void testSettingsFallback()
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("consolecharset", "no-such-charset"));
+    parameters.add(new ActionParameter("consolelimit", "many"));
+    QFTestConsoleSettings settings = QFTestConsoleSettings.fromParameters(parameters);
+    assertEquals(Charset.defaultCharset(), settings.getCharset());
+    assertEquals(QFTestConsoleSettings.DEFAULT_LIMIT_KCHARS, settings.getLimitKChars());
+
+    //  illegal names must not end the action with an exception
+    for(String name : new String[] { "", "UTF 8", "ISO-8859-1,x" })
+    {
+      parameters.set(0, new ActionParameter("consolecharset", name));
+      assertEquals(Charset.defaultCharset(), QFTestConsoleSettings.fromParameters(parameters).getCharset());
+    }
+  }
+
+  @Test
+  public void testTailPolicy()
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("consolecapture", " Tail "));
+    parameters.add(new ActionParameter("consolelimit", "1"));
+    QFTestConsoleSettings settings = QFTestConsoleSettings.fromParameters(parameters);
+    assertEquals(QFTestCapturePolicy.TAIL, settings.getPolicy());
+    QFTestConsoleCapture capture = settings.createCapture();
+    char[] chars = new char[3000];
+    chars[2999] = 'z';
+    capture.append(chars, 0, chars.length);
+    assertEquals(1976L, capture.getOmittedLength());
+    assertTrue(capture.toString().endsWith("z"));
+  }
+
+  @Test
+  public void testPolicyValues()
+  {
+    assertEquals(QFTestCapturePolicy.HEADTAIL, QFTestCapturePolicy.fromValue(null));
+    assertEquals(QFTestCapturePolicy.HEADTAIL, QFTestCapturePolicy.fromValue("unknown"));
+    assertFalse(QFTestCapturePolicy.fromValue("discard").isPumping());
+    assertFalse(QFTestCapturePolicy.fromValue("file").isPumping());
+    assertTrue(QFTestCapturePolicy.fromValue("full").isPumping());
+  }
+
+  @Test
+  public void testFilePerVirtualUser() throws Exception
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("consolecapture", "file"));
+    parameters.add(new ActionParameter("consoledir", Files.createTempDirectory("qftest-console").toString()));
+    parameters.add(new ActionParameter("consolefilesize", "1"));
+    parameters.add(new ActionParameter("consolefiles", "2"));
+    QFTestConsoleSettings settings = QFTestConsoleSettings.fromParameters(parameters);
+    File first  = settings.redirect(new ProcessBuilder("qftestc"), null);
+    File second = settings.redirect(new ProcessBuilder("qftestc"), null);
+    assertEquals("qftest-console-local.log", first.getName());
+    assertEquals(first, second);
+    assertEquals("qftest-console-vu_1.log", settings.redirect(new ProcessBuilder("qftestc"), "vu/1").getName());
+
+    //  a full file is rotated before the next execution, only consolefiles files remain
+    for(int i = 0; i < 3; ++i)
+    {
+      Files.write(first.toPath(), new byte[2048], java.nio.file.StandardOpenOption.APPEND);
+      settings.redirect(new ProcessBuilder("qftestc"), null);
+    }
+    assertTrue(new File(first.getPath() + ".1").isFile());
+    assertFalse(new File(first.getPath() + ".2").exists());
+    assertTrue(1024L > first.length());
+
+    parameters.set(0, new ActionParameter("consolecapture", "discard"));
+    ProcessBuilder builder = new ProcessBuilder("qftestc");
+    assertNull(QFTestConsoleSettings.fromParameters(parameters).redirect(builder, null));
+    assertEquals(ProcessBuilder.Redirect.DISCARD, builder.redirectOutput());
+  }
+
+}
@@ -0,0 +1,114 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonAffinity;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestDaemonAffinityTest
+{
+  private static final QFTestDaemonEndpoint A = new QFTestDaemonEndpoint("localhost", 44301);
+  private static final QFTestDaemonEndpoint B = new QFTestDaemonEndpoint("localhost", 44302);
+  private static final QFTestDaemonEndpoint C = new QFTestDaemonEndpoint("localhost", 44303);
+
+  @Test
+  public void testConsistentAssignment() throws Exception
+  {
+    QFTestDaemonAffinity affinity = new QFTestDaemonAffinity(Arrays.asList(A, B, C));
+    Map<String, QFTestDaemonEndpoint> assigned = new HashMap<>();
+    for(int i = 0; i < 300; ++i)
+      assigned.put("UserPath-" + i, affinity.select("UserPath-" + i, 60000L));
+    for(QFTestDaemonEndpoint endpoint : Arrays.asList(A, B, C))
+      assertTrue(endpoint + " " + affinity.getPinnedCount(endpoint), 50 <= affinity.getPinnedCount(endpoint));
+
+    //  only the users of the lost daemon move
+    int moved = affinity.getPinnedCount(B);
+    affinity.markLost(B);
+    for(Map.Entry<String, QFTestDaemonEndpoint> entry : assigned.entrySet())
+    {
+      QFTestDaemonEndpoint now = affinity.select(entry.getKey(), 60000L);
+      if(B.equals(entry.getValue()))
+        assertFalse(B.equals(now));
+      else
+        assertEquals(entry.getValue(), now);
+    }
+    assertEquals(moved, affinity.getRebalancedCount());
+    assertEquals(0, affinity.getPinnedCount(B));
+
+    //  a returning daemon gets new users, the moved ones stay where they are
+    affinity.select("probe", 0L);
+    assertFalse(affinity.isLost(B));
+    for(Map.Entry<String, QFTestDaemonEndpoint> entry : assigned.entrySet())
+      assertFalse(B.equals(affinity.select(entry.getKey(), 0L)));
+    int newcomers = 0;
+    for(int i = 0; i < 300; ++i)
+      if(B.equals(affinity.select("Late-" + i, 0L)))
+        ++newcomers;
+    assertTrue(0 < newcomers);
+  }
+
+  @Test
+  public void testIdlePinsAreEvicted() throws Exception
+  {
+    QFTestDaemonAffinity affinity = new QFTestDaemonAffinity(Arrays.asList(A, B));
+    QFTestDaemonEndpoint first    = affinity.select("UserPath-1", 60000L);
+    affinity.select("UserPath-2", 60000L);
+    affinity.evictIdle(60000L);
+    assertEquals(2, affinity.getPinnedCount(A) + affinity.getPinnedCount(B));
+
+    Thread.sleep(200L);
+    affinity.select("UserPath-2", 60000L);
+    affinity.evictIdle(100L);
+    assertEquals(1, affinity.getPinnedCount(A) + affinity.getPinnedCount(B));
+
+    //  an evicted user finds its daemon on the ring again
+    assertEquals(first, affinity.select("UserPath-1", 60000L));
+  }
+
+  @Test
+  public void testExecuteStaysOnDaemonUntilLost()
+  {
+    QFTestStandInDaemon a = QFTestStandInDaemon.start(A);
+    QFTestStandInDaemon b = QFTestStandInDaemon.start(B);
+    try
+    {
+      List<ActionParameter> parameters = new ArrayList<>();
+      parameters.add(new ActionParameter("engine", "standin"));
+      parameters.add(new ActionParameter("daemonpool", "44301-44302"));
+      parameters.add(new ActionParameter("daemonlimit", "4"));
+      parameters.add(new ActionParameter("daemonaffinity", "vu"));
+      parameters.add(new ActionParameter("testcase", "suite.qft#case"));
+      for(int i = 0; i < 4; ++i)
+        assertEquals("0", new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters)).getStatusCode());
+      assertTrue((4L == a.getRunCount()) ^ (4L == b.getRunCount()));
+
+      QFTestStandInDaemon pinned = (4L == a.getRunCount()) ? a : b;
+      QFTestStandInDaemon other  = (pinned == a) ? b : a;
+      pinned.stop();
+      SampleResult lost = new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters));
+      assertTrue(lost.isError());
+      SampleResult moved = new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters));
+      assertEquals("0", moved.getStatusCode());
+      assertTrue(moved.getResponseContent().contains("<daemon>" + other.getEndpoint() + "</daemon>"));
+      assertEquals(1L, other.getRunCount());
+    }
+    finally
+    {
+      a.stop();
+      b.stop();
+    }
+  }
+
+}
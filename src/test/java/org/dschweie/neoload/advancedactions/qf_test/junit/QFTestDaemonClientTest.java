@@ -0,0 +1,120 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+import static org.dschweie.neoload.advancedactions.qf_test.junit.QFTestDaemonFixture.freePort;
+import static org.dschweie.neoload.advancedactions.qf_test.junit.QFTestDaemonFixture.parameters;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClientFactory;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestPingActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStopActionEngine;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestDaemonClientTest
+{
+  private QFTestDaemonEndpoint endpoint;
+  private String               port;
+  private QFTestStandInDaemon  daemon;
+
+  @Before
+  public void setUp() throws Exception
+  {
+    this.endpoint = new QFTestDaemonEndpoint("localhost", freePort());
+    this.port     = String.valueOf(this.endpoint.getPort());
+    this.daemon   = QFTestStandInDaemon.start(this.endpoint);
+  }
+
+  @After
+  public void tearDown()
+  {
+    this.daemon.stop();
+  }
+
+  @Test
+  public void testEndpoint()
+  {
+    assertEquals(new QFTestDaemonEndpoint("LOCALHOST", 3543), QFTestDaemonEndpoint.valueOf("localhost"));
+    assertEquals("qfhost:4711", QFTestDaemonEndpoint.valueOf(" qfhost:4711 ").toString());
+  }
+
+  @Test
+  public void testStandInNeedsSwitch()
+  {
+    String previous = System.clearProperty(QFTestDaemonClientFactory.STANDIN_SWITCH);
+    try
+    {
+      assertEquals(QFTestDaemonClientFactory.ENGINE_PROCESS, QFTestDaemonClientFactory.getEngine(parameters("engine", "standin", "daemonport", this.port)));
+      System.setProperty(QFTestDaemonClientFactory.STANDIN_SWITCH, "true");
+      assertEquals(QFTestDaemonClientFactory.ENGINE_STANDIN, QFTestDaemonClientFactory.getEngine(parameters("engine", "standin", "daemonport", this.port)));
+    }
+    finally
+    {
+      if(null == previous)
+        System.clearProperty(QFTestDaemonClientFactory.STANDIN_SWITCH);
+      else
+        System.setProperty(QFTestDaemonClientFactory.STANDIN_SWITCH, previous);
+    }
+  }
+
+  @Test
+  public void testPing()
+  {
+    SampleResult result = new QFTestPingActionEngine().execute(null, parameters("engine", "standin", "daemonport", this.port));
+    assertFalse(result.isError());
+    assertEquals("0", result.getStatusCode());
+    assertTrue(result.getResponseContent().contains("<daemon>" + this.endpoint + "</daemon>"));
+  }
+
+  @Test
+  public void testPingWithoutDaemon()
+  {
+    this.daemon.stop();
+    SampleResult result = new QFTestPingActionEngine().execute(null, parameters("engine", "standin", "daemonport", this.port));
+    assertTrue(result.isError());
+    assertEquals("QFTestDaemonException", result.getStatusCode());
+  }
+
+  @Test
+  public void testExecute()
+  {
+    this.daemon.setExitCode("suite.qft#warning", 1);
+    SampleResult ok = new QFTestExecuteActionEngine().execute(null, parameters("engine", "standin", "daemonport", this.port, "testcase", "suite.qft#ok"));
+    assertEquals("0", ok.getStatusCode());
+    assertTrue(ok.getRequestContent().endsWith("suite.qft#ok"));
+
+    SampleResult warning = new QFTestExecuteActionEngine().execute(null, parameters("engine", "standin", "daemonport", this.port, "testcase", "suite.qft#warning"));
+    assertTrue(warning.isError());
+    assertEquals("1", warning.getStatusCode());
+
+    SampleResult ignored = new QFTestExecuteActionEngine().execute(null, parameters("engine", "standin", "daemonport", this.port, "testcase", "suite.qft#warning", "exitcodeignore", "warning"));
+    assertFalse(ignored.isError());
+    assertEquals(3L, this.daemon.getRunCount());
+  }
+
+  @Test
+  public void testExecuteTimeout()
+  {
+    this.daemon.setLatency(5000L);
+    long start = System.currentTimeMillis();
+    SampleResult result = new QFTestExecuteActionEngine().execute(null, parameters("engine", "standin", "daemonport", this.port, "testcase", "suite.qft#slow", "timeout", "200"));
+    assertEquals(AbstractQFTestActionEngine.STATUS_TIMEOUT, result.getStatusCode());
+    assertTrue(2000L > System.currentTimeMillis() - start);
+  }
+
+  @Test
+  public void testStop()
+  {
+    SampleResult result = new QFTestStopActionEngine().execute(null, parameters("engine", "standin", "daemonport", this.port));
+    assertEquals("0", result.getStatusCode());
+    assertFalse(this.daemon.isRunning());
+    assertNull(QFTestStandInDaemon.get(this.endpoint));
+  }
+
+}
@@ -0,0 +1,145 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+import static org.dschweie.neoload.advancedactions.qf_test.junit.QFTestDaemonFixture.freePort;
+import static org.dschweie.neoload.advancedactions.qf_test.junit.QFTestDaemonFixture.parameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonDispatcher;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonException;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestDaemonDispatcherTest
+{
+  @Test
+  public void testParse()
+  {
+    List<QFTestDaemonEndpoint> endpoints = QFTestDaemonDispatcher.parse("qfhost:4711-4713, other:3543; 5000 4711", "localhost");
+    assertEquals(Arrays.asList(new QFTestDaemonEndpoint("qfhost", 4711), new QFTestDaemonEndpoint("qfhost", 4712),
+                               new QFTestDaemonEndpoint("qfhost", 4713), new QFTestDaemonEndpoint("other", 3543),
+                               new QFTestDaemonEndpoint("localhost", 5000), new QFTestDaemonEndpoint("localhost", 4711)),
+                 endpoints);
+    assertEquals(Arrays.asList(new QFTestDaemonEndpoint("qfhost", 3543)), QFTestDaemonDispatcher.parse("qfhost", "localhost"));
+    try
+    {
+      QFTestDaemonDispatcher.parse("localhost:4713-4711", "localhost");
+      fail("empty range accepted");
+    }
+    catch (NumberFormatException e)
+    { //  expected
+    }
+  }
+
+  @Test
+  public void testLeastLoadedWithLimit() throws Exception
+  {
+    String                 pool       = freePort() + "," + freePort() + "," + freePort();
+    QFTestDaemonDispatcher dispatcher = QFTestDaemonDispatcher.fromParameters(parameters("daemonpool", pool, "daemonlimit", "2"));
+    assertSame(dispatcher, QFTestDaemonDispatcher.fromParameters(parameters("daemonpool", pool, "daemonlimit", "2")));
+
+    List<QFTestDaemonDispatcher.Lease> leases = new ArrayList<>();
+    Set<QFTestDaemonEndpoint> first = new HashSet<>();
+    for(int i = 0; i < 3; ++i)
+    {
+      leases.add(dispatcher.acquire(100L));
+      first.add(leases.get(i).getEndpoint());
+      assertEquals(1, leases.get(i).getInFlight());
+    }
+    assertEquals(3, first.size());
+    for(int i = 0; i < 3; ++i)
+      leases.add(dispatcher.acquire(100L));
+    for(QFTestDaemonEndpoint endpoint : first)
+      assertEquals(2, dispatcher.getInFlight(endpoint));
+
+    try
+    {
+      dispatcher.acquire(100L);
+      fail("limit exceeded");
+    }
+    catch (QFTestDaemonException e)
+    {
+      assertTrue(e.getMessage().contains("100 ms"));
+    }
+
+    //  a waiting call gets the daemon that becomes free
+    QFTestDaemonDispatcher.Lease freed = leases.remove(0);
+    CompletableFuture<QFTestDaemonDispatcher.Lease> waiting = CompletableFuture.supplyAsync(() ->
+    {
+      try
+      {
+        return dispatcher.acquire(5000L);
+      }
+      catch (QFTestDaemonException | InterruptedException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    });
+    Thread.sleep(200L);
+    freed.close();
+    freed.close();
+    QFTestDaemonDispatcher.Lease queued = waiting.get();
+    assertEquals(freed.getEndpoint(), queued.getEndpoint());
+    assertTrue(150L <= queued.getQueueMillis());
+    assertEquals(2, dispatcher.getInFlight(freed.getEndpoint()));
+    assertEquals(2L, dispatcher.getQueuedCount());
+
+    queued.close();
+    for(QFTestDaemonDispatcher.Lease lease : leases)
+      lease.close();
+    for(QFTestDaemonEndpoint endpoint : first)
+      assertEquals(0, dispatcher.getInFlight(endpoint));
+  }
+
+  @Test
+  public void testExecuteSpreadsOverDaemons() throws Exception
+  {
+    QFTestStandInDaemon a = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", freePort()));
+    QFTestStandInDaemon b = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", freePort()));
+    ExecutorService     vus = Executors.newFixedThreadPool(4);
+    try
+    {
+      a.setLatency(300L);
+      b.setLatency(300L);
+      List<ActionParameter> parameters = parameters("engine", "standin", "daemonpool", a.getEndpoint() + "," + b.getEndpoint(), "testcase", "suite.qft#case");
+      List<CompletableFuture<SampleResult>> runs = new ArrayList<>();
+      for(int i = 0; i < 4; ++i)
+        runs.add(CompletableFuture.supplyAsync(() -> new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters)), vus));
+      long queued = 0L;
+      for(CompletableFuture<SampleResult> run : runs)
+      {
+        SampleResult result = run.get();
+        assertEquals("0", result.getStatusCode());
+        assertTrue(result.getResponseContent().contains("<dispatch>"));
+        assertTrue(result.getResponseContent().contains("<inflight>1</inflight>"));
+        if(!result.getResponseContent().contains("<queuewait>0</queuewait>"))
+          ++queued;
+      }
+      assertEquals(2L, a.getRunCount());
+      assertEquals(2L, b.getRunCount());
+      assertEquals(1, a.getPeakConcurrency());
+      assertEquals(1, b.getPeakConcurrency());
+      assertTrue(0L < queued);
+    }
+    finally
+    {
+      vus.shutdown();
+      a.stop();
+      b.stop();
+    }
+  }
+
+}
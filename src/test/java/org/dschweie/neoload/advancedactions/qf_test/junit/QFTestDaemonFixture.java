@@ -0,0 +1,125 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief    Hilfsprogramm für Tests, das sich wie \c qftest.exe \c -batch \c -daemon verhält
+ *
+ *  Das Programm wartet kurz, startet dann einen QFTestStandInDaemon auf dem
+ *  Port aus \c -daemonport , meldet dies auf der Standardausgabe und läuft,
+ *  bis es beendet wird.
+ *
+ *  Über QFTestDaemonFixture.install(File) wird in einem Verzeichnis ein
+ *  Skript \c qftest.exe angelegt, das dieses Programm aufruft. Das
+ *  Verzeichnis kann dann als ActionParameter \c qftestPath verwendet werden.
+ *
+ *  Das ebenfalls angelegte \c qftestc.exe verhält sich bei \c -calldaemon
+ *  wie ein Aufruf, der den Testfall ausführt: Es wartet CALL_MILLIS und
+ *  endet mit \c 1 , wenn der Testfall \c warn enthält, sonst mit \c 0 .
+ *
+ *  Daneben bietet die Klasse den Tests mit Daemon ActionParameter und freie
+ *  Ports an.
+ */
+public class QFTestDaemonFixture
+{
+  public static final long STARTUP_MILLIS = 500L;
+  public static final long CALL_MILLIS    = 100L;
+
+  /**
+   *  \brief    Methode legt ActionParameter aus abwechselnd Name und Wert an
+   */
+  public static List<ActionParameter> parameters(String... pairs)
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    for(int i = 0; i < pairs.length; i += 2)
+      parameters.add(new ActionParameter(pairs[i], pairs[i + 1]));
+    return parameters;
+  }
+
+  /**
+   *  \brief    Methode liefert einen Port, den das Betriebssystem gerade frei gemeldet hat
+   */
+  public static int freePort() throws IOException
+  {
+    try (ServerSocket socket = new ServerSocket(0))
+    {
+      return socket.getLocalPort();
+    }
+  }
+
+  /**
+   *  \brief    Methode legt das Skript \c qftest.exe an
+   *
+   *  @return   Die Methode liefert \c false auf Windows, da dort kein Skript
+   *            unter diesem Namen ausgeführt werden kann.
+   */
+  public static boolean install(File directory) throws IOException
+  {
+    if(System.getProperty("os.name").toLowerCase().startsWith("windows"))
+      return false;
+    String content = "#!/bin/sh\nexec '" + ProcessHandle.current().info().command().orElse("java") + "' -cp '"
+                     + System.getProperty("java.class.path") + "' " + QFTestDaemonFixture.class.getName() + " \"$@\"\n";
+    boolean executable = true;
+    for(String name : new String[] { "qftest.exe", "qftestc.exe" })
+    {
+      File script = new File(directory, name);
+      Files.write(script.toPath(), content.getBytes(StandardCharsets.UTF_8));
+      executable &= script.setExecutable(true);
+    }
+    return executable;
+  }
+
+  /**
+   *  \brief    Methode schreibt ein Protokoll mit einem Testfall über CALL_MILLIS
+   */
+  private static void writeRunLog(File file, String testcase) throws IOException
+  {
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file)))
+    {
+      out.write(("<RunLog><TestCase name=\"" + testcase + "\" realtime=\"" + CALL_MILLIS + "\"/></RunLog>").getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    if(java.util.Arrays.asList(args).contains("-calldaemon"))
+    {
+      String testcase = args[args.length - 1];
+      System.out.println("QF-Test running " + testcase);
+      System.out.flush();
+      Thread.sleep(CALL_MILLIS);
+      int runlog = java.util.Arrays.asList(args).indexOf("-runlog");
+      if(0 <= runlog)
+        writeRunLog(new File(args[runlog + 1].endsWith(".qrz") ? args[runlog + 1] : args[runlog + 1] + ".qrz"), testcase);
+      System.out.println("QF-Test finished " + testcase);
+      System.out.flush();
+      System.exit(testcase.contains("warn") ? 1 : 0);
+    }
+
+    int port = 3543;
+    for(int i = 0; i < args.length - 1; ++i)
+      if("-daemonport".equals(args[i]))
+        port = Integer.parseInt(args[i + 1]);
+
+    System.out.println("QF-Test starting");
+    System.out.flush();
+    Thread.sleep(STARTUP_MILLIS);
+    QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", port));
+    System.out.println("QF-Test daemon listening on port " + port);
+    System.out.flush();
+    Thread.sleep(Long.MAX_VALUE);
+  }
+}
@@ -0,0 +1,96 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestOutputDrainer;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestRotatingLog;
+import com.neotys.extensions.action.ActionParameter;
+
+public class QFTestDaemonLogTest
+{
+  /**
+   *  \brief    Hilfsprogramm, das die übergebene Anzahl Zeilen ausgibt
+   */
+  public static void main(String[] args)
+  {
+    int count = Integer.parseInt(args[0]);
+    for(int i = 1; i <= count; ++i)
+      System.out.println("daemon output line " + i);
+  }
+
+  @Test
+  public void testRotation() throws Exception
+  {
+    File directory = Files.createTempDirectory("qftest-log").toFile();
+    File file = new File(directory, "daemon.log");
+    QFTestRotatingLog log = new QFTestRotatingLog(file, 100L, 3);
+    for(int i = 0; i < 100; ++i)
+      log.append("0123456789");
+    log.close();
+
+    assertTrue(file.isFile());
+    assertTrue(new File(directory, "daemon.log.1").isFile());
+    assertTrue(new File(directory, "daemon.log.2").isFile());
+    assertFalse(new File(directory, "daemon.log.3").exists());
+    assertTrue(200L > file.length());
+  }
+
+  @Test
+  public void testFromParameters() throws Exception
+  {
+    QFTestDaemonEndpoint  endpoint    = new QFTestDaemonEndpoint("localhost", 3543);
+    List<ActionParameter> parameters  = new ArrayList<>();
+    parameters.add(new ActionParameter("daemonlogsize", "-1"));
+    assertNull(QFTestRotatingLog.fromParameters(endpoint, parameters));
+
+    //  an invalid value falls back to its own default only
+    File directory = Files.createTempDirectory("qftest-log").toFile();
+    parameters.clear();
+    parameters.add(new ActionParameter("daemonlogdir", directory.getPath()));
+    parameters.add(new ActionParameter("daemonlogsize", "1"));
+    parameters.add(new ActionParameter("daemonlogfiles", "many"));
+    QFTestRotatingLog log = QFTestRotatingLog.fromParameters(endpoint, parameters);
+    for(int i = 0; i < 400; ++i)
+      log.append("0123456789");
+    log.close();
+    assertTrue(new File(log.getFile().getPath() + ".1").isFile());
+    assertTrue(new File(log.getFile().getPath() + "." + (QFTestRotatingLog.DEFAULT_FILES - 1)).isFile());
+    assertFalse(new File(log.getFile().getPath() + "." + QFTestRotatingLog.DEFAULT_FILES).exists());
+  }
+
+  @Test
+  public void testDrainerKeepsTail() throws Exception
+  {
+    File directory = Files.createTempDirectory("qftest-log").toFile();
+    File file = new File(directory, "daemon.log");
+    List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(QFTestDaemonLogTest.class.getName());
+    command.add("5000");
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    QFTestOutputDrainer drainer = QFTestOutputDrainer.start(process, StandardCharsets.UTF_8, null, new QFTestRotatingLog(file, 0L, 1), 3);
+    assertEquals(0, process.waitFor());
+    for(int i = 0; (i < 100) && !drainer.isFinished(); ++i)
+      Thread.sleep(50L);
+
+    assertEquals(5000L, drainer.getLineCount());
+    List<String> tail = drainer.getTail();
+    assertEquals(3, tail.size());
+    assertEquals("daemon output line 4998", tail.get(0));
+    assertEquals("daemon output line 5000", tail.get(2));
+    assertEquals(5000, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+  }
+
+}
@@ -0,0 +1,87 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonException;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestPingActionEngine;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestDaemonProbeTest
+{
+  @Test
+  public void testHandshakeWithStandIn() throws QFTestDaemonException
+  {
+    QFTestDaemonEndpoint endpoint = new QFTestDaemonEndpoint("localhost", 43701);
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(endpoint);
+    try
+    {
+      long nanos = QFTestDaemonProbe.probe(endpoint, 1000, true);
+      assertTrue(TimeUnit.SECONDS.toNanos(1L) > nanos);
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void testSilentPortFailsHandshake() throws Exception
+  {
+    try (ServerSocket silent = new ServerSocket(0))
+    {
+      QFTestDaemonEndpoint endpoint = new QFTestDaemonEndpoint("localhost", silent.getLocalPort());
+      //  the port accepts connections, but does not speak JRMP
+      QFTestDaemonProbe.probe(endpoint, 1000, false);
+      try
+      {
+        QFTestDaemonProbe.probe(endpoint, 200, true);
+        fail("handshake without answer accepted");
+      }
+      catch (QFTestDaemonException e)
+      {
+        assertTrue(e.getMessage().contains("200 ms"));
+      }
+    }
+  }
+
+  @Test(expected = QFTestDaemonException.class)
+  public void testClosedPort() throws QFTestDaemonException
+  {
+    QFTestDaemonProbe.probe(new QFTestDaemonEndpoint("localhost", 43702), 1000, true);
+  }
+
+  @Test
+  public void testPingModes()
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    assertFalse(QFTestDaemonProbe.isDeep(parameters));
+    assertTrue(QFTestDaemonProbe.isHandshakePossible(parameters));
+    parameters.add(new ActionParameter("pingmode", "Deep"));
+    parameters.add(new ActionParameter("keystore", "/etc/qftest/daemon.keystore"));
+    assertTrue(QFTestDaemonProbe.isDeep(parameters));
+    assertFalse(QFTestDaemonProbe.isHandshakePossible(parameters));
+  }
+
+  @Test
+  public void testPingActionUsesProbe()
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("daemonport", "43702"));
+    parameters.add(new ActionParameter("qftestPath", "/no/such/qftest/dir/"));
+    SampleResult result = new QFTestPingActionEngine().execute(null, parameters);
+    assertTrue(result.isError());
+    assertEquals("jrmp://localhost:43702", result.getRequestContent());
+  }
+
+}
@@ -0,0 +1,173 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonClient;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonException;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonSessionPool;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestDaemonSessionPoolTest
+{
+  private static List<ActionParameter> parameters(int port, String... pairs)
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("engine", "standin"));
+    parameters.add(new ActionParameter("daemonport", String.valueOf(port)));
+    for(int i = 0; i < pairs.length; i += 2)
+      parameters.add(new ActionParameter(pairs[i], pairs[i + 1]));
+    return parameters;
+  }
+
+  @Test
+  public void testSessionIsReused()
+  {
+    QFTestDaemonEndpoint endpoint = new QFTestDaemonEndpoint("localhost", 43601);
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(endpoint);
+    try
+    {
+      QFTestExecuteActionEngine engine = new QFTestExecuteActionEngine();
+      for(int i = 0; i < 20; ++i)
+      {
+        SampleResult result = engine.execute(null, parameters(endpoint.getPort(), "testcase", "suite.qft#tc"));
+        assertEquals("0", result.getStatusCode());
+      }
+      QFTestDaemonSessionPool pool = QFTestDaemonSessionPool.get(endpoint, parameters(endpoint.getPort()));
+      assertEquals(1L, pool.getCreatedCount());
+      assertEquals(20L, pool.getBorrowCount());
+      assertEquals(0, pool.getActiveCount());
+      assertEquals(1, pool.getIdleCount());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void testInvalidSessionIsReplaced() throws QFTestDaemonException
+  {
+    QFTestDaemonEndpoint endpoint = new QFTestDaemonEndpoint("localhost", 43602);
+    QFTestDaemonSessionPool pool = QFTestDaemonSessionPool.get(endpoint, parameters(endpoint.getPort()));
+    QFTestStandInDaemon.start(endpoint);
+    pool.borrow().close();
+
+    //  the restarted daemon does not know the pooled session anymore
+    QFTestStandInDaemon.get(endpoint).stop();
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(endpoint);
+    try
+    {
+      QFTestDaemonClient client = pool.borrow();
+      assertTrue(client.ping(1000L));
+      client.close();
+      assertEquals(1L, pool.getValidationFailureCount());
+      assertEquals(2L, pool.getCreatedCount());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void testMaxSize() throws QFTestDaemonException
+  {
+    QFTestDaemonEndpoint endpoint = new QFTestDaemonEndpoint("localhost", 43603);
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(endpoint);
+    QFTestDaemonSessionPool pool = QFTestDaemonSessionPool.get(endpoint, parameters(endpoint.getPort(), "poolsize", "2", "poolwait", "100"));
+    try
+    {
+      QFTestDaemonClient first  = pool.borrow();
+      QFTestDaemonClient second = pool.borrow();
+      try
+      {
+        pool.borrow();
+        fail("pool exceeded its size");
+      }
+      catch (QFTestDaemonException e)
+      {
+        assertEquals(2, pool.getActiveCount());
+      }
+      first.close();
+      pool.borrow().close();
+      second.close();
+      assertEquals(2L, pool.getCreatedCount());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void testIdleEviction() throws Exception
+  {
+    QFTestDaemonEndpoint endpoint = new QFTestDaemonEndpoint("localhost", 43604);
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(endpoint);
+    QFTestDaemonSessionPool pool = QFTestDaemonSessionPool.get(endpoint, parameters(endpoint.getPort(), "poolidle", "50"));
+    try
+    {
+      pool.borrow().close();
+      assertEquals(1, pool.getIdleCount());
+      Thread.sleep(100L);
+      pool.evictIdle();
+      assertEquals(0, pool.getIdleCount());
+      assertEquals(1L, pool.getEvictedCount());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void testZeroWaitMeansWithoutLimit() throws Exception
+  {
+    QFTestDaemonEndpoint endpoint = new QFTestDaemonEndpoint("localhost", 43605);
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(endpoint);
+    try
+    {
+      QFTestDaemonSessionPool pool  = QFTestDaemonSessionPool.get(endpoint, parameters(endpoint.getPort(), "poolsize", "1", "poolwait", "0"));
+      QFTestDaemonClient      first = pool.borrow();
+      CompletableFuture<QFTestDaemonClient> second = CompletableFuture.supplyAsync(() ->
+      {
+        try
+        {
+          return pool.borrow();
+        }
+        catch (QFTestDaemonException e)
+        {
+          throw new IllegalStateException(e);
+        }
+      });
+      //  the second borrower waits instead of failing immediately
+      try
+      {
+        second.get(300L, TimeUnit.MILLISECONDS);
+        fail("second session borrowed although the pool is exhausted");
+      }
+      catch (TimeoutException e)
+      {
+      }
+      first.close();
+      second.get(5L, TimeUnit.SECONDS).close();
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestDaemonStatistics;
+import com.neotys.extensions.action.ActionParameter;
+
+public class QFTestDaemonStatisticsTest
+{
+  @Test
+  public void testDaemonBean() throws Exception
+  {
+    QFTestDaemonEndpoint  endpoint  = new QFTestDaemonEndpoint("localhost", 44901);
+    QFTestStandInDaemon   daemon    = QFTestStandInDaemon.start(endpoint);
+    MBeanServer           server    = ManagementFactory.getPlatformMBeanServer();
+    try
+    {
+      daemon.setLatency(300L);
+      final List<ActionParameter> parameters = new ArrayList<>();
+      parameters.add(new ActionParameter("engine", "standin"));
+      parameters.add(new ActionParameter("daemonport", "44901"));
+      parameters.add(new ActionParameter("testcase", "suite.qft#case"));
+      parameters.add(new ActionParameter("phases", "false"));
+
+      final CountDownLatch done = new CountDownLatch(1);
+      new Thread(() -> {
+        new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters));
+        done.countDown();
+      }).start();
+      QFTestDaemonStatistics statistics = QFTestDaemonStatistics.get(endpoint.toString());
+      for(int i = 0; (i < 100) && (0 == statistics.getInFlight()); ++i)
+        Thread.sleep(10L);
+
+      ObjectName name = QFTestDaemonStatistics.getObjectName("Daemon", endpoint.toString());
+      assertTrue(server.isRegistered(name));
+      assertEquals(1, server.getAttribute(name, "InFlight"));
+      assertEquals("UNKNOWN", server.getAttribute(name, "State"));
+      done.await();
+      assertEquals(0, server.getAttribute(name, "InFlight"));
+      assertEquals(1L, server.getAttribute(name, "ExecutionCount"));
+      assertEquals(0L, server.getAttribute(name, "FailureCount"));
+      assertTrue(290L <= (Long) server.getAttribute(name, "ExecuteP99Millis"));
+
+      QFTestDaemonProbe.probe(endpoint, 1000, false);
+      assertEquals("REACHABLE", server.getAttribute(name, "State"));
+      assertTrue(0.0 <= (Double) server.getAttribute(name, "LastPingMillis"));
+
+      ObjectName engine = QFTestDaemonStatistics.getObjectName("Engine", "Execute");
+      assertTrue(server.isRegistered(engine));
+      assertTrue(1L <= (Long) server.getAttribute(engine, "CallCount"));
+    }
+    finally
+    {
+      daemon.stop();
+    }
+
+    try
+    {
+      QFTestDaemonProbe.probe(endpoint, 500, false);
+      fail("the daemon is stopped");
+    }
+    catch (Exception e)
+    {
+      assertEquals("UNREACHABLE", QFTestDaemonStatistics.get(endpoint.toString()).getState());
+      assertEquals(-1.0, QFTestDaemonStatistics.get(endpoint.toString()).getLastPingMillis(), 0.0);
+    }
+  }
+
+}
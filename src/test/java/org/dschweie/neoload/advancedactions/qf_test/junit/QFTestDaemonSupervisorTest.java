@@ -0,0 +1,112 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStartActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestDaemonSupervisor;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestDaemonSupervisorTest
+{
+  private static List<ActionParameter> parameters(File qftest, int port, int restartmax) throws Exception
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("qftestPath", qftest.getAbsolutePath() + File.separator));
+    parameters.add(new ActionParameter("daemonlockdir", Files.createTempDirectory("qftest-lock").toFile().getAbsolutePath()));
+    parameters.add(new ActionParameter("daemonport", String.valueOf(port)));
+    parameters.add(new ActionParameter("readydelay", "0"));
+    parameters.add(new ActionParameter("readyinterval", "50"));
+    parameters.add(new ActionParameter("restartmax", String.valueOf(restartmax)));
+    parameters.add(new ActionParameter("killgrace", "500"));
+    return parameters;
+  }
+
+  private static QFTestDaemonSupervisor.State awaitRestart(QFTestDaemonSupervisor supervisor, long restarts) throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + 20000L;
+    while((supervisor.getRestartCount() < restarts) && (System.currentTimeMillis() < deadline))
+      Thread.sleep(20L);
+    return supervisor.awaitAvailable(20000L);
+  }
+
+  @Test
+  public void testRestartAfterCrash() throws Exception
+  {
+    File qftest = Files.createTempDirectory("qftest-fake").toFile();
+    if(!QFTestDaemonFixture.install(qftest))
+      return;
+
+    QFTestDaemonEndpoint    endpoint  = new QFTestDaemonEndpoint("localhost", 44001);
+    QFTestStartActionEngine engine    = new QFTestStartActionEngine();
+    try
+    {
+      assertEquals("0", engine.execute(null, parameters(qftest, 44001, 5)).getStatusCode());
+      QFTestDaemonSupervisor supervisor = QFTestDaemonSupervisor.get(endpoint);
+      assertNotNull(supervisor);
+      Process crashed = supervisor.getProcess();
+      crashed.destroyForcibly().waitFor();
+
+      assertEquals(QFTestDaemonSupervisor.State.RUNNING, awaitRestart(supervisor, 1L));
+      assertEquals(1L, supervisor.getRestartCount());
+      assertNotSame(crashed, supervisor.getProcess());
+      assertTrue(supervisor.getProcess().isAlive());
+      QFTestDaemonProbe.probe(endpoint, 1000, true);
+    }
+    finally
+    {
+      engine.stopExecute();
+    }
+    assertNull(QFTestDaemonSupervisor.get(endpoint));
+  }
+
+  @Test
+  public void testCrashLoopFailsFast() throws Exception
+  {
+    File qftest = Files.createTempDirectory("qftest-fake").toFile();
+    if(!QFTestDaemonFixture.install(qftest))
+      return;
+
+    List<ActionParameter>   parameters  = parameters(qftest, 44002, 1);
+    QFTestDaemonEndpoint    endpoint    = new QFTestDaemonEndpoint("localhost", 44002);
+    QFTestStartActionEngine engine      = new QFTestStartActionEngine();
+    try
+    {
+      assertEquals("0", engine.execute(null, parameters).getStatusCode());
+      QFTestDaemonSupervisor supervisor = QFTestDaemonSupervisor.get(endpoint);
+      supervisor.getProcess().destroyForcibly().waitFor();
+      assertEquals(QFTestDaemonSupervisor.State.RUNNING, awaitRestart(supervisor, 1L));
+
+      //  the second crash within the window exceeds restartmax
+      supervisor.getProcess().destroyForcibly().waitFor();
+      long deadline = System.currentTimeMillis() + 5000L;
+      while((QFTestDaemonSupervisor.State.FAILED != supervisor.getState()) && (System.currentTimeMillis() < deadline))
+        Thread.sleep(20L);
+      assertEquals(QFTestDaemonSupervisor.State.FAILED, supervisor.getState());
+
+      List<ActionParameter> execute = new ArrayList<>(parameters);
+      execute.add(new ActionParameter("testcase", "suite.qft#case"));
+      execute.add(new ActionParameter("restartwait", "0"));
+      long start = System.nanoTime();
+      SampleResult result = new QFTestExecuteActionEngine().execute(null, execute);
+      assertTrue(result.isError());
+      assertEquals("QFT-DAEMON-FAILED", result.getStatusCode());
+      assertTrue(1000L > (System.nanoTime() - start) / 1000000L);
+    }
+    finally
+    {
+      engine.stopExecute();
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+import static org.dschweie.neoload.advancedactions.qf_test.junit.QFTestDaemonFixture.parameters;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestExecuteBatchTest
+{
+  private String              port;
+  private QFTestStandInDaemon daemon;
+
+  @Before
+  public void setUp() throws Exception
+  {
+    this.port   = String.valueOf(QFTestDaemonFixture.freePort());
+    this.daemon = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", Integer.parseInt(this.port)));
+    this.daemon.setLatency(50L);
+    this.daemon.setExitCode("suite.qft#warn", 1);
+  }
+
+  @After
+  public void tearDown()
+  {
+    this.daemon.stop();
+  }
+
+  @Test
+  public void testBatchInOneSession()
+  {
+    SampleResult result = new QFTestExecuteActionEngine().execute(null, parameters("daemonport", this.port, "engine", "standin",
+                                                                                   "testcase", "suite.qft#a; suite.qft#warn\nsuite.qft#b"));
+    assertEquals("1", result.getStatusCode());
+    assertEquals(3, result.getSubResults().size());
+    assertEquals("0", result.getSubResults().get(0).getStatusCode());
+    assertEquals("1", result.getSubResults().get(1).getStatusCode());
+    assertEquals("suite.qft#b", result.getSubResults().get(2).getRequestContent());
+    for(SampleResult testcase : result.getSubResults())
+      assertTrue(40L <= testcase.getDuration());
+    assertTrue(result.getResponseContent().contains("<name>suite.qft#warn</name>\n<exitcode>1</exitcode>"));
+    assertTrue(result.getResponseContent().contains("<source>client</source>"));
+    assertEquals(3L, this.daemon.getRunCount());
+
+    SampleResult ignored = new QFTestExecuteActionEngine().execute(null, parameters("daemonport", this.port, "engine", "standin", "exitcodeignore", "warning",
+                                                                                    "testcase", "suite.qft#warn", "testcase", "suite.qft#b"));
+    assertEquals("0", ignored.getStatusCode());
+    assertEquals(2, ignored.getSubResults().size());
+  }
+
+  @Test
+  public void testBatchSharesTimeout()
+  {
+    this.daemon.setLatency(300L);
+    SampleResult result = new QFTestExecuteActionEngine().execute(null, parameters("daemonport", this.port, "engine", "standin", "timeout", "500",
+                                                                                   "testcase", "suite.qft#a;suite.qft#b;suite.qft#c"));
+    assertEquals(AbstractQFTestActionEngine.STATUS_TIMEOUT, result.getStatusCode());
+    assertEquals(2, result.getSubResults().size());
+    assertEquals(AbstractQFTestActionEngine.STATUS_TIMEOUT, result.getSubResults().get(1).getStatusCode());
+  }
+
+  @Test
+  public void testBatchTimesFromRunLog() throws Exception
+  {
+    File runlog = new File(Files.createTempDirectory("qftest-runlog").toFile(), "batch.qrl");
+    this.daemon.setRunLog(runlog, 7L);
+    SampleResult result = new QFTestExecuteActionEngine().execute(null, parameters("daemonport", this.port, "engine", "standin", "runlog", runlog.getPath(),
+                                                                                   "testcase", "suite.qft#a;suite.qft#b"));
+    assertEquals("0", result.getStatusCode());
+    assertEquals(2, result.getSubResults().size());
+    for(SampleResult testcase : result.getSubResults())
+    {
+      assertEquals(7L, testcase.getDuration());
+      assertTrue(testcase.getResponseContent().contains("<source>runlog</source>"));
+    }
+  }
+
+  @Test
+  public void testBatchOverQftestc() throws Exception
+  {
+    File qftest = Files.createTempDirectory("qftest-fake").toFile();
+    if(!QFTestDaemonFixture.install(qftest))
+      return;
+
+    SampleResult result = new QFTestExecuteActionEngine().execute(null, parameters("daemonport", this.port, "qftestPath", qftest.getAbsolutePath() + File.separator,
+                                                                                   "testcase", "suite.qft#a;suite.qft#warn"));
+    assertEquals("1", result.getStatusCode());
+    assertEquals(2, result.getSubResults().size());
+    assertEquals("0", result.getSubResults().get(0).getStatusCode());
+    assertTrue(result.getSubResults().get(0).getRequestContent().endsWith("suite.qft#a"));
+    assertTrue(result.getSubResults().get(1).getResponseContent().contains("QF-Test running suite.qft#warn"));
+    assertTrue(result.getResponseContent().contains("<name>suite.qft#warn</name>\n<exitcode>1</exitcode>"));
+  }
+
+}
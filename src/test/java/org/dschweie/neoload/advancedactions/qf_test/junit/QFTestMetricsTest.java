@@ -0,0 +1,118 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestMetricsActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestLatencyHistogram;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestMetrics;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestMetricsTest
+{
+  @Test
+  public void testHistogram()
+  {
+    QFTestLatencyHistogram histogram = new QFTestLatencyHistogram();
+    assertEquals(0L, histogram.getValueAtQuantile(0.5));
+    for(long value = 1L; value <= 10000L; ++value)
+      histogram.record(value);
+    assertEquals(10000L, histogram.getCount());
+    assertEquals(10000L, histogram.getMax());
+    assertEquals(5000.5, histogram.getMean(), 0.001);
+    //  the relative error is below 1/32
+    for(double quantile : new double[] { 0.5, 0.9, 0.99 })
+    {
+      long expected = (long) (quantile * 10000L);
+      long actual   = histogram.getValueAtQuantile(quantile);
+      assertTrue(actual + " for " + quantile, (expected <= actual) && (actual <= expected + expected / 32L));
+    }
+    assertEquals(10000L, histogram.getValueAtQuantile(1.0));
+
+    //  small values are exact, out of range values are bounded
+    histogram.reset();
+    histogram.record(-5L);
+    histogram.record(63L);
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(0L, histogram.getValueAtQuantile(0.1));
+    assertEquals(63L, histogram.getValueAtQuantile(0.5));
+    assertEquals(QFTestLatencyHistogram.MAX_VALUE, histogram.getMax());
+  }
+
+  @Test
+  public void testConcurrentRecording() throws Exception
+  {
+    final QFTestLatencyHistogram histogram = QFTestMetrics.histogram("concurrent", "Test", null);
+    Thread[] threads = new Thread[8];
+    for(int i = 0; i < threads.length; ++i)
+    {
+      threads[i] = new Thread(() -> {
+        for(int n = 0; n < 10000; ++n)
+        {
+          QFTestMetrics.record("concurrent", "Test", null, n % 1000);
+          QFTestMetrics.count("concurrent", "Test", "calls");
+        }
+      });
+      threads[i].start();
+    }
+    for(Thread thread : threads)
+      thread.join();
+    assertEquals(80000L, histogram.getCount());
+    assertEquals(80000L, QFTestMetrics.getCount("concurrent", "Test", "calls"));
+    assertEquals(999L, histogram.getMax());
+  }
+
+  @Test
+  public void testActionMetrics() throws Exception
+  {
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", 44801));
+    try
+    {
+      daemon.setLatency(50L);
+      List<ActionParameter> parameters = new ArrayList<>();
+      parameters.add(new ActionParameter("engine", "standin"));
+      parameters.add(new ActionParameter("daemonport", "44801"));
+      parameters.add(new ActionParameter("testcase", "metrics.qft#case"));
+      long before = QFTestMetrics.histogram(QFTestMetrics.TESTCASE, "Execute", "metrics.qft#case").getCount();
+      for(int i = 0; i < 3; ++i)
+        assertEquals("0", new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters)).getStatusCode());
+      assertEquals(before + 3L, QFTestMetrics.histogram(QFTestMetrics.TESTCASE, "Execute", "metrics.qft#case").getCount());
+      assertTrue(45L <= QFTestMetrics.histogram(QFTestMetrics.TESTCASE, "Execute", "metrics.qft#case").getValueAtQuantile(0.5));
+      assertTrue(3L <= QFTestMetrics.getCount(QFTestMetrics.EXIT_CODE, "Execute", "0"));
+
+      File file = new File(Files.createTempDirectory("qftest-metrics").toFile(), "metrics.csv");
+      List<ActionParameter> dump = new ArrayList<>();
+      dump.add(new ActionParameter("metricsfile", file.getAbsolutePath()));
+      SampleResult result = new QFTestMetricsActionEngine().execute(null, dump);
+      assertEquals("0", result.getStatusCode());
+      assertTrue(result.getResponseContent().contains(QFTestMetrics.CSV_HEADER));
+      List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+      assertEquals(QFTestMetrics.CSV_HEADER, lines.get(0));
+      boolean found = false;
+      for(String line : lines)
+      {
+        assertEquals(line, 9, line.length() - line.replace(";", "").length());
+        found |= line.startsWith("histogram;testcase;Execute;metrics.qft#case;");
+      }
+      assertTrue(found);
+      //  the dump itself is not recorded
+      assertEquals(0L, QFTestMetrics.histogram(QFTestMetrics.DURATION, "Metrics", null).getCount());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+}
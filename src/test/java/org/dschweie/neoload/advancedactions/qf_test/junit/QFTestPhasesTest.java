@@ -0,0 +1,108 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestStreamPump;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestPhases;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestPhasesTest
+{
+  private static long phase(SampleResult result, String phase)
+  {
+    for(SampleResult sub : result.getSubResults())
+      if(phase.equals(sub.getRequestContent()))
+        return sub.getDuration();
+    fail("no phase " + phase);
+    return -1L;
+  }
+
+  @Test
+  public void testPhases()
+  {
+    QFTestPhases phases = new QFTestPhases(1000L, 1010L, 2000L);
+    assertEquals(10L, phases.getSpawn());
+    assertEquals(990L, phases.getRun());
+    assertEquals(QFTestPhases.SOURCE_PROCESS, phases.getSource());
+
+    phases.setRun(1500L, 1900L, QFTestPhases.SOURCE_RUNLOG);
+    assertEquals(490L, phases.getConnect());
+    assertEquals(400L, phases.getRun());
+    assertEquals(100L, phases.getTeardown());
+
+    //  times outside of the process are moved into it, spawn ends with the run at the latest
+    phases.setRun(900L, 2500L, QFTestPhases.SOURCE_CONSOLE);
+    assertEquals(0L, phases.getSpawn());
+    assertEquals(0L, phases.getConnect());
+    assertEquals(1000L, phases.getRun());
+    assertEquals(0L, phases.getTeardown());
+  }
+
+  @Test
+  public void testProcessPhases() throws Exception
+  {
+    File qftest = Files.createTempDirectory("qftest-fake").toFile();
+    if(!QFTestDaemonFixture.install(qftest))
+      return;
+
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("qftestPath", qftest.getAbsolutePath() + File.separator));
+    parameters.add(new ActionParameter("testcase", "suite.qft#case"));
+    SampleResult result = new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters));
+    assertEquals("0", result.getStatusCode());
+    assertEquals(4, result.getSubResults().size());
+    assertTrue(result.getResponseContent().contains("<source>console</source>"));
+    //  both outputs are seen by the polling pump, each up to one idle period late
+    assertTrue(QFTestDaemonFixture.CALL_MILLIS - 2L * QFTestStreamPump.MAX_IDLE_MILLIS <= phase(result, QFTestPhases.RUN));
+    //  the start of the JVM ends with its first output and is not part of the test run
+    assertTrue(0L < phase(result, QFTestPhases.SPAWN));
+    assertEquals(0L, phase(result, QFTestPhases.CONNECT));
+    assertTrue(result.getDuration() >= phase(result, QFTestPhases.SPAWN) + phase(result, QFTestPhases.CONNECT)
+                                       + phase(result, QFTestPhases.RUN) + phase(result, QFTestPhases.TEARDOWN));
+
+    parameters.add(new ActionParameter("runlog", new File(qftest, "run").getAbsolutePath()));
+    result = new QFTestExecuteActionEngine().execute(null, parameters);
+    assertTrue(result.getResponseContent().contains("<source>runlog</source>"));
+    assertEquals(QFTestDaemonFixture.CALL_MILLIS, phase(result, QFTestPhases.RUN));
+    assertEquals("TestCase: suite.qft#case", result.getSubResults().get(4).getRequestContent());
+  }
+
+  @Test
+  public void testDaemonPhases()
+  {
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", 44701));
+    try
+    {
+      daemon.setLatency(200L);
+      List<ActionParameter> parameters = new ArrayList<>();
+      parameters.add(new ActionParameter("engine", "standin"));
+      parameters.add(new ActionParameter("daemonport", "44701"));
+      parameters.add(new ActionParameter("testcase", "suite.qft#case"));
+      SampleResult result = new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters));
+      assertTrue(result.getResponseContent().contains("<source>daemon</source>"));
+      assertEquals(0L, phase(result, QFTestPhases.SPAWN));
+      assertTrue(190L <= phase(result, QFTestPhases.RUN));
+
+      parameters.add(new ActionParameter("phases", "false"));
+      result = new QFTestExecuteActionEngine().execute(null, parameters);
+      assertTrue(result.getSubResults().isEmpty());
+      assertFalse(result.getResponseContent().contains("<phases>"));
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *  \brief    Hilfsprogramm für Tests, das sich wie ein hängender QF-Test-Aufruf verhält
+ *
+ *  Aufruf: <tt>QFTestProcessFixture &lt;millis&gt; [pidfile]</tt>
+ *
+ *  Das Programm wartet \c millis Millisekunden. Wird eine Datei angegeben,
+ *  startet es vorher sich selbst als Kindprozess und schreibt dessen PID in
+ *  die Datei, so wie \c qftestc.exe eine weitere JVM startet.
+ *
+ *  Aufruf: <tt>QFTestProcessFixture flood &lt;bytes&gt;</tt>
+ *
+ *  Das Programm schreibt abwechselnd je \c bytes Bytes auf stdout und
+ *  stderr und endet danach, so wie ein gesprächiger Testlauf.
+ */
+public class QFTestProcessFixture
+{
+  public static List<String> command(String... args)
+  {
+    List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(QFTestProcessFixture.class.getName());
+    for(String arg : args)
+      command.add(arg);
+    return command;
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    if("flood".equals(args[0]))
+    {
+      byte[] line = new byte[1024];
+      Arrays.fill(line, (byte) 'x');
+      for(long written = 0L; written < Long.parseLong(args[1]); written += line.length)
+      {
+        System.out.write(line);
+        System.err.write(line);
+      }
+      System.out.flush();
+      System.err.flush();
+      return;
+    }
+    if(1 < args.length)
+    {
+      Process child = new ProcessBuilder(command(args[0])).inheritIO().start();
+      Files.write(new File(args[1]).toPath(), String.valueOf(child.pid()).getBytes(StandardCharsets.US_ASCII));
+    }
+    System.out.println("fixture running");
+    System.out.flush();
+    Thread.sleep(Long.parseLong(args[0]));
+  }
+}
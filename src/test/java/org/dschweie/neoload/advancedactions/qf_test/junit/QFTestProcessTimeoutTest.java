@@ -0,0 +1,63 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.AbstractQFTestActionEngine;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.Context;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestProcessTimeoutTest
+{
+  /**
+   *  \brief    Engine, die ein beliebiges Kommando als Hauptprozess ausführt
+   */
+  static class CommandEngine extends AbstractQFTestActionEngine
+  {
+    List<String> command;
+
+    @Override
+    public SampleResult execute(Context context, List<ActionParameter> parameters)
+    {
+      this.configure(parameters);
+      return this.executeProcess(context, this.command);
+    }
+  }
+
+  @Test
+  public void testTimeoutKillsProcessTree() throws Exception
+  {
+    File pidFile = File.createTempFile("qftest-fixture", ".pid");
+    pidFile.deleteOnExit();
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("timeout", "3000"));
+    parameters.add(new ActionParameter("killgrace", "1000"));
+    CommandEngine engine = new CommandEngine();
+    engine.command = QFTestProcessFixture.command("60000", pidFile.getAbsolutePath());
+
+    long start = System.currentTimeMillis();
+    SampleResult result = engine.execute(null, parameters);
+    assertTrue(30000L > System.currentTimeMillis() - start);
+    assertTrue(result.isError());
+    assertEquals(AbstractQFTestActionEngine.STATUS_TIMEOUT, result.getStatusCode());
+    assertTrue(result.getResponseContent().contains("fixture running"));
+
+    long childPid = Long.parseLong(new String(Files.readAllBytes(pidFile.toPath()), StandardCharsets.US_ASCII).trim());
+    assertFalse(ProcessHandle.of(childPid).map(ProcessHandle::isAlive).orElse(false));
+  }
+
+  @Test
+  public void testStopWithoutProcess()
+  {
+    new CommandEngine().stopExecute();
+  }
+
+}
@@ -0,0 +1,72 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestBackoff;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStartActionEngine;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestReadinessTest
+{
+  @Test
+  public void testBackoffGrowsUpToMaximum()
+  {
+    QFTestBackoff backoff = new QFTestBackoff(0L, 100L, 400L, 0L);
+    long[] expected = { 100L, 200L, 400L, 400L };
+    for(long base : expected)
+    {
+      long delay = backoff.nextDelay();
+      assertTrue(delay + " around " + base, (delay >= (long) (base * 0.8d)) && (delay <= (long) (base * 1.2d)));
+    }
+    assertFalse(backoff.isExpired());
+  }
+
+  @Test
+  public void testBackoffRespectsDeadline() throws InterruptedException
+  {
+    QFTestBackoff backoff = new QFTestBackoff(10000L, 10000L, 10000L, 100L);
+    assertTrue(100L >= backoff.getInitialDelay());
+    assertTrue(100L >= backoff.nextDelay());
+    Thread.sleep(150L);
+    assertTrue(backoff.isExpired());
+    assertEquals(0L, backoff.nextDelay());
+  }
+
+  @Test
+  public void testStartDetectsReadinessFromOutput() throws Exception
+  {
+    File directory = Files.createTempDirectory("qftest-fake").toFile();
+    if(!QFTestDaemonFixture.install(directory))
+      return;
+
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("qftestPath", directory.getAbsolutePath() + File.separator));
+    parameters.add(new ActionParameter("daemonport", "43801"));
+    //  without the output the first probe would be sent after ten seconds
+    parameters.add(new ActionParameter("readydelay", "10000"));
+    parameters.add(new ActionParameter("readypattern", "listening on port"));
+
+    QFTestStartActionEngine engine = new QFTestStartActionEngine();
+    long start = System.nanoTime();
+    try
+    {
+      SampleResult result = engine.execute(null, parameters);
+      assertEquals("0", result.getStatusCode());
+      assertTrue(result.getResponseContent().contains("<attempts>1</attempts>"));
+      assertTrue(8000L > (System.nanoTime() - start) / 1000000L);
+    }
+    finally
+    {
+      engine.stopExecute();
+    }
+  }
+
+}
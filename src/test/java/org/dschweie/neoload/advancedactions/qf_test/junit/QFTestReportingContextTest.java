@@ -0,0 +1,57 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStopActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestReportingContext;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestReportingContextTest
+{
+  @Test
+  public void testReleasedContextIsEmpty()
+  {
+    QFTestReportingContext reporting = QFTestReportingContext.acquire();
+    reporting.getRequest().append("qftestc.exe -batch -calldaemon");
+    reporting.getResponse().append("<console>\n</console>");
+    QFTestReportingContext.release(reporting);
+
+    for(int i = 0; i < 10; ++i)
+    {
+      QFTestReportingContext next = QFTestReportingContext.acquire();
+      assertEquals(0, next.getRequest().length());
+      assertEquals(0, next.getResponse().length());
+      QFTestReportingContext.release(next);
+    }
+  }
+
+  @Test
+  public void testGrownBufferIsNotRetained()
+  {
+    QFTestReportingContext reporting = QFTestReportingContext.acquire();
+    reporting.getResponse().append(new char[2 * QFTestReportingContext.RETAINED_CAPACITY]);
+    reporting.reset();
+    assertEquals(0, reporting.getResponse().length());
+    assertTrue(QFTestReportingContext.RETAINED_CAPACITY >= reporting.getResponse().capacity());
+  }
+
+  @Test
+  public void testNoGrowthAcrossIterations()
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("qftestPath", "/no/such/qftest/dir/"));
+    QFTestStopActionEngine engine = new QFTestStopActionEngine();
+    SampleResult first  = engine.execute(null, parameters);
+    SampleResult second = engine.execute(null, parameters);
+    assertTrue(first.isError());
+    assertEquals(first.getRequestContent(), second.getRequestContent());
+    assertEquals(first.getResponseContent().length(), second.getResponseContent().length());
+  }
+
+}
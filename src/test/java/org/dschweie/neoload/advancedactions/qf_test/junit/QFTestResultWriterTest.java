@@ -0,0 +1,111 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestConsoleCapture;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestResultWriter;
+import com.neotys.extensions.action.ActionParameter;
+
+public class QFTestResultWriterTest
+{
+  @Test
+  public void testXmlEscaping()
+  {
+    StringBuilder out = new StringBuilder();
+    QFTestResultWriter.create(QFTestResultWriter.FORMAT_XML, out)
+                      .startDocument()
+                      .element("console", "a < b && c > d\u0001")
+                      .element("exitcode", "0")
+                      .endDocument();
+    assertEquals("<?xml version=\"1.0\"?>\n<result>\n<console>a &lt; b &amp;&amp; c &gt; d?</console>\n<exitcode>0</exitcode>\n</result>", out.toString());
+  }
+
+  @Test
+  public void testJsonStructure()
+  {
+    StringBuilder inner = new StringBuilder();
+    QFTestResultWriter.create(QFTestResultWriter.FORMAT_JSON, inner).startDocument().element("exitcode", "0").endDocument();
+
+    StringBuilder out = new StringBuilder();
+    QFTestResultWriter.create(QFTestResultWriter.FORMAT_JSON, out)
+                      .startDocument()
+                      .startElement("startDaemon").element("exitcode", "0").endElement()
+                      .embed("pingDaemon", inner.toString())
+                      .element("console", "\"quoted\"\n\\path\t")
+                      .endDocument();
+    assertEquals("{\"startDaemon\":{\"exitcode\":\"0\"},\"pingDaemon\":{\"exitcode\":\"0\"},\"console\":\"\\\"quoted\\\"\\n\\\\path\\t\"}", out.toString());
+  }
+
+  @Test
+  public void testJsonUniqueNamesAndDepth()
+  {
+    StringBuilder out = new StringBuilder();
+    QFTestResultWriter.create(QFTestResultWriter.FORMAT_JSON, out)
+                      .startDocument()
+                      .element("exception", "a")
+                      .element("exception", "b")
+                      .element("exception2", "c")
+                      .startElement("nested").element("exception", "d").endElement()
+                      .endDocument();
+    assertEquals("{\"exception\":\"a\",\"exception2\":\"b\",\"exception22\":\"c\",\"nested\":{\"exception\":\"d\"}}", out.toString());
+
+    //  many repetitions continue with the next free number, also after a nested object
+    out.setLength(0);
+    QFTestResultWriter steps = QFTestResultWriter.create(QFTestResultWriter.FORMAT_JSON, out).startDocument();
+    steps.element("step3", "x");
+    for(int i = 0; i < 1000; ++i)
+      steps.startElement("step").element("step", "y").endElement();
+    steps.endDocument();
+    assertTrue(out.toString().startsWith("{\"step3\":\"x\",\"step\":{\"step\":\"y\"},\"step2\":{\"step\":\"y\"},\"step4\":{"));
+    assertTrue(out.toString().endsWith(",\"step1001\":{\"step\":\"y\"}}"));
+
+    //  the nesting is not limited
+    out.setLength(0);
+    QFTestResultWriter writer = QFTestResultWriter.create(QFTestResultWriter.FORMAT_JSON, out).startDocument();
+    for(int i = 0; i < 100; ++i)
+      writer.startElement("level");
+    writer.endDocument();
+    assertTrue(out.toString().startsWith("{\"level\":{\"level\":{"));
+    assertEquals(101, out.toString().replaceAll("[^}]", "").length());
+  }
+
+  @Test
+  public void testXmlEmbedWithoutDeclaration()
+  {
+    StringBuilder inner = new StringBuilder();
+    QFTestResultWriter.create(QFTestResultWriter.FORMAT_XML, inner).startDocument().element("exitcode", "1").endDocument();
+
+    StringBuilder out = new StringBuilder();
+    QFTestResultWriter.create(QFTestResultWriter.FORMAT_XML, out).startDocument().embed("pingDaemon", inner.toString()).endDocument();
+    assertEquals(1, out.toString().split("<\\?xml").length - 1);
+    assertTrue(out.toString().contains("<pingDaemon>\n<result>\n<exitcode>1</exitcode>\n</result>\n</pingDaemon>"));
+  }
+
+  @Test
+  public void testCaptureWrittenInOrder()
+  {
+    QFTestConsoleCapture capture = new QFTestConsoleCapture(0, 4);
+    char[] chars = "abcdefg".toCharArray();
+    capture.append(chars, 0, chars.length);
+    StringBuilder out = new StringBuilder();
+    QFTestResultWriter writer = QFTestResultWriter.create(QFTestResultWriter.FORMAT_JSON, out).startDocument().startText("console");
+    capture.writeTo(writer);
+    writer.endText().endDocument();
+    assertEquals("{\"console\":\"\\n[... 3 characters omitted ...]\\ndefg\"}", out.toString());
+  }
+
+  @Test
+  public void testFormatParameter()
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    assertEquals(QFTestResultWriter.FORMAT_XML, QFTestResultWriter.getFormat(parameters));
+    parameters.add(new ActionParameter("responseformat", "JSON"));
+    assertEquals(QFTestResultWriter.FORMAT_JSON, QFTestResultWriter.getFormat(parameters));
+  }
+
+}
@@ -0,0 +1,118 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestStandInDaemon;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestExecuteActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestRunLogParser;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestRunLogParserTest
+{
+  private static final String RUNLOG =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+    + "<RunLog version=\"7.0\">\n"
+    + "  <TestSet name=\"Login\" realtime=\"900\">\n"
+    + "    <TestCase name=\"Valid user\" realtime=\"600\">\n"
+    + "      <Sequence name=\"Enter credentials\" duration=\"250\">\n"
+    + "        <Message>text &amp; more</Message>\n"
+    + "        <Sequence name=\"no timing\"><TestStep id=\"click\" realtime=\"40\"/></Sequence>\n"
+    + "      </Sequence>\n"
+    + "      <TestStep name=\"Check\" realtime=\"120\"/>\n"
+    + "    </TestCase>\n"
+    + "  </TestSet>\n"
+    + "  <TestCase name=\"Logout\" realtime=\"80\"/>\n"
+    + "</RunLog>\n";
+
+  private static byte[] gzip(String text) throws Exception
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(bytes))
+    {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testParse() throws Exception
+  {
+    List<QFTestRunLogParser.Step> steps = QFTestRunLogParser.parse(new ByteArrayInputStream(gzip(RUNLOG)), QFTestRunLogParser.parseTypes(QFTestRunLogParser.DEFAULT_TYPES), 100);
+    assertEquals(6, steps.size());
+    assertEquals("TestSet: Login", steps.get(0).toString());
+    assertEquals(900L, steps.get(0).getDuration());
+    assertEquals(1, steps.get(1).getLevel());
+    assertEquals(250L, steps.get(2).getDuration());
+    assertEquals(2, steps.get(2).getLevel());
+    //  a sequence without timing is skipped, its children move up
+    assertEquals("TestStep: click", steps.get(3).toString());
+    assertEquals(3, steps.get(3).getLevel());
+    assertEquals("TestStep: Check", steps.get(4).toString());
+    assertEquals(2, steps.get(4).getLevel());
+    assertEquals(0, steps.get(5).getLevel());
+
+    //  plain XML, a limit and a reduced set of types
+    steps = QFTestRunLogParser.parse(new ByteArrayInputStream(RUNLOG.getBytes(StandardCharsets.UTF_8)), QFTestRunLogParser.parseTypes("TestCase"), 1);
+    assertEquals(1, steps.size());
+    assertEquals("Valid user", steps.get(0).getName());
+    assertEquals(0, steps.get(0).getLevel());
+    assertTrue(QFTestRunLogParser.parse(new ByteArrayInputStream(gzip(RUNLOG)), QFTestRunLogParser.parseTypes("none"), 100).isEmpty());
+  }
+
+  @Test
+  public void testExecuteAttachesSteps() throws Exception
+  {
+    QFTestStandInDaemon daemon = QFTestStandInDaemon.start(new QFTestDaemonEndpoint("localhost", 44601));
+    try
+    {
+      File runlog = new File(Files.createTempDirectory("qftest-runlog").toFile(), "run.qrz");
+      List<ActionParameter> parameters = new ArrayList<>();
+      parameters.add(new ActionParameter("engine", "standin"));
+      parameters.add(new ActionParameter("daemonport", "44601"));
+      parameters.add(new ActionParameter("testcase", "suite.qft#case"));
+      parameters.add(new ActionParameter("phases", "false"));
+      parameters.add(new ActionParameter("runlog", runlog.getAbsolutePath().replace(".qrz", "")));
+
+      //  a missing log leaves the result untouched
+      assertTrue(new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters)).getSubResults().isEmpty());
+
+      try (OutputStream out = new FileOutputStream(runlog))
+      {
+        out.write(gzip(RUNLOG));
+      }
+      SampleResult result = new QFTestExecuteActionEngine().execute(null, new ArrayList<>(parameters));
+      assertEquals("0", result.getStatusCode());
+      assertEquals(2, result.getSubResults().size());
+      SampleResult login = result.getSubResults().get(0);
+      assertEquals("TestSet: Login", login.getRequestContent());
+      assertEquals(900L, login.getDuration());
+      assertEquals(2, login.getSubResults().get(0).getSubResults().size());
+      assertEquals("TestCase: Logout", result.getSubResults().get(1).getRequestContent());
+
+      //  a daemon on another host writes the log there, a local file of the same name is not its log
+      assertTrue(new QFTestDaemonEndpoint("localhost", 44601).isLocal());
+      assertTrue(new QFTestDaemonEndpoint("127.0.0.1", 44601).isLocal());
+      assertFalse(new QFTestDaemonEndpoint("192.0.2.1", 44601).isLocal());
+    }
+    finally
+    {
+      daemon.stop();
+    }
+  }
+
+}
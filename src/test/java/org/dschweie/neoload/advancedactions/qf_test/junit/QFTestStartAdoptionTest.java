@@ -0,0 +1,96 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStartActionEngine;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestDaemonPidFile;
+import org.dschweie.neoload.advancedactions.qf_test.report.QFTestMetrics;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestStartAdoptionTest
+{
+  private static List<ActionParameter> parameters(File qftest, File lockdir, int port)
+  {
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("qftestPath", qftest.getAbsolutePath() + File.separator));
+    parameters.add(new ActionParameter("daemonlockdir", lockdir.getAbsolutePath()));
+    parameters.add(new ActionParameter("daemonport", String.valueOf(port)));
+    parameters.add(new ActionParameter("readydelay", "0"));
+    return parameters;
+  }
+
+  @Test
+  public void testConcurrentStartsSpawnOnce() throws Exception
+  {
+    File qftest = Files.createTempDirectory("qftest-fake").toFile();
+    File lockdir = Files.createTempDirectory("qftest-lock").toFile();
+    if(!QFTestDaemonFixture.install(qftest))
+      return;
+
+    List<ActionParameter> parameters = parameters(qftest, lockdir, 43901);
+    QFTestStartActionEngine first  = new QFTestStartActionEngine();
+    QFTestStartActionEngine second = new QFTestStartActionEngine();
+    long                    before = QFTestMetrics.histogram(QFTestMetrics.DURATION, "Start", null).getCount();
+    try
+    {
+      CompletableFuture<SampleResult> a = CompletableFuture.supplyAsync(() -> first.execute(null, parameters));
+      CompletableFuture<SampleResult> b = CompletableFuture.supplyAsync(() -> second.execute(null, parameters));
+      SampleResult ra = a.get();
+      SampleResult rb = b.get();
+      assertEquals("0", ra.getStatusCode());
+      assertEquals("0", rb.getStatusCode());
+      //  exactly one of both has adopted the daemon of the other one
+      assertTrue(ra.getResponseContent().contains("<adopted>") ^ rb.getResponseContent().contains("<adopted>"));
+
+      long start = System.nanoTime();
+      SampleResult third = new QFTestStartActionEngine().execute(null, parameters);
+      assertTrue(third.getResponseContent().contains("<adopted>"));
+      assertTrue(1000L > (System.nanoTime() - start) / 1000000L);
+
+      //  readiness probes are part of the start and not counted on their own
+      assertEquals(before + 3L, QFTestMetrics.histogram(QFTestMetrics.DURATION, "Start", null).getCount());
+    }
+    finally
+    {
+      first.stopExecute();
+      second.stopExecute();
+    }
+  }
+
+  @Test
+  public void testStalePidFileIsIgnored() throws Exception
+  {
+    File lockdir = Files.createTempDirectory("qftest-lock").toFile();
+    QFTestDaemonEndpoint endpoint = new QFTestDaemonEndpoint("localhost", 43902);
+    try (QFTestDaemonPidFile pidFile = QFTestDaemonPidFile.lock(endpoint, lockdir, 1000L))
+    {
+      Files.write(pidFile.getFile().toPath(), "no pid".getBytes(StandardCharsets.US_ASCII));
+      assertFalse(pidFile.readProcess().isPresent());
+      //  a reused PID is recognised by the start time
+      long pid = ProcessHandle.current().pid();
+      Files.write(pidFile.getFile().toPath(), String.valueOf(pid).getBytes(StandardCharsets.US_ASCII));
+      assertFalse(pidFile.readProcess().isPresent());
+      Files.write(pidFile.getFile().toPath(), (pid + " 1000").getBytes(StandardCharsets.US_ASCII));
+      assertFalse(pidFile.readProcess().isPresent());
+      pidFile.write(ProcessHandle.current());
+      assertEquals(pid, pidFile.readProcess().get().pid());
+    }
+    QFTestDaemonPidFile.remove(endpoint, lockdir);
+    try (QFTestDaemonPidFile pidFile = QFTestDaemonPidFile.lock(endpoint, lockdir, 1000L))
+    {
+      assertFalse(pidFile.getFile().exists());
+    }
+  }
+
+}
@@ -0,0 +1,61 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonEndpoint;
+import org.dschweie.neoload.advancedactions.qf_test.client.QFTestDaemonProbe;
+import org.dschweie.neoload.advancedactions.qf_test.daemon.QFTestStartActionEngine;
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class QFTestStartFarmTest
+{
+  @Test
+  public void testFarmStartsInParallel() throws Exception
+  {
+    File qftest = Files.createTempDirectory("qftest-fake").toFile();
+    if(!QFTestDaemonFixture.install(qftest))
+      return;
+
+    List<ActionParameter> parameters = new ArrayList<>();
+    parameters.add(new ActionParameter("qftestPath", qftest.getAbsolutePath() + File.separator));
+    parameters.add(new ActionParameter("daemonlockdir", Files.createTempDirectory("qftest-lock").toFile().getAbsolutePath()));
+    parameters.add(new ActionParameter("daemonport", "44201"));
+    parameters.add(new ActionParameter("daemoncount", "3"));
+    parameters.add(new ActionParameter("readydelay", "0"));
+    parameters.add(new ActionParameter("supervise", "false"));
+
+    QFTestStartActionEngine engine = new QFTestStartActionEngine();
+    try
+    {
+      SampleResult result = engine.execute(null, parameters);
+      assertEquals("0", result.getStatusCode());
+      assertEquals(3, result.getSubResults().size());
+      long serial = 0L;
+      for(SampleResult daemon : result.getSubResults())
+      {
+        assertEquals("0", daemon.getStatusCode());
+        serial += daemon.getDuration();
+      }
+      //  the daemons have been started side by side, not one after another
+      assertTrue(result.getDuration() < serial);
+      assertTrue(result.getResponseContent().contains("<daemoncount>3</daemoncount>"));
+      assertTrue(result.getResponseContent().contains("<started>3</started>"));
+      assertTrue(result.getResponseContent().contains("<endpoint>localhost:44203</endpoint>"));
+      for(int port = 44201; port <= 44203; ++port)
+        QFTestDaemonProbe.probe(new QFTestDaemonEndpoint("localhost", port), 1000, true);
+    }
+    finally
+    {
+      engine.stopExecute();
+    }
+  }
+
+}
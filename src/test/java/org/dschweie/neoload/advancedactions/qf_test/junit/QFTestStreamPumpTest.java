@@ -0,0 +1,75 @@
+package org.dschweie.neoload.advancedactions.qf_test.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestConsoleSettings;
+import org.dschweie.neoload.advancedactions.qf_test.process.QFTestStreamPump;
+
+public class QFTestStreamPumpTest
+{
+  @Test
+  public void testDrainMoreThanPipeBuffer() throws InterruptedException
+  {
+    byte[] output = new byte[1024 * 1024];
+    Arrays.fill(output, (byte) 'x');
+    QFTestStreamPump pump = QFTestStreamPump.start(new ByteArrayInputStream(output));
+    assertTrue(pump.await(10000L));
+    assertEquals(output.length, pump.getCapture().getTotalLength());
+    assertNull(pump.getException());
+  }
+
+  @Test
+  public void testDrainBlockingChildProcess() throws Exception
+  {
+    //  without concurrent reading the child blocks on the full pipe and never ends
+    long      bytes   = 4L * 1024L * 1024L;
+    Process   process = new ProcessBuilder(QFTestProcessFixture.command("flood", String.valueOf(bytes))).start();
+    QFTestStreamPump stdout = QFTestStreamPump.start(process, process.getInputStream(), QFTestConsoleSettings.DEFAULT);
+    QFTestStreamPump stderr = QFTestStreamPump.start(process, process.getErrorStream(), QFTestConsoleSettings.DEFAULT);
+    assertTrue(process.waitFor(30L, TimeUnit.SECONDS));
+    assertTrue(stdout.await(10000L));
+    assertTrue(stderr.await(10000L));
+    assertEquals(bytes, stdout.getCapture().getTotalLength());
+    assertEquals(bytes, stderr.getCapture().getTotalLength());
+    assertNull(stdout.getException());
+  }
+
+  @Test
+  public void testWaitingStreamDoesNotStopProcessStreams() throws Exception
+  {
+    //  streams without process wait for data on their own threads, not on the shared ones
+    PipedOutputStream[] writers = new PipedOutputStream[QFTestStreamPump.POLLER_COUNT];
+    QFTestStreamPump[]  waiting = new QFTestStreamPump[writers.length];
+    for(int i = 0; i < writers.length; ++i)
+    {
+      writers[i] = new PipedOutputStream();
+      waiting[i] = QFTestStreamPump.start(new PipedInputStream(writers[i]));
+    }
+    try
+    {
+      Process process = new ProcessBuilder(QFTestProcessFixture.command("flood", "1024")).start();
+      QFTestStreamPump stdout = QFTestStreamPump.start(process, process.getInputStream(), QFTestConsoleSettings.DEFAULT);
+      QFTestStreamPump stderr = QFTestStreamPump.start(process, process.getErrorStream(), QFTestConsoleSettings.DEFAULT);
+      assertTrue(process.waitFor(30L, TimeUnit.SECONDS));
+      assertTrue(stdout.await(10000L));
+      assertTrue(stderr.await(10000L));
+      assertEquals(1024L, stdout.getCapture().getTotalLength());
+    }
+    finally
+    {
+      for(PipedOutputStream writer : writers)
+        writer.close();
+    }
+    for(QFTestStreamPump pump : waiting)
+      assertTrue(pump.await(10000L));
+  }
+
+}